@@ -31,6 +31,7 @@ import org.apache.wicket.authorization.IAuthorizationStrategy;
 import org.apache.wicket.authorization.UnauthorizedActionException;
 import org.apache.wicket.authorization.strategies.page.SimplePageAuthorizationStrategy;
 import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.behavior.ParallelRenderBehavior;
 import org.apache.wicket.core.request.handler.BookmarkableListenerRequestHandler;
 import org.apache.wicket.core.request.handler.ListenerRequestHandler;
 import org.apache.wicket.core.request.handler.PageAndComponentProvider;
@@ -67,6 +68,7 @@ import org.apache.wicket.model.IComponentInheritedModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.IModelComparator;
 import org.apache.wicket.model.IWrapModel;
+import org.apache.wicket.page.PageAccessSynchronizer;
 import org.apache.wicket.protocol.http.WicketFilter;
 import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.Request;
@@ -438,6 +440,8 @@ public abstract class Component
 	private static final short RFLAG_DETACHING = 0x1000;	
 	/** True when a component is being removed from the hierarchy */
 	private static final short RFLAG_REMOVING_FROM_HIERARCHY = 0x2000;
+	/** True when a component is rendered by a {@link ParallelRenderBehavior} */
+	private static final short RFLAG_RENDERED_IN_PARALLEL = 0x4000;
 
 	/**
 	 * Flags that only keep their value during the request. Useful for cache markers, etc. At the
@@ -2197,12 +2201,36 @@ public abstract class Component
 		page.endComponentRender(this);
 	}
 
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * <p>
+	 * Marks the component as being rendered by a {@link ParallelRenderBehavior}.
+	 * 
+	 * @param rendered
+	 *            whether the component is rendered in parallel
+	 */
+	public final void internalSetRenderedInParallel(final boolean rendered)
+	{
+		setRequestFlag(RFLAG_RENDERED_IN_PARALLEL, rendered);
+	}
+
 	/**
 	 * Render this component and all its children. Always calls hook {@link #onAfterRender()}
 	 * regardless of any exception.
 	 */
 	public final void render()
 	{
+		if (getRequestFlag(RFLAG_RENDERED_IN_PARALLEL))
+		{
+			for (ParallelRenderBehavior behavior : getBehaviors(ParallelRenderBehavior.class))
+			{
+				if (behavior.writeRendered(this))
+				{
+					return;
+				}
+			}
+		}
+
 		if (isAuto())
 		{
 			// auto components are prepared when rendered
@@ -2930,6 +2958,18 @@ public abstract class Component
 		return this;
 	}
 
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * <p>
+	 * Gets the model of this component without initializing it, see {@link #initModel()}.
+	 * 
+	 * @return the model or {@code null} if none is set yet
+	 */
+	public final IModel<?> internalGetModel()
+	{
+		return getModelImpl();
+	}
+
 	/**
 	 * @return model
 	 */
@@ -3281,6 +3321,11 @@ public abstract class Component
 
 		PageAndComponentProvider provider = new PageAndComponentProvider(page, this, parameters);
 
+		if (isReadOnlyListener(id) && page.isPageStateless() == false)
+		{
+			PageAccessSynchronizer.readOnlyListenerRendered(page, getPageRelativePath(), id);
+		}
+
 		if (page.isPageStateless()
 			|| (page.isBookmarkable() && page.wasCreatedBookmarkable()))
 		{
@@ -3292,6 +3337,15 @@ public abstract class Component
 		}
 	}
 
+	/**
+	 * Is the listener of this component or one of its behaviors read-only.
+	 */
+	private boolean isReadOnlyListener(Integer id)
+	{
+		Object listener = id == null ? this : getBehaviorById(id);
+		return listener instanceof IRequestListener && ((IRequestListener)listener).isReadOnly();
+	}
+
 	/**
 	 * Returns a URL that references the given request target.
 	 * 
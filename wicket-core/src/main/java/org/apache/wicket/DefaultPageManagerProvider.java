@@ -21,12 +21,17 @@ import java.io.File;
 import org.apache.wicket.page.IPageManager;
 import org.apache.wicket.page.IPageManagerContext;
 import org.apache.wicket.page.PageStoreManager;
+import org.apache.wicket.pageStore.AbstractCachingPageStore;
 import org.apache.wicket.pageStore.AsynchronousDataStore;
 import org.apache.wicket.pageStore.AsynchronousPageStore;
+import org.apache.wicket.pageStore.CompressingDataStore;
 import org.apache.wicket.pageStore.DefaultPageStore;
+import org.apache.wicket.pageStore.DeltaDataStore;
 import org.apache.wicket.pageStore.DiskDataStore;
 import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.OffHeapPageCache;
+import org.apache.wicket.pageStore.PerSessionPageStore;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.settings.StoreSettings;
 import org.apache.wicket.util.lang.Args;
@@ -58,12 +63,25 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 
 		StoreSettings storeSettings = getStoreSettings();
 
+		if (storeSettings.isDictionaryCompression())
+		{
+			File dictionaryFolder = new File(storeSettings.getFileStoreFolder(),
+				application.getName() + "-dictionaries");
+			dataStore = new CompressingDataStore(dataStore, dictionaryFolder);
+		}
+
+		if (storeSettings.getDeltaSnapshotInterval() > 0)
+		{
+			dataStore = new DeltaDataStore(dataStore, storeSettings.getDeltaSnapshotInterval());
+		}
+
 		IPageStore pageStore;
 
 		if (dataStore.canBeAsynchronous() && storeSettings.isAsynchronous())
 		{
 			int capacity = storeSettings.getAsynchronousQueueCapacity();
-			dataStore = new AsynchronousDataStore(dataStore, capacity);
+			int workerCount = storeSettings.getAsynchronousWorkerCount();
+			dataStore = new AsynchronousDataStore(dataStore, capacity, workerCount);
 
 			pageStore = newPageStore(dataStore);
 
@@ -83,9 +101,28 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 
 	protected IPageStore newPageStore(IDataStore dataStore)
 	{
-		int inmemoryCacheSize = getStoreSettings().getInmemoryCacheSize();
+		StoreSettings storeSettings = getStoreSettings();
+		int inmemoryCacheSize = storeSettings.getInmemoryCacheSize();
 		ISerializer pageSerializer = application.getFrameworkSettings().getSerializer();
-		return new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize);
+		Bytes offHeapCacheSize = storeSettings.getOffHeapCacheSize();
+
+		AbstractCachingPageStore<?> pageStore;
+		if (offHeapCacheSize.bytes() > 0)
+		{
+			pageStore = new PerSessionPageStore(pageSerializer, dataStore,
+				new OffHeapPageCache(pageSerializer, offHeapCacheSize));
+		}
+		else
+		{
+			pageStore = new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize);
+		}
+
+		if (storeSettings.getPrefetchCount() > 0)
+		{
+			pageStore.setPrefetch(storeSettings.getPrefetchCount(),
+				storeSettings.getPrefetchIdleTime());
+		}
+		return pageStore;
 	}
 
 	protected IDataStore newDataStore()
@@ -38,6 +38,20 @@ public interface IRequestListener extends IClusterable
 	{
 		return true;
 	}
+
+	/**
+	 * Does invocation of this listener leave the state of its page untouched.
+	 * <p>
+	 * A read-only listener is invoked on a snapshot of its page, without waiting for other requests
+	 * holding the lock on the page. Changes to the snapshot are discarded after the request.
+	 * 
+	 * @return default {@code false}, i.e. the listener is invoked on the locked page
+	 * @see org.apache.wicket.page.PageAccessSynchronizer
+	 */
+	default boolean isReadOnly()
+	{
+		return false;
+	}
 	
 	/**
 	 * Called when a request is received.
@@ -17,6 +17,7 @@
 package org.apache.wicket;
 
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -42,6 +43,7 @@ import org.apache.wicket.markup.MarkupFactory;
 import org.apache.wicket.markup.MarkupNotFoundException;
 import org.apache.wicket.markup.MarkupStream;
 import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.markup.RawMarkup;
 import org.apache.wicket.markup.WicketTag;
 import org.apache.wicket.markup.html.border.Border;
 import org.apache.wicket.markup.html.form.AutoLabelResolver;
@@ -49,6 +51,8 @@ import org.apache.wicket.markup.resolver.ComponentResolvers;
 import org.apache.wicket.model.IComponentInheritedModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.IWrapModel;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.response.IEncodingResponse;
 import org.apache.wicket.settings.DebugSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Classes;
@@ -1471,7 +1475,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			// Render as raw markup
 			if (canRenderRawTag(element))
 			{
-				getResponse().write(element.toCharSequence());
+				renderRawMarkup(element);
 			}
 			return true;
 		}
@@ -1479,6 +1483,28 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		return false;
 	}
 	
+	/**
+	 * Writes raw markup, encoded already if the response supports it.
+	 * 
+	 * @param element
+	 *            the raw markup
+	 */
+	private void renderRawMarkup(final MarkupElement element)
+	{
+		Response response = getResponse();
+		if (element instanceof RawMarkup && response instanceof IEncodingResponse)
+		{
+			IEncodingResponse encodingResponse = (IEncodingResponse)response;
+			Charset charset = encodingResponse.getCharset();
+			if (charset != null)
+			{
+				encodingResponse.writeEncoded(((RawMarkup)element).getBytes(charset));
+				return;
+			}
+		}
+		response.write(element.toCharSequence());
+	}
+
 	/**
 	 * Says if the given tag can be handled as a raw markup.
 	 * 
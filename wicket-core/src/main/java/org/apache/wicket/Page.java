@@ -17,12 +17,14 @@
 package org.apache.wicket;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.wicket.authorization.UnauthorizedActionException;
+import org.apache.wicket.behavior.ParallelRenderBehavior;
 import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.wicket.feedback.FeedbackDelay;
 import org.apache.wicket.markup.MarkupException;
@@ -31,6 +33,7 @@ import org.apache.wicket.markup.MarkupType;
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.markup.resolver.IComponentResolver;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.ModelPreloader;
 import org.apache.wicket.page.IPageManager;
 import org.apache.wicket.pageStore.IPageStore;
 import org.apache.wicket.request.component.IRequestablePage;
@@ -193,12 +196,13 @@ public abstract class Page extends MarkupContainer
 	}
 
 	/**
-	 * Adds a component to the set of rendered components.
+	 * Adds a component to the set of rendered components. Synchronized since regions of the page
+	 * might be rendered in parallel.
 	 * 
 	 * @param component
 	 *            The component that was rendered
 	 */
-	public final void componentRendered(final Component component)
+	public final synchronized void componentRendered(final Component component)
 	{
 		// Inform the page that this component rendered
 		if (getApplication().getDebugSettings().getComponentUseCheck())
@@ -269,6 +273,11 @@ public abstract class Page extends MarkupContainer
 	{
 		checkHierarchyChange(this);
 
+		if (ParallelRenderBehavior.deferToRequestThread(() -> dirty(isInitialization)))
+		{
+			return;
+		}
+
 		if (getFlag(FLAG_PREVENT_DIRTY))
 		{
 			return;
@@ -328,7 +337,7 @@ public abstract class Page extends MarkupContainer
 	 * 
 	 * @return A page unique number
 	 */
-	public final int getAutoIndex()
+	public final synchronized int getAutoIndex()
 	{
 		return autoIndex++;
 	}
@@ -423,7 +432,7 @@ public abstract class Page extends MarkupContainer
 	 * 
 	 * @return boolean value
 	 */
-	private boolean peekPageStateless()
+	private synchronized boolean peekPageStateless()
 	{
 		Boolean old = stateless;
 		Boolean res = isPageStateless();
@@ -435,11 +444,14 @@ public abstract class Page extends MarkupContainer
 	 * Gets whether the page is stateless. Components on stateless page must not render any stateful
 	 * urls, and components on stateful page must not render any stateless urls. Stateful urls are
 	 * urls, which refer to a certain (current) page instance.
+	 * <p>
+	 * Synchronized, since regions of the page may be rendered in parallel.
 	 * 
 	 * @return Whether this page is stateless
+	 * @see ParallelRenderBehavior
 	 */
 	@Override
-	public final boolean isPageStateless()
+	public final synchronized boolean isPageStateless()
 	{
 		if (isBookmarkable() == false)
 		{
@@ -800,6 +812,9 @@ public abstract class Page extends MarkupContainer
 	@Override
 	protected void onAfterRender()
 	{
+		// no region may be rendered anymore when the page is checked
+		ParallelRenderBehavior.finishRendering(getRequestCycle());
+
 		super.onAfterRender();
 
 		// Check rendering if it happened fully
@@ -914,7 +929,7 @@ public abstract class Page extends MarkupContainer
 	 * 
 	 * @param stateless
 	 */
-	void setPageStateless(Boolean stateless)
+	synchronized void setPageStateless(Boolean stateless)
 	{
 		this.stateless = stateless;
 	}
@@ -933,10 +948,13 @@ public abstract class Page extends MarkupContainer
 	 */
 	public PageReference getPageReference()
 	{
-		setStatelessHint(false);
+		if (ParallelRenderBehavior.deferToRequestThread(this::getPageReference) == false)
+		{
+			setStatelessHint(false);
 
-		// make sure the page will be available on following request
-		getSession().getPageManager().touchPage(this);
+			// make sure the page will be available on following request
+			getSession().getPageManager().touchPage(this);
+		}
 
 		return new PageReference(numericId);
 	}
@@ -993,6 +1011,12 @@ public abstract class Page extends MarkupContainer
 				delay.beforeRender();
 			}
 
+			// configured components and populated repeaters are known now
+			if (getApplication().getRequestCycleSettings().getPreloadModels())
+			{
+				ModelPreloader.preload(Collections.singletonList(this));
+			}
+
 			markRendering(true);
 			
 			render();
@@ -16,28 +16,52 @@
  */
 package org.apache.wicket;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
 
+import org.apache.wicket.core.request.handler.IPageClassRequestHandler;
+import org.apache.wicket.core.request.handler.RenderPageRequestHandler;
 import org.apache.wicket.core.request.mapper.BookmarkableMapper;
 import org.apache.wicket.core.request.mapper.BufferedResponseMapper;
 import org.apache.wicket.core.request.mapper.HomePageMapper;
 import org.apache.wicket.core.request.mapper.PageInstanceMapper;
 import org.apache.wicket.core.request.mapper.ResourceReferenceMapper;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestHandlerDelegate;
 import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Url;
 import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
 import org.apache.wicket.request.mapper.CompoundRequestMapper;
+import org.apache.wicket.request.mapper.parameter.INamedParameters.NamedPair;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.request.mapper.parameter.PageParametersEncoder;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 
 /**
  * Mapper that encapsulates mappers that are necessary for Wicket to function.
+ * <p>
+ * For each kind of handler (see {@link #getMappingKey(IRequestHandler)}) the mapper which mapped
+ * it last is remembered, so following handlers of the same kind are mapped by that mapper
+ * directly. The mappings are forgotten when a mapper is added or removed.
  * 
  * @author igor.vaynberg
  */
 public class SystemMapper extends CompoundRequestMapper
 {
+	/** the maximum number of remembered mappings */
+	private static final int MAX_MAPPINGS = 1000;
+
 	private final Application application;
 
+	private final ConcurrentMap<Object, Mapping> mappings = new ConcurrentHashMap<>();
+
+	/** incremented whenever a mapper is added or removed */
+	private volatile int generation;
+
 	/**
 	 * Constructor
 	 * 
@@ -57,6 +81,149 @@ public class SystemMapper extends CompoundRequestMapper
 		add(newBufferedResponseMapper());
 	}
 
+	@Override
+	public CompoundRequestMapper add(IRequestMapper mapper)
+	{
+		super.add(mapper);
+		invalidateMappings();
+		return this;
+	}
+
+	@Override
+	public CompoundRequestMapper remove(IRequestMapper mapper)
+	{
+		super.remove(mapper);
+		invalidateMappings();
+		return this;
+	}
+
+	private void invalidateMappings()
+	{
+		generation++;
+		mappings.clear();
+	}
+
+	/**
+	 * Maps the handler with the mapper which mapped the last handler of the same kind, falls back
+	 * to searching all mappers.
+	 */
+	@Override
+	public Url mapHandler(IRequestHandler handler)
+	{
+		Object key = getMappingKey(handler);
+		if (key == null)
+		{
+			return super.mapHandler(handler);
+		}
+
+		int current = generation;
+
+		Mapping mapping = mappings.get(key);
+		if (mapping != null && mapping.generation == current)
+		{
+			Url url = mapping.mapper.mapHandler(handler);
+			if (url != null)
+			{
+				return url;
+			}
+		}
+
+		for (IRequestMapper mapper : this)
+		{
+			Url url = mapper.mapHandler(handler);
+			if (url != null)
+			{
+				if (mappings.size() >= MAX_MAPPINGS)
+				{
+					mappings.clear();
+				}
+				mappings.put(key, new Mapping(mapper, current));
+				return url;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the kind of a handler: all handlers of the same kind have to be mapped by the same
+	 * mapper. Handlers are distinguished by their class, page class, page instance state, resource
+	 * reference and the names of their parameters.
+	 * <p>
+	 * Applications with mappers deciding on anything else, e.g. the values of parameters, can
+	 * override this method to return {@code null} for the affected handlers.
+	 * 
+	 * @param handler
+	 *            handler to map
+	 * @return key of the handler's kind or {@code null} if the mapper to use should not be
+	 *         remembered
+	 */
+	protected Object getMappingKey(IRequestHandler handler)
+	{
+		List<Object> key = new ArrayList<>();
+		while (handler instanceof IRequestHandlerDelegate)
+		{
+			key.add(handler.getClass());
+			handler = ((IRequestHandlerDelegate)handler).getDelegateHandler();
+		}
+		key.add(handler.getClass());
+
+		PageParameters parameters;
+		if (handler instanceof IPageClassRequestHandler)
+		{
+			IPageClassRequestHandler pageClassHandler = (IPageClassRequestHandler)handler;
+			key.add(pageClassHandler.getPageClass());
+			parameters = pageClassHandler.getPageParameters();
+
+			if (handler instanceof RenderPageRequestHandler)
+			{
+				// mappers render existing pages depending on how they were created
+				RenderPageRequestHandler renderHandler = (RenderPageRequestHandler)handler;
+				boolean newPageInstance = renderHandler.getPageProvider().isNewPageInstance();
+				key.add(newPageInstance);
+				if (newPageInstance == false)
+				{
+					key.add(renderHandler.getPage().wasCreatedBookmarkable());
+				}
+			}
+		}
+		else if (handler instanceof ResourceReferenceRequestHandler)
+		{
+			ResourceReferenceRequestHandler resourceHandler = (ResourceReferenceRequestHandler)handler;
+			key.add(resourceHandler.getResourceReference().getKey());
+			parameters = resourceHandler.getPageParameters();
+		}
+		else
+		{
+			return null;
+		}
+
+		if (parameters != null)
+		{
+			key.add(parameters.getIndexedCount());
+			for (NamedPair pair : parameters.getAllNamed())
+			{
+				key.add(pair.getKey());
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * A mapper remembered for a kind of handlers.
+	 */
+	private static class Mapping
+	{
+		private final IRequestMapper mapper;
+
+		private final int generation;
+
+		private Mapping(IRequestMapper mapper, int generation)
+		{
+			this.mapper = mapper;
+			this.generation = generation;
+		}
+	}
+
 	protected IRequestMapper newBufferedResponseMapper()
 	{
 		return new BufferedResponseMapper();
@@ -157,12 +157,19 @@ public abstract class AbstractDefaultAjaxBehavior extends AbstractAjaxBehavior
 
 	/**
 	 * Gives a chance to the specializations to modify the attributes.
+	 * <p>
+	 * By default a {@link #isReadOnly() read-only} behavior uses the {@link AjaxChannel#READ_ONLY}
+	 * channel.
 	 * 
 	 * @param attributes
 	 * @since 6.0
 	 */
 	protected void updateAjaxAttributes(AjaxRequestAttributes attributes)
 	{
+		if (isReadOnly())
+		{
+			attributes.setChannel(AjaxChannel.READ_ONLY);
+		}
 	}
 
 	/**
@@ -72,6 +72,14 @@ public class AjaxChannel implements IClusterable
 	 */
 	public static final AjaxChannel DEFAULT = new AjaxChannel(DEFAULT_NAME, DEFAULT_TYPE);
 
+	/**
+	 * The default channel for Ajax calls of read-only listeners, so they are not queued behind Ajax
+	 * calls waiting for the lock of the page
+	 * 
+	 * @see org.apache.wicket.IRequestListener#isReadOnly()
+	 */
+	public static final AjaxChannel READ_ONLY = new AjaxChannel("readOnly", DEFAULT_TYPE);
+
 	private final String name;
 
 	private final Type type;
@@ -45,6 +45,7 @@ import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.response.StringResponse;
 import org.apache.wicket.response.filter.IResponseFilter;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.string.AppendingStringBuffer;
@@ -370,8 +371,10 @@ public class AjaxRequestHandler implements AjaxRequestTarget
 
 		page.send(app, Broadcast.BREADTH, this);
 
+		RequestCycleSettings settings = app.getRequestCycleSettings();
+
 		// Determine encoding
-		final String encoding = app.getRequestCycleSettings().getResponseRequestEncoding();
+		final String encoding = settings.getResponseRequestEncoding();
 
 		// Set content type based on markup type for page
 		update.setContentType(response, encoding);
@@ -379,6 +382,13 @@ public class AjaxRequestHandler implements AjaxRequestTarget
 		// Make sure it is not cached by a client
 		response.disableCaching();
 
+		if (settings.getStreamAjaxResponse() && settings.getResponseFilters() == null)
+		{
+			// write the components as they are completed
+			update.writeTo(response, encoding);
+			return;
+		}
+
 		final StringResponse bodyResponse = new StringResponse();
 		update.writeTo(bodyResponse, encoding);
 		CharSequence filteredResponse = invokeResponseFilters(bodyResponse);
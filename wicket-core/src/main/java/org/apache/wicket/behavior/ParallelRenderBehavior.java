@@ -0,0 +1,502 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.behavior;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.cycle.RequestCycleContext;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.response.StringResponse;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A behavior which renders the subtree of its {@link MarkupContainer} on an {@link Executor},
+ * concurrently to the rest of the page.
+ * <p>
+ * When a page is rendered, all regions with this behavior are handed to the executor as soon as
+ * the &lt;head&gt; of the page has been rendered. Each region is rendered into its own buffer, with
+ * the application, the session and a request cycle for the current request bound to the worker
+ * thread. When the request thread reaches the region in the markup, it waits for the buffer and
+ * writes it to the response, so the output keeps the document order. A region whose rendering has
+ * not started yet by then is rendered on the request thread as usual.
+ * </p>
+ * <p>
+ * Regions which were started but not written, e.g. because they are in a hidden enclosure or the
+ * render failed, are waited for after the page has been rendered, at latest at the end of the
+ * request, so no worker touches the page when it is detached and stored.
+ * </p>
+ * <p>
+ * The header contributions of the region are rendered on the request thread together with all
+ * other header contributions, before the region is handed to the executor. Ajax requests render
+ * the region on the request thread always.
+ * </p>
+ * <p>
+ * A region has to be independent from the rest of the page while it is rendered:
+ * <ul>
+ * <li>components outside the region must not access components inside the region during the
+ * render, and vice versa</li>
+ * <li>the region must not rely on metadata of the {@link RequestCycle}, since the worker thread has
+ * a request cycle of its own</li>
+ * <li>the region must not lock pages, e.g. by looking them up from the page manager</li>
+ * <li>the models of the region have to be safe for being loaded on another thread</li>
+ * </ul>
+ * Regions nested into another region are rendered as part of the outer one.
+ * </p>
+ * <p>
+ * Changes of the page by the region, e.g. touching or dirtying it, are
+ * {@link #deferToRequestThread(Runnable) deferred} and applied by the request thread when the region
+ * is written.
+ * </p>
+ *
+ * @see #getExecutor()
+ * @see org.apache.wicket.settings.RequestCycleSettings#setParallelRenderExecutor(Executor)
+ */
+public class ParallelRenderBehavior extends Behavior
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger log = LoggerFactory.getLogger(ParallelRenderBehavior.class);
+
+	/** the regions configured in the current request */
+	private static final MetaDataKey<List<ParallelRenderBehavior>> REGIONS = new MetaDataKey<List<ParallelRenderBehavior>>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/** the regions started in the current request */
+	private static final MetaDataKey<List<ParallelRenderBehavior>> STARTED = new MetaDataKey<List<ParallelRenderBehavior>>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/** the rendering of the current worker thread */
+	private static final ThreadLocal<Rendering> WORKER = new ThreadLocal<>();
+
+	/** finishes the started regions at the end of the request */
+	private static final IRequestCycleListener FINISHER = new IRequestCycleListener()
+	{
+		@Override
+		public void onEndRequest(final RequestCycle cycle)
+		{
+			finishRendering(cycle);
+		}
+	};
+
+	private Component component;
+
+	/** the rendering in the current request */
+	private transient volatile Rendering rendering;
+
+	@Override
+	public final void bind(final Component hostComponent)
+	{
+		Args.notNull(hostComponent, "hostComponent");
+
+		if (component != null)
+		{
+			throw new IllegalStateException("this kind of behavior cannot be attached to " +
+				"multiple components; it is already attached to component " + component +
+				", but component " + hostComponent + " wants to be attached too");
+		}
+		if (hostComponent instanceof MarkupContainer == false)
+		{
+			throw new IllegalArgumentException("Only markup containers can be rendered in parallel: " +
+				hostComponent);
+		}
+
+		component = hostComponent;
+	}
+
+	@Override
+	public void onConfigure(final Component component)
+	{
+		super.onConfigure(component);
+
+		RequestCycle requestCycle = component.getRequestCycle();
+		List<ParallelRenderBehavior> regions = requestCycle.getMetaData(REGIONS);
+		if (regions == null)
+		{
+			regions = new ArrayList<>();
+			requestCycle.setMetaData(REGIONS, regions);
+		}
+		if (regions.contains(this) == false)
+		{
+			regions.add(this);
+		}
+	}
+
+	@Override
+	public void detach(final Component component)
+	{
+		super.detach(component);
+
+		rendering = null;
+	}
+
+	/**
+	 * The executor the region is rendered with, by default the
+	 * {@link org.apache.wicket.settings.RequestCycleSettings#getParallelRenderExecutor()
+	 * executor of the application}.
+	 *
+	 * @return executor or {@code null} to render the region on the request thread
+	 */
+	protected Executor getExecutor()
+	{
+		return component.getApplication().getRequestCycleSettings().getParallelRenderExecutor();
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * <p>
+	 * Hands all regions configured in the current request to their executors. Called after the
+	 * header contributions of the page have been rendered.
+	 *
+	 * @param requestCycle
+	 *            the current request cycle
+	 */
+	public static void startRendering(final RequestCycle requestCycle)
+	{
+		List<ParallelRenderBehavior> regions = requestCycle.getMetaData(REGIONS);
+		if (regions == null)
+		{
+			return;
+		}
+		requestCycle.setMetaData(REGIONS, null);
+
+		Set<Component> components = new HashSet<>();
+		for (ParallelRenderBehavior region : regions)
+		{
+			components.add(region.component);
+		}
+
+		for (ParallelRenderBehavior region : regions)
+		{
+			if (isNested(region.component, components) == false &&
+				region.component.isVisibleInHierarchy() && region.component.isRenderAllowed())
+			{
+				Executor executor = region.getExecutor();
+				if (executor != null)
+				{
+					List<ParallelRenderBehavior> started = requestCycle.getMetaData(STARTED);
+					if (started == null)
+					{
+						started = new ArrayList<>();
+						requestCycle.setMetaData(STARTED, started);
+						requestCycle.getListeners().add(FINISHER);
+					}
+					started.add(region);
+
+					region.start(requestCycle, executor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * <p>
+	 * Waits for all regions started in the current request which were not written, and cancels
+	 * those not started by their executor yet. Called after the page has been rendered and at the
+	 * end of the request.
+	 *
+	 * @param requestCycle
+	 *            the current request cycle
+	 */
+	public static void finishRendering(final RequestCycle requestCycle)
+	{
+		List<ParallelRenderBehavior> started = requestCycle.getMetaData(STARTED);
+		if (started == null)
+		{
+			return;
+		}
+		requestCycle.setMetaData(STARTED, null);
+
+		for (ParallelRenderBehavior region : started)
+		{
+			region.finish();
+		}
+	}
+
+	private void finish()
+	{
+		final Rendering rendering = this.rendering;
+		if (rendering == null)
+		{
+			// already written
+			return;
+		}
+		this.rendering = null;
+
+		try
+		{
+			if (rendering.claimed.compareAndSet(false, true) == false)
+			{
+				rendering.future.join();
+			}
+		}
+		catch (CompletionException e)
+		{
+			log.warn("Rendering of " + component + " in parallel failed", e.getCause());
+		}
+		finally
+		{
+			component.internalSetRenderedInParallel(false);
+
+			rendering.applyChanges();
+		}
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 *
+	 * @return whether the current thread renders a region in parallel
+	 */
+	public static boolean isRenderingInParallel()
+	{
+		return WORKER.get() != null;
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * <p>
+	 * Defers a change of the page from a worker thread to the request thread, which holds the lock
+	 * of the page and applies the change when the region is written.
+	 *
+	 * @param change
+	 *            the change
+	 * @return {@code true} if the change was deferred, {@code false} if the current thread does
+	 *         not render a region in parallel and has to apply the change itself
+	 */
+	public static boolean deferToRequestThread(final Runnable change)
+	{
+		Rendering rendering = WORKER.get();
+		if (rendering == null)
+		{
+			return false;
+		}
+		rendering.changes.add(change);
+		return true;
+	}
+
+	private static boolean isNested(final Component component, final Set<Component> components)
+	{
+		for (Component parent = component.getParent(); parent != null; parent = parent.getParent())
+		{
+			if (components.contains(parent))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void start(final RequestCycle requestCycle, final Executor executor)
+	{
+		// resolve the markup up to the page, so the worker does not touch any component outside
+		// of the region
+		component.getMarkup();
+
+		Response originalResponse = requestCycle.getResponse();
+		Response response = originalResponse instanceof WebResponse ? new BufferedWebResponse(
+			(WebResponse)originalResponse) : new StringResponse();
+
+		rendering = new Rendering(Application.get(), ThreadContext.getSession(),
+			requestCycle.getRequest(), requestCycle.getUrlRenderer().getBaseUrl(), response);
+
+		component.internalSetRenderedInParallel(true);
+
+		rendering.future = CompletableFuture.runAsync(rendering, executor);
+	}
+
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * <p>
+	 * Writes the rendered region to the current response, waiting for the worker if needed. If
+	 * the worker has not started yet, the region is rendered on the current thread instead.
+	 *
+	 * @param component
+	 *            the component of the region
+	 * @return {@code false} if the component has to be rendered as usual
+	 */
+	public final boolean writeRendered(final Component component)
+	{
+		final Rendering rendering = this.rendering;
+		if (rendering == null || rendering.worker == Thread.currentThread())
+		{
+			return false;
+		}
+
+		this.rendering = null;
+
+		if (rendering.claimed.compareAndSet(false, true))
+		{
+			// the worker has not started, so render it here
+			component.internalSetRenderedInParallel(false);
+			return false;
+		}
+
+		try
+		{
+			rendering.future.join();
+		}
+		catch (CompletionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException)cause;
+			}
+			throw new WicketRuntimeException("Cannot render " + component + " in parallel", cause);
+		}
+		finally
+		{
+			component.internalSetRenderedInParallel(false);
+
+			rendering.applyChanges();
+		}
+
+		Response response = component.getResponse();
+		if (rendering.response instanceof BufferedWebResponse && response instanceof WebResponse)
+		{
+			((BufferedWebResponse)rendering.response).writeTo((WebResponse)response);
+		}
+		else if (rendering.response instanceof BufferedWebResponse)
+		{
+			response.write(((BufferedWebResponse)rendering.response).getText());
+		}
+		else
+		{
+			response.write(((StringResponse)rendering.response).getBuffer());
+		}
+		return true;
+	}
+
+	/**
+	 * The rendering of the region on a worker thread.
+	 */
+	private class Rendering implements Runnable
+	{
+		private final Application application;
+
+		private final Session session;
+
+		private final Request request;
+
+		private final Url baseUrl;
+
+		private final Response response;
+
+		/** whether the worker or the request thread took over the rendering */
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		private volatile Thread worker;
+
+		private CompletableFuture<Void> future;
+
+		/** the changes deferred by the worker, applied after it has finished */
+		private final List<Runnable> changes = new ArrayList<>();
+
+		private Rendering(Application application, Session session, Request request, Url baseUrl,
+			Response response)
+		{
+			this.application = application;
+			this.session = session;
+			this.request = request;
+			this.baseUrl = baseUrl;
+			this.response = response;
+		}
+
+		@Override
+		public void run()
+		{
+			if (claimed.compareAndSet(false, true) == false)
+			{
+				// the request thread renders the region
+				return;
+			}
+
+			worker = Thread.currentThread();
+
+			ThreadContext previous = ThreadContext.detach();
+			try
+			{
+				ThreadContext.setApplication(application);
+				ThreadContext.setSession(session);
+
+				// without the listeners of the application, which would commit the page manager
+				RequestCycle requestCycle = application.getRequestCycleProvider().apply(
+					new RequestCycleContext(request, response, application.getRootRequestMapper(),
+						application.getExceptionMapperProvider().get()));
+				requestCycle.getUrlRenderer().setBaseUrl(baseUrl);
+				ThreadContext.setRequestCycle(requestCycle);
+
+				WORKER.set(this);
+				try
+				{
+					component.render();
+				}
+				finally
+				{
+					WORKER.remove();
+
+					// the session is detached by the request thread
+					ThreadContext.setSession(null);
+					requestCycle.detach();
+				}
+			}
+			finally
+			{
+				ThreadContext.restore(previous);
+			}
+		}
+
+		/**
+		 * Applies the changes deferred by the worker, called by the request thread once the worker
+		 * has finished.
+		 */
+		private void applyChanges()
+		{
+			for (Runnable change : changes)
+			{
+				change.run();
+			}
+			changes.clear();
+		}
+	}
+}
@@ -44,5 +44,6 @@ public class BufferedResponseRequestHandler implements IRequestHandler
 	public void respond(IRequestCycle requestCycle)
 	{
 		bufferedWebResponse.writeTo((WebResponse)requestCycle.getResponse());
+		bufferedWebResponse.release();
 	}
 }
@@ -17,6 +17,7 @@
 package org.apache.wicket.core.request.mapper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -615,6 +616,25 @@ public abstract class AbstractBookmarkableMapper extends AbstractComponentMapper
 		return getOptionalPlaceholder(segment) == null && getPlaceholder(segment) == null;
 	}
 
+	/**
+	 * Returns the fixed segments the mount path starts with, i.e. the segments before the first
+	 * placeholder.
+	 * 
+	 * @param maxLength
+	 *            the maximum number of segments to return
+	 * @return the fixed leading segments
+	 */
+	protected final String[] getFixedMountPrefix(int maxLength)
+	{
+		int length = 0;
+		while (length < mountSegments.length && length < maxLength &&
+			isFixedSegment(mountSegments[length]))
+		{
+			length++;
+		}
+		return Arrays.copyOf(mountSegments, length);
+	}
+
 
 	/**
 	 * Extracts the PageParameters from URL if there are any
@@ -16,11 +16,19 @@
  */
 package org.apache.wicket.core.request.mapper;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.core.request.handler.RequestSettingRequestHandler;
 import org.apache.wicket.protocol.http.PageExpiredException;
 import org.apache.wicket.request.IRequestHandler;
@@ -29,6 +37,8 @@ import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.mapper.IRequestMapperDelegate;
 import org.apache.wicket.request.mapper.info.PageComponentInfo;
+import org.apache.wicket.util.collections.MostRecentlyUsedMap;
+import org.apache.wicket.util.crypt.AbstractCrypt;
 import org.apache.wicket.util.crypt.ICrypt;
 import org.apache.wicket.util.crypt.ICryptFactory;
 import org.apache.wicket.util.lang.Args;
@@ -83,6 +93,12 @@ import org.slf4j.LoggerFactory;
  * the session has expired.
  * </p>
  * 
+ * <p>
+ * Since a URL is decrypted for both {@link #getCompatibilityScore(Request)} and
+ * {@link #mapRequest(Request)}, and the same URLs are often requested repeatedly, decrypted texts are
+ * kept in a cache, see {@link #setDecryptionCacheSize(int)}.
+ * </p>
+ * 
  * @author igor.vaynberg
  * @author Jesse Long
  * @author svenmeier
@@ -101,6 +117,11 @@ public class CryptoMapper implements IRequestMapperDelegate
 
 	private static final String ENCRYPTED_URL_MARKER_PREFIX = "crypt.";
 
+	/**
+	 * Default number of decrypted texts to keep.
+	 */
+	public static final int DEFAULT_DECRYPTION_CACHE_SIZE = 1000;
+
 	private final IRequestMapper wrappedMapper;
 	private final Supplier<ICrypt> cryptProvider;
 
@@ -109,6 +130,17 @@ public class CryptoMapper implements IRequestMapperDelegate
 	 */
 	private boolean markEncryptedUrls = false;
 
+	/**
+	 * The number of decrypted texts to keep.
+	 */
+	private int decryptionCacheSize = DEFAULT_DECRYPTION_CACHE_SIZE;
+
+	/**
+	 * Decrypted texts by key of the crypt and encrypted text, {@code null} if disabled.
+	 */
+	private Map<List<Object>, String> decryptionCache = newDecryptionCache(
+		DEFAULT_DECRYPTION_CACHE_SIZE);
+
 	/**
 	 * Encrypt with {@link org.apache.wicket.settings.SecuritySettings#getCryptFactory()}.
 	 * <p>
@@ -171,6 +203,45 @@ public class CryptoMapper implements IRequestMapperDelegate
 		return this;
 	}
 
+	/**
+	 * @return the number of decrypted texts to keep, {@code 0} if disabled
+	 */
+	public int getDecryptionCacheSize()
+	{
+		return decryptionCacheSize;
+	}
+
+	/**
+	 * Sets the number of decrypted texts to keep.
+	 * <p>
+	 * A text is cached along with a digest of the key of the {@link ICrypt} (if it is an
+	 * {@link AbstractCrypt}, otherwise the crypt itself), so a text encrypted for one user is never
+	 * decrypted from the cache for another one.
+	 * </p>
+	 * 
+	 * @param size
+	 *		the number of texts to keep, {@code 0} disables the cache
+	 * 
+	 * @return {@code this}, for chaining.
+	 */
+	public CryptoMapper setDecryptionCacheSize(int size)
+	{
+		decryptionCache = newDecryptionCache(size);
+		decryptionCacheSize = size;
+		return this;
+	}
+
+	private static Map<List<Object>, String> newDecryptionCache(int size)
+	{
+		Args.withinRange(0, Integer.MAX_VALUE, size, "size");
+
+		if (size == 0)
+		{
+			return null;
+		}
+		return Collections.synchronizedMap(new MostRecentlyUsedMap<List<Object>, String>(size));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
@@ -405,6 +476,60 @@ public class CryptoMapper implements IRequestMapperDelegate
 		return url;
 	}
 
+	/**
+	 * Decrypts a text with {@link #getCrypt()}, using the cache of decrypted texts.
+	 * 
+	 * @param text
+	 *		the encrypted text
+	 * 
+	 * @return the decrypted text, or {@code null} if not decryptable
+	 */
+	private String decryptUrlSafe(final String text)
+	{
+		ICrypt crypt = getCrypt();
+
+		Map<List<Object>, String> cache = decryptionCache;
+		if (cache == null)
+		{
+			return crypt.decryptUrlSafe(text);
+		}
+
+		Object cryptKey = crypt instanceof AbstractCrypt ? digest(((AbstractCrypt)crypt).getKey())
+			: crypt;
+		List<Object> key = Arrays.asList(cryptKey, text);
+		String decrypted = cache.get(key);
+		if (decrypted == null)
+		{
+			decrypted = crypt.decryptUrlSafe(text);
+			if (decrypted != null)
+			{
+				cache.put(key, decrypted);
+			}
+		}
+		return decrypted;
+	}
+
+	/**
+	 * Digests the key of a crypt, so the key itself is not kept in the cache.
+	 * 
+	 * @param key
+	 *		the key of a crypt
+	 * 
+	 * @return the digest
+	 */
+	private static ByteBuffer digest(final String key)
+	{
+		try
+		{
+			return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(
+				key.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+	}
+
 	/**
 	 * Decrypts an entire URL, which was previously encrypted by {@link #encryptEntireUrl(org.apache.wicket.request.Url)}.
 	 * This method should return {@code null} if the URL is not decryptable.
@@ -451,7 +576,7 @@ public class CryptoMapper implements IRequestMapperDelegate
 		String decryptedUrl;
 		try
 		{
-			decryptedUrl = getCrypt().decryptUrlSafe(encryptedUrlString);
+			decryptedUrl = decryptUrlSafe(encryptedUrlString);
 		}
 		catch (Exception e)
 		{
@@ -589,7 +714,7 @@ public class CryptoMapper implements IRequestMapperDelegate
 
 					try
 					{
-						decryptedValue = getCrypt().decryptUrlSafe(encryptedValue);
+						decryptedValue = decryptUrlSafe(encryptedValue);
 					}
 					catch (Exception e)
 					{
@@ -24,6 +24,7 @@ import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.mapper.IPrefixedRequestMapper;
 import org.apache.wicket.request.mapper.info.ComponentInfo;
 import org.apache.wicket.request.mapper.info.PageComponentInfo;
 import org.apache.wicket.request.mapper.info.PageInfo;
@@ -62,7 +63,7 @@ import org.apache.wicket.util.string.Strings;
  * 
  * @author Matej Knopp
  */
-public class MountedMapper extends AbstractBookmarkableMapper
+public class MountedMapper extends AbstractBookmarkableMapper implements IPrefixedRequestMapper
 {
 	/** bookmarkable page class. */
 	private final Supplier<Class<? extends IRequestablePage>> pageClassProvider;
@@ -149,6 +150,18 @@ public class MountedMapper extends AbstractBookmarkableMapper
 		}
 	}
 
+	/**
+	 * The fixed segments of the mount path before the first placeholder, none if the match is not
+	 * case sensitive. Subclasses mapping further urls have to override this method.
+	 * 
+	 * @see #setCaseSensitiveMatch(boolean)
+	 */
+	@Override
+	public String[] getPrefixSegments()
+	{
+		return isCaseSensitiveMatch() ? getFixedMountPrefix(mountSegments.length) : null;
+	}
+
 	@Override
 	public Url mapHandler(IRequestHandler requestHandler)
 	{
@@ -26,6 +26,7 @@ import org.apache.wicket.request.IRequestMapper;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
+import org.apache.wicket.request.mapper.IPrefixedRequestMapper;
 import org.apache.wicket.request.http.flow.AbortWithHttpErrorCodeException;
 import org.apache.wicket.request.mapper.parameter.INamedParameters;
 import org.apache.wicket.request.mapper.parameter.IPageParametersEncoder;
@@ -70,7 +71,7 @@ import org.apache.wicket.util.string.Strings;
  *
  * @author Peter Ertl
  */
-public class ResourceMapper extends AbstractBookmarkableMapper
+public class ResourceMapper extends AbstractBookmarkableMapper implements IPrefixedRequestMapper
 {
 	// encode page parameters into url + decode page parameters from url
 	private final IPageParametersEncoder parametersEncoder;
@@ -173,6 +174,16 @@ public class ResourceMapper extends AbstractBookmarkableMapper
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * The fixed segments of the mount path before the first placeholder, except the last one which
+	 * might be decorated by the {@link IResourceCachingStrategy}.
+	 */
+	@Override
+	public String[] getPrefixSegments()
+	{
+		return getFixedMountPrefix(mountSegments.length - 1);
+	}
+
 	@Override
 	public int getCompatibilityScore(Request request)
 	{
@@ -25,6 +25,7 @@ import org.apache.wicket.Session;
 import org.apache.wicket.util.crypt.ICrypt;
 import org.apache.wicket.util.crypt.ICryptFactory;
 import org.apache.wicket.util.crypt.SunJceCrypt;
+import org.apache.wicket.util.io.IClusterable;
 import org.apache.wicket.util.lang.Args;
 
 /**
@@ -32,6 +33,9 @@ import org.apache.wicket.util.lang.Args;
  * encryption key. This allows each user to have his own encryption key, hardening against CSRF
  * attacks.
  * <br>
+ * The crypt of a session is kept in memory, so its key is derived only once per session. Thus it
+ * is shared by concurrent requests and has to be thread-safe.
+ * <br>
  * Note that the use of this crypt factory will result in an immediate creation of a session.
  *
  * @author igor.vaynberg
@@ -44,6 +48,12 @@ public class KeyInSessionSunJceCryptFactory implements ICryptFactory
 		private static final long serialVersionUID = 1L;
 	};
 
+	/** metadata-key used to keep the crypt of a session */
+	private static final MetaDataKey<SessionCrypt> CRYPT = new MetaDataKey<SessionCrypt>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
 	private final String cryptMethod;
 
 	/**
@@ -87,6 +97,12 @@ public class KeyInSessionSunJceCryptFactory implements ICryptFactory
 		Session session = Session.get();
 		session.bind();
 
+		SessionCrypt sessionCrypt = session.getMetaData(CRYPT);
+		if (sessionCrypt != null && sessionCrypt.crypt != null)
+		{
+			return sessionCrypt.crypt;
+		}
+
 		// retrieve or generate encryption key from session
 		String key = session.getMetaData(KEY);
 		if (key == null)
@@ -99,6 +115,14 @@ public class KeyInSessionSunJceCryptFactory implements ICryptFactory
 		// build the crypt based on session key
 		ICrypt crypt = createCrypt();
 		crypt.setKey(key);
+
+		if (sessionCrypt == null)
+		{
+			sessionCrypt = new SessionCrypt();
+			session.setMetaData(CRYPT, sessionCrypt);
+		}
+		sessionCrypt.crypt = crypt;
+
 		return crypt;
 	}
 
@@ -109,4 +133,14 @@ public class KeyInSessionSunJceCryptFactory implements ICryptFactory
 	{
 		return new SunJceCrypt(cryptMethod);
 	}
+
+	/**
+	 * Keeps the crypt of a session, which is not serialized along with the session.
+	 */
+	private static class SessionCrypt implements IClusterable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private transient volatile ICrypt crypt;
+	}
 }
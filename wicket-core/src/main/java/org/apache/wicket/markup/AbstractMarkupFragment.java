@@ -27,6 +27,28 @@ public abstract class AbstractMarkupFragment implements IMarkupFragment
 		return TagUtils.findTagMarkup(this, id, null, streamOffset);
 	}
 
+	/**
+	 * Finds the element which closes the open tag at the given index.
+	 * 
+	 * @param index
+	 *            the index of the open tag
+	 * @return the index of the close tag, or -1 if there is none
+	 */
+	public int indexOfCloseTag(final int index)
+	{
+		final MarkupElement openTag = get(index);
+
+		final int size = size();
+		for (int i = index + 1; i < size; i++)
+		{
+			if (get(i).closes(openTag))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -48,6 +48,12 @@ public class Markup extends AbstractMarkupFragment
 	/** The associated markup file */
 	private final MarkupResourceStream markupResourceStream;
 
+	/**
+	 * The index of the close tag of each open tag plus one, 0 if not known. Created on demand and
+	 * dropped whenever elements are added or replaced.
+	 */
+	private volatile int[] closeTagIndexes;
+
 	/**
 	 * Take the markup string, parse it and return the Markup (list of MarkupElements).
 	 * <p>
@@ -145,6 +151,7 @@ public class Markup extends AbstractMarkupFragment
 		}
 
 		markupElements.set(index, elem);
+		closeTagIndexes = null;
 	}
 
 	/**
@@ -171,6 +178,7 @@ public class Markup extends AbstractMarkupFragment
 	final public void addMarkupElement(final MarkupElement markupElement)
 	{
 		markupElements.add(markupElement);
+		closeTagIndexes = null;
 	}
 
 	/**
@@ -182,6 +190,31 @@ public class Markup extends AbstractMarkupFragment
 	final public void addMarkupElement(final int pos, final MarkupElement markupElement)
 	{
 		markupElements.add(pos, markupElement);
+		closeTagIndexes = null;
+	}
+
+	/**
+	 * Remembers the found close tags, so the markup of nested components is not scanned over and
+	 * over again, each time a component is rendered or its markup fragment is looked up.
+	 */
+	@Override
+	public final int indexOfCloseTag(final int index)
+	{
+		int[] indexes = closeTagIndexes;
+		if (indexes == null || indexes.length != markupElements.size())
+		{
+			indexes = new int[markupElements.size()];
+			closeTagIndexes = indexes;
+		}
+
+		int closeIndex = indexes[index] - 1;
+		if (closeIndex == -1)
+		{
+			// not known yet, or there is no close tag at all
+			closeIndex = super.indexOfCloseTag(index);
+			indexes[index] = closeIndex + 1;
+		}
+		return closeIndex;
 	}
 
 	/**
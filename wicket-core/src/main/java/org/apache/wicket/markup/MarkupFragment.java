@@ -106,6 +106,14 @@ public class MarkupFragment extends AbstractMarkupFragment
 				endIndex = markupSize;
 			}
 		}
+		else if (markup instanceof AbstractMarkupFragment)
+		{
+			endIndex = ((AbstractMarkupFragment)markup).indexOfCloseTag(startIndex);
+			if (endIndex == -1)
+			{
+				endIndex = markupSize;
+			}
+		}
 		else
 		{
 			for (endIndex = startIndex + 1; endIndex < markupSize; endIndex++)
@@ -144,6 +152,24 @@ public class MarkupFragment extends AbstractMarkupFragment
 		return markup.get(startIndex + index);
 	}
 
+	/**
+	 * Asks the parent markup, which might know the close tag already.
+	 */
+	@Override
+	public final int indexOfCloseTag(final int index)
+	{
+		if (markup instanceof AbstractMarkupFragment)
+		{
+			int closeIndex = ((AbstractMarkupFragment)markup).indexOfCloseTag(startIndex + index);
+			if (closeIndex != -1 && closeIndex - startIndex < size)
+			{
+				return closeIndex - startIndex;
+			}
+			return -1;
+		}
+		return super.indexOfCloseTag(index);
+	}
+
 	@Override
 	public final IMarkupFragment find(final String id)
 	{
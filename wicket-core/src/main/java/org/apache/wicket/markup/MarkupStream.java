@@ -359,11 +359,25 @@ public class MarkupStream
 			// must have been detected by the HtmlHandler earlier on.
 			if (startTag.hasNoCloseTag() == false)
 			{
-				// Skip <tag>
-				next();
+				int closeIndex = -1;
+				if (markup instanceof AbstractMarkupFragment)
+				{
+					// jump to the close tag if the markup knows it
+					closeIndex = ((AbstractMarkupFragment)markup).indexOfCloseTag(currentIndex);
+				}
 
-				// Skip nested components
-				skipToMatchingCloseTag(startTag);
+				if (closeIndex != -1)
+				{
+					setCurrentIndex(closeIndex);
+				}
+				else
+				{
+					// Skip <tag>
+					next();
+
+					// Skip nested components
+					skipToMatchingCloseTag(startTag);
+				}
 			}
 
 			// Skip </tag>
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.markup;
 
+import java.nio.charset.Charset;
+
 /**
  * This class is for framework purposes only, which is why the class is (default) protected.
  * <p>
@@ -29,6 +31,9 @@ public class RawMarkup extends MarkupElement
 	/** The raw markup string * */
 	private final CharSequence string;
 
+	/** The markup encoded with the last requested charset, created on demand */
+	private volatile Encoded encoded;
+
 	/**
 	 * Create a RawMarkup element referencing an uninterpreted markup string.
 	 * 
@@ -96,6 +101,26 @@ public class RawMarkup extends MarkupElement
 		return string;
 	}
 
+	/**
+	 * Gets the markup encoded with the given charset. The encoded markup is kept, so the markup
+	 * held in the markup cache has to be encoded once only.
+	 * 
+	 * @param charset
+	 *            the charset to encode with
+	 * @return the encoded markup, which must not be modified
+	 * @see org.apache.wicket.response.IEncodingResponse
+	 */
+	public byte[] getBytes(final Charset charset)
+	{
+		Encoded current = encoded;
+		if (current == null || current.charset.equals(charset) == false)
+		{
+			current = new Encoded(charset, string.toString().getBytes(charset));
+			encoded = current;
+		}
+		return current.bytes;
+	}
+
 	/**
 	 * @return This raw markup string
 	 */
@@ -113,4 +138,20 @@ public class RawMarkup extends MarkupElement
 	{
 		return "[Raw markup]";
 	}
+
+	/**
+	 * Markup encoded with a charset.
+	 */
+	private static class Encoded
+	{
+		private final Charset charset;
+
+		private final byte[] bytes;
+
+		private Encoded(Charset charset, byte[] bytes)
+		{
+			this.charset = charset;
+			this.bytes = bytes;
+		}
+	}
 }
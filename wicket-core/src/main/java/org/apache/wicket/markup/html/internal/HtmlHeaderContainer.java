@@ -23,6 +23,7 @@ import java.util.Map;
 
 import org.apache.wicket.Component;
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.behavior.ParallelRenderBehavior;
 import org.apache.wicket.markup.ComponentTag;
 import org.apache.wicket.markup.IMarkupFragment;
 import org.apache.wicket.markup.MarkupException;
@@ -199,6 +200,9 @@ public class HtmlHeaderContainer extends TransparentWebMarkupContainer
 			// Restore the original response
 			getRequestCycle().setResponse(webResponse);
 		}
+
+		// all header contributions are rendered, so regions can be rendered in parallel now
+		ParallelRenderBehavior.startRendering(getRequestCycle());
 	}
 
 	/**
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.wicket.util.io.IClusterable;
+
+/**
+ * Loads objects of a single backend in batches.
+ * <p>
+ * Keys requested while the {@link ModelPreloader} collects models are gathered and loaded with a
+ * single call to {@link #loadAll(Set)}. Outside of the preload phase each key is loaded on its
+ * own.
+ * </p>
+ *
+ * <pre>
+ * BulkLoader&lt;Long, Person&gt; persons = new BulkLoader&lt;Long, Person&gt;()
+ * {
+ * 	protected Map&lt;Long, Person&gt; loadAll(Set&lt;Long&gt; ids)
+ * 	{
+ * 		return personService.findByIds(ids);
+ * 	}
+ * };
+ *
+ * new LoadableDetachableModel&lt;Person&gt;()
+ * {
+ * 	protected Person load()
+ * 	{
+ * 		return personService.findById(id);
+ * 	}
+ *
+ * 	protected CompletionStage&lt;Person&gt; loadAsync()
+ * 	{
+ * 		return persons.load(id);
+ * 	}
+ * };
+ * </pre>
+ *
+ * @param <K>
+ *            type of keys
+ * @param <T>
+ *            type of loaded objects
+ */
+public abstract class BulkLoader<K, T> implements IClusterable
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Loads the object for the given key, batched with all other keys of the current preload
+	 * phase.
+	 *
+	 * @param key
+	 *            the key of the object
+	 * @return stage completing with the object, or with {@code null} if there is no object for
+	 *         the key
+	 */
+	public final CompletionStage<T> load(final K key)
+	{
+		ModelPreloader preloader = ModelPreloader.get();
+		if (preloader != null)
+		{
+			return preloader.enqueue(this, key);
+		}
+
+		return CompletableFuture.completedFuture(get(loadAll(Collections.singleton(key)), key));
+	}
+
+	/**
+	 * Gets a loaded object.
+	 *
+	 * @param objects
+	 *            the loaded objects, may be {@code null}
+	 * @param key
+	 *            the key of the object
+	 * @return the object or {@code null}
+	 */
+	static <T> T get(final Map<?, T> objects, final Object key)
+	{
+		return objects != null ? objects.get(key) : null;
+	}
+
+	/**
+	 * Loads the objects for the given keys.
+	 *
+	 * @param keys
+	 *            the keys to load the objects for
+	 * @return the loaded objects by their keys, {@code null} if there are none
+	 */
+	protected abstract Map<K, T> loadAll(Set<K> keys);
+}
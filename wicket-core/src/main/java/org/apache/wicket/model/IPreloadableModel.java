@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.model;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A model which is able to start loading its object before it is accessed.
+ * <p>
+ * The {@link ModelPreloader} asks all preloadable models of the rendered components to start
+ * loading, waits for all loads to complete and hands the loaded objects back to the models, before
+ * the components are prepared for render.
+ * </p>
+ *
+ * @param <T>
+ *            The model object type
+ *
+ * @see LoadableDetachableModel#loadAsync()
+ * @see BulkLoader
+ */
+public interface IPreloadableModel<T> extends IModel<T>
+{
+	/**
+	 * Starts loading the model object.
+	 *
+	 * @return stage completing with the loaded object, or {@code null} if the model has nothing to
+	 *         preload
+	 */
+	CompletionStage<T> preload();
+
+	/**
+	 * Hands the preloaded object back to the model. Called on the request thread.
+	 *
+	 * @param object
+	 *            the loaded object
+	 */
+	void setPreloadedObject(T object);
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.model;
 
+import java.util.concurrent.CompletionStage;
+
 import org.danekja.java.util.function.serializable.SerializableSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,7 +52,7 @@ import org.slf4j.LoggerFactory;
  * @param <T>
  *            The Model Object type
  */
-public abstract class LoadableDetachableModel<T> implements IModel<T>
+public abstract class LoadableDetachableModel<T> implements IPreloadableModel<T>
 {
 	private static final long serialVersionUID = 1L;
 
@@ -165,6 +167,47 @@ public abstract class LoadableDetachableModel<T> implements IModel<T>
 	 */
 	protected abstract T load();
 
+	/**
+	 * Starts loading the (temporary) model object when the model is preloaded. The default
+	 * implementation returns {@code null}, so the object is loaded with {@link #load()} when it is
+	 * accessed first.
+	 * 
+	 * @return stage completing with the (temporary) model object, or {@code null}
+	 * @see org.apache.wicket.settings.RequestCycleSettings#setPreloadModels(boolean)
+	 */
+	protected CompletionStage<T> loadAsync()
+	{
+		return null;
+	}
+
+	@Override
+	public final CompletionStage<T> preload()
+	{
+		if (isAttached())
+		{
+			return null;
+		}
+		return loadAsync();
+	}
+
+	/**
+	 * Attaches the model with the preloaded object, unless it is attached already.
+	 */
+	@Override
+	public final void setPreloadedObject(final T object)
+	{
+		if (state == null || state == InternalState.DETACHED)
+		{
+			transientModelObject = object;
+			if (log.isDebugEnabled())
+			{
+				log.debug("preloaded transient object '{}' for '{}'", transientModelObject, this);
+			}
+			state = InternalState.ATTACHED;
+			onAttach();
+		}
+	}
+
 	/**
 	 * Attaches to the current request. Implement this method with custom behavior, such as loading
 	 * the model object.
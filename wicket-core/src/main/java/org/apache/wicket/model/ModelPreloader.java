@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the {@link IPreloadableModel preloadable models} of components after they are prepared
+ * for render, before they are rendered.
+ * <p>
+ * The models of the visible components are collected by a visitor, after the components were
+ * configured and repeaters populated their items. Each model is asked to start loading. Keys
+ * requested from {@link BulkLoader}s meanwhile are loaded with one call per loader afterwards.
+ * When all loads are completed, the loaded objects are handed back to their models, so these do
+ * not load again when the components are rendered.
+ * </p>
+ * <p>
+ * Models which are not initialized yet are not initialized for preloading, so components with an
+ * inherited model (e.g. of a {@link CompoundPropertyModel}) are left as they are. Their model is
+ * preloaded with the component it is inherited from.
+ * </p>
+ * <p>
+ * A failed preload is logged only, its model is left to load its object as usual.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.RequestCycleSettings#setPreloadModels(boolean)
+ */
+public class ModelPreloader
+{
+	private static final Logger log = LoggerFactory.getLogger(ModelPreloader.class);
+
+	/** the preloader collecting models in the current request */
+	private static final MetaDataKey<ModelPreloader> CURRENT = new MetaDataKey<ModelPreloader>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/** the started loads, by model */
+	private final Map<IPreloadableModel<?>, CompletionStage<?>> loads = new IdentityHashMap<>();
+
+	/** the keys requested from each loader */
+	private final Map<BulkLoader<?, ?>, Map<Object, CompletableFuture<Object>>> batches =
+		new LinkedHashMap<>();
+
+	private ModelPreloader()
+	{
+	}
+
+	/**
+	 * Preloads the models of the given components and all their children.
+	 *
+	 * @param components
+	 *            the components to preload the models of
+	 */
+	public static void preload(final Collection<? extends Component> components)
+	{
+		Args.notNull(components, "components");
+
+		ModelPreloader preloader = new ModelPreloader();
+
+		RequestCycle requestCycle = RequestCycle.get();
+		if (requestCycle != null)
+		{
+			requestCycle.setMetaData(CURRENT, preloader);
+		}
+		try
+		{
+			for (Component component : components)
+			{
+				preloader.collect(component);
+			}
+		}
+		finally
+		{
+			if (requestCycle != null)
+			{
+				requestCycle.setMetaData(CURRENT, null);
+			}
+		}
+
+		preloader.flush();
+		preloader.join();
+	}
+
+	/**
+	 * @return the preloader collecting models in the current request, or {@code null}
+	 */
+	static ModelPreloader get()
+	{
+		RequestCycle requestCycle = RequestCycle.get();
+		return requestCycle != null ? requestCycle.getMetaData(CURRENT) : null;
+	}
+
+	/**
+	 * Requests a key from a loader.
+	 */
+	@SuppressWarnings("unchecked")
+	<K, T> CompletionStage<T> enqueue(final BulkLoader<K, T> loader, final K key)
+	{
+		Map<Object, CompletableFuture<Object>> batch = batches.computeIfAbsent(loader,
+			l -> new LinkedHashMap<>());
+		return (CompletionStage<T>)batch.computeIfAbsent(key, k -> new CompletableFuture<>());
+	}
+
+	private void collect(final Component component)
+	{
+		if (component.determineVisibility() == false)
+		{
+			return;
+		}
+
+		collect(component.internalGetModel());
+
+		if (component instanceof MarkupContainer)
+		{
+			((MarkupContainer)component).visitChildren(new IVisitor<Component, Void>()
+			{
+				@Override
+				public void component(final Component child, final IVisit<Void> visit)
+				{
+					if (child.determineVisibility() == false)
+					{
+						visit.dontGoDeeper();
+						return;
+					}
+
+					collect(child.internalGetModel());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Collects the model and the models it is wrapping.
+	 */
+	private void collect(IModel<?> model)
+	{
+		while (model != null)
+		{
+			if (model instanceof IPreloadableModel && loads.containsKey(model) == false)
+			{
+				IPreloadableModel<?> preloadable = (IPreloadableModel<?>)model;
+				CompletionStage<?> load = preloadable.preload();
+				if (load != null)
+				{
+					loads.put(preloadable, load);
+				}
+			}
+
+			if (model instanceof IWrapModel)
+			{
+				model = ((IWrapModel<?>)model).getWrappedModel();
+			}
+			else if (model instanceof ChainingModel)
+			{
+				Object target = ((ChainingModel<?>)model).getTarget();
+				model = target instanceof IModel ? (IModel<?>)target : null;
+			}
+			else
+			{
+				model = null;
+			}
+		}
+	}
+
+	/**
+	 * Loads the requested keys of all loaders.
+	 */
+	private void flush()
+	{
+		for (Map.Entry<BulkLoader<?, ?>, Map<Object, CompletableFuture<Object>>> entry : batches
+			.entrySet())
+		{
+			flush(entry.getKey(), entry.getValue());
+		}
+		batches.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <K, T> void flush(final BulkLoader<K, T> loader,
+		final Map<Object, CompletableFuture<Object>> batch)
+	{
+		try
+		{
+			Map<K, T> objects = loader.loadAll((Set<K>)batch.keySet());
+			for (Map.Entry<Object, CompletableFuture<Object>> entry : batch.entrySet())
+			{
+				entry.getValue().complete(BulkLoader.get(objects, entry.getKey()));
+			}
+		}
+		catch (RuntimeException e)
+		{
+			for (CompletableFuture<Object> future : batch.values())
+			{
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Waits for all loads and hands the objects back to their models.
+	 */
+	@SuppressWarnings("unchecked")
+	private void join()
+	{
+		List<Map.Entry<IPreloadableModel<?>, CompletionStage<?>>> entries = new ArrayList<>(
+			loads.entrySet());
+		loads.clear();
+
+		for (Map.Entry<IPreloadableModel<?>, CompletionStage<?>> entry : entries)
+		{
+			Object object;
+			try
+			{
+				object = entry.getValue().toCompletableFuture().join();
+			}
+			catch (CompletionException | CancellationException e)
+			{
+				log.warn("Cannot preload model " + entry.getKey(), e);
+				continue;
+			}
+
+			((IPreloadableModel<Object>)entry.getKey()).setPreloadedObject(object);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import org.apache.wicket.util.time.Duration;
+
+/**
+ * Receives measurements of the page locks of {@link PageAccessSynchronizer}s.
+ * <p>
+ * Implementations are called by the threads acquiring and releasing the locks, so they have to be
+ * thread-safe and should return quickly.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.RequestCycleSettings#setPageLockMetrics(IPageLockMetrics)
+ * @see PageLockStatistics
+ */
+public interface IPageLockMetrics
+{
+	/**
+	 * Called when a thread acquired the lock of a page.
+	 *
+	 * @param pageId
+	 *            the id of the page
+	 * @param waited
+	 *            the time the thread waited for the lock
+	 */
+	void lockAcquired(int pageId, Duration waited);
+
+	/**
+	 * Called when a thread failed to acquire the lock of a page.
+	 *
+	 * @param pageId
+	 *            the id of the page
+	 * @param waited
+	 *            the time the thread waited for the lock
+	 * @param holder
+	 *            the thread holding the lock
+	 * @param failedFast
+	 *            {@code true} if the thread gave up before the timeout, because the expected wait
+	 *            exceeded the budget
+	 */
+	void lockFailed(int pageId, Duration waited, Thread holder, boolean failedFast);
+
+	/**
+	 * Called when a thread released the lock of a page.
+	 *
+	 * @param pageId
+	 *            the id of the page
+	 * @param held
+	 *            the time the thread held the lock
+	 * @param holder
+	 *            the thread which held the lock
+	 */
+	void lockReleased(int pageId, Duration held, Thread holder);
+}
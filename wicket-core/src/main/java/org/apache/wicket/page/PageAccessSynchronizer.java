@@ -17,12 +17,29 @@
 package org.apache.wicket.page;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.IRequestListener;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Page;
+import org.apache.wicket.behavior.InvalidBehaviorIdException;
+import org.apache.wicket.behavior.ParallelRenderBehavior;
+import org.apache.wicket.core.request.mapper.MapperUtils;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.mapper.info.PageComponentInfo;
 import org.apache.wicket.settings.ExceptionSettings.ThreadDumpStrategy;
 import org.apache.wicket.util.LazyInitializer;
 import org.apache.wicket.util.lang.Threads;
@@ -33,6 +50,18 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Synchronizes access to page instances from multiple threads
+ * <p>
+ * Requests to {@link IRequestListener#isReadOnly() read-only} listeners do not wait for the lock
+ * of their page: these are served with a snapshot of the page as it was stored by the last request
+ * holding the lock. Changes to the snapshot are never stored.
+ * </p>
+ * <p>
+ * Waits for and holds of locks are reported to the
+ * {@link org.apache.wicket.settings.RequestCycleSettings#setPageLockMetrics(IPageLockMetrics)
+ * page lock metrics}. With a
+ * {@link org.apache.wicket.settings.RequestCycleSettings#setPageLockWaitBudget(Duration) wait
+ * budget} a thread gives up immediately, if it expects to wait longer than the budget.
+ * </p>
  * 
  * @author Igor Vaynberg (ivaynberg)
  */
@@ -54,9 +83,33 @@ public class PageAccessSynchronizer implements Serializable
 		}
 	};
 
+	/** maximum number of page snapshots kept for read-only listeners */
+	private static final int MAX_SNAPSHOTS = 10;
+
+	/** the pages accessed in the current request */
+	private static final MetaDataKey<RequestState> REQUEST_STATE = new MetaDataKey<RequestState>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
 	/** timeout value for acquiring a page lock */
 	private final Duration timeout;
 
+	/** snapshots of pages with read-only listeners, by page id */
+	private final Supplier<ConcurrentMap<Integer, PageSnapshot>> snapshots = new LazyInitializer<ConcurrentMap<Integer, PageSnapshot>>()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected ConcurrentMap<Integer, PageSnapshot> createInstance()
+		{
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/** moving average of the milliseconds pages are held locked, {@code 0} if unknown */
+	private transient volatile long averageHold;
+
 	/**
 	 * Constructor
 	 * 
@@ -83,6 +136,45 @@ public class PageAccessSynchronizer implements Serializable
 		return timeout;
 	}
 
+	/**
+	 * @param pageId
+	 *            the id of the page to be locked
+	 * @return the time a thread may expect to wait for a page lock, or {@code null} to wait up to
+	 *         the timeout
+	 * @see org.apache.wicket.settings.RequestCycleSettings#getPageLockWaitBudget()
+	 */
+	public Duration getWaitBudget(int pageId)
+	{
+		return Application.exists()
+			? Application.get().getRequestCycleSettings().getPageLockWaitBudget() : null;
+	}
+
+	/**
+	 * @return the metrics to report to, or {@code null}
+	 * @see org.apache.wicket.settings.RequestCycleSettings#getPageLockMetrics()
+	 */
+	protected IPageLockMetrics getMetrics()
+	{
+		return Application.exists() ? Application.get().getRequestCycleSettings()
+			.getPageLockMetrics() : null;
+	}
+
+	/**
+	 * Estimates the milliseconds until a thread waiting now acquires a lock: the holder is
+	 * expected to need the average hold duration, but at least as long again as it holds the lock
+	 * already, and each thread waiting before the average hold duration.
+	 */
+	private long expectedWait(PageLock holder)
+	{
+		long average = averageHold;
+		if (average == 0)
+		{
+			return 0;
+		}
+		long held = System.currentTimeMillis() - holder.lockedAt;
+		return Math.max(average - held, held) + holder.waiters.get() * average;
+	}
+
 	/**
 	 * Acquire a lock to a page
 	 * 
@@ -90,9 +182,18 @@ public class PageAccessSynchronizer implements Serializable
 	 *            page id
 	 * @throws CouldNotLockPageException
 	 *             if lock could not be acquired
+	 * @throws IllegalStateException
+	 *             if called while rendering a {@link ParallelRenderBehavior region} in parallel
 	 */
 	public void lockPage(int pageId) throws CouldNotLockPageException
 	{
+		if (ParallelRenderBehavior.isRenderingInParallel())
+		{
+			// the request thread holds the lock and waits for the region
+			throw new IllegalStateException("Page " + pageId +
+				" cannot be locked while rendering a region in parallel");
+		}
+
 		final Thread thread = Thread.currentThread();
 		final PageLock lock = new PageLock(pageId, thread);
 		final Time start = Time.now();
@@ -105,6 +206,12 @@ public class PageAccessSynchronizer implements Serializable
 
 		Duration timeout = getTimeout(pageId);
 
+		Duration budget = getWaitBudget(pageId);
+
+		IPageLockMetrics metrics = getMetrics();
+
+		boolean failedFast = false;
+
 		while (!locked && start.elapsedSince().lessThan(timeout))
 		{
 			if (isDebugEnabled)
@@ -113,12 +220,24 @@ public class PageAccessSynchronizer implements Serializable
 					thread.getName(), pageId);
 			}
 
+			lock.lockedAt = System.currentTimeMillis();
 			previous = locks.get().putIfAbsent(pageId, lock);
 
 			if (previous == null || previous.thread == thread)
 			{
 				// first thread to acquire lock or lock is already owned by this thread
 				locked = true;
+
+				if (previous == null && metrics != null)
+				{
+					metrics.lockAcquired(pageId, start.elapsedSince());
+				}
+			}
+			else if (budget != null && expectedWait(previous) > budget.getMilliseconds())
+			{
+				// give up instead of waiting for a lock which won't be available in time
+				failedFast = true;
+				break;
 			}
 			else
 			{
@@ -126,7 +245,15 @@ public class PageAccessSynchronizer implements Serializable
 				long remaining = remaining(start, timeout);
 				if (remaining > 0)
 				{
-					previous.waitForRelease(remaining, isDebugEnabled);
+					previous.waiters.incrementAndGet();
+					try
+					{
+						previous.waitForRelease(remaining, isDebugEnabled);
+					}
+					finally
+					{
+						previous.waiters.decrementAndGet();
+					}
 				}
 			}
 		}
@@ -137,8 +264,28 @@ public class PageAccessSynchronizer implements Serializable
 				logger.debug("{} acquired lock to page {}", thread.getName(), pageId);
 			}
 		}
+		else if (failedFast)
+		{
+			if (metrics != null)
+			{
+				metrics.lockFailed(pageId, start.elapsedSince(), previous.thread, true);
+			}
+			if (logger.isWarnEnabled())
+			{
+				logger.warn(
+					"Thread '{}' gave up acquiring lock to page with id '{}' after {}, expecting to wait longer than {}." +
+						" The thread that holds the lock has name '{}'.",
+					thread.getName(), pageId, start.elapsedSince(), budget,
+					previous.thread.getName());
+			}
+			throw new CouldNotLockPageException(pageId, thread.getName(), start.elapsedSince());
+		}
 		else
 		{
+			if (metrics != null && previous != null)
+			{
+				metrics.lockFailed(pageId, start.elapsedSince(), previous.thread, false);
+			}
 			if (logger.isWarnEnabled())
 			{
 				logger.warn(
@@ -203,6 +350,7 @@ public class PageAccessSynchronizer implements Serializable
 			if ((pageId == null || pageId == lock.pageId) && lock.thread == thread)
 			{
 				locks.remove();
+				released(lock);
 				if (isDebugEnabled)
 				{
 					logger.debug("'{}' released lock to page with id '{}'", thread.getName(),
@@ -219,6 +367,233 @@ public class PageAccessSynchronizer implements Serializable
 		}
 	}
 
+	/**
+	 * Notifies about a rendered url of a {@link IRequestListener#isReadOnly() read-only} listener,
+	 * so its page is kept as a snapshot to serve requests to the listener.
+	 * <p>
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * </p>
+	 * 
+	 * @param page
+	 *            the page of the listener
+	 * @param componentPath
+	 *            the page relative path of the listening component
+	 * @param behaviorIndex
+	 *            the index of the listening behavior or {@code null} if the component is the
+	 *            listener
+	 */
+	public static void readOnlyListenerRendered(IManageablePage page, String componentPath,
+		Integer behaviorIndex)
+	{
+		if (ParallelRenderBehavior.deferToRequestThread(
+			() -> readOnlyListenerRendered(page, componentPath, behaviorIndex)))
+		{
+			return;
+		}
+
+		RequestState state = RequestState.get(true);
+		if (state != null)
+		{
+			state.listeners.computeIfAbsent(page.getPageId(), id -> new HashSet<>())
+				.add(address(componentPath, behaviorIndex));
+		}
+	}
+
+	private static String address(String componentPath, Integer behaviorIndex)
+	{
+		return behaviorIndex == null ? componentPath : componentPath + '|' + behaviorIndex;
+	}
+
+	/**
+	 * Gets a snapshot of the page, if the current request is for a read-only listener of it.
+	 * 
+	 * @param pageId
+	 *            the id of the page
+	 * @return snapshot or {@code null} if the page has to be locked
+	 */
+	private IManageablePage getSnapshot(int pageId)
+	{
+		RequestCycle requestCycle = RequestCycle.get();
+		if (requestCycle == null)
+		{
+			return null;
+		}
+
+		RequestState state = RequestState.get(true);
+		IManageablePage page = state.snapshots.get(pageId);
+		if (page == null)
+		{
+			PageSnapshot snapshot = snapshots.get().get(pageId);
+			if (snapshot == null)
+			{
+				return null;
+			}
+
+			// the page has not been resolved yet, so the listener is known from the url only
+			PageComponentInfo info = MapperUtils.getPageComponentInfo(requestCycle.getRequest()
+				.getUrl());
+			if (info == null || info.getComponentInfo() == null ||
+				Integer.valueOf(pageId).equals(info.getPageInfo().getPageId()) == false)
+			{
+				return null;
+			}
+			String componentPath = info.getComponentInfo().getComponentPath();
+			Integer behaviorIndex = info.getComponentInfo().getBehaviorId();
+			if (snapshot.listeners.contains(address(componentPath, behaviorIndex)) == false)
+			{
+				return null;
+			}
+
+			page = snapshot.restore();
+			if (page == null || isReadOnly(page, componentPath, behaviorIndex) == false)
+			{
+				return null;
+			}
+			state.snapshots.put(pageId, page);
+
+			if (logger.isDebugEnabled())
+			{
+				logger.debug("'{}' serves read-only listener with snapshot of page with id '{}'",
+					Thread.currentThread().getName(), pageId);
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Check whether the listener still is read-only, its component might have been replaced since
+	 * the url was rendered.
+	 */
+	private static boolean isReadOnly(IManageablePage page, String componentPath,
+		Integer behaviorIndex)
+	{
+		if (page instanceof Page == false)
+		{
+			return false;
+		}
+		Component component = ((Page)page).get(componentPath);
+		if (component == null)
+		{
+			return false;
+		}
+
+		Object listener = component;
+		if (behaviorIndex != null)
+		{
+			try
+			{
+				listener = component.getBehaviorById(behaviorIndex);
+			}
+			catch (InvalidBehaviorIdException e)
+			{
+				return false;
+			}
+		}
+		return listener instanceof IRequestListener && ((IRequestListener)listener).isReadOnly();
+	}
+
+	private static boolean isSnapshot(IManageablePage page)
+	{
+		RequestState state = RequestState.get(false);
+		return state != null && state.snapshots.get(page.getPageId()) == page;
+	}
+
+	private static void accessed(IManageablePage page)
+	{
+		RequestState state = RequestState.get(true);
+		if (state != null)
+		{
+			state.pages.put(page, Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Keeps snapshots of the pages accessed in the current request, if these have read-only
+	 * listeners.
+	 */
+	private void storeSnapshots()
+	{
+		RequestState state = RequestState.get(false);
+		if (state == null)
+		{
+			return;
+		}
+		RequestCycle.get().setMetaData(REQUEST_STATE, null);
+
+		for (IManageablePage page : state.pages.keySet())
+		{
+			int pageId = page.getPageId();
+			Set<String> listeners = state.listeners.remove(pageId);
+			if (listeners == null && snapshots.get().containsKey(pageId) == false)
+			{
+				continue;
+			}
+
+			byte[] data = serialize(page);
+			if (data == null)
+			{
+				snapshots.get().remove(pageId);
+			}
+			else
+			{
+				snapshots.get().compute(pageId,
+					(id, previous) -> new PageSnapshot(data, previous, listeners));
+			}
+		}
+
+		// listeners rendered for pages which were not accessed, i.e. from a snapshot
+		for (Map.Entry<Integer, Set<String>> entry : state.listeners.entrySet())
+		{
+			snapshots.get().computeIfPresent(entry.getKey(),
+				(id, previous) -> new PageSnapshot(previous.data, previous, entry.getValue()));
+		}
+
+		// drop the snapshots stored least recently
+		while (snapshots.get().size() > MAX_SNAPSHOTS)
+		{
+			Map.Entry<Integer, PageSnapshot> eldest = null;
+			for (Map.Entry<Integer, PageSnapshot> entry : snapshots.get().entrySet())
+			{
+				if (eldest == null || entry.getValue().stored < eldest.getValue().stored)
+				{
+					eldest = entry;
+				}
+			}
+			snapshots.get().remove(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	private static byte[] serialize(IManageablePage page)
+	{
+		if (page.isPageStateless() || Application.exists() == false)
+		{
+			return null;
+		}
+		return Application.get().getFrameworkSettings().getSerializer().serialize(page);
+	}
+
+	private void removeSnapshot(int pageId)
+	{
+		snapshots.get().remove(pageId);
+	}
+
+	/**
+	 * Measures the hold of a released lock.
+	 */
+	private void released(PageLock lock)
+	{
+		long held = Math.max(0, System.currentTimeMillis() - lock.lockedAt);
+
+		long average = averageHold;
+		averageHold = Math.max(1, average == 0 ? held : (average * 7 + held) / 8);
+
+		IPageLockMetrics metrics = getMetrics();
+		if (metrics != null)
+		{
+			metrics.lockReleased(lock.pageId, Duration.milliseconds(held), lock.thread);
+		}
+	}
+
 	/*
 	 * used by tests
 	 */
@@ -240,7 +615,12 @@ public class PageAccessSynchronizer implements Serializable
 			@Override
 			public IManageablePage getPage(int pageId)
 			{
-				IManageablePage page = null;
+				IManageablePage page = getSnapshot(pageId);
+				if (page != null)
+				{
+					return page;
+				}
+
 				try
 				{
 					lockPage(pageId);
@@ -253,17 +633,22 @@ public class PageAccessSynchronizer implements Serializable
 						unlockPage(pageId);
 					}
 				}
+				if (page != null)
+				{
+					accessed(page);
+				}
 				return page;
 			}
 
 			@Override
 			public void removePage(final IManageablePage page) {
-				if (page != null)
+				if (page != null && isSnapshot(page) == false)
 				{
 					try
 					{
 						super.removePage(page);
 						untouchPage(page);
+						removeSnapshot(page.getPageId());
 					}
 					finally
 					{
@@ -275,8 +660,27 @@ public class PageAccessSynchronizer implements Serializable
 			@Override
 			public void touchPage(IManageablePage page)
 			{
+				if (isSnapshot(page))
+				{
+					return;
+				}
+				if (ParallelRenderBehavior.deferToRequestThread(() -> touchPage(page)))
+				{
+					return;
+				}
 				lockPage(page.getPageId());
 				super.touchPage(page);
+				accessed(page);
+			}
+
+			@Override
+			public void untouchPage(IManageablePage page)
+			{
+				if (isSnapshot(page) == false &&
+					ParallelRenderBehavior.deferToRequestThread(() -> untouchPage(page)) == false)
+				{
+					super.untouchPage(page);
+				}
 			}
 
 			@Override
@@ -285,6 +689,7 @@ public class PageAccessSynchronizer implements Serializable
 				try
 				{
 					super.commitRequest();
+					storeSnapshots();
 				}
 				finally
 				{
@@ -294,6 +699,80 @@ public class PageAccessSynchronizer implements Serializable
 		};
 	}
 
+	/**
+	 * The pages accessed in a request.
+	 */
+	private static class RequestState
+	{
+		/** rendered read-only listeners, by page id */
+		private final Map<Integer, Set<String>> listeners = new HashMap<>();
+
+		/** pages accessed with a lock */
+		private final Map<IManageablePage, Boolean> pages = new IdentityHashMap<>();
+
+		/** snapshots served, by page id */
+		private final Map<Integer, IManageablePage> snapshots = new HashMap<>();
+
+		private static RequestState get(boolean create)
+		{
+			RequestCycle requestCycle = RequestCycle.get();
+			if (requestCycle == null)
+			{
+				return null;
+			}
+			RequestState state = requestCycle.getMetaData(REQUEST_STATE);
+			if (state == null && create)
+			{
+				state = new RequestState();
+				requestCycle.setMetaData(REQUEST_STATE, state);
+			}
+			return state;
+		}
+	}
+
+	/**
+	 * A serialized page and the read-only listeners rendered for it.
+	 */
+	private static class PageSnapshot
+	{
+		private final byte[] data;
+
+		private final Set<String> listeners;
+
+		/** when the snapshot was stored */
+		private final long stored = System.nanoTime();
+
+		private PageSnapshot(byte[] data, PageSnapshot previous, Set<String> listeners)
+		{
+			this.data = data;
+
+			Set<String> all = new HashSet<>();
+			if (previous != null)
+			{
+				all.addAll(previous.listeners);
+			}
+			if (listeners != null)
+			{
+				all.addAll(listeners);
+			}
+			this.listeners = all;
+		}
+
+		/**
+		 * @return a new copy of the page
+		 */
+		private IManageablePage restore()
+		{
+			if (Application.exists() == false)
+			{
+				return null;
+			}
+			Object page = Application.get().getFrameworkSettings().getSerializer().deserialize(
+				data);
+			return page instanceof IManageablePage ? (IManageablePage)page : null;
+		}
+	}
+
 	/**
 	 * Thread's lock on a page
 	 * 
@@ -307,7 +786,14 @@ public class PageAccessSynchronizer implements Serializable
 		/** thread that owns the lock */
 		private final Thread thread;
 
-		private volatile boolean released = false;
+		/** counted down when the lock is released */
+		private final CountDownLatch released = new CountDownLatch(1);
+
+		/** when the lock was acquired */
+		private volatile long lockedAt;
+
+		/** number of threads waiting for release */
+		private final AtomicInteger waiters = new AtomicInteger();
 
 		/**
 		 * Constructor
@@ -337,9 +823,13 @@ public class PageAccessSynchronizer implements Serializable
 			return thread;
 		}
 
-		final synchronized void waitForRelease(long remaining, boolean isDebugEnabled)
+		/**
+		 * Waits for the release without holding a monitor, so a waiting virtual thread does not
+		 * block its carrier thread.
+		 */
+		final void waitForRelease(long remaining, boolean isDebugEnabled)
 		{
-			if (released)
+			if (released.getCount() == 0)
 			{
 				// the thread holding the lock released it before we were able to wait for the
 				// release
@@ -359,7 +849,7 @@ public class PageAccessSynchronizer implements Serializable
 			}
 			try
 			{
-				wait(remaining);
+				released.await(remaining, TimeUnit.MILLISECONDS);
 			}
 			catch (InterruptedException e)
 			{
@@ -367,14 +857,13 @@ public class PageAccessSynchronizer implements Serializable
 			}
 		}
 
-		final synchronized void markReleased(boolean isDebugEnabled)
+		final void markReleased(boolean isDebugEnabled)
 		{
 			if (isDebugEnabled)
 			{
 				logger.debug("'{}' notifying blocked threads", thread.getName());
 			}
-			released = true;
-			notifyAll();
+			released.countDown();
 		}
 	}
 }
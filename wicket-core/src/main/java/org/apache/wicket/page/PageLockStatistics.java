@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Duration;
+
+/**
+ * Collects {@link IPageLockMetrics} of all sessions in memory.
+ * <p>
+ * The durations of waits and holds are counted in histograms with the buckets of
+ * {@link #getBuckets()}, holds longer than a threshold are remembered with the name of their thread.
+ * </p>
+ *
+ * <pre>
+ * PageLockStatistics statistics = new PageLockStatistics(Duration.seconds(5), 20);
+ * getRequestCycleSettings().setPageLockMetrics(statistics);
+ * </pre>
+ */
+public class PageLockStatistics implements IPageLockMetrics
+{
+	/**
+	 * The upper bounds in milliseconds of the histogram buckets, the last bucket counts all longer
+	 * durations.
+	 */
+	private static final long[] BUCKETS = { 1, 10, 100, 1000, 10000 };
+
+	private final AtomicLongArray waits = new AtomicLongArray(BUCKETS.length + 1);
+
+	private final AtomicLongArray holds = new AtomicLongArray(BUCKETS.length + 1);
+
+	private final LongAdder timeouts = new LongAdder();
+
+	private final LongAdder fastFailures = new LongAdder();
+
+	private final long longHoldThreshold;
+
+	private final int maxLongHolds;
+
+	private final Deque<LongHold> longHolds = new ConcurrentLinkedDeque<>();
+
+	/**
+	 * Construct.
+	 *
+	 * @param longHoldThreshold
+	 *            holds longer than this duration are remembered
+	 * @param maxLongHolds
+	 *            the number of long holds to remember
+	 */
+	public PageLockStatistics(Duration longHoldThreshold, int maxLongHolds)
+	{
+		this.longHoldThreshold = Args.notNull(longHoldThreshold, "longHoldThreshold")
+			.getMilliseconds();
+		this.maxLongHolds = maxLongHolds;
+	}
+
+	@Override
+	public void lockAcquired(int pageId, Duration waited)
+	{
+		count(waits, waited);
+	}
+
+	@Override
+	public void lockFailed(int pageId, Duration waited, Thread holder, boolean failedFast)
+	{
+		count(waits, waited);
+		if (failedFast)
+		{
+			fastFailures.increment();
+		}
+		else
+		{
+			timeouts.increment();
+		}
+	}
+
+	@Override
+	public void lockReleased(int pageId, Duration held, Thread holder)
+	{
+		count(holds, held);
+
+		if (held.getMilliseconds() > longHoldThreshold)
+		{
+			longHolds.addFirst(new LongHold(pageId, holder.getName(), held));
+			while (longHolds.size() > maxLongHolds)
+			{
+				longHolds.pollLast();
+			}
+		}
+	}
+
+	/**
+	 * @return the upper bounds in milliseconds of the histogram buckets, the last bucket counts
+	 *         all longer durations
+	 */
+	public static long[] getBuckets()
+	{
+		return BUCKETS.clone();
+	}
+
+	private static void count(AtomicLongArray histogram, Duration duration)
+	{
+		long millis = duration.getMilliseconds();
+		int bucket = 0;
+		while (bucket < BUCKETS.length && millis > BUCKETS[bucket])
+		{
+			bucket++;
+		}
+		histogram.incrementAndGet(bucket);
+	}
+
+	private static long[] toArray(AtomicLongArray histogram)
+	{
+		long[] counts = new long[histogram.length()];
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = histogram.get(i);
+		}
+		return counts;
+	}
+
+	/**
+	 * @return the counts of waits for locks, per bucket of {@link #getBuckets()}
+	 */
+	public long[] getWaits()
+	{
+		return toArray(waits);
+	}
+
+	/**
+	 * @return the counts of holds of locks, per bucket of {@link #getBuckets()}
+	 */
+	public long[] getHolds()
+	{
+		return toArray(holds);
+	}
+
+	/**
+	 * @return the number of threads which waited for a lock until the timeout
+	 */
+	public long getTimeouts()
+	{
+		return timeouts.sum();
+	}
+
+	/**
+	 * @return the number of threads which gave up waiting, because their expected wait exceeded
+	 *         the budget
+	 */
+	public long getFastFailures()
+	{
+		return fastFailures.sum();
+	}
+
+	/**
+	 * @return the last holds longer than the threshold, latest first
+	 */
+	public List<LongHold> getLongHolds()
+	{
+		return new ArrayList<>(longHolds);
+	}
+
+	/**
+	 * Resets all statistics.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i <= BUCKETS.length; i++)
+		{
+			waits.set(i, 0);
+			holds.set(i, 0);
+		}
+		timeouts.reset();
+		fastFailures.reset();
+		longHolds.clear();
+	}
+
+	/**
+	 * A hold of a lock longer than the threshold.
+	 */
+	public static class LongHold
+	{
+		private final int pageId;
+
+		private final String threadName;
+
+		private final Duration held;
+
+		private LongHold(int pageId, String threadName, Duration held)
+		{
+			this.pageId = pageId;
+			this.threadName = threadName;
+			this.held = held;
+		}
+
+		/**
+		 * @return the id of the page
+		 */
+		public int getPageId()
+		{
+			return pageId;
+		}
+
+		/**
+		 * @return the name of the thread which held the lock
+		 */
+		public String getThreadName()
+		{
+			return threadName;
+		}
+
+		/**
+		 * @return the time the lock was held
+		 */
+		public Duration getHeld()
+		{
+			return held;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "page " + pageId + " held by '" + threadName + "' for " + held;
+		}
+	}
+}
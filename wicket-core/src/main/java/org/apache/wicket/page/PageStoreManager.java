@@ -454,12 +454,9 @@ public class PageStoreManager extends AbstractPageManager
 			{
 				SessionEntry entry = getSessionEntry(true);
 				entry.setSessionCache(touchedPages);
-				for (IManageablePage page : touchedPages)
-				{
-					// WICKET-5103 use the same sessionId as used in
-					// SessionEntry#getPage()
-					pageStore.storePage(entry.sessionId, page);
-				}
+				// WICKET-5103 use the same sessionId as used in
+				// SessionEntry#getPage()
+				pageStore.storePages(entry.sessionId, touchedPages);
 
 				STORING_TOUCHED_PAGES.set(true);
 				try
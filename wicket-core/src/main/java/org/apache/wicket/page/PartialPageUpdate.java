@@ -16,17 +16,23 @@
  */
 package org.apache.wicket.page;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.Cookie;
 
 import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.Page;
 import org.apache.wicket.feedback.FeedbackDelay;
 import org.apache.wicket.markup.head.HeaderItem;
@@ -42,14 +48,15 @@ import org.apache.wicket.markup.parser.filter.HtmlHeaderSectionHandler;
 import org.apache.wicket.markup.renderStrategy.AbstractHeaderRenderStrategy;
 import org.apache.wicket.markup.renderStrategy.IHeaderRenderStrategy;
 import org.apache.wicket.markup.repeater.AbstractRepeater;
+import org.apache.wicket.model.ModelPreloader;
 import org.apache.wicket.request.IRequestCycle;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.lang.Generics;
-import org.apache.wicket.util.string.AppendingStringBuffer;
 import org.apache.wicket.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +78,15 @@ public abstract class PartialPageUpdate
 {
 	private static final Logger LOG = LoggerFactory.getLogger(PartialPageUpdate.class);
 
+	/**
+	 * The hashes of the markup written for components of the page.
+	 */
+	private static final MetaDataKey<RenderedHashes> RENDERED_HASHES =
+		new MetaDataKey<RenderedHashes>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
 	/**
 	 * A list of scripts (JavaScript) which should be executed on the client side before the
 	 * components' replacement
@@ -126,6 +142,17 @@ public abstract class PartialPageUpdate
 	 * The page which components are being updated.
 	 */
 	private final Page page;
+
+	/**
+	 * The added components while they are written, for a fast lookup of ancestors.
+	 */
+	private transient Set<Component> frozenComponents;
+
+	/**
+	 * The scripts before the current component was written, if unchanged components are
+	 * skipped.
+	 */
+	private transient ScriptsSnapshot scriptsBeforeComponent;
 	
 	/**
 	 * Constructor.
@@ -239,17 +266,17 @@ public abstract class PartialPageUpdate
 	{
 		componentsFrozen = true;
 
-		List<Component> toBeWritten = new ArrayList<>(markupIdToComponent.size());
-		
+		// components with an added ancestor are rendered by the ancestor
+		List<Component> topmost = getTopmostComponents();
+
+		List<Component> toBeWritten = new ArrayList<>(topmost.size());
+
 		// delay preparation of feedbacks after all other components
 		try (FeedbackDelay delay = new FeedbackDelay(RequestCycle.get())) {
-			for (Component component : markupIdToComponent.values())
+			for (Component component : topmost)
 			{
-				if (!containsAncestorFor(component))
-				{
-					if (prepareComponent(component)) {
-						toBeWritten.add(component);
-					}
+				if (prepareComponent(component)) {
+					toBeWritten.add(component);
 				}
 			}
 
@@ -257,10 +284,30 @@ public abstract class PartialPageUpdate
 			delay.beforeRender();
 		}
 
+		// configured components and populated repeaters are known now
+		if (page.getApplication().getRequestCycleSettings().getPreloadModels())
+		{
+			ModelPreloader.preload(toBeWritten);
+		}
+
 		// write components
+		boolean skipUnchanged = page.getApplication()
+			.getRequestCycleSettings()
+			.getSkipUnchangedAjaxUpdates();
 		for (Component component : toBeWritten)
 		{
-			writeComponent(response, component.getAjaxRegionMarkupId(), component, encoding);
+			if (skipUnchanged)
+			{
+				scriptsBeforeComponent = new ScriptsSnapshot();
+			}
+			try
+			{
+				writeComponent(response, component.getAjaxRegionMarkupId(), component, encoding);
+			}
+			finally
+			{
+				scriptsBeforeComponent = null;
+			}
 		}
 
 		if (header != null)
@@ -492,7 +539,8 @@ public abstract class PartialPageUpdate
 		Component cursor = component.getParent();
 		while (cursor != null)
 		{
-			if (markupIdToComponent.containsValue(cursor))
+			if (frozenComponents != null ? frozenComponents.contains(cursor)
+				: markupIdToComponent.containsValue(cursor))
 			{
 				return true;
 			}
@@ -501,6 +549,97 @@ public abstract class PartialPageUpdate
 		return false;
 	}
 
+	/**
+	 * Gets the added components without the ones which have an added ancestor, each component
+	 * once only.
+	 *
+	 * @return the topmost components
+	 */
+	private List<Component> getTopmostComponents()
+	{
+		frozenComponents = Collections.newSetFromMap(new IdentityHashMap<>());
+		frozenComponents.addAll(markupIdToComponent.values());
+
+		Set<Component> added = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<Component> topmost = new ArrayList<>(markupIdToComponent.size());
+		for (Component component : markupIdToComponent.values())
+		{
+			if (!containsAncestorFor(component) && added.add(component))
+			{
+				topmost.add(component);
+			}
+		}
+		return topmost;
+	}
+
+	/**
+	 * Whether {@link RequestCycleSettings#setSkipUnchangedAjaxUpdates(boolean) unchanged
+	 * components are skipped}. If so, implementations of
+	 * {@link #writeComponent(Response, String, Component, String)} render the component before its
+	 * header contribution, and write neither if {@link #isUnchanged(String, Component, CharSequence)}.
+	 *
+	 * @return {@code true} if unchanged components are skipped
+	 */
+	protected final boolean skipsUnchanged()
+	{
+		return scriptsBeforeComponent != null;
+	}
+
+	/**
+	 * Checks whether the markup of a component is unchanged since it was written in a previous
+	 * response for the page, if {@link #skipsUnchanged() unchanged components are skipped}. The
+	 * scripts contributed by a skipped component are discarded too, since its elements on the
+	 * client are not replaced.
+	 * <p>
+	 * Implementations of {@link #writeComponent(Response, String, Component, String)} call this
+	 * after the component was rendered and do not write it, if this method returns {@code true}.
+	 *
+	 * @param markupId
+	 *      the markup id used for the component replacement
+	 * @param component
+	 *      the rendered component
+	 * @param markup
+	 *      the rendered markup of the component
+	 * @return {@code true} if the component can be skipped
+	 */
+	protected final boolean isUnchanged(String markupId, Component component, CharSequence markup)
+	{
+		if (scriptsBeforeComponent == null)
+		{
+			return false;
+		}
+
+		RenderedHashes rendered = page.getMetaData(RENDERED_HASHES);
+		if (rendered == null || rendered.renderCount != page.getRenderCount())
+		{
+			// the page was rendered completely since
+			rendered = new RenderedHashes(page.getRenderCount());
+			page.setMetaData(RENDERED_HASHES, rendered);
+		}
+
+		long hash = RenderedHashes.hash(markup);
+		Long previous = rendered.hashes.put(markupId, hash);
+		if (previous != null && previous == hash)
+		{
+			scriptsBeforeComponent.restore();
+			return true;
+		}
+
+		if (component instanceof MarkupContainer && rendered.hashes.size() > 1)
+		{
+			// the elements of all children are replaced on the client
+			final Map<String, Long> hashes = rendered.hashes;
+			((MarkupContainer)component).visitChildren((child, visit) -> {
+				String childMarkupId = child.getMarkupId(false);
+				if (childMarkupId != null)
+				{
+					hashes.remove(childMarkupId);
+				}
+			});
+		}
+		return false;
+	}
+
 	/**
 	 * @return {@code true} if the page has been added for replacement
 	 */
@@ -572,6 +711,60 @@ public abstract class PartialPageUpdate
 	 */
 	public abstract void setContentType(WebResponse response, String encoding);
 
+	/**
+	 * The scripts collected before a component is written.
+	 */
+	private class ScriptsSnapshot
+	{
+		private final List<CharSequence> domReady = new ArrayList<>(domReadyJavaScripts);
+
+		private final List<CharSequence> append = new ArrayList<>(appendJavaScripts);
+
+		/**
+		 * Discards the scripts collected since.
+		 */
+		private void restore()
+		{
+			domReadyJavaScripts.clear();
+			domReadyJavaScripts.addAll(domReady);
+			appendJavaScripts.clear();
+			appendJavaScripts.addAll(append);
+		}
+	}
+
+	/**
+	 * The hashes of the markup written for components of a page since it was rendered
+	 * completely.
+	 */
+	private static class RenderedHashes implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int renderCount;
+
+		/** the hashes by markup id */
+		private final HashMap<String, Long> hashes = new HashMap<>();
+
+		private RenderedHashes(int renderCount)
+		{
+			this.renderCount = renderCount;
+		}
+
+		/**
+		 * 64 bit FNV-1a hash of the characters.
+		 */
+		private static long hash(CharSequence markup)
+		{
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < markup.length(); i++)
+			{
+				hash ^= markup.charAt(i);
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+	}
+
 	/**
 	 * Header container component for partial page updates.
 	 * <p>
@@ -699,10 +892,16 @@ public abstract class PartialPageUpdate
 	 */
 	protected static final class ResponseBuffer extends WebResponse
 	{
-		private final AppendingStringBuffer buffer = new AppendingStringBuffer(256);
+		private final StringBuilder buffer = new StringBuilder(256);
 
 		private final WebResponse originalResponse;
 
+		/** whether CDATA section terminators are escaped while written */
+		private boolean escapeCData;
+
+		/** the number of closing brackets at the end of the buffer */
+		private int closingBrackets;
+
 		/**
 		 * Constructor.
 		 *
@@ -731,13 +930,53 @@ public abstract class PartialPageUpdate
 			return buffer;
 		}
 
+		/**
+		 * Escape CDATA section terminators while the contents are written, so they can be put into
+		 * a CDATA section as they are. The escaping is done on the fly, so the contents don't have to
+		 * be scanned and copied once more.
+		 *
+		 * @param escapeCData
+		 *      whether to escape CDATA section terminators
+		 */
+		public void setEscapeCData(boolean escapeCData)
+		{
+			this.escapeCData = escapeCData;
+		}
+
 		/**
 		 * @see org.apache.wicket.request.Response#write(CharSequence)
 		 */
 		@Override
 		public void write(CharSequence cs)
 		{
-			buffer.append(cs);
+			if (escapeCData == false || cs == null)
+			{
+				buffer.append(cs);
+				return;
+			}
+
+			int start = 0;
+			int length = cs.length();
+			for (int i = 0; i < length; i++)
+			{
+				char c = cs.charAt(i);
+				if (c == ']')
+				{
+					closingBrackets++;
+				}
+				else
+				{
+					if (c == '>' && closingBrackets >= 2)
+					{
+						// the brackets are written already, end the section and start a new one
+						buffer.append(cs, start, i);
+						buffer.append("]]><![CDATA[");
+						start = i;
+					}
+					closingBrackets = 0;
+				}
+			}
+			buffer.append(cs, start, length);
 		}
 
 		/**
@@ -746,7 +985,8 @@ public abstract class PartialPageUpdate
 		@Override
 		public void reset()
 		{
-			buffer.clear();
+			buffer.setLength(0);
+			closingBrackets = 0;
 		}
 
 		@Override
@@ -39,6 +39,9 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 	public XmlPartialPageUpdate(final Page page)
 	{
 		super(page);
+
+		// components are written into CDATA sections
+		bodyBuffer.setEscapeCData(true);
 	}
 
 	@Override
@@ -63,10 +66,16 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 		// component's markup in a manner safe for transport inside CDATA block
 		Response oldResponse = RequestCycle.get().setResponse(bodyBuffer);
 
+		// render the headers after the component, when it might be skipped
+		final boolean headersLast = skipsUnchanged();
+
 		try
 		{
-			// render any associated headers of the component
-			writeHeaderContribution(response, component);
+			if (headersLast == false)
+			{
+				// render any associated headers of the component
+				writeHeaderContribution(response, component);
+			}
 			
 			bodyBuffer.reset();
 			
@@ -86,10 +95,22 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 			RequestCycle.get().setResponse(oldResponse);
 		}
 
+		if (headersLast)
+		{
+			if (isUnchanged(markupId, component, bodyBuffer.getContents()))
+			{
+				bodyBuffer.reset();
+				return;
+			}
+
+			writeHeaderContribution(response, component);
+		}
+
 		response.write("<component id=\"");
 		response.write(markupId);
 		response.write("\" ><![CDATA[");
-		response.write(encode(bodyBuffer.getContents()));
+		// already escaped while rendering
+		response.write(bodyBuffer.getContents());
 		response.write("]]></component>");
 
 		bodyBuffer.reset();
@@ -16,9 +16,24 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Duration;
 
 /**
  * An abstract {@link org.apache.wicket.pageStore.IPageStore} that uses
@@ -29,11 +44,34 @@ import org.apache.wicket.util.lang.Args;
  */
 public abstract class AbstractCachingPageStore<P> extends AbstractPageStore
 {
+	/**
+	 * The maximum number of pages to prefetch for a session
+	 */
+	public static final int MAX_PREFETCH_COUNT = 32;
+
+	private static final int PREFETCH_QUEUE_CAPACITY = 100;
+
 	/**
 	 * The cache implementation
 	 */
 	protected final SecondLevelPageCache<String, Integer, P> pagesCache;
 
+	private final ConcurrentMap<String, SessionHistory> histories = new ConcurrentHashMap<>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong prefetchedCount = new AtomicLong();
+
+	private final AtomicLong prefetchHitCount = new AtomicLong();
+
+	private volatile int prefetchCount;
+
+	private volatile long prefetchIdleTime;
+
+	private volatile ExecutorService prefetchExecutor;
+
 	/**
 	 * Constructor.
 	 *
@@ -52,10 +90,74 @@ public abstract class AbstractCachingPageStore<P> extends AbstractPageStore
 		this.pagesCache = Args.notNull(pagesCache, "pagesCache");
 	}
 
+	/**
+	 * Enables loading pages into the cache in the background. The N most recently used pages of a
+	 * session are loaded when it gets active again after being idle, and the previously used page
+	 * whenever a new page is stored, so that the back button does not have to wait for the
+	 * {@link IDataStore}.
+	 *
+	 * @param prefetchCount
+	 *          the number of pages to load for a session that gets active again, {@code 0} to
+	 *          disable prefetching
+	 * @param idleTime
+	 *          the time after which a session is considered idle
+	 */
+	public synchronized void setPrefetch(final int prefetchCount, final Duration idleTime)
+	{
+		Args.withinRange(0, MAX_PREFETCH_COUNT, prefetchCount, "prefetchCount");
+		Args.notNull(idleTime, "idleTime");
+
+		this.prefetchIdleTime = idleTime.getMilliseconds();
+		this.prefetchCount = prefetchCount;
+		if (prefetchCount > 0 && prefetchExecutor == null)
+		{
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(PREFETCH_QUEUE_CAPACITY), runnable -> {
+					Thread thread = new Thread(runnable, "Wicket-PagePrefetchThread");
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+			prefetchExecutor = executor;
+		}
+	}
+
+	/**
+	 * @return the number of lookups served by the cache
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups which had to read the page from the {@link IDataStore}
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of pages loaded into the cache in the background
+	 */
+	public long getPrefetchedCount()
+	{
+		return prefetchedCount.get();
+	}
+
+	/**
+	 * @return the number of lookups served by a page which was loaded in the background
+	 */
+	public long getPrefetchHitCount()
+	{
+		return prefetchHitCount.get();
+	}
+
 	@Override
 	public IManageablePage getPage(final String sessionId, final int pageId)
 	{
 		P fromCache = pagesCache.getPage(sessionId, pageId);
+		touch(sessionId, pageId, fromCache != null, false);
 		if (fromCache != null)
 		{
 			return convertToPage(fromCache);
@@ -72,11 +174,11 @@ public abstract class AbstractCachingPageStore<P> extends AbstractPageStore
 	@Override
 	public void removePage(final String sessionId, final int pageId)
 	{
+		invalidate(sessionId);
 		pagesCache.removePage(sessionId, pageId);
 		removePageData(sessionId, pageId);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void storePage(final String sessionId, final IManageablePage page)
 	{
@@ -84,14 +186,37 @@ public abstract class AbstractCachingPageStore<P> extends AbstractPageStore
 		if (data != null)
 		{
 			int pageId = page.getPageId();
-			pagesCache.storePage(sessionId, pageId,  (P) page);
+			beforeStore(sessionId, pageId);
+			cachePage(sessionId, page, data);
 			storePageData(sessionId, pageId, data);
 		}
 	}
 
+	@Override
+	public void storePages(final String sessionId, final List<IManageablePage> pages)
+	{
+		Map<Integer, byte[]> batch = new LinkedHashMap<>();
+		for (IManageablePage page : pages)
+		{
+			byte[] data = serializePage(page);
+			if (data != null)
+			{
+				int pageId = page.getPageId();
+				beforeStore(sessionId, pageId);
+				cachePage(sessionId, page, data);
+				batch.put(pageId, data);
+			}
+		}
+		if (batch.isEmpty() == false)
+		{
+			storePageData(sessionId, batch);
+		}
+	}
+
 	@Override
 	public void unbind(final String sessionId)
 	{
+		histories.remove(sessionId);
 		removePageData(sessionId);
 		pagesCache.removePages(sessionId);
 	}
@@ -99,7 +224,228 @@ public abstract class AbstractCachingPageStore<P> extends AbstractPageStore
 	@Override
 	public void destroy()
 	{
+		synchronized (this)
+		{
+			prefetchCount = 0;
+			if (prefetchExecutor != null)
+			{
+				prefetchExecutor.shutdownNow();
+				prefetchExecutor = null;
+			}
+		}
+		histories.clear();
+
 		super.destroy();
 		pagesCache.destroy();
 	}
+
+	@Override
+	public void prefetch(final String sessionId, final int pageId)
+	{
+		ExecutorService executor = prefetchExecutor;
+		if (executor == null || pagesCache.containsPage(sessionId, pageId))
+		{
+			return;
+		}
+
+		SessionHistory history = histories.get(sessionId);
+		if (history == null)
+		{
+			return;
+		}
+		long modCount = history.modCount;
+
+		executor.execute(() -> {
+			if (pagesCache.containsPage(sessionId, pageId))
+			{
+				return;
+			}
+
+			byte[] data = getPageData(sessionId, pageId);
+			if (data != null)
+			{
+				synchronized (history)
+				{
+					// skip if the page has been stored or removed meanwhile
+					if (history.modCount == modCount && histories.get(sessionId) == history)
+					{
+						cachePageData(sessionId, pageId, data);
+						history.prefetched.add(pageId);
+						prefetchedCount.incrementAndGet();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Puts a page which is being stored into the cache.
+	 *
+	 * @param sessionId
+	 *          The id of the http session
+	 * @param page
+	 *          The page
+	 * @param data
+	 *          The serialized view of the page
+	 */
+	@SuppressWarnings("unchecked")
+	protected void cachePage(final String sessionId, final IManageablePage page, final byte[] data)
+	{
+		pagesCache.storePage(sessionId, page.getPageId(), (P) page);
+	}
+
+	/**
+	 * Puts the data of a page which was loaded in the background into the cache.
+	 *
+	 * @param sessionId
+	 *          The id of the http session
+	 * @param pageId
+	 *          The id of the page
+	 * @param data
+	 *          The serialized view of the page
+	 */
+	@SuppressWarnings("unchecked")
+	protected void cachePageData(final String sessionId, final int pageId, final byte[] data)
+	{
+		pagesCache.storePage(sessionId, pageId, (P) deserializePage(data));
+	}
+
+	/**
+	 * Has to be called by subclasses overriding {@link #storePage(String, IManageablePage)} or
+	 * {@link #storePages(String, List)} before the page is put into the cache.
+	 *
+	 * @param sessionId
+	 *          The id of the http session
+	 * @param pageId
+	 *          The id of the page
+	 */
+	protected final void beforeStore(final String sessionId, final int pageId)
+	{
+		touch(sessionId, pageId, true, true);
+	}
+
+	/**
+	 * Records the usage of a page and triggers prefetching.
+	 */
+	private void touch(final String sessionId, final int pageId, final boolean hit,
+		final boolean store)
+	{
+		if (store == false)
+		{
+			(hit ? hitCount : missCount).incrementAndGet();
+		}
+
+		int count = prefetchCount;
+		if (count == 0)
+		{
+			return;
+		}
+
+		SessionHistory history = histories.computeIfAbsent(sessionId,
+			key -> new SessionHistory());
+		int[] pageIds;
+		synchronized (history)
+		{
+			long now = System.currentTimeMillis();
+			boolean idle = history.lastAccess != 0 && now - history.lastAccess > prefetchIdleTime;
+			history.lastAccess = now;
+
+			if (history.prefetched.remove(pageId) && hit && store == false)
+			{
+				prefetchHitCount.incrementAndGet();
+			}
+
+			if (store)
+			{
+				history.modCount++;
+				int previous = history.getRecent(0);
+				pageIds = previous != -1 && previous != pageId ? new int[] { previous } : null;
+			}
+			else
+			{
+				pageIds = idle ? history.getRecent(count, pageId) : null;
+			}
+			history.touch(pageId);
+		}
+
+		if (pageIds != null)
+		{
+			for (int id : pageIds)
+			{
+				prefetch(sessionId, id);
+			}
+		}
+	}
+
+	/**
+	 * Prevents pages loaded in the background from overriding a change.
+	 */
+	private void invalidate(final String sessionId)
+	{
+		SessionHistory history = histories.get(sessionId);
+		if (history != null)
+		{
+			synchronized (history)
+			{
+				history.modCount++;
+			}
+		}
+	}
+
+	/**
+	 * The recently used pages of a session.
+	 */
+	private static class SessionHistory
+	{
+		/** the ids of the recently used pages, the most recent first */
+		private final int[] recent = new int[MAX_PREFETCH_COUNT + 1];
+
+		private int size;
+
+		private long lastAccess;
+
+		/** incremented whenever a page of the session is stored or removed */
+		private long modCount;
+
+		/** the pages loaded in the background which have not been used yet */
+		private final Set<Integer> prefetched = new HashSet<>();
+
+		private void touch(int pageId)
+		{
+			int index = 0;
+			while (index < size && recent[index] != pageId)
+			{
+				index++;
+			}
+			if (index == size)
+			{
+				if (size < recent.length)
+				{
+					size++;
+				}
+				index = size - 1;
+			}
+			System.arraycopy(recent, 0, recent, 1, index);
+			recent[0] = pageId;
+		}
+
+		private int getRecent(int index)
+		{
+			return index < size ? recent[index] : -1;
+		}
+
+		private int[] getRecent(int count, int excludedPageId)
+		{
+			int[] result = new int[Math.min(count, size)];
+			int length = 0;
+			for (int i = 0; i < size && length < result.length; i++)
+			{
+				if (recent[i] != excludedPageId)
+				{
+					result[length++] = recent[i];
+				}
+			}
+			return Arrays.copyOf(result, length);
+		}
+	}
 }
@@ -17,6 +17,7 @@
 package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
+import java.util.Map;
 
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.serialize.ISerializer;
@@ -119,6 +120,18 @@ public abstract class AbstractPageStore implements IPageStore
 		dataStore.storeData(sessionId, pageId, data);
 	}
 
+	/**
+	 * @param sessionId
+	 *          The id of the http session
+	 * @param data
+	 *          The serialized views of the pages by page id
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(String, Map)
+	 */
+	protected void storePageData(final String sessionId, final Map<Integer, byte[]> data)
+	{
+		dataStore.storeData(sessionId, data);
+	}
+
 	/**
 	 * Serializes the passed page to byte[]
 	 *
@@ -16,28 +16,40 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.wicket.util.lang.Args;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Facade for {@link IDataStore} that does the actual saving in worker thread.
+ * Facade for {@link IDataStore} that does the actual saving in worker threads.
  * <p>
- * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in
- * {@link #entries} queue if there is room. Acts as producer.<br/>
- * Later {@link PageSavingRunnable} reads in blocking manner from {@link #entries} and saves each
+ * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in the queue of
+ * the worker the session is hashed onto, if there is room. Acts as producer.<br/>
+ * Later each {@link PageSavingRunnable} reads in blocking manner from its queue and saves each
  * entry. Acts as consumer.
  * </p>
- * It starts only one instance of {@link PageSavingRunnable} because all we need is to make the page
- * storing asynchronous. We don't want to write concurrently in the wrapped {@link IDataStore},
- * though it may happen in the extreme case when the queue is full. These cases should be avoided.
+ * <p>
+ * All entries of a session are handled by the same worker, so the pages of a session are written
+ * in the order they were stored. If an entry for the same session and page is still waiting in
+ * the queue, its data is replaced instead of writing the page twice.
+ * </p>
+ * By default only one worker is started, because all we need is to make the page storing
+ * asynchronous. More workers write concurrently into the wrapped {@link IDataStore}, so it has to
+ * support that. When a queue is full the entry is stored synchronously in the calling thread.
+ * These cases should be avoided, see {@link #getSynchronousCount()}.
  * 
  * @author Matej Knopp
  */
@@ -57,9 +69,14 @@ public class AsynchronousDataStore implements IDataStore
 	private static final long POLL_WAIT = 1000L;
 
 	/**
-	 * The page saving thread.
+	 * The maximum number of entries a worker saves at once
 	 */
-	private final Thread pageSavingThread;
+	private static final int MAX_BATCH_SIZE = 32;
+
+	/**
+	 * The page saving threads.
+	 */
+	private final Thread[] pageSavingThreads;
 
 	/**
 	 * The wrapped {@link IDataStore} that actually stores that pages
@@ -67,9 +84,10 @@ public class AsynchronousDataStore implements IDataStore
 	private final IDataStore dataStore;
 
 	/**
-	 * The queue where the entries which have to be saved are temporary stored
+	 * The queues (one per page saving thread) where the entries which have to be saved are
+	 * temporary stored
 	 */
-	private final BlockingQueue<Entry> entries;
+	private final BlockingQueue<Entry>[] entries;
 
 	/**
 	 * A map 'sessionId:::pageId' -> {@link Entry}. Used for fast retrieval of {@link Entry}s which
@@ -77,6 +95,16 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	private final ConcurrentMap<String, Entry> entryMap;
 
+	/**
+	 * The number of entries which replaced the data of an already queued entry
+	 */
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * The number of entries which had to be stored synchronously
+	 */
+	private final AtomicLong synchronousCount = new AtomicLong();
+
 	/**
 	 * Construct.
 	 * 
@@ -86,23 +114,60 @@ public class AsynchronousDataStore implements IDataStore
 	 *            the capacity of the queue that delays the saving
 	 */
 	public AsynchronousDataStore(final IDataStore dataStore, final int capacity)
+	{
+		this(dataStore, capacity, 1);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually saved the data
+	 * @param capacity
+	 *            the total capacity of the queues that delay the saving
+	 * @param workers
+	 *            the number of threads saving the data concurrently
+	 */
+	@SuppressWarnings("unchecked")
+	public AsynchronousDataStore(final IDataStore dataStore, final int capacity, final int workers)
 	{
 		this.dataStore = dataStore;
-		entries = new LinkedBlockingQueue<>(capacity);
+		Args.withinRange(1, Integer.MAX_VALUE, workers, "workers");
 		entryMap = new ConcurrentHashMap<>();
 
-		PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, entries, entryMap);
-		pageSavingThread = new Thread(savingRunnable, "Wicket-AsyncDataStore-PageSavingThread");
-		pageSavingThread.setDaemon(true);
-		pageSavingThread.start();
+		int workerCapacity = Math.max(1, (capacity + workers - 1) / workers);
+		entries = new BlockingQueue[workers];
+		pageSavingThreads = new Thread[workers];
+		for (int i = 0; i < workers; i++)
+		{
+			entries[i] = new LinkedBlockingQueue<>(workerCapacity);
+
+			PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, entries[i],
+				entryMap);
+			String name = "Wicket-AsyncDataStore-PageSavingThread";
+			if (workers > 1)
+			{
+				name += "-" + i;
+			}
+			pageSavingThreads[i] = new Thread(savingRunnable, name);
+			pageSavingThreads[i].setDaemon(true);
+			pageSavingThreads[i].start();
+		}
 	}
 
 	@Override
 	public void destroy()
 	{
-		if (pageSavingThread.isAlive())
+		for (Thread pageSavingThread : pageSavingThreads)
+		{
+			if (pageSavingThread.isAlive())
+			{
+				pageSavingThread.interrupt();
+			}
+		}
+
+		for (Thread pageSavingThread : pageSavingThreads)
 		{
-			pageSavingThread.interrupt();
 			try
 			{
 				pageSavingThread.join();
@@ -127,6 +192,17 @@ public class AsynchronousDataStore implements IDataStore
 		return entryMap.get(getKey(sessionId, id));
 	}
 
+	/**
+	 * @param sessionId
+	 * @return the queue of the worker the session is hashed onto
+	 */
+	private BlockingQueue<Entry> getEntries(final String sessionId)
+	{
+		int hash = sessionId.hashCode();
+		hash ^= (hash >>> 16);
+		return entries[(hash & Integer.MAX_VALUE) % entries.length];
+	}
+
 	@Override
 	public byte[] getData(final String sessionId, final int id)
 	{
@@ -161,7 +237,7 @@ public class AsynchronousDataStore implements IDataStore
 			Entry entry = entryMap.remove(key);
 			if (entry != null)
 			{
-				entries.remove(entry);
+				getEntries(sessionId).remove(entry);
 			}
 		}
 
@@ -171,7 +247,7 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void removeData(final String sessionId)
 	{
-		for (Iterator<Entry> itor = entries.iterator(); itor.hasNext();)
+		for (Iterator<Entry> itor = getEntries(sessionId).iterator(); itor.hasNext();)
 		{
 			Entry entry = itor.next();
 			if (entry != null) // this check is not needed in JDK6
@@ -180,7 +256,7 @@ public class AsynchronousDataStore implements IDataStore
 
 				if (sessionId.equals(entrySessionId))
 				{
-					entryMap.remove(getKey(entry));
+					removeEntry(entryMap, entry);
 					itor.remove();
 				}
 			}
@@ -191,36 +267,100 @@ public class AsynchronousDataStore implements IDataStore
 
 	/**
 	 * Save the entry in the queue if there is a room or directly pass it to the wrapped
-	 * {@link IDataStore} if there is no such
+	 * {@link IDataStore} if there is no such. If the page is already queued its data is replaced.
 	 * 
 	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
 	 */
 	@Override
 	public void storeData(final String sessionId, final int id, final byte[] data)
 	{
-		Entry entry = new Entry(sessionId, id, data);
-		String key = getKey(entry);
-		entryMap.put(key, entry);
+		String key = getKey(sessionId, id);
+		AtomicBoolean coalesced = new AtomicBoolean(false);
+		Entry entry = entryMap.compute(key, (k, queued) -> {
+			if (queued != null && queued.replace(data))
+			{
+				coalesced.set(true);
+				return queued;
+			}
+			return new Entry(sessionId, id, data);
+		});
 
-		try
+		if (coalesced.get())
 		{
-			boolean added = entries.offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
+			log.debug("Coalesced page with id '{}' in session '{}'", id, sessionId);
+			coalescedCount.incrementAndGet();
+			return;
+		}
 
-			if (added == false)
-			{
-				log.debug("Storing synchronously page with id '{}' in session '{}'", id, sessionId);
-				entryMap.remove(key);
-				dataStore.storeData(sessionId, id, data);
-			}
+		boolean added;
+		try
+		{
+			added = getEntries(sessionId).offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
 		}
 		catch (InterruptedException e)
 		{
 			log.error(e.getMessage(), e);
-			entryMap.remove(key);
-			dataStore.storeData(sessionId, id, data);
+			added = false;
+		}
+
+		if (added == false)
+		{
+			log.debug("Storing synchronously page with id '{}' in session '{}'", id, sessionId);
+			synchronousCount.incrementAndGet();
+
+			// the entry might have been coalesced in the meantime
+			byte[] latest = entry.take();
+			dataStore.storeData(sessionId, id, latest);
+			removeEntry(entryMap, entry);
 		}
 	}
 
+	/**
+	 * Queues the pages one by one. The workers pass all queued pages of a session to the wrapped
+	 * {@link IDataStore} in a single batch.
+	 * 
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public void storeData(final String sessionId, final Map<Integer, byte[]> data)
+	{
+		for (Map.Entry<Integer, byte[]> entry : data.entrySet())
+		{
+			storeData(sessionId, entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * @return the number of entries currently waiting to be saved
+	 */
+	public int getQueueDepth()
+	{
+		int depth = 0;
+		for (BlockingQueue<Entry> queue : entries)
+		{
+			depth += queue.size();
+		}
+		return depth;
+	}
+
+	/**
+	 * @return the number of stored pages which replaced the data of an already queued entry,
+	 *         instead of being written separately
+	 */
+	public long getCoalescedCount()
+	{
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of stored pages which had to be saved synchronously because the queue
+	 *         was full
+	 */
+	public long getSynchronousCount()
+	{
+		return synchronousCount.get();
+	}
+
 	/**
 	 * 
 	 * @param pageId
@@ -242,6 +382,17 @@ public class AsynchronousDataStore implements IDataStore
 		return getKey(entry.sessionId, entry.pageId);
 	}
 
+	/**
+	 * Removes the entry from the map, unless it has been replaced by a newer one in the meantime.
+	 * 
+	 * @param entryMap
+	 * @param entry
+	 */
+	private static void removeEntry(final ConcurrentMap<String, Entry> entryMap, final Entry entry)
+	{
+		entryMap.computeIfPresent(getKey(entry), (key, current) -> current == entry ? null : current);
+	}
+
 	/**
 	 * The structure used for an entry in the queue
 	 */
@@ -249,7 +400,12 @@ public class AsynchronousDataStore implements IDataStore
 	{
 		private final String sessionId;
 		private final int pageId;
-		private final byte data[];
+		private volatile byte data[];
+
+		/**
+		 * Whether a thread started to save this entry, i.e. its data cannot be replaced anymore
+		 */
+		private boolean taken;
 
 		public Entry(final String sessionId, final int pageId, final byte data[])
 		{
@@ -258,6 +414,33 @@ public class AsynchronousDataStore implements IDataStore
 			this.data = Args.notNull(data, "data");
 		}
 
+		/**
+		 * Replaces the data, unless the entry is already being saved.
+		 * 
+		 * @param data
+		 * @return {@code true} if the data was replaced
+		 */
+		synchronized boolean replace(final byte data[])
+		{
+			if (taken)
+			{
+				return false;
+			}
+			this.data = Args.notNull(data, "data");
+			return true;
+		}
+
+		/**
+		 * Marks this entry as being saved.
+		 * 
+		 * @return the data to save
+		 */
+		synchronized byte[] take()
+		{
+			taken = true;
+			return data;
+		}
+
 		@Override
 		public int hashCode()
 		{
@@ -336,12 +519,47 @@ public class AsynchronousDataStore implements IDataStore
 
 				if (entry != null)
 				{
-					log.debug("Saving asynchronously: {}...", entry);
-					dataStore.storeData(entry.sessionId, entry.pageId, entry.data);
-					entryMap.remove(getKey(entry));
+					List<Entry> batch = new ArrayList<>();
+					batch.add(entry);
+					entries.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+					if (batch.size() == 1)
+					{
+						log.debug("Saving asynchronously: {}...", entry);
+						dataStore.storeData(entry.sessionId, entry.pageId, entry.take());
+					}
+					else
+					{
+						save(batch);
+					}
+
+					for (Entry saved : batch)
+					{
+						removeEntry(entryMap, saved);
+					}
 				}
 			}
 		}
+
+		/**
+		 * Saves the entries with one batch per session.
+		 */
+		private void save(List<Entry> batch)
+		{
+			Map<String, Map<Integer, byte[]>> sessions = new LinkedHashMap<>();
+			for (Entry entry : batch)
+			{
+				sessions.computeIfAbsent(entry.sessionId, key -> new LinkedHashMap<>())
+					.put(entry.pageId, entry.take());
+			}
+
+			for (Map.Entry<String, Map<Integer, byte[]>> session : sessions.entrySet())
+			{
+				log.debug("Saving asynchronously pages with ids '{}' in session '{}'...",
+					session.getValue().keySet(), session.getKey());
+				dataStore.storeData(session.getKey(), session.getValue());
+			}
+		}
 	}
 
 	@Override
@@ -313,6 +313,15 @@ public class AsynchronousPageStore implements IPageStore
 		}
 	}
 
+	@Override
+	public void prefetch(String sessionId, int pageId)
+	{
+		if (getEntry(sessionId, pageId) == null)
+		{
+			delegate.prefetch(sessionId, pageId);
+		}
+	}
+
 	@Override
 	public void unbind(String sessionId)
 	{
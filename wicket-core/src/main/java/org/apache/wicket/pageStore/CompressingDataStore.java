@@ -0,0 +1,814 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Facade for {@link IDataStore} that compresses the pages with a dictionary trained from the
+ * stored pages themselves.
+ * <p>
+ * Serialized pages share a lot of content, e.g. class names, field names and component ids,
+ * which a per page compression cannot exploit. This store samples the stored pages and
+ * regularly trains a preset dictionary for {@link Deflater#setDictionary(byte[])} from the
+ * fragments that occur in most samples. Since the dictionary already provides the common content,
+ * the fastest compression level achieves good ratios. The training runs on a thread of its own, so
+ * it does not delay the storing of pages.
+ * </p>
+ * <p>
+ * Every dictionary gets a new version which is stored with each page, so pages compressed with an
+ * older dictionary can still be decompressed. Only the newest dictionaries and those used by the
+ * pages of live sessions are kept, pages compressed with a removed dictionary cannot be read
+ * anymore. When a folder is given, the dictionaries are saved in it so that pages surviving a
+ * restart of the application can be read too.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.StoreSettings#setDictionaryCompression(boolean)
+ */
+public class CompressingDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(CompressingDataStore.class);
+
+	/**
+	 * The default maximum size of a dictionary, the size of the Deflate window
+	 */
+	public static final int DEFAULT_DICTIONARY_SIZE = 32 * 1024;
+
+	/**
+	 * The default number of stored pages after which a new dictionary is trained
+	 */
+	public static final int DEFAULT_TRAINING_INTERVAL = 5000;
+
+	/**
+	 * The default number of newest dictionaries to keep
+	 */
+	public static final int DEFAULT_MAX_DICTIONARIES = 8;
+
+	/**
+	 * The first byte of compressed data. Data that does not start with it is returned as is.
+	 */
+	private static final byte MAGIC = 0x5A;
+
+	private static final byte VERSION = 1;
+
+	/** the codec of data that is stored as is, because it cannot be compressed */
+	private static final int CODEC_STORED = 0;
+
+	/** the codec of data that is deflated without dictionary, dictionaries use their version */
+	private static final int CODEC_DEFLATE = 1;
+
+	/** the number of samples required to train the first dictionary */
+	private static final int MIN_SAMPLES = 16;
+
+	private static final int MAX_SAMPLES = 64;
+
+	/** only the start of a page is sampled */
+	private static final int MAX_SAMPLE_SIZE = 16 * 1024;
+
+	/**
+	 * The length of the fragments whose frequency is counted
+	 */
+	private static final int GRAM_SIZE = 8;
+
+	/**
+	 * The length of the segments the dictionary is built of
+	 */
+	private static final int SEGMENT_SIZE = 64;
+
+	private static final int TABLE_BITS = 20;
+
+	private static final String DICTIONARY_FILE_PREFIX = "dictionary-";
+
+	private static final String DICTIONARY_FILE_SUFFIX = ".bin";
+
+	private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal
+		.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+	private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+	/**
+	 * The wrapped {@link IDataStore} that actually stores the compressed pages
+	 */
+	private final IDataStore dataStore;
+
+	private final File dictionaryFolder;
+
+	private final int dictionarySize;
+
+	private final int trainingInterval;
+
+	private final int maxDictionaries;
+
+	/** dictionaries by version */
+	private final ConcurrentMap<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+
+	/** the versions of the dictionaries used for the pages of each session */
+	private final ConcurrentMap<String, Set<Integer>> sessionVersions = new ConcurrentHashMap<>();
+
+	/** trains the dictionaries */
+	private final ExecutorService trainer;
+
+	/** whether a training is pending */
+	private final AtomicBoolean training = new AtomicBoolean();
+
+	/** the version of the dictionary used for new pages, {@link #CODEC_DEFLATE} if none */
+	private volatile int currentVersion = CODEC_DEFLATE;
+
+	/** reservoir of sampled pages, guarded by itself */
+	private final List<byte[]> samples = new ArrayList<>();
+
+	private final Random random = new Random();
+
+	/** the number of pages sampled since the last training */
+	private int sampled;
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore}
+	 * @param dictionaryFolder
+	 *            the folder to save the dictionaries in, may be {@code null} to keep them in memory
+	 *            only
+	 */
+	public CompressingDataStore(final IDataStore dataStore, final File dictionaryFolder)
+	{
+		this(dataStore, dictionaryFolder, DEFAULT_DICTIONARY_SIZE, DEFAULT_TRAINING_INTERVAL);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore}
+	 * @param dictionaryFolder
+	 *            the folder to save the dictionaries in, may be {@code null} to keep them in memory
+	 *            only
+	 * @param dictionarySize
+	 *            the maximum size of a dictionary
+	 * @param trainingInterval
+	 *            the number of stored pages after which a new dictionary is trained
+	 */
+	public CompressingDataStore(final IDataStore dataStore, final File dictionaryFolder,
+		final int dictionarySize, final int trainingInterval)
+	{
+		this(dataStore, dictionaryFolder, dictionarySize, trainingInterval,
+			DEFAULT_MAX_DICTIONARIES);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore}
+	 * @param dictionaryFolder
+	 *            the folder to save the dictionaries in, may be {@code null} to keep them in memory
+	 *            only
+	 * @param dictionarySize
+	 *            the maximum size of a dictionary
+	 * @param trainingInterval
+	 *            the number of stored pages after which a new dictionary is trained
+	 * @param maxDictionaries
+	 *            the number of newest dictionaries to keep, older ones are kept only while used by
+	 *            the pages of a session
+	 */
+	public CompressingDataStore(final IDataStore dataStore, final File dictionaryFolder,
+		final int dictionarySize, final int trainingInterval, final int maxDictionaries)
+	{
+		this.dataStore = Args.notNull(dataStore, "dataStore");
+		this.dictionaryFolder = dictionaryFolder;
+		this.dictionarySize = Args.withinRange(1, DEFAULT_DICTIONARY_SIZE, dictionarySize,
+			"dictionarySize");
+		this.trainingInterval = Args.withinRange(MIN_SAMPLES, Integer.MAX_VALUE, trainingInterval,
+			"trainingInterval");
+		this.maxDictionaries = Args.withinRange(1, Integer.MAX_VALUE, maxDictionaries,
+			"maxDictionaries");
+
+		loadDictionaries();
+
+		trainer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Wicket-CompressingDataStore-TrainingThread");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] data = dataStore.getData(sessionId, id);
+		if (data == null || data.length < 2 || data[0] != MAGIC || data[1] != VERSION)
+		{
+			return data;
+		}
+		return decompress(data);
+	}
+
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		dataStore.removeData(sessionId, id);
+	}
+
+	@Override
+	public void removeData(final String sessionId)
+	{
+		sessionVersions.remove(sessionId);
+		dataStore.removeData(sessionId);
+	}
+
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		sample(data);
+		dataStore.storeData(sessionId, id, compress(data, useVersion(sessionId)));
+	}
+
+	@Override
+	public void storeData(final String sessionId, final Map<Integer, byte[]> data)
+	{
+		int version = useVersion(sessionId);
+
+		Map<Integer, byte[]> compressed = new LinkedHashMap<>();
+		for (Map.Entry<Integer, byte[]> entry : data.entrySet())
+		{
+			sample(entry.getValue());
+			compressed.put(entry.getKey(), compress(entry.getValue(), version));
+		}
+		dataStore.storeData(sessionId, compressed);
+	}
+
+	@Override
+	public void destroy()
+	{
+		trainer.shutdown();
+		try
+		{
+			trainer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			log.error(e.getMessage(), e);
+		}
+
+		dataStore.destroy();
+	}
+
+	@Override
+	public boolean isReplicated()
+	{
+		return dataStore.isReplicated();
+	}
+
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return dataStore.canBeAsynchronous();
+	}
+
+	/**
+	 * @return the version of the dictionary used for new pages, {@code 1} if no dictionary has been
+	 *         trained yet
+	 */
+	public int getDictionaryVersion()
+	{
+		return currentVersion;
+	}
+
+	/**
+	 * Remembers the current dictionary to be used by the pages of a session.
+	 *
+	 * @param sessionId
+	 * @return the version of the current dictionary
+	 */
+	private int useVersion(final String sessionId)
+	{
+		int version = currentVersion;
+		if (version != CODEC_DEFLATE)
+		{
+			sessionVersions.computeIfAbsent(sessionId, key -> ConcurrentHashMap.newKeySet())
+				.add(version);
+		}
+		return version;
+	}
+
+	/**
+	 * Compresses the data with a dictionary.
+	 *
+	 * @param data
+	 * @param version
+	 *            the version of the dictionary
+	 * @return the compressed data with a header
+	 */
+	byte[] compress(final byte[] data, int version)
+	{
+		byte[] dictionary = dictionaries.get(version);
+		if (dictionary == null)
+		{
+			// removed meanwhile
+			version = CODEC_DEFLATE;
+		}
+
+		Deflater deflater = DEFLATERS.get();
+		deflater.reset();
+		if (dictionary != null)
+		{
+			deflater.setDictionary(dictionary);
+		}
+		deflater.setInput(data);
+		deflater.finish();
+
+		DeltaDataStore.Writer writer = new DeltaDataStore.Writer(data.length / 2 + 16);
+		writer.write(MAGIC);
+		writer.write(VERSION);
+		writer.writeInt(version);
+		writer.writeInt(data.length);
+		int maxSize = writer.size() + data.length;
+
+		byte[] buffer = new byte[Math.max(64, Math.min(data.length, 8192))];
+		while (deflater.finished() == false && writer.size() < maxSize)
+		{
+			int length = deflater.deflate(buffer);
+			writer.write(buffer, 0, length);
+		}
+
+		if (deflater.finished() == false || writer.size() >= maxSize)
+		{
+			// not compressible
+			writer.reset();
+			writer.write(MAGIC);
+			writer.write(VERSION);
+			writer.writeInt(CODEC_STORED);
+			writer.writeInt(data.length);
+			writer.write(data, 0, data.length);
+		}
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Decompresses data written by {@link #compress(byte[], int)}.
+	 *
+	 * @param data
+	 * @return the decompressed data or {@code null} if the dictionary is not available
+	 */
+	byte[] decompress(final byte[] data)
+	{
+		DeltaDataStore.Reader reader = new DeltaDataStore.Reader(data, 2);
+		int codec = reader.readInt();
+		byte[] result = new byte[reader.readInt()];
+		int offset = reader.getPosition();
+
+		if (codec == CODEC_STORED)
+		{
+			System.arraycopy(data, offset, result, 0, result.length);
+			return result;
+		}
+
+		byte[] dictionary = null;
+		if (codec != CODEC_DEFLATE)
+		{
+			dictionary = dictionaries.get(codec);
+			if (dictionary == null)
+			{
+				log.warn("Cannot decompress a page with the unknown dictionary version {}", codec);
+				return null;
+			}
+		}
+
+		Inflater inflater = INFLATERS.get();
+		inflater.reset();
+		inflater.setInput(data, offset, data.length - offset);
+		try
+		{
+			int position = 0;
+			while (position < result.length)
+			{
+				int length = inflater.inflate(result, position, result.length - position);
+				if (length == 0)
+				{
+					if (inflater.needsDictionary() == false)
+					{
+						break;
+					}
+					if (dictionary == null)
+					{
+						log.warn("Cannot decompress a page requiring a dictionary without version");
+						return null;
+					}
+					try
+					{
+						inflater.setDictionary(dictionary);
+					}
+					catch (IllegalArgumentException e)
+					{
+						// e.g. the dictionary of a version before a restart
+						log.warn("Cannot decompress a page with another dictionary of version {}",
+							codec);
+						return null;
+					}
+				}
+				position += length;
+			}
+			if (position != result.length)
+			{
+				log.warn("Cannot decompress a page, {} of {} bytes found", position,
+					result.length);
+				return null;
+			}
+		}
+		catch (DataFormatException e)
+		{
+			log.warn("Cannot decompress a page", e);
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the data to the reservoir of samples and starts training a new dictionary if it is due.
+	 */
+	private void sample(final byte[] data)
+	{
+		List<byte[]> trainingSamples = null;
+		synchronized (samples)
+		{
+			sampled++;
+			byte[] sample = Arrays.copyOf(data, Math.min(data.length, MAX_SAMPLE_SIZE));
+			if (samples.size() < MAX_SAMPLES)
+			{
+				samples.add(sample);
+			}
+			else
+			{
+				int index = random.nextInt(sampled);
+				if (index < MAX_SAMPLES)
+				{
+					samples.set(index, sample);
+				}
+			}
+
+			boolean first = currentVersion == CODEC_DEFLATE && sampled >= MIN_SAMPLES;
+			if ((first || sampled >= trainingInterval) && training.compareAndSet(false, true))
+			{
+				trainingSamples = new ArrayList<>(samples);
+				samples.clear();
+				sampled = 0;
+			}
+		}
+
+		if (trainingSamples != null)
+		{
+			startTraining(trainingSamples);
+		}
+	}
+
+	private void startTraining(final List<byte[]> trainingSamples)
+	{
+		try
+		{
+			trainer.execute(() -> {
+				try
+				{
+					byte[] dictionary = train(trainingSamples, dictionarySize);
+					if (dictionary.length > 0)
+					{
+						addDictionary(dictionary);
+					}
+				}
+				catch (RuntimeException e)
+				{
+					log.error("Cannot train a dictionary", e);
+				}
+				finally
+				{
+					training.set(false);
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			// destroyed
+			training.set(false);
+		}
+	}
+
+	/**
+	 * Waits for a pending training.
+	 */
+	void awaitTraining()
+	{
+		try
+		{
+			trainer.submit(() -> {
+			}).get();
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private synchronized void addDictionary(final byte[] dictionary)
+	{
+		int version = currentVersion + 1;
+		dictionaries.put(version, dictionary);
+		saveDictionary(version, dictionary);
+		currentVersion = version;
+		log.debug("Trained dictionary version {} with {} bytes", version, dictionary.length);
+
+		removeDictionaries(version - maxDictionaries);
+	}
+
+	/**
+	 * Removes the dictionaries up to a version, which are not used by the pages of any session.
+	 *
+	 * @param maxVersion
+	 *            the newest version to remove
+	 */
+	private void removeDictionaries(final int maxVersion)
+	{
+		Set<Integer> used = new HashSet<>();
+		for (Set<Integer> versions : sessionVersions.values())
+		{
+			used.addAll(versions);
+		}
+
+		for (Integer version : new ArrayList<>(dictionaries.keySet()))
+		{
+			if (version <= maxVersion && used.contains(version) == false)
+			{
+				dictionaries.remove(version);
+				deleteDictionary(version);
+				log.debug("Removed dictionary version {}", version);
+			}
+		}
+	}
+
+	private void saveDictionary(final int version, final byte[] dictionary)
+	{
+		if (dictionaryFolder == null)
+		{
+			return;
+		}
+
+		Files.mkdirs(dictionaryFolder);
+		File file = getDictionaryFile(version);
+		try
+		{
+			Files.writeTo(file, new ByteArrayInputStream(dictionary));
+		}
+		catch (IOException e)
+		{
+			log.error("Cannot save the dictionary to " + file, e);
+		}
+	}
+
+	private void deleteDictionary(final int version)
+	{
+		if (dictionaryFolder != null)
+		{
+			Files.remove(getDictionaryFile(version));
+		}
+	}
+
+	private File getDictionaryFile(final int version)
+	{
+		return new File(dictionaryFolder, DICTIONARY_FILE_PREFIX + version + DICTIONARY_FILE_SUFFIX);
+	}
+
+	/**
+	 * Loads the newest saved dictionaries, older ones are deleted.
+	 */
+	private void loadDictionaries()
+	{
+		if (dictionaryFolder == null)
+		{
+			return;
+		}
+
+		File[] files = dictionaryFolder.listFiles();
+		if (files == null)
+		{
+			return;
+		}
+
+		// newest first
+		TreeMap<Integer, File> versions = new TreeMap<>((a, b) -> Integer.compare(b, a));
+		for (File file : files)
+		{
+			String name = file.getName();
+			if (name.startsWith(DICTIONARY_FILE_PREFIX) && name.endsWith(DICTIONARY_FILE_SUFFIX))
+			{
+				try
+				{
+					versions.put(Integer.parseInt(name.substring(DICTIONARY_FILE_PREFIX.length(),
+						name.length() - DICTIONARY_FILE_SUFFIX.length())), file);
+				}
+				catch (NumberFormatException e)
+				{
+					log.warn("Cannot load the dictionary " + file, e);
+				}
+			}
+		}
+
+		for (Map.Entry<Integer, File> entry : versions.entrySet())
+		{
+			int version = entry.getKey();
+			File file = entry.getValue();
+			if (dictionaries.size() >= maxDictionaries)
+			{
+				Files.remove(file);
+				continue;
+			}
+
+			try
+			{
+				dictionaries.put(version, Files.readBytes(file));
+				currentVersion = Math.max(currentVersion, version);
+			}
+			catch (IOException e)
+			{
+				log.warn("Cannot load the dictionary " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * @return the versions of the kept dictionaries
+	 */
+	Set<Integer> getDictionaryVersions()
+	{
+		return new HashSet<>(dictionaries.keySet());
+	}
+
+	/**
+	 * Trains a dictionary from the samples: the samples are split into segments, which are scored
+	 * by how many samples contain their fragments. The best segments are added greedily, each
+	 * fragment counting only once, with the best segments at the end of the dictionary where
+	 * Deflate references them most cheaply.
+	 *
+	 * @param samples
+	 * @param maxSize
+	 *            the maximum size of the dictionary
+	 * @return the dictionary
+	 */
+	static byte[] train(final List<byte[]> samples, final int maxSize)
+	{
+		int[] counts = new int[1 << TABLE_BITS];
+		int[] lastSample = new int[1 << TABLE_BITS];
+		Arrays.fill(lastSample, -1);
+		for (int s = 0; s < samples.size(); s++)
+		{
+			byte[] sample = samples.get(s);
+			for (int i = 0; i + GRAM_SIZE <= sample.length; i++)
+			{
+				int slot = slot(sample, i);
+				if (lastSample[slot] != s)
+				{
+					lastSample[slot] = s;
+					counts[slot]++;
+				}
+			}
+		}
+
+		PriorityQueue<Segment> queue = new PriorityQueue<>();
+		for (byte[] sample : samples)
+		{
+			for (int offset = 0; offset + SEGMENT_SIZE <= sample.length; offset += SEGMENT_SIZE)
+			{
+				Segment segment = new Segment(sample, offset);
+				segment.score(counts);
+				if (segment.score > 0)
+				{
+					queue.add(segment);
+				}
+			}
+		}
+
+		List<Segment> selected = new ArrayList<>();
+		int size = 0;
+		while (size + SEGMENT_SIZE <= maxSize && queue.isEmpty() == false)
+		{
+			Segment segment = queue.poll();
+			int previousScore = segment.score;
+			segment.score(counts);
+			Segment next = queue.peek();
+			if (segment.score > 0 && segment.score < previousScore && next != null &&
+				segment.score < next.score)
+			{
+				// some of its fragments have been selected meanwhile, try again later
+				queue.add(segment);
+				continue;
+			}
+			if (segment.score <= 0)
+			{
+				continue;
+			}
+
+			selected.add(segment);
+			size += SEGMENT_SIZE;
+			for (int i = segment.offset; i + GRAM_SIZE <= segment.offset + SEGMENT_SIZE; i++)
+			{
+				counts[slot(segment.sample, i)] = 0;
+			}
+		}
+
+		byte[] dictionary = new byte[size];
+		int position = size;
+		for (Segment segment : selected)
+		{
+			position -= SEGMENT_SIZE;
+			System.arraycopy(segment.sample, segment.offset, dictionary, position, SEGMENT_SIZE);
+		}
+		return dictionary;
+	}
+
+	private static int slot(final byte[] data, final int offset)
+	{
+		long gram = 0;
+		for (int i = 0; i < GRAM_SIZE; i++)
+		{
+			gram = (gram << 8) | (data[offset + i] & 0xFF);
+		}
+		gram *= 0x9E3779B97F4A7C15L;
+		return (int)(gram >>> (64 - TABLE_BITS));
+	}
+
+	/**
+	 * A candidate segment of a sample for the dictionary.
+	 */
+	private static class Segment implements Comparable<Segment>
+	{
+		private final byte[] sample;
+
+		private final int offset;
+
+		private int score;
+
+		private Segment(byte[] sample, int offset)
+		{
+			this.sample = sample;
+			this.offset = offset;
+		}
+
+		/**
+		 * Sums up in how many other samples the fragments of this segment occur.
+		 */
+		private void score(int[] counts)
+		{
+			score = 0;
+			for (int i = offset; i + GRAM_SIZE <= offset + SEGMENT_SIZE; i++)
+			{
+				score += Math.max(0, counts[slot(sample, i)] - 1);
+			}
+		}
+
+		@Override
+		public int compareTo(Segment other)
+		{
+			return Integer.compare(other.score, score);
+		}
+	}
+}
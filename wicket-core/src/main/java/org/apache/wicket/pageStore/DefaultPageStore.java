@@ -19,6 +19,9 @@ package org.apache.wicket.pageStore;
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
 import org.apache.wicket.page.IManageablePage;
@@ -62,11 +65,39 @@ public class DefaultPageStore extends AbstractCachingPageStore<DefaultPageStore.
 		if (serialized != null)
 		{
 			int pageId = page.getPageId();
+			beforeStore(sessionId, pageId);
 			pagesCache.storePage(sessionId, pageId, serialized);
 			storePageData(sessionId, pageId, serialized.getData());
 		}
 	}
 
+	@Override
+	public void storePages(final String sessionId, final List<IManageablePage> pages)
+	{
+		Map<Integer, byte[]> batch = new LinkedHashMap<>();
+		for (IManageablePage page : pages)
+		{
+			SerializedPage serialized = createSerializedPage(sessionId, page);
+			if (serialized != null)
+			{
+				int pageId = page.getPageId();
+				beforeStore(sessionId, pageId);
+				pagesCache.storePage(sessionId, pageId, serialized);
+				batch.put(pageId, serialized.getData());
+			}
+		}
+		if (batch.isEmpty() == false)
+		{
+			storePageData(sessionId, batch);
+		}
+	}
+
+	@Override
+	protected void cachePageData(final String sessionId, final int pageId, final byte[] data)
+	{
+		pagesCache.storePage(sessionId, pageId, new SerializedPage(sessionId, pageId, data));
+	}
+
 	@Override
 	public IManageablePage convertToPage(final Object object)
 	{
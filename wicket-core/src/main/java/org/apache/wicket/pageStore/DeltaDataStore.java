@@ -0,0 +1,700 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Facade for {@link IDataStore} that stores pages as binary deltas against a snapshot.
+ * <p>
+ * Consecutive versions of a page (and Ajax updates of the same version) usually differ in a few
+ * bytes only. Instead of the full data, each page is stored as a delta against the current
+ * snapshot of its session, found with a rolling hash. A new snapshot is taken after
+ * {@code snapshotInterval} deltas, or when the delta would not be much smaller than the page
+ * itself, e.g. because a page of a different type is stored. Restoring a page applies its single
+ * delta to the snapshot.
+ * </p>
+ * <p>
+ * Snapshots are stored in the wrapped {@link IDataStore} with negative ids, which are never used
+ * by pages. A snapshot is removed when no page refers to it anymore.
+ * </p>
+ * <p>
+ * The references of pages to snapshots are kept in memory only. Each delta therefore holds the
+ * length and checksum of its snapshot, so a delta is never applied to another snapshot stored
+ * under the same id, e.g. after a restart with a persistent wrapped store. Such a page is
+ * considered expired. For the same reason the numbering of snapshots starts at a random value for
+ * each session.
+ * </p>
+ * <p>
+ * Since the wrapped store may evict pages without notice, at most {@value #MAX_TRACKED_PAGES}
+ * pages are kept per session, the least recently stored pages beyond are removed along with their
+ * snapshots.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.StoreSettings#setDeltaSnapshotInterval(int)
+ */
+public class DeltaDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(DeltaDataStore.class);
+
+	/**
+	 * The first byte of a stored delta. Data that does not start with it is returned as is.
+	 */
+	private static final byte MAGIC = 0x57;
+
+	private static final byte VERSION = 1;
+
+	private static final byte OP_COPY = 0;
+
+	private static final byte OP_INSERT = 1;
+
+	/**
+	 * The size of the blocks which are matched between the snapshot and the page
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	private static final int HASH_MULTIPLIER = 31;
+
+	/**
+	 * The maximum number of pages kept per session
+	 */
+	static final int MAX_TRACKED_PAGES = 1000;
+
+	private static final Random RANDOM = new Random();
+
+	/**
+	 * {@code HASH_MULTIPLIER ^ (BLOCK_SIZE - 1)}, used to remove the oldest byte from the rolling
+	 * hash
+	 */
+	private static final int HASH_OLDEST_FACTOR;
+
+	static
+	{
+		int factor = 1;
+		for (int i = 1; i < BLOCK_SIZE; i++)
+		{
+			factor *= HASH_MULTIPLIER;
+		}
+		HASH_OLDEST_FACTOR = factor;
+	}
+
+	/**
+	 * The wrapped {@link IDataStore} that actually stores the deltas and snapshots
+	 */
+	private final IDataStore dataStore;
+
+	private final int snapshotInterval;
+
+	private final ConcurrentMap<String, SessionEntry> sessionEntries = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore}
+	 * @param snapshotInterval
+	 *            the maximum number of deltas stored against the same snapshot
+	 */
+	public DeltaDataStore(final IDataStore dataStore, final int snapshotInterval)
+	{
+		this.dataStore = Args.notNull(dataStore, "dataStore");
+		this.snapshotInterval = Args.withinRange(1, Integer.MAX_VALUE, snapshotInterval,
+			"snapshotInterval");
+	}
+
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] data = dataStore.getData(sessionId, id);
+		if (data == null || data.length < 2 || data[0] != MAGIC || data[1] != VERSION)
+		{
+			return data;
+		}
+
+		try
+		{
+			Reader reader = new Reader(data, 2);
+			int snapshot = reader.readInt();
+			int baseLength = reader.readInt();
+			int checksum = reader.readInt();
+
+			byte[] base = getSnapshot(sessionId, snapshot);
+			if (base == null || base.length != baseLength || checksum(base) != checksum)
+			{
+				log.debug(
+					"The snapshot of page with id '{}' in session '{}' is no longer available",
+					id, sessionId);
+				return null;
+			}
+			return decode(reader, base);
+		}
+		catch (RuntimeException ex)
+		{
+			log.warn("Unable to decode the delta of page with id '{}' in session '{}'", id,
+				sessionId, ex);
+			return null;
+		}
+	}
+
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		SessionEntry sessionEntry = sessionEntries.get(sessionId);
+		if (sessionEntry != null)
+		{
+			synchronized (sessionEntry)
+			{
+				dataStore.removeData(sessionId, id);
+				release(sessionId, sessionEntry, id);
+			}
+		}
+		else
+		{
+			dataStore.removeData(sessionId, id);
+		}
+	}
+
+	@Override
+	public void removeData(final String sessionId)
+	{
+		sessionEntries.remove(sessionId);
+		dataStore.removeData(sessionId);
+	}
+
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		SessionEntry sessionEntry = getSessionEntry(sessionId);
+		synchronized (sessionEntry)
+		{
+			dataStore.storeData(sessionId, id, encode(sessionId, sessionEntry, id, data));
+		}
+	}
+
+	@Override
+	public void storeData(final String sessionId, final Map<Integer, byte[]> data)
+	{
+		SessionEntry sessionEntry = getSessionEntry(sessionId);
+		synchronized (sessionEntry)
+		{
+			Map<Integer, byte[]> deltas = new LinkedHashMap<>();
+			for (Map.Entry<Integer, byte[]> entry : data.entrySet())
+			{
+				deltas.put(entry.getKey(),
+					encode(sessionId, sessionEntry, entry.getKey(), entry.getValue()));
+			}
+			dataStore.storeData(sessionId, deltas);
+		}
+	}
+
+	/**
+	 * Encodes the data of a page against the current snapshot, taking a new one if needed.
+	 *
+	 * @return the delta to store for the page
+	 */
+	private byte[] encode(final String sessionId, final SessionEntry sessionEntry, final int id,
+		final byte[] data)
+	{
+		release(sessionId, sessionEntry, id);
+
+		byte[] delta = null;
+		Snapshot snapshot = sessionEntry.getCurrent(sessionId);
+		if (snapshot != null && sessionEntry.deltas < snapshotInterval)
+		{
+			delta = encode(sessionEntry.current, snapshot, data);
+			if (delta.length > data.length / 2)
+			{
+				// not worth it, probably a different page
+				delta = null;
+			}
+		}
+
+		if (delta == null)
+		{
+			snapshot = takeSnapshot(sessionId, sessionEntry, data);
+			delta = encode(sessionEntry.current, snapshot, data);
+		}
+		else
+		{
+			sessionEntry.deltas++;
+		}
+
+		sessionEntry.pages.put(id, sessionEntry.current);
+		sessionEntry.references.merge(sessionEntry.current, 1, Integer::sum);
+		removeEldestPages(sessionId, sessionEntry);
+		return delta;
+	}
+
+	@Override
+	public void destroy()
+	{
+		sessionEntries.clear();
+		dataStore.destroy();
+	}
+
+	@Override
+	public boolean isReplicated()
+	{
+		return dataStore.isReplicated();
+	}
+
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return dataStore.canBeAsynchronous();
+	}
+
+	private SessionEntry getSessionEntry(final String sessionId)
+	{
+		return sessionEntries.computeIfAbsent(sessionId,
+			key -> new SessionEntry(getFirstSnapshot()));
+	}
+
+	/**
+	 * @return the number of the first snapshot of a session
+	 */
+	int getFirstSnapshot()
+	{
+		return RANDOM.nextInt() & Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @param sessionId
+	 * @return the number of pages kept for the session
+	 */
+	int getPageCount(final String sessionId)
+	{
+		SessionEntry sessionEntry = sessionEntries.get(sessionId);
+		if (sessionEntry == null)
+		{
+			return 0;
+		}
+		synchronized (sessionEntry)
+		{
+			return sessionEntry.pages.size();
+		}
+	}
+
+	/**
+	 * @param snapshot
+	 * @return the id under which the snapshot is stored in the wrapped data store
+	 */
+	private static int getSnapshotId(final int snapshot)
+	{
+		return -1 - snapshot;
+	}
+
+	private byte[] getSnapshot(final String sessionId, final int snapshot)
+	{
+		SessionEntry sessionEntry = sessionEntries.get(sessionId);
+		if (sessionEntry != null)
+		{
+			synchronized (sessionEntry)
+			{
+				if (sessionEntry.current == snapshot)
+				{
+					Snapshot current = sessionEntry.getCurrent(sessionId);
+					if (current != null)
+					{
+						return current.data;
+					}
+				}
+			}
+		}
+		return dataStore.getData(sessionId, getSnapshotId(snapshot));
+	}
+
+	private Snapshot takeSnapshot(final String sessionId, final SessionEntry sessionEntry,
+		final byte[] data)
+	{
+		int previous = sessionEntry.current;
+
+		sessionEntry.current = sessionEntry.nextSnapshot;
+		sessionEntry.nextSnapshot = (sessionEntry.nextSnapshot + 1) & Integer.MAX_VALUE;
+		sessionEntry.deltas = 0;
+		Snapshot snapshot = new Snapshot(data);
+		sessionEntry.snapshot = new SoftReference<>(snapshot);
+		dataStore.storeData(sessionId, getSnapshotId(sessionEntry.current), data);
+
+		if (previous != -1 && sessionEntry.references.containsKey(previous) == false)
+		{
+			dataStore.removeData(sessionId, getSnapshotId(previous));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Releases the reference of a page to its snapshot, removing the snapshot if it is no longer
+	 * needed.
+	 */
+	private void release(final String sessionId, final SessionEntry sessionEntry, final int id)
+	{
+		Integer snapshot = sessionEntry.pages.remove(id);
+		if (snapshot != null)
+		{
+			Integer references = sessionEntry.references.merge(snapshot, -1, Integer::sum);
+			if (references != null && references <= 0)
+			{
+				sessionEntry.references.remove(snapshot);
+				if (snapshot != sessionEntry.current)
+				{
+					dataStore.removeData(sessionId, getSnapshotId(snapshot));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the least recently stored pages beyond {@link #MAX_TRACKED_PAGES}, so pages evicted
+	 * by the wrapped data store do not keep their snapshots forever.
+	 */
+	private void removeEldestPages(final String sessionId, final SessionEntry sessionEntry)
+	{
+		while (sessionEntry.pages.size() > MAX_TRACKED_PAGES)
+		{
+			int eldest = sessionEntry.pages.keySet().iterator().next();
+			dataStore.removeData(sessionId, eldest);
+			release(sessionId, sessionEntry, eldest);
+		}
+	}
+
+	/**
+	 * Encodes the data as copies from the snapshot and inserted bytes.
+	 *
+	 * @param number
+	 *            the number of the snapshot
+	 * @param snapshot
+	 * @param data
+	 * @return the encoded delta
+	 */
+	static byte[] encode(final int number, final Snapshot snapshot, final byte[] data)
+	{
+		byte[] base = snapshot.data;
+
+		Writer writer = new Writer(data.length / 8 + 24);
+		writer.write(MAGIC);
+		writer.write(VERSION);
+		writer.writeInt(number);
+		writer.writeInt(base.length);
+		writer.writeInt(snapshot.checksum);
+		writer.writeInt(data.length);
+
+		int[] index = snapshot.index;
+		int mask = index.length - 1;
+
+		int literalStart = 0;
+		int position = 0;
+		int hash = data.length >= BLOCK_SIZE ? hash(data, 0) : 0;
+		while (position + BLOCK_SIZE <= data.length)
+		{
+			int candidate = index[mix(hash) & mask] - 1;
+			if (candidate >= 0 && regionMatches(base, candidate, data, position, BLOCK_SIZE))
+			{
+				int length = BLOCK_SIZE;
+				while (candidate + length < base.length && position + length < data.length &&
+					base[candidate + length] == data[position + length])
+				{
+					length++;
+				}
+				while (position > literalStart && candidate > 0 &&
+					base[candidate - 1] == data[position - 1])
+				{
+					position--;
+					candidate--;
+					length++;
+				}
+
+				writer.writeInsert(data, literalStart, position - literalStart);
+				writer.write(OP_COPY);
+				writer.writeInt(candidate);
+				writer.writeInt(length);
+
+				position += length;
+				literalStart = position;
+				if (position + BLOCK_SIZE <= data.length)
+				{
+					hash = hash(data, position);
+				}
+			}
+			else
+			{
+				if (position + BLOCK_SIZE < data.length)
+				{
+					hash = (hash - data[position] * HASH_OLDEST_FACTOR) * HASH_MULTIPLIER +
+						data[position + BLOCK_SIZE];
+				}
+				position++;
+			}
+		}
+		writer.writeInsert(data, literalStart, data.length - literalStart);
+
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Applies the delta to the snapshot.
+	 *
+	 * @param reader
+	 *            positioned after the checksum of the snapshot
+	 * @param base
+	 *            the data of the snapshot
+	 * @return the data of the page
+	 */
+	static byte[] decode(final Reader reader, final byte[] base)
+	{
+		byte[] data = new byte[reader.readInt()];
+		int position = 0;
+		while (reader.hasMore())
+		{
+			byte op = reader.read();
+			if (op == OP_COPY)
+			{
+				int offset = reader.readInt();
+				int length = reader.readInt();
+				System.arraycopy(base, offset, data, position, length);
+				position += length;
+			}
+			else
+			{
+				int length = reader.readInt();
+				reader.read(data, position, length);
+				position += length;
+			}
+		}
+		if (position != data.length)
+		{
+			throw new IllegalStateException("Incomplete delta");
+		}
+		return data;
+	}
+
+	private static int checksum(byte[] data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return (int)crc.getValue();
+	}
+
+	private static boolean regionMatches(byte[] a, int aOffset, byte[] b, int bOffset, int length)
+	{
+		if (aOffset + length > a.length)
+		{
+			return false;
+		}
+		for (int i = 0; i < length; i++)
+		{
+			if (a[aOffset + i] != b[bOffset + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(byte[] data, int offset)
+	{
+		int hash = 0;
+		for (int i = 0; i < BLOCK_SIZE; i++)
+		{
+			hash = hash * HASH_MULTIPLIER + data[offset + i];
+		}
+		return hash;
+	}
+
+	private static int mix(int hash)
+	{
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * The data of a snapshot with the positions of its blocks by their hash.
+	 */
+	static class Snapshot
+	{
+		private final byte[] data;
+
+		private final int checksum;
+
+		/** block offset + 1 by hash, {@code 0} marks an empty slot */
+		private final int[] index;
+
+		Snapshot(byte[] data)
+		{
+			this.data = data;
+			checksum = checksum(data);
+
+			int blocks = data.length / BLOCK_SIZE;
+			index = new int[Integer.highestOneBit(Math.max(1, blocks) * 2 - 1) << 1];
+			int mask = index.length - 1;
+			for (int offset = 0; offset + BLOCK_SIZE <= data.length; offset += BLOCK_SIZE)
+			{
+				int slot = mix(hash(data, offset)) & mask;
+				if (index[slot] == 0)
+				{
+					index[slot] = offset + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The snapshots of a session and which pages refer to them.
+	 */
+	private class SessionEntry
+	{
+		/** the number of the current snapshot, or -1 */
+		private int current = -1;
+
+		private int nextSnapshot;
+
+		/** the number of deltas stored against the current snapshot */
+		private int deltas;
+
+		/** the current snapshot, reloaded from the data store when collected */
+		private SoftReference<Snapshot> snapshot;
+
+		/** page id -> snapshot number, least recently stored first */
+		private final Map<Integer, Integer> pages = new LinkedHashMap<>();
+
+		/** snapshot number -> number of referring pages */
+		private final Map<Integer, Integer> references = new HashMap<>();
+
+		private SessionEntry(int firstSnapshot)
+		{
+			nextSnapshot = firstSnapshot;
+		}
+
+
+		private Snapshot getCurrent(String sessionId)
+		{
+			if (current == -1)
+			{
+				return null;
+			}
+
+			Snapshot result = snapshot != null ? snapshot.get() : null;
+			if (result == null)
+			{
+				byte[] data = dataStore.getData(sessionId, getSnapshotId(current));
+				if (data == null)
+				{
+					current = -1;
+					return null;
+				}
+				result = new Snapshot(data);
+				snapshot = new SoftReference<>(result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Writes bytes and variable length ints.
+	 */
+	static class Writer extends ByteArrayOutputStream
+	{
+		Writer(int size)
+		{
+			super(size);
+		}
+
+		void writeInt(int value)
+		{
+			while ((value & ~0x7F) != 0)
+			{
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		void writeInsert(byte[] data, int offset, int length)
+		{
+			if (length > 0)
+			{
+				write(OP_INSERT);
+				writeInt(length);
+				write(data, offset, length);
+			}
+		}
+	}
+
+	/**
+	 * Reads what {@link Writer} wrote.
+	 */
+	static class Reader
+	{
+		private final byte[] data;
+
+		private int position;
+
+		Reader(byte[] data, int position)
+		{
+			this.data = data;
+			this.position = position;
+		}
+
+		int getPosition()
+		{
+			return position;
+		}
+
+		boolean hasMore()
+		{
+			return position < data.length;
+		}
+
+		byte read()
+		{
+			return data[position++];
+		}
+
+		void read(byte[] target, int offset, int length)
+		{
+			System.arraycopy(data, position, target, offset, length);
+			position += length;
+		}
+
+		int readInt()
+		{
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do
+			{
+				b = data[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return value;
+		}
+	}
+}
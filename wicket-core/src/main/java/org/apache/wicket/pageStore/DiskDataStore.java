@@ -29,7 +29,9 @@ import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
@@ -186,6 +188,23 @@ public class DiskDataStore implements IDataStore
 		}
 	}
 
+	/**
+	 * Stores the pages with a single lock acquisition and as few writes as possible.
+	 * 
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public void storeData(final String sessionId, final Map<Integer, byte[]> data)
+	{
+		SessionEntry sessionEntry = getSessionEntry(sessionId, true);
+		if (sessionEntry != null)
+		{
+			log.debug("Storing data for pages with ids '{}' in session with id '{}'",
+				data.keySet(), sessionId);
+			sessionEntry.savePages(data);
+		}
+	}
+
 	/**
 	 * 
 	 * @param sessionId
@@ -369,6 +388,84 @@ public class DiskDataStore implements IDataStore
 			}
 		}
 
+		/**
+		 * Saves several serialized pages to the appropriate file. Pages whose windows follow each
+		 * other in the file are written with a single gathering write.
+		 * 
+		 * @param data
+		 *            the serialized pages by page id
+		 */
+		public synchronized void savePages(Map<Integer, byte[]> data)
+		{
+			if (unbound || data.isEmpty())
+			{
+				return;
+			}
+
+			FileChannel channel = getFileChannel(true);
+			if (channel == null)
+			{
+				log.warn("Cannot save pages with ids '{}' because the data file cannot be opened.",
+					data.keySet());
+				return;
+			}
+
+			try
+			{
+				List<ByteBuffer> run = new ArrayList<>();
+				long runStart = -1;
+				long runEnd = -1;
+				for (Entry<Integer, byte[]> entry : data.entrySet())
+				{
+					byte[] bytes = entry.getValue();
+					if (bytes == null)
+					{
+						continue;
+					}
+
+					// allocate window for page
+					PageWindow window = getManager().createPageWindow(entry.getKey(), bytes.length);
+					if (window.getFilePartOffset() != runEnd)
+					{
+						write(channel, run, runStart);
+						runStart = window.getFilePartOffset();
+					}
+					run.add(ByteBuffer.wrap(bytes));
+					runEnd = window.getFilePartOffset() + (long)bytes.length;
+				}
+				write(channel, run, runStart);
+			}
+			catch (IOException e)
+			{
+				log.error("Error writing to a channel " + channel, e);
+			}
+			finally
+			{
+				IOUtils.closeQuietly(channel);
+			}
+		}
+
+		/**
+		 * Writes the buffers at the given position and clears them.
+		 */
+		private void write(FileChannel channel, List<ByteBuffer> buffers, long position)
+			throws IOException
+		{
+			if (buffers.isEmpty())
+			{
+				return;
+			}
+
+			ByteBuffer[] array = buffers.toArray(new ByteBuffer[buffers.size()]);
+			channel.position(position);
+			ByteBuffer last = array[array.length - 1];
+			while (last.hasRemaining())
+			{
+				channel.write(array);
+			}
+			buffers.clear();
+		}
+
 		/**
 		 * Removes the page from pagemap file.
 		 * 
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.Map;
+
 /**
  * Data stores are used to persist (read & write) Wicket page data to a persistent store like e.g.
  * files or databases.
@@ -65,6 +67,23 @@ public interface IDataStore
 	 */
 	void storeData(String sessionId, int id, byte[] data);
 
+	/**
+	 * Store the data of several pages at once, e.g. all pages touched in a request. Implementations
+	 * may write them more efficiently than one by one.
+	 * 
+	 * @param sessionId
+	 *            Session ID
+	 * @param data
+	 *            Page data by page ID, stored in iteration order
+	 */
+	default void storeData(String sessionId, Map<Integer, byte[]> data)
+	{
+		for (Map.Entry<Integer, byte[]> entry : data.entrySet())
+		{
+			storeData(sessionId, entry.getKey(), entry.getValue());
+		}
+	}
+
 	/**
 	 * Properly close the data store and possibly open resource handles
 	 */
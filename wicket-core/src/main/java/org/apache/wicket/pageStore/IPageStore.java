@@ -17,6 +17,7 @@
 package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
+import java.util.List;
 
 import org.apache.wicket.page.IManageablePage;
 
@@ -67,6 +68,22 @@ public interface IPageStore
 	 */
 	void storePage(String sessionId, IManageablePage page);
 
+	/**
+	 * Stores several pages at once, e.g. all pages touched in a request.
+	 * 
+	 * @param sessionId
+	 *            The session of the pages
+	 * @param pages
+	 *            The pages to store
+	 */
+	default void storePages(String sessionId, List<IManageablePage> pages)
+	{
+		for (IManageablePage page : pages)
+		{
+			storePage(sessionId, page);
+		}
+	}
+
 	/**
 	 * The page store should cleanup all the pages for that sessionid.
 	 * 
@@ -104,6 +121,19 @@ public interface IPageStore
 	 */
 	IManageablePage convertToPage(Object page);
 	
+	/**
+	 * Hints that a page will probably be requested soon, so that the store may load it in the
+	 * background. Stores which do not support prefetching ignore this call.
+	 * 
+	 * @param sessionId
+	 *            The session of the page
+	 * @param pageId
+	 *            The id of the page.
+	 */
+	default void prefetch(String sessionId, int pageId)
+	{
+	}
+
 	/**
 	 * @return whether the implementation can be wrapped in {@link AsynchronousPageStore}
 	 */
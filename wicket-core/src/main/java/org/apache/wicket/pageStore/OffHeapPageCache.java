@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * A {@link SecondLevelPageCache} that keeps serialized pages outside of the Java heap.
+ * <p>
+ * The pages of all sessions share an arena of direct {@link ByteBuffer}s with a fixed byte
+ * budget, which is divided into blocks. When the budget is exhausted the least recently used
+ * pages are evicted, no matter to which session they belong. In contrast to
+ * {@link PerSessionPageStore.PagesCache} the cached pages neither add to the heap nor get lost
+ * together with a whole session's cache under memory pressure. The price is that each lookup
+ * deserializes the page.
+ * </p>
+ * <p>
+ * The slabs of the arena are allocated on demand and never released before {@link #destroy()}.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.StoreSettings#setOffHeapCacheSize(Bytes)
+ */
+public class OffHeapPageCache implements SecondLevelPageCache<String, Integer, IManageablePage>
+{
+	/**
+	 * The default size of the blocks a page is stored in
+	 */
+	public static final Bytes DEFAULT_BLOCK_SIZE = Bytes.kilobytes(4);
+
+	/**
+	 * The default size of the direct buffers which are allocated
+	 */
+	public static final Bytes DEFAULT_SLAB_SIZE = Bytes.megabytes(1);
+
+	private static final int[] NO_BLOCKS = new int[0];
+
+	private final ISerializer serializer;
+
+	private final int blockSize;
+
+	private final int blocksPerSlab;
+
+	private final int blockCount;
+
+	private final ByteBuffer[] slabs;
+
+	/** stack of free blocks */
+	private final int[] freeBlocks;
+
+	private int freeBlockCount;
+
+	/** the blocks with a higher number have never been used */
+	private int nextUnusedBlock;
+
+	/** the least recently used entry, the eldest one is evicted first */
+	private Entry head;
+
+	/** the most recently used entry */
+	private Entry tail;
+
+	private final Map<String, Map<Integer, Entry>> sessions = new HashMap<>();
+
+	private int pageCount;
+
+	/**
+	 * Construct.
+	 *
+	 * @param serializer
+	 *            the {@link ISerializer} that converts the cached pages from/to byte arrays
+	 * @param maxSize
+	 *            the maximum number of bytes used by the cache
+	 */
+	public OffHeapPageCache(final ISerializer serializer, final Bytes maxSize)
+	{
+		this(serializer, maxSize, DEFAULT_BLOCK_SIZE, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param serializer
+	 *            the {@link ISerializer} that converts the cached pages from/to byte arrays
+	 * @param maxSize
+	 *            the maximum number of bytes used by the cache
+	 * @param blockSize
+	 *            the size of the blocks a page is stored in
+	 * @param slabSize
+	 *            the size of the direct buffers which are allocated, a multiple of the block size
+	 */
+	public OffHeapPageCache(final ISerializer serializer, final Bytes maxSize,
+		final Bytes blockSize, final Bytes slabSize)
+	{
+		this.serializer = Args.notNull(serializer, "serializer");
+		Args.notNull(maxSize, "maxSize");
+		Args.notNull(blockSize, "blockSize");
+		Args.notNull(slabSize, "slabSize");
+
+		this.blockSize = (int)blockSize.bytes();
+		Args.withinRange(1, Integer.MAX_VALUE, this.blockSize, "blockSize");
+		blocksPerSlab = (int)Math.max(1, slabSize.bytes() / this.blockSize);
+
+		long blocks = maxSize.bytes() / this.blockSize;
+		blockCount = (int)Math.min(blocks, Integer.MAX_VALUE - 8);
+		slabs = new ByteBuffer[(blockCount + blocksPerSlab - 1) / blocksPerSlab];
+		freeBlocks = new int[blockCount];
+	}
+
+	@Override
+	public IManageablePage getPage(final String sessionId, final Integer pageId)
+	{
+		byte[] data = getData(sessionId, pageId);
+		if (data != null)
+		{
+			return (IManageablePage)serializer.deserialize(data);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a copy of the serialized page and marks it as recently used.
+	 *
+	 * @param sessionId
+	 *            the id of the http session
+	 * @param pageId
+	 *            the id of the page
+	 * @return the serialized page or {@code null} if it is not cached
+	 */
+	public synchronized byte[] getData(final String sessionId, final Integer pageId)
+	{
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+
+		Entry entry = getEntry(sessionId, pageId);
+		if (entry == null)
+		{
+			return null;
+		}
+
+		unlink(entry);
+		link(entry);
+
+		byte[] data = new byte[entry.length];
+		int position = 0;
+		for (int block : entry.blocks)
+		{
+			ByteBuffer slab = slabs[block / blocksPerSlab].duplicate();
+			slab.position((block % blocksPerSlab) * blockSize);
+			int length = Math.min(blockSize, data.length - position);
+			slab.get(data, position, length);
+			position += length;
+		}
+		return data;
+	}
+
+	/**
+	 * Checks for the page without deserializing it.
+	 */
+	@Override
+	public synchronized boolean containsPage(final String sessionId, final Integer pageId)
+	{
+		return getEntry(sessionId, pageId) != null;
+	}
+
+	@Override
+	public void storePage(final String sessionId, final Integer pageId, final IManageablePage page)
+	{
+		byte[] data = serializer.serialize(page);
+		if (data != null)
+		{
+			storeData(sessionId, pageId, data);
+		}
+	}
+
+	/**
+	 * Stores an already serialized page, evicting the least recently used pages if needed. Pages
+	 * larger than the cache are not stored.
+	 *
+	 * @param sessionId
+	 *            the id of the http session
+	 * @param pageId
+	 *            the id of the page
+	 * @param data
+	 *            the serialized page
+	 */
+	public synchronized void storeData(final String sessionId, final Integer pageId,
+		final byte[] data)
+	{
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+		Args.notNull(data, "data");
+
+		remove(sessionId, pageId);
+
+		int required = (data.length + blockSize - 1) / blockSize;
+		if (required > blockCount)
+		{
+			return;
+		}
+		while (getAvailableBlocks() < required)
+		{
+			remove(head);
+		}
+
+		int[] blocks = required == 0 ? NO_BLOCKS : new int[required];
+		int position = 0;
+		for (int i = 0; i < required; i++)
+		{
+			int block = allocateBlock();
+			blocks[i] = block;
+
+			ByteBuffer slab = slabs[block / blocksPerSlab].duplicate();
+			slab.position((block % blocksPerSlab) * blockSize);
+			int length = Math.min(blockSize, data.length - position);
+			slab.put(data, position, length);
+			position += length;
+		}
+
+		Entry entry = new Entry(sessionId, pageId, data.length, blocks);
+		sessions.computeIfAbsent(sessionId, key -> new HashMap<>()).put(pageId, entry);
+		link(entry);
+		pageCount++;
+	}
+
+	@Override
+	public synchronized IManageablePage removePage(final String sessionId, final Integer pageId)
+	{
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+
+		// the removed page is never used by the callers, so it is not deserialized
+		remove(sessionId, pageId);
+		return null;
+	}
+
+	@Override
+	public synchronized void removePages(final String sessionId)
+	{
+		Args.notNull(sessionId, "sessionId");
+
+		Map<Integer, Entry> pages = sessions.remove(sessionId);
+		if (pages != null)
+		{
+			for (Entry entry : pages.values())
+			{
+				unlink(entry);
+				release(entry);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void destroy()
+	{
+		sessions.clear();
+		head = null;
+		tail = null;
+		pageCount = 0;
+		freeBlockCount = 0;
+		nextUnusedBlock = 0;
+		for (int i = 0; i < slabs.length; i++)
+		{
+			slabs[i] = null;
+		}
+	}
+
+	/**
+	 * @return the number of cached pages
+	 */
+	public synchronized int getPageCount()
+	{
+		return pageCount;
+	}
+
+	/**
+	 * @return the number of bytes used by cached pages, rounded up to whole blocks
+	 */
+	public synchronized long getUsedBytes()
+	{
+		return (long)(nextUnusedBlock - freeBlockCount) * blockSize;
+	}
+
+	private int getAvailableBlocks()
+	{
+		return freeBlockCount + (blockCount - nextUnusedBlock);
+	}
+
+	private int allocateBlock()
+	{
+		if (freeBlockCount > 0)
+		{
+			return freeBlocks[--freeBlockCount];
+		}
+
+		int block = nextUnusedBlock++;
+		int slab = block / blocksPerSlab;
+		if (slabs[slab] == null)
+		{
+			int blocks = Math.min(blocksPerSlab, blockCount - slab * blocksPerSlab);
+			slabs[slab] = ByteBuffer.allocateDirect(blocks * blockSize);
+		}
+		return block;
+	}
+
+	private Entry getEntry(final String sessionId, final Integer pageId)
+	{
+		Map<Integer, Entry> pages = sessions.get(sessionId);
+		return pages != null ? pages.get(pageId) : null;
+	}
+
+	private void remove(final String sessionId, final Integer pageId)
+	{
+		Entry entry = getEntry(sessionId, pageId);
+		if (entry != null)
+		{
+			remove(entry);
+		}
+	}
+
+	private void remove(final Entry entry)
+	{
+		Map<Integer, Entry> pages = sessions.get(entry.sessionId);
+		pages.remove(entry.pageId);
+		if (pages.isEmpty())
+		{
+			sessions.remove(entry.sessionId);
+		}
+		unlink(entry);
+		release(entry);
+	}
+
+	private void release(final Entry entry)
+	{
+		for (int block : entry.blocks)
+		{
+			freeBlocks[freeBlockCount++] = block;
+		}
+		pageCount--;
+	}
+
+	private void link(final Entry entry)
+	{
+		entry.previous = tail;
+		entry.next = null;
+		if (tail != null)
+		{
+			tail.next = entry;
+		}
+		else
+		{
+			head = entry;
+		}
+		tail = entry;
+	}
+
+	private void unlink(final Entry entry)
+	{
+		if (entry.previous != null)
+		{
+			entry.previous.next = entry.next;
+		}
+		else
+		{
+			head = entry.next;
+		}
+		if (entry.next != null)
+		{
+			entry.next.previous = entry.previous;
+		}
+		else
+		{
+			tail = entry.previous;
+		}
+		entry.previous = null;
+		entry.next = null;
+	}
+
+	/**
+	 * A cached page in the list of entries ordered by their last usage.
+	 */
+	private static class Entry
+	{
+		private final String sessionId;
+
+		private final Integer pageId;
+
+		private final int length;
+
+		/** the blocks holding the data, in order */
+		private final int[] blocks;
+
+		private Entry previous;
+
+		private Entry next;
+
+		private Entry(String sessionId, Integer pageId, int length, int[] blocks)
+		{
+			this.sessionId = sessionId;
+			this.pageId = pageId;
+			this.length = length;
+			this.blocks = blocks;
+		}
+	}
+}
@@ -16,63 +16,70 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import org.apache.wicket.util.collections.IntHashMap;
-
 /**
  * Manages positions and size of serialized pages in the pagemap file.
  * <p>
  * The pages are stored inside the file in a cyclic way. Newer pages are placed after older ones,
  * until the maximum file size is reached. After that, the next page is stored in the beginning of
  * the file.
+ * <p>
+ * The windows are kept in parallel primitive arrays, indexed by a slot. The slots are linked in
+ * file order, so splitting and merging windows never shifts the slots of other windows and the
+ * page id to slot index stays valid without being rebuilt.
  * 
  * @author Matej Knopp
  */
 public class PageWindowManager implements Serializable
 {
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
-	/**
-	 * Contains information about a page inside the file.
-	 * 
-	 * @author Matej Knopp
-	 */
-	private static class PageWindowInternal implements Serializable
-	{
-		private static final long serialVersionUID = 1L;
+	/** marks an empty window, a missing slot or the end of the windows */
+	private static final int NONE = -1;
 
-		/** id of page or -1 if the window is empty */
-		private int pageId;
+	private static final int INITIAL_CAPACITY = 8;
 
-		/** offset in the file where the serialized page data begins */
-		private int filePartOffset;
+	/** id of page in the window of a slot or {@link #NONE} if the window is empty */
+	private transient int[] pageIds;
 
-		/** size of serialized page data */
-		private int filePartSize;
-	}
+	/** offset in the file where the serialized page data of a slot begins */
+	private transient int[] filePartOffsets;
 
-	/** list of PageWindowInternal objects */
-	private final List<PageWindowInternal> windows = new ArrayList<PageWindowInternal>();
+	/** size of serialized page data of a slot */
+	private transient int[] filePartSizes;
 
-	/**
-	 * map from page id to list of pagewindow indices (referring to the windows list) - to improve
-	 * searching speed the index must be cleaned when the instances in the windows list change their
-	 * indexes (e.g. items are shifted on page window removal)
-	 */
-	private IntHashMap<Integer> idToWindowIndex = null;
+	/** the slot of the following window in the file, or the next free slot */
+	private transient int[] nextSlots;
 
-	/**
-	 * Inversed index of #idToWindowIndex
-	 */
-	private IntHashMap<Integer> windowIndexToPageId = null;
+	/** the slot of the preceding window in the file */
+	private transient int[] previousSlots;
+
+	/** slot of the first window in the file */
+	private transient int head;
+
+	/** slot of the last window in the file */
+	private transient int tail;
+
+	/** first slot which is not used by a window */
+	private transient int freeSlot;
 
-	/** index of last added page */
-	private int indexPointer = -1;
+	/** number of used slots, including the free list */
+	private transient int slotCount;
 
-	private int totalSize = 0;
+	/** map from page id to the slot of its window */
+	private transient IntIntMap idToSlot;
+
+	/** slot of last added page */
+	private transient int indexPointer;
+
+	private transient int totalSize;
 
 	/**
 	 * Maximum page size. After this size is exceeded, the pages will be saved starting at the
@@ -81,243 +88,304 @@ public class PageWindowManager implements Serializable
 	private final long maxSize;
 
 	/**
+	 * Creates a new PageWindowManager.
 	 * 
-	 * @param pageId
-	 * @param windowIndex
+	 * @param maxSize
+	 *            maximum page size. After this size is exceeded, the pages will be saved starting
+	 *            at the beginning of file
+	 */
+	public PageWindowManager(long maxSize)
+	{
+		this.maxSize = maxSize;
+		init(INITIAL_CAPACITY);
+	}
+
+	private void init(int capacity)
+	{
+		pageIds = new int[capacity];
+		filePartOffsets = new int[capacity];
+		filePartSizes = new int[capacity];
+		nextSlots = new int[capacity];
+		previousSlots = new int[capacity];
+		head = NONE;
+		tail = NONE;
+		freeSlot = NONE;
+		slotCount = 0;
+		idToSlot = new IntIntMap(capacity);
+		indexPointer = NONE;
+		totalSize = 0;
+	}
+
+	/**
+	 * Takes a slot from the free list or a new one, growing the arrays if necessary.
+	 * 
+	 * @return the new slot
 	 */
-	private void putWindowIndex(int pageId, int windowIndex)
+	private int newSlot()
 	{
-		if (idToWindowIndex != null && pageId != -1 && windowIndex != -1)
+		int slot;
+		if (freeSlot != NONE)
+		{
+			slot = freeSlot;
+			freeSlot = nextSlots[slot];
+		}
+		else
 		{
-			Integer oldPageId = windowIndexToPageId.remove(windowIndex);
-			if (oldPageId != null)
+			if (slotCount == pageIds.length)
 			{
-				idToWindowIndex.remove(oldPageId);
+				int capacity = pageIds.length * 2;
+				pageIds = Arrays.copyOf(pageIds, capacity);
+				filePartOffsets = Arrays.copyOf(filePartOffsets, capacity);
+				filePartSizes = Arrays.copyOf(filePartSizes, capacity);
+				nextSlots = Arrays.copyOf(nextSlots, capacity);
+				previousSlots = Arrays.copyOf(previousSlots, capacity);
 			}
-			idToWindowIndex.put(pageId, windowIndex);
-			windowIndexToPageId.put(windowIndex, pageId);
+			slot = slotCount++;
 		}
+		pageIds[slot] = NONE;
+		nextSlots[slot] = NONE;
+		previousSlots[slot] = NONE;
+		return slot;
 	}
 
 	/**
+	 * Links a new slot after the given one ({@link #NONE} meaning at the end).
 	 * 
-	 * @param pageId
+	 * @param slot
+	 * @param newSlot
 	 */
-	private void removeWindowIndex(int pageId)
+	private void linkAfter(int slot, int newSlot)
 	{
-		Integer windowIndex = idToWindowIndex.remove(pageId);
-		if (windowIndex != null)
+		int next = slot == NONE ? NONE : nextSlots[slot];
+		if (slot == NONE)
+		{
+			slot = tail;
+		}
+		previousSlots[newSlot] = slot;
+		nextSlots[newSlot] = next;
+		if (slot == NONE)
+		{
+			head = newSlot;
+		}
+		else
+		{
+			nextSlots[slot] = newSlot;
+		}
+		if (next == NONE)
+		{
+			tail = newSlot;
+		}
+		else
 		{
-			windowIndexToPageId.remove(windowIndex);
+			previousSlots[next] = newSlot;
 		}
 	}
 
 	/**
+	 * Unlinks the slot from the windows and puts it to the free list.
 	 * 
+	 * @param slot
 	 */
-	private void rebuildIndices()
+	private void freeSlot(int slot)
 	{
-		idToWindowIndex = null;
-		idToWindowIndex = new IntHashMap<Integer>();
-		windowIndexToPageId = null;
-		windowIndexToPageId = new IntHashMap<Integer>();
-		for (int i = 0; i < windows.size(); ++i)
+		int previous = previousSlots[slot];
+		int next = nextSlots[slot];
+		if (previous == NONE)
+		{
+			head = next;
+		}
+		else
 		{
-			PageWindowInternal window = windows.get(i);
-			putWindowIndex(window.pageId, i);
+			nextSlots[previous] = next;
 		}
+		if (next == NONE)
+		{
+			tail = previous;
+		}
+		else
+		{
+			previousSlots[next] = previous;
+		}
+
+		pageIds[slot] = NONE;
+		previousSlots[slot] = NONE;
+		nextSlots[slot] = freeSlot;
+		freeSlot = slot;
 	}
 
 	/**
-	 * Returns the index of the given page in the {@link #windows} list.
+	 * Marks the window of the slot empty, removing its page from the index.
 	 * 
-	 * @param pageId
-	 * @return window index
+	 * @param slot
 	 */
-	private int getWindowIndex(int pageId)
+	private void clearWindow(int slot)
 	{
-		if (idToWindowIndex == null)
+		int pageId = pageIds[slot];
+		if (pageId != NONE)
 		{
-			rebuildIndices();
+			idToSlot.remove(pageId);
+			pageIds[slot] = NONE;
 		}
-
-		Integer result = idToWindowIndex.get(pageId);
-		return result != null ? result : -1;
 	}
 
 	/**
-	 * Increments the {@link #indexPointer}. If the maximum file size has been reached, the
-	 * {@link #indexPointer} is set to 0.
+	 * Advances the {@link #indexPointer}. If the maximum file size has been reached, the
+	 * {@link #indexPointer} is set to the first window.
 	 * 
-	 * @return new index pointer
+	 * @return new index pointer, {@link #NONE} if a new window has to be appended
 	 */
 	private int incrementIndexPointer()
 	{
-		if ((maxSize > 0) && (totalSize >= maxSize) && (indexPointer == windows.size() - 1))
+		if ((maxSize > 0) && (totalSize >= maxSize) && (indexPointer == tail))
 		{
-			indexPointer = 0;
+			indexPointer = head;
 		}
 		else
 		{
-			++indexPointer;
+			indexPointer = indexPointer == NONE ? head : nextSlots[indexPointer];
 		}
 		return indexPointer;
 	}
 
 	/**
-	 * Returns the offset in file of the window on given index. The offset is counted by getting the
-	 * previous page offset and adding the previous page size to it.
+	 * Returns the offset in file of a window following the given slot. The offset is counted by
+	 * getting the previous page offset and adding the previous page size to it.
 	 * 
-	 * @param index
+	 * @param previous
 	 * @return window file offset
 	 */
-	private int getWindowFileOffset(int index)
+	private int getWindowFileOffset(int previous)
 	{
-		if (index > 0)
+		if (previous != NONE)
 		{
-			PageWindowInternal window = windows.get(index - 1);
-			return window.filePartOffset + window.filePartSize;
+			return filePartOffsets[previous] + filePartSizes[previous];
 		}
 		return 0;
 	}
 
 	/**
-	 * Splits the window with given index to two windows. First of those will have size specified by
+	 * Splits the window with given slot to two windows. First of those will have size specified by
 	 * the argument, the other one will fill up the rest of the original window.
 	 * 
-	 * @param index
+	 * @param slot
 	 * @param size
 	 */
-	private void splitWindow(int index, int size)
+	private void splitWindow(int slot, int size)
 	{
-		PageWindowInternal window = windows.get(index);
-		int delta = window.filePartSize - size;
+		int delta = filePartSizes[slot] - size;
 
-		if (index == windows.size() - 1)
+		if (slot == tail)
 		{
 			// if this is last window
 			totalSize -= delta;
-			window.filePartSize = size;
+			filePartSizes[slot] = size;
 		}
-		else if (window.filePartSize != size)
+		else if (filePartSizes[slot] != size)
 		{
-			PageWindowInternal newWindow = new PageWindowInternal();
-			newWindow.pageId = -1;
-			window.filePartSize = size;
+			filePartSizes[slot] = size;
 
-			windows.add(index + 1, newWindow);
-
-			newWindow.filePartOffset = getWindowFileOffset(index + 1);
-			newWindow.filePartSize = delta;
+			int newSlot = newSlot();
+			linkAfter(slot, newSlot);
+			filePartOffsets[newSlot] = getWindowFileOffset(slot);
+			filePartSizes[newSlot] = delta;
 		}
-
-		idToWindowIndex = null;
-		windowIndexToPageId = null;
 	}
 
 	/**
-	 * Merges the window with given index with the next window. The resulting window will have size
+	 * Merges the window with given slot with the next window. The resulting window will have size
 	 * of the two windows summed together.
 	 * 
-	 * @param index
+	 * @param slot
 	 */
-	private void mergeWindowWithNext(int index)
+	private void mergeWindowWithNext(int slot)
 	{
-		if (index < windows.size() - 1)
+		if (slot != tail)
 		{
-			PageWindowInternal window = windows.get(index);
-			PageWindowInternal next = windows.get(index + 1);
-			window.filePartSize += next.filePartSize;
+			int next = nextSlots[slot];
+			filePartSizes[slot] += filePartSizes[next];
 
-			windows.remove(index + 1);
-			idToWindowIndex = null; // reset index
-			windowIndexToPageId = null;
+			clearWindow(next);
+			freeSlot(next);
 		}
 	}
 
 	/**
-	 * Adjusts the window on given index to the specified size. If the new size is smaller than the
+	 * Adjusts the window on given slot to the specified size. If the new size is smaller than the
 	 * window size, the window will be split. Otherwise the window will be merged with as many
 	 * subsequent window as necessary. In case the window is last window in the file, the size will
 	 * be adjusted without splitting or merging.
 	 * 
-	 * @param index
+	 * @param slot
 	 * @param size
 	 */
-	private void adjustWindowSize(int index, int size)
+	private void adjustWindowSize(int slot, int size)
 	{
-		PageWindowInternal window = windows.get(index);
-
 		// last window, just adjust size
-		if (index == windows.size() - 1)
+		if (slot == tail)
 		{
-			int delta = size - window.filePartSize;
+			int delta = size - filePartSizes[slot];
 			totalSize += delta;
-			window.filePartSize = size;
+			filePartSizes[slot] = size;
 		}
 		else
 		{
 			// merge as many times as necessary
-			while (window.filePartSize < size && index < windows.size() - 1)
+			while (filePartSizes[slot] < size && slot != tail)
 			{
-				mergeWindowWithNext(index);
+				mergeWindowWithNext(slot);
 			}
 
 			// done merging - do we have enough room ?
-			if (window.filePartSize < size)
+			if (filePartSizes[slot] < size)
 			{
 				// no, this is the last window
-				int delta = size - window.filePartSize;
+				int delta = size - filePartSizes[slot];
 				totalSize += delta;
-				window.filePartSize = size;
+				filePartSizes[slot] = size;
 			}
 			else
 			{
 				// yes, we might want to split the window, so that we don't lose
 				// space when the created window was too big
-				splitWindow(index, size);
+				splitWindow(slot, size);
 			}
 		}
-
-		window.pageId = -1;
 	}
 
 	/**
-	 * Allocates window on given index with to size. If the index is pointing to existing window,
+	 * Allocates window on given slot with to size. If the slot is pointing to existing window,
 	 * the window size will be adjusted. Otherwise a new window with appropriated size will be
-	 * created.
+	 * created at the end.
 	 * 
-	 * @param index
+	 * @param slot
 	 * @param size
-	 * @return page window
+	 * @return the slot of the window
 	 */
-	private PageWindowInternal allocatePageWindow(int index, int size)
+	private int allocatePageWindow(int slot, int size)
 	{
-		final PageWindowInternal window;
-
 		// new window
-		if (index == windows.size())
+		if (slot == NONE)
 		{
 			// new page window
-			window = new PageWindowInternal();
-			window.filePartOffset = getWindowFileOffset(index);
+			slot = newSlot();
+			filePartOffsets[slot] = getWindowFileOffset(tail);
 			totalSize += size;
-			window.filePartSize = size;
-			windows.add(window);
+			filePartSizes[slot] = size;
+			linkAfter(NONE, slot);
 		}
 		else
 		{
-			// get the window
-			window = windows.get(index);
+			// the page in the window is overwritten
+			clearWindow(slot);
 
 			// adjust if necessary
-			if (window.filePartSize != size)
+			if (filePartSizes[slot] != size)
 			{
-				adjustWindowSize(index, size);
+				adjustWindowSize(slot, size);
 			}
 		}
 
-		return window;
+		return slot;
 	}
 
 	/**
@@ -327,16 +395,24 @@ public class PageWindowManager implements Serializable
 	 */
 	public static class PageWindow
 	{
-		private final PageWindowInternal pageWindowInternal;
+		private final int pageId;
+
+		private final int filePartOffset;
+
+		private final int filePartSize;
 
 		/**
 		 * Construct.
 		 * 
-		 * @param pageWindowInternal
+		 * @param pageId
+		 * @param filePartOffset
+		 * @param filePartSize
 		 */
-		private PageWindow(PageWindowInternal pageWindowInternal)
+		private PageWindow(int pageId, int filePartOffset, int filePartSize)
 		{
-			this.pageWindowInternal = pageWindowInternal;
+			this.pageId = pageId;
+			this.filePartOffset = filePartOffset;
+			this.filePartSize = filePartSize;
 		}
 
 		/**
@@ -344,7 +420,7 @@ public class PageWindowManager implements Serializable
 		 */
 		public int getPageId()
 		{
-			return pageWindowInternal.pageId;
+			return pageId;
 		}
 
 		/**
@@ -352,7 +428,7 @@ public class PageWindowManager implements Serializable
 		 */
 		public int getFilePartOffset()
 		{
-			return pageWindowInternal.filePartOffset;
+			return filePartOffset;
 		}
 
 		/**
@@ -360,10 +436,15 @@ public class PageWindowManager implements Serializable
 		 */
 		public int getFilePartSize()
 		{
-			return pageWindowInternal.filePartSize;
+			return filePartSize;
 		}
 	}
 
+	private PageWindow newPageWindow(int slot)
+	{
+		return new PageWindow(pageIds[slot], filePartOffsets[slot], filePartSizes[slot]);
+	}
+
 	/**
 	 * Creates and returns a new page window for given page.
 	 * 
@@ -373,28 +454,28 @@ public class PageWindowManager implements Serializable
 	 */
 	public synchronized PageWindow createPageWindow(int pageId, int size)
 	{
-		int index = getWindowIndex(pageId);
+		int slot = idToSlot.get(pageId);
 
 		// if we found the page window, mark it as invalid
-		if (index != -1)
+		if (slot != NONE)
 		{
-			removeWindowIndex(pageId);
-			(windows.get(index)).pageId = -1;
+			clearWindow(slot);
 		}
 
 		// if we are not going to reuse a page window (because it's not on
 		// indexPointer position or because we didn't find it), increment the
 		// indexPointer
-		if (index == -1 || index != indexPointer)
+		if (slot == NONE || slot != indexPointer)
 		{
-			index = incrementIndexPointer();
+			slot = incrementIndexPointer();
 		}
 
-		PageWindowInternal window = allocatePageWindow(index, size);
-		window.pageId = pageId;
+		slot = allocatePageWindow(slot, size);
+		indexPointer = slot;
+		pageIds[slot] = pageId;
+		idToSlot.put(pageId, slot);
 
-		putWindowIndex(pageId, index);
-		return new PageWindow(window);
+		return newPageWindow(slot);
 	}
 
 	/**
@@ -405,10 +486,10 @@ public class PageWindowManager implements Serializable
 	 */
 	public synchronized PageWindow getPageWindow(int pageId)
 	{
-		int index = getWindowIndex(pageId);
-		if (index != -1)
+		int slot = idToSlot.get(pageId);
+		if (slot != NONE)
 		{
-			return new PageWindow(windows.get(index));
+			return newPageWindow(slot);
 		}
 		return null;
 	}
@@ -420,23 +501,18 @@ public class PageWindowManager implements Serializable
 	 */
 	public synchronized void removePage(int pageId)
 	{
-		int index = getWindowIndex(pageId);
-		if (index != -1)
+		int slot = idToSlot.get(pageId);
+		if (slot != NONE)
 		{
-			PageWindowInternal window = windows.get(index);
-			removeWindowIndex(pageId);
-			if (index == windows.size() - 1)
+			clearWindow(slot);
+			if (slot == tail)
 			{
-				windows.remove(index);
-				totalSize -= window.filePartSize;
-				if (indexPointer == index)
+				totalSize -= filePartSizes[slot];
+				if (indexPointer == slot)
 				{
-					--indexPointer;
+					indexPointer = previousSlots[slot];
 				}
-			}
-			else
-			{
-				window.pageId = -1;
+				freeSlot(slot);
 			}
 		}
 	}
@@ -451,56 +527,211 @@ public class PageWindowManager implements Serializable
 	{
 		List<PageWindow> result = new ArrayList<PageWindow>();
 
-		// start from current index to 0
-		int currentIndex = indexPointer;
+		// start from current slot to the first one
+		int currentSlot = indexPointer;
 
 		do
 		{
-			if (currentIndex == -1)
+			if (currentSlot == NONE)
 			{
 				break;
 			}
 
-			if (currentIndex < windows.size())
+			if (pageIds[currentSlot] != NONE)
 			{
-				PageWindowInternal window = windows.get(currentIndex);
-				if (window.pageId != -1)
-				{
-					result.add(new PageWindow(window));
-				}
+				result.add(newPageWindow(currentSlot));
 			}
 
-			--currentIndex;
-			if (currentIndex == -1)
+			currentSlot = previousSlots[currentSlot];
+			if (currentSlot == NONE)
 			{
-				// rewind to the last entry and collect all entries until current index
-				currentIndex = windows.size() - 1;
+				// rewind to the last entry and collect all entries until current slot
+				currentSlot = tail;
 			}
 		}
-		while (result.size() < count && currentIndex != indexPointer);
+		while (result.size() < count && currentSlot != indexPointer);
 
 		return result;
 	}
 
 	/**
-	 * Creates a new PageWindowManager.
+	 * Returns the size of all saved pages
 	 * 
-	 * @param maxSize
-	 *            maximum page size. After this size is exceeded, the pages will be saved starting
-	 *            at the beginning of file
+	 * @return total size
 	 */
-	public PageWindowManager(long maxSize)
+	public synchronized int getTotalSize()
 	{
-		this.maxSize = maxSize;
+		return totalSize;
 	}
 
 	/**
-	 * Returns the size of all saved pages
+	 * Writes only the page id and size of each window in file order, the offsets and slots are
+	 * recomputed on read.
 	 * 
-	 * @return total size
+	 * @param s
+	 * @throws IOException
 	 */
-	public synchronized int getTotalSize()
+	private synchronized void writeObject(ObjectOutputStream s) throws IOException
 	{
-		return totalSize;
+		s.defaultWriteObject();
+
+		int windowCount = 0;
+		int indexPointerPosition = NONE;
+		for (int slot = head; slot != NONE; slot = nextSlots[slot])
+		{
+			if (slot == indexPointer)
+			{
+				indexPointerPosition = windowCount;
+			}
+			windowCount++;
+		}
+
+		s.writeInt(windowCount);
+		s.writeInt(indexPointerPosition);
+		for (int slot = head; slot != NONE; slot = nextSlots[slot])
+		{
+			s.writeInt(pageIds[slot]);
+			s.writeInt(filePartSizes[slot]);
+		}
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException
+	{
+		s.defaultReadObject();
+
+		int windowCount = s.readInt();
+		int indexPointerPosition = s.readInt();
+
+		init(Math.max(INITIAL_CAPACITY, windowCount));
+		for (int i = 0; i < windowCount; i++)
+		{
+			int slot = allocatePageWindow(NONE, 0);
+			int pageId = s.readInt();
+			filePartSizes[slot] = s.readInt();
+			totalSize += filePartSizes[slot];
+			if (pageId != NONE)
+			{
+				pageIds[slot] = pageId;
+				idToSlot.put(pageId, slot);
+			}
+			if (i == indexPointerPosition)
+			{
+				indexPointer = slot;
+			}
+		}
+	}
+
+	/**
+	 * A map from int to non-negative int with open addressing, linear probing and backward shift
+	 * deletion, so neither keys nor values are boxed.
+	 */
+	private static final class IntIntMap
+	{
+		private int[] keys;
+
+		/** value + 1 per entry, {@code 0} marks a free entry */
+		private int[] values;
+
+		private int size;
+
+		private IntIntMap(int expectedSize)
+		{
+			int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+			keys = new int[capacity];
+			values = new int[capacity];
+		}
+
+		private static int hash(int key)
+		{
+			int h = key * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * @param key
+		 * @return the value or {@link PageWindowManager#NONE} if there is no such key
+		 */
+		private int get(int key)
+		{
+			int mask = keys.length - 1;
+			for (int i = hash(key) & mask; values[i] != 0; i = (i + 1) & mask)
+			{
+				if (keys[i] == key)
+				{
+					return values[i] - 1;
+				}
+			}
+			return NONE;
+		}
+
+		private void put(int key, int value)
+		{
+			if ((size + 1) * 2 > keys.length)
+			{
+				rehash(keys.length * 2);
+			}
+
+			int mask = keys.length - 1;
+			int i = hash(key) & mask;
+			while (values[i] != 0 && keys[i] != key)
+			{
+				i = (i + 1) & mask;
+			}
+			if (values[i] == 0)
+			{
+				size++;
+			}
+			keys[i] = key;
+			values[i] = value + 1;
+		}
+
+		private void remove(int key)
+		{
+			int mask = keys.length - 1;
+			int gap = hash(key) & mask;
+			while (true)
+			{
+				if (values[gap] == 0)
+				{
+					return;
+				}
+				if (keys[gap] == key)
+				{
+					break;
+				}
+				gap = (gap + 1) & mask;
+			}
+
+			// shift back the following entries of the cluster which could not be placed on
+			// their ideal position
+			for (int i = (gap + 1) & mask; values[i] != 0; i = (i + 1) & mask)
+			{
+				int ideal = hash(keys[i]) & mask;
+				if (((i - ideal) & mask) >= ((i - gap) & mask))
+				{
+					keys[gap] = keys[i];
+					values[gap] = values[i];
+					gap = i;
+				}
+			}
+			values[gap] = 0;
+			size--;
+		}
+
+		private void rehash(int capacity)
+		{
+			int[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new int[capacity];
+			values = new int[capacity];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++)
+			{
+				if (oldValues[i] != 0)
+				{
+					put(oldKeys[i], oldValues[i] - 1);
+				}
+			}
+		}
 	}
 }
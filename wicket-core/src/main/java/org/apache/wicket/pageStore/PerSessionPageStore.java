@@ -56,7 +56,51 @@ public class PerSessionPageStore extends AbstractCachingPageStore<IManageablePag
 	public PerSessionPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
 	                           final int cacheSize)
 	{
-		super(pageSerializer, dataStore, new PagesCache(cacheSize));
+		this(pageSerializer, dataStore, new PagesCache(cacheSize));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pageSerializer
+	 *            the {@link org.apache.wicket.serialize.ISerializer} that will be used to convert pages from/to byte arrays
+	 * @param dataStore
+	 *            the {@link org.apache.wicket.pageStore.IDataStore} that actually stores the pages
+	 * @param pagesCache
+	 *            the cache for the pages, e.g. an {@link OffHeapPageCache}
+	 */
+	public PerSessionPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
+	                           final SecondLevelPageCache<String, Integer, IManageablePage> pagesCache)
+	{
+		super(pageSerializer, dataStore, pagesCache);
+	}
+
+	@Override
+	protected void cachePage(final String sessionId, final IManageablePage page,
+		final byte[] data)
+	{
+		if (pagesCache instanceof OffHeapPageCache)
+		{
+			// cache the already serialized page instead of serializing it again
+			((OffHeapPageCache)pagesCache).storeData(sessionId, page.getPageId(), data);
+		}
+		else
+		{
+			super.cachePage(sessionId, page, data);
+		}
+	}
+
+	@Override
+	protected void cachePageData(final String sessionId, final int pageId, final byte[] data)
+	{
+		if (pagesCache instanceof OffHeapPageCache)
+		{
+			((OffHeapPageCache)pagesCache).storeData(sessionId, pageId, data);
+		}
+		else
+		{
+			super.cachePageData(sessionId, pageId, data);
+		}
 	}
 
 	@Override
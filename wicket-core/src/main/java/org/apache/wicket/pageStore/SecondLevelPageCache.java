@@ -36,6 +36,16 @@ public interface SecondLevelPageCache<S, PI, P>
 
 	P getPage(S session, PI pageId);
 
+	/**
+	 * @param session
+	 * @param pageId
+	 * @return {@code true} if the page is cached
+	 */
+	default boolean containsPage(S session, PI pageId)
+	{
+		return getPage(session, pageId) != null;
+	}
+
 	void storePage(S session, PI pageId, P page);
 
 	void destroy();
@@ -0,0 +1,888 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data store implementation which stores the data of all sessions in shared, memory-mapped
+ * append-only segment files.
+ * <p>
+ * Contrary to {@link DiskDataStore} there is no file per session: pages are appended to the
+ * currently active segment and an in-memory index maps (sessionId, pageId) to (segment, offset,
+ * length). Since the segments stay mapped, pages are written and read without any
+ * open/close/read system calls; {@link #getDataBuffer(String, int)} even gives a zero-copy view
+ * on the stored bytes.
+ * </p>
+ * <p>
+ * Overwritten and removed pages leave garbage in their segments. A background thread
+ * periodically compacts sealed segments whose live data dropped below the compaction threshold by
+ * copying the remaining pages into the active segment and deleting the old segment file.
+ * </p>
+ * <p>
+ * To use it override {@link org.apache.wicket.DefaultPageManagerProvider#newDataStore()}.
+ * </p>
+ */
+public class SegmentDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(SegmentDataStore.class);
+
+	private static final String INDEX_FILE_NAME = "SegmentDataStoreIndex";
+
+	private static final String SEGMENT_FILE_PREFIX = "segment-";
+
+	private static final String SEGMENT_FILE_SUFFIX = ".data";
+
+	/**
+	 * The default size of a single segment file.
+	 */
+	public static final Bytes DEFAULT_SEGMENT_SIZE = Bytes.megabytes(16);
+
+	/**
+	 * The default ratio of live data below which a sealed segment is compacted.
+	 */
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5d;
+
+	/**
+	 * The time to wait between two compaction runs. In millis.
+	 */
+	private static final long COMPACTION_INTERVAL = 5000L;
+
+	private final String applicationName;
+
+	private final Bytes maxSizePerSession;
+
+	private final File fileStoreFolder;
+
+	private final int segmentSize;
+
+	private final double compactionThreshold;
+
+	private final ConcurrentMap<String, SessionEntry> sessionEntryMap;
+
+	/**
+	 * All segments (sealed or not) by their id
+	 */
+	private final ConcurrentMap<Integer, Segment> segments;
+
+	/**
+	 * Guards {@link #activeSegment}, {@link #nextSegmentId} and the reservation of space in the
+	 * active segment
+	 */
+	private final Object appendLock = new Object();
+
+	private Segment activeSegment;
+
+	private int nextSegmentId;
+
+	private final Thread compactionThread;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 */
+	public SegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession)
+	{
+		this(applicationName, fileStoreFolder, maxSizePerSession, DEFAULT_SEGMENT_SIZE,
+			DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 * @param segmentSize
+	 *            the size of a single segment file
+	 * @param compactionThreshold
+	 *            the ratio of live data (between 0 and 1) below which a sealed segment is compacted
+	 */
+	public SegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession, final Bytes segmentSize, final double compactionThreshold)
+	{
+		this.applicationName = applicationName;
+		this.fileStoreFolder = fileStoreFolder;
+		this.maxSizePerSession = Args.notNull(maxSizePerSession, "maxSizePerSession");
+		Args.notNull(segmentSize, "segmentSize");
+		this.segmentSize = Args.withinRange(1L, (long)Integer.MAX_VALUE, segmentSize.bytes(),
+			"segmentSize").intValue();
+		this.compactionThreshold = compactionThreshold;
+		sessionEntryMap = new ConcurrentHashMap<>();
+		segments = new ConcurrentHashMap<>();
+
+		try
+		{
+			File storeFolder = getStoreFolder();
+			if (storeFolder.exists() || storeFolder.mkdirs())
+			{
+				loadIndex();
+			}
+			else
+			{
+				log.warn("Cannot create file store folder for some reason.");
+			}
+		}
+		catch (SecurityException e)
+		{
+			throw new WicketRuntimeException(
+				"SecurityException occurred while creating SegmentDataStore. Consider using a non-disk based IDataStore implementation. "
+					+ "See org.apache.wicket.Application.setPageManagerProvider(IPageManagerProvider)",
+				e);
+		}
+
+		compactionThread = new Thread(new CompactionRunnable(),
+			"Wicket-SegmentDataStore-CompactionThread");
+		compactionThread.setDaemon(true);
+		compactionThread.start();
+	}
+
+	@Override
+	public void destroy()
+	{
+		log.debug("Destroying...");
+		if (compactionThread.isAlive())
+		{
+			compactionThread.interrupt();
+			try
+			{
+				compactionThread.join();
+			}
+			catch (InterruptedException e)
+			{
+				log.error(e.getMessage(), e);
+			}
+		}
+
+		synchronized (appendLock)
+		{
+			activeSegment = null;
+		}
+		for (Segment segment : segments.values())
+		{
+			segment.close(false);
+		}
+		saveIndex();
+		log.debug("Destroyed.");
+	}
+
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] pageData = null;
+		ByteBuffer buffer = getDataBuffer(sessionId, id);
+		if (buffer != null)
+		{
+			pageData = new byte[buffer.remaining()];
+			buffer.get(pageData);
+		}
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Returning data{} for page with id '{}' in session with id '{}'",
+				pageData != null ? "" : "(null)", id, sessionId);
+		}
+		return pageData;
+	}
+
+	/**
+	 * Returns a read-only view on the stored data, backed directly by the mapped segment.
+	 * <p>
+	 * Since segments are append-only the returned buffer stays valid even if the page is
+	 * overwritten, removed or relocated by a compaction in the meantime.
+	 * </p>
+	 *
+	 * @param sessionId
+	 *            Session ID
+	 * @param id
+	 *            Page ID
+	 * @return the page data or {@code null} if there is no such page
+	 */
+	public ByteBuffer getDataBuffer(final String sessionId, final int id)
+	{
+		SessionEntry sessionEntry = sessionEntryMap.get(sessionId);
+		if (sessionEntry == null)
+		{
+			return null;
+		}
+
+		while (true)
+		{
+			Location location = sessionEntry.getLocation(id);
+			if (location == null)
+			{
+				return null;
+			}
+
+			Segment segment = segments.get(location.segment);
+			if (segment != null)
+			{
+				return segment.slice(location.offset, location.length);
+			}
+
+			// the segment has been compacted in the meantime, so the page must have a new location
+			if (location.equals(sessionEntry.getLocation(id)))
+			{
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public boolean isReplicated()
+	{
+		return false;
+	}
+
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		SessionEntry sessionEntry = sessionEntryMap.get(sessionId);
+		if (sessionEntry != null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Removing data for page with id '{}' in session with id '{}'", id, sessionId);
+			}
+			release(sessionEntry.remove(id));
+		}
+	}
+
+	@Override
+	public void removeData(final String sessionId)
+	{
+		SessionEntry sessionEntry = sessionEntryMap.remove(sessionId);
+		if (sessionEntry != null)
+		{
+			log.debug("Removing data for pages in session with id '{}'", sessionId);
+			release(sessionEntry.unbind());
+		}
+	}
+
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		// only save page that has some data
+		if (data == null)
+		{
+			return;
+		}
+
+		Location location = append(data);
+		if (location == null)
+		{
+			log.warn("Cannot save page with id '{}' because no segment could be allocated.", id);
+			return;
+		}
+
+		log.debug("Storing data for page with id '{}' in session with id '{}'", id, sessionId);
+		SessionEntry sessionEntry = getSessionEntry(sessionId);
+		release(sessionEntry.put(id, location, maxSizePerSession.bytes()));
+	}
+
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return true;
+	}
+
+	/**
+	 * Compacts all sealed segments whose live data dropped below the compaction threshold.
+	 * <p>
+	 * Called periodically by a background thread.
+	 * </p>
+	 */
+	public void compact()
+	{
+		for (Segment segment : segments.values())
+		{
+			if (segment.sealed && segment.live.get() <= segment.capacity * compactionThreshold)
+			{
+				compact(segment);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of segments currently in use
+	 */
+	public int getSegmentCount()
+	{
+		return segments.size();
+	}
+
+	private void compact(final Segment segment)
+	{
+		if (segment.live.get() > 0)
+		{
+			log.debug("Compacting segment '{}' with {} live bytes", segment.id, segment.live);
+			for (SessionEntry sessionEntry : sessionEntryMap.values())
+			{
+				release(sessionEntry.relocate(segment, this));
+			}
+		}
+
+		if (segment.live.get() == 0)
+		{
+			segments.remove(segment.id);
+			segment.close(true);
+		}
+	}
+
+	private SessionEntry getSessionEntry(final String sessionId)
+	{
+		SessionEntry entry = sessionEntryMap.get(sessionId);
+		if (entry == null)
+		{
+			entry = new SessionEntry(sessionId);
+			SessionEntry existing = sessionEntryMap.putIfAbsent(sessionId, entry);
+			if (existing != null)
+			{
+				entry = existing;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Appends the data at the end of the active segment, rolling over to a new segment if it has
+	 * no room left.
+	 *
+	 * @param data
+	 * @return the location of the written data or {@code null} if no segment could be allocated
+	 */
+	private Location append(final byte[] data)
+	{
+		Segment segment;
+		int offset;
+		synchronized (appendLock)
+		{
+			segment = activeSegment;
+			if (segment == null || segment.capacity - segment.position < data.length)
+			{
+				if (segment != null)
+				{
+					segment.sealed = true;
+				}
+				try
+				{
+					segment = newSegment(Math.max(segmentSize, data.length));
+				}
+				catch (IOException e)
+				{
+					log.error("Cannot create a new segment in " + getStoreFolder(), e);
+					activeSegment = null;
+					return null;
+				}
+				activeSegment = segment;
+			}
+			offset = segment.position;
+			segment.position += data.length;
+			segment.live.addAndGet(data.length);
+		}
+
+		// writing happens outside of the lock, reserved regions never overlap
+		segment.write(offset, data);
+		return new Location(segment.id, offset, data.length);
+	}
+
+	private Segment newSegment(final int capacity) throws IOException
+	{
+		int id = nextSegmentId++;
+		File file = getSegmentFile(id);
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		Segment segment;
+		try
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			segment = new Segment(id, file, channel, buffer);
+		}
+		catch (IOException e)
+		{
+			IOUtils.closeQuietly(channel);
+			Files.remove(file);
+			throw e;
+		}
+		segments.put(id, segment);
+		return segment;
+	}
+
+	private void release(final List<Location> locations)
+	{
+		for (Location location : locations)
+		{
+			Segment segment = segments.get(location.segment);
+			if (segment != null)
+			{
+				segment.live.addAndGet(-location.length);
+			}
+		}
+	}
+
+	private File getSegmentFile(final int id)
+	{
+		return new File(getStoreFolder(), SEGMENT_FILE_PREFIX + id + SEGMENT_FILE_SUFFIX);
+	}
+
+	/**
+	 * This folder contains the segment files and the index.
+	 *
+	 * @return the folder where the pages are stored
+	 */
+	protected File getStoreFolder()
+	{
+		return new File(fileStoreFolder, applicationName + "-segmentstore");
+	}
+
+	/**
+	 * Load the index and re-map all segments referenced by it. Unreferenced segment files are
+	 * removed.
+	 */
+	@SuppressWarnings("unchecked")
+	private void loadIndex()
+	{
+		File storeFolder = getStoreFolder();
+		File index = new File(storeFolder, INDEX_FILE_NAME);
+		if (index.exists() && index.length() > 0)
+		{
+			try
+			{
+				InputStream stream = new FileInputStream(index);
+				ObjectInputStream ois = new ObjectInputStream(stream);
+				try
+				{
+					Map<String, SessionEntry> map = (Map<String, SessionEntry>)ois.readObject();
+					sessionEntryMap.putAll(map);
+				}
+				finally
+				{
+					stream.close();
+					ois.close();
+				}
+			}
+			catch (Exception e)
+			{
+				log.error("Couldn't load SegmentDataStore index from file " + index + ".", e);
+				sessionEntryMap.clear();
+			}
+		}
+		Files.remove(index);
+
+		for (Iterator<SessionEntry> iterator = sessionEntryMap.values().iterator(); iterator.hasNext();)
+		{
+			SessionEntry sessionEntry = iterator.next();
+			sessionEntry.size = 0;
+			for (Iterator<Location> pages = sessionEntry.pages.values().iterator(); pages.hasNext();)
+			{
+				Location location = pages.next();
+				Segment segment = segments.get(location.segment);
+				if (segment == null)
+				{
+					segment = openSegment(location.segment);
+				}
+
+				if (segment == null)
+				{
+					pages.remove();
+				}
+				else
+				{
+					segment.live.addAndGet(location.length);
+					sessionEntry.size += location.length;
+				}
+			}
+			if (sessionEntry.pages.isEmpty())
+			{
+				iterator.remove();
+			}
+		}
+
+		File[] files = storeFolder.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				String name = file.getName();
+				if (name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX))
+				{
+					String id = name.substring(SEGMENT_FILE_PREFIX.length(),
+						name.length() - SEGMENT_FILE_SUFFIX.length());
+					if (segments.containsKey(Integer.valueOf(id)) == false)
+					{
+						Files.remove(file);
+					}
+				}
+			}
+		}
+
+		for (Integer id : segments.keySet())
+		{
+			nextSegmentId = Math.max(nextSegmentId, id + 1);
+		}
+	}
+
+	private Segment openSegment(final int id)
+	{
+		File file = getSegmentFile(id);
+		if (file.exists() == false)
+		{
+			return null;
+		}
+
+		FileChannel channel = null;
+		try
+		{
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+				channel.size());
+			Segment segment = new Segment(id, file, channel, buffer);
+			segment.position = segment.capacity;
+			segment.sealed = true;
+			segments.put(id, segment);
+			return segment;
+		}
+		catch (IOException e)
+		{
+			log.error("Couldn't open segment file " + file + ".", e);
+			IOUtils.closeQuietly(channel);
+			return null;
+		}
+	}
+
+	private void saveIndex()
+	{
+		File storeFolder = getStoreFolder();
+		if (storeFolder.exists())
+		{
+			File index = new File(storeFolder, INDEX_FILE_NAME);
+			Files.remove(index);
+			try
+			{
+				OutputStream stream = new FileOutputStream(index);
+				ObjectOutputStream oos = new ObjectOutputStream(stream);
+				try
+				{
+					Map<String, SessionEntry> map = new HashMap<>(sessionEntryMap.size());
+					for (SessionEntry sessionEntry : sessionEntryMap.values())
+					{
+						synchronized (sessionEntry)
+						{
+							if (sessionEntry.unbound == false)
+							{
+								map.put(sessionEntry.sessionId, sessionEntry);
+							}
+						}
+					}
+					oos.writeObject(map);
+				}
+				finally
+				{
+					stream.close();
+					oos.close();
+				}
+			}
+			catch (Exception e)
+			{
+				log.error("Couldn't write SegmentDataStore index to file " + index + ".", e);
+			}
+		}
+	}
+
+	/**
+	 * The position of a page's data in a segment.
+	 */
+	private static final class Location implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int segment;
+		private final int offset;
+		private final int length;
+
+		private Location(int segment, int offset, int length)
+		{
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Location other = (Location)obj;
+			return segment == other.segment && offset == other.offset && length == other.length;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = segment;
+			result = 31 * result + offset;
+			result = 31 * result + length;
+			return result;
+		}
+	}
+
+	/**
+	 * A single memory-mapped segment file.
+	 */
+	private static final class Segment
+	{
+		private final int id;
+		private final File file;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private final int capacity;
+
+		/**
+		 * The next free offset, guarded by {@link SegmentDataStore#appendLock}
+		 */
+		private int position;
+
+		/**
+		 * The number of bytes of still referenced pages
+		 */
+		private final AtomicLong live = new AtomicLong();
+
+		/**
+		 * Whether nothing will be appended anymore
+		 */
+		private volatile boolean sealed;
+
+		private Segment(int id, File file, FileChannel channel, MappedByteBuffer buffer)
+		{
+			this.id = id;
+			this.file = file;
+			this.channel = channel;
+			this.buffer = buffer;
+			capacity = buffer.capacity();
+		}
+
+		private void write(int offset, byte[] data)
+		{
+			ByteBuffer target = buffer.duplicate();
+			target.position(offset);
+			target.put(data);
+		}
+
+		private ByteBuffer slice(int offset, int length)
+		{
+			ByteBuffer source = buffer.duplicate();
+			source.position(offset);
+			source.limit(offset + length);
+			return source.slice().asReadOnlyBuffer();
+		}
+
+		/**
+		 * Closes the file channel. The mapping itself is released by the garbage collector once
+		 * no view on it is referenced anymore.
+		 *
+		 * @param delete
+		 *            whether to delete the segment file too
+		 */
+		private void close(boolean delete)
+		{
+			if (delete == false)
+			{
+				buffer.force();
+			}
+			IOUtils.closeQuietly(channel);
+			if (delete)
+			{
+				Files.remove(file);
+			}
+		}
+	}
+
+	/**
+	 * The pages of a single session, oldest first.
+	 */
+	private static class SessionEntry implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String sessionId;
+		private final LinkedHashMap<Integer, Location> pages = new LinkedHashMap<>();
+		private long size;
+		private boolean unbound = false;
+
+		private SessionEntry(String sessionId)
+		{
+			this.sessionId = sessionId;
+		}
+
+		private synchronized Location getLocation(int pageId)
+		{
+			return pages.get(pageId);
+		}
+
+		/**
+		 * Puts the location of a page, evicting the oldest pages if the session exceeds its
+		 * maximum size.
+		 *
+		 * @return the locations which are no longer referenced
+		 */
+		private synchronized List<Location> put(int pageId, Location location, long maxSize)
+		{
+			if (unbound)
+			{
+				return Collections.singletonList(location);
+			}
+
+			List<Location> released = new ArrayList<>();
+			Location previous = pages.remove(pageId);
+			if (previous != null)
+			{
+				size -= previous.length;
+				released.add(previous);
+			}
+			pages.put(pageId, location);
+			size += location.length;
+
+			Iterator<Location> iterator = pages.values().iterator();
+			while (size > maxSize && pages.size() > 1)
+			{
+				Location eldest = iterator.next();
+				iterator.remove();
+				size -= eldest.length;
+				released.add(eldest);
+			}
+			return released;
+		}
+
+		private synchronized List<Location> remove(int pageId)
+		{
+			Location location = pages.remove(pageId);
+			if (location == null)
+			{
+				return Collections.emptyList();
+			}
+			size -= location.length;
+			return Collections.singletonList(location);
+		}
+
+		private synchronized List<Location> unbind()
+		{
+			unbound = true;
+			List<Location> released = new ArrayList<>(pages.values());
+			pages.clear();
+			size = 0;
+			return released;
+		}
+
+		/**
+		 * Copies all pages stored in the given segment into the active one.
+		 *
+		 * @return the locations which are no longer referenced
+		 */
+		private synchronized List<Location> relocate(Segment segment, SegmentDataStore store)
+		{
+			List<Location> released = new ArrayList<>();
+			for (Map.Entry<Integer, Location> entry : pages.entrySet())
+			{
+				Location location = entry.getValue();
+				if (location.segment == segment.id)
+				{
+					ByteBuffer source = segment.slice(location.offset, location.length);
+					byte[] data = new byte[location.length];
+					source.get(data);
+
+					Location relocated = store.append(data);
+					if (relocated != null)
+					{
+						// replacing the value keeps the order of the pages
+						entry.setValue(relocated);
+						released.add(location);
+					}
+				}
+			}
+			return released;
+		}
+	}
+
+	/**
+	 * The thread that periodically compacts the segments
+	 */
+	private class CompactionRunnable implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			while (!Thread.interrupted())
+			{
+				try
+				{
+					Thread.sleep(COMPACTION_INTERVAL);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+				try
+				{
+					compact();
+				}
+				catch (RuntimeException e)
+				{
+					log.error("An error occurred while compacting the segments", e);
+				}
+			}
+		}
+	}
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.pageStore.memory;
 
+import java.util.Map;
+
 import javax.servlet.http.HttpSession;
 
 import org.apache.wicket.Session;
@@ -144,6 +146,29 @@ public class HttpSessionDataStore implements IDataStore
 		}
 	}
 
+	/**
+	 * Stores the pages with a single update of the http session and a single eviction.
+	 */
+	@Override
+	public void storeData(String sessionId, Map<Integer, byte[]> data)
+	{
+		PageTable pageTable = getPageTable(true, true);
+		if (pageTable != null)
+		{
+			for (Map.Entry<Integer, byte[]> entry : data.entrySet())
+			{
+				pageTable.storePage(entry.getKey(), entry.getValue());
+			}
+			LOG.debug("Stored pages with ids '{}' in session '{}'", data.keySet(), sessionId);
+			evictionStrategy.evict(pageTable);
+		}
+		else
+		{
+			LOG.error("Cannot store the data for pages with ids '{}' in session with id '{}'",
+				data.keySet(), sessionId);
+		}
+	}
+
 	@Override
 	public void destroy()
 	{
@@ -19,6 +19,7 @@ package org.apache.wicket.protocol.http;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -29,6 +30,8 @@ import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.response.EncodedTextBuffer;
+import org.apache.wicket.response.IEncodingResponse;
 import org.apache.wicket.response.filter.IResponseFilter;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.AppendingStringBuffer;
@@ -41,16 +44,34 @@ import org.apache.wicket.util.time.Time;
  * 
  * @author Matej Knopp
  */
-public class BufferedWebResponse extends WebResponse implements IMetaDataBufferingWebResponse
+public class BufferedWebResponse extends WebResponse
+	implements
+		IMetaDataBufferingWebResponse,
+		IEncodingResponse
 {
 	private final WebResponse originalResponse;
 
+	private final Charset charset;
+
 	/**
 	 * Construct.
 	 * 
 	 * @param originalResponse
 	 */
 	public BufferedWebResponse(WebResponse originalResponse)
+	{
+		this(originalResponse, null);
+	}
+
+	/**
+	 * Construct a response which encodes written text with the given charset right away.
+	 * 
+	 * @param originalResponse
+	 * @param charset
+	 *            the charset to encode text with, or {@code null} to buffer the text as is
+	 * @see EncodedTextBuffer
+	 */
+	public BufferedWebResponse(WebResponse originalResponse, Charset charset)
 	{
 		// if original response had some metadata set
 		// we should transfer it to the current response
@@ -59,6 +80,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 			((IMetaDataBufferingWebResponse)originalResponse).writeMetaData(this);
 		}
 		this.originalResponse = originalResponse;
+		this.charset = charset;
 	}
 
 	/**
@@ -140,27 +162,74 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class WriteCharSequenceAction extends Action
 	{
-		private final StringBuilder builder = new StringBuilder(4096);
+		private final StringBuilder builder;
 
-		public WriteCharSequenceAction()
-		{
+		private final EncodedTextBuffer encoded;
 
+		public WriteCharSequenceAction(Charset charset)
+		{
+			if (charset == null)
+			{
+				builder = new StringBuilder(4096);
+				encoded = null;
+			}
+			else
+			{
+				builder = null;
+				encoded = new EncodedTextBuffer(charset);
+			}
 		}
 
 		public void append(CharSequence sequence)
 		{
-			builder.append(sequence);
+			if (encoded != null)
+			{
+				encoded.append(sequence);
+			}
+			else
+			{
+				builder.append(sequence);
+			}
+		}
+
+		public void appendEncoded(byte[] bytes)
+		{
+			encoded.append(bytes);
+		}
+
+		public CharSequence getText()
+		{
+			return encoded != null ? encoded.toString() : builder;
+		}
+
+		public void clear()
+		{
+			if (encoded != null)
+			{
+				encoded.clear();
+			}
+			else
+			{
+				builder.setLength(0);
+			}
 		}
 
 		@Override
 		protected void invoke(WebResponse response)
 		{
-			AppendingStringBuffer responseBuffer = new AppendingStringBuffer(builder);
-
 			List<IResponseFilter> responseFilters = Application.get()
 				.getRequestCycleSettings()
 				.getResponseFilters();
 
+			if (responseFilters == null && encoded != null)
+			{
+				// write the bytes as they are
+				encoded.writeTo(response);
+				return;
+			}
+
+			AppendingStringBuffer responseBuffer = new AppendingStringBuffer(getText());
+
 			if (responseFilters != null)
 			{
 				for (IResponseFilter filter : responseFilters)
@@ -168,7 +237,18 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 					responseBuffer = filter.filter(responseBuffer);
 				}
 			}
-			response.write(responseBuffer);
+
+			if (encoded != null)
+			{
+				// keep writing bytes, the filters work on text only
+				encoded.clear();
+				encoded.append(responseBuffer);
+				encoded.writeTo(response);
+			}
+			else
+			{
+				response.write(responseBuffer);
+			}
 		}
 
 		@Override
@@ -427,6 +507,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	public void reset()
 	{
 		super.reset();
+		release();
 		actions.clear();
 		charSequenceAction = null;
 		dataAction = null;
@@ -490,12 +571,46 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 		if (charSequenceAction == null)
 		{
-			charSequenceAction = new WriteCharSequenceAction();
+			charSequenceAction = new WriteCharSequenceAction(charset);
 			actions.add(charSequenceAction);
 		}
 		charSequenceAction.append(sequence);
 	}
 
+	/**
+	 * @return the charset written text is encoded with, or {@code null} if text is buffered as is
+	 */
+	@Override
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * Writes text which is encoded already, only allowed if this response was constructed with a
+	 * charset.
+	 */
+	@Override
+	public void writeEncoded(byte[] bytes)
+	{
+		if (charset == null)
+		{
+			throw new IllegalStateException("Text is not encoded by this response.");
+		}
+		if (dataAction != null)
+		{
+			throw new IllegalStateException(
+				"Can't call writeEncoded(byte[]) after write(byte[]) has been called.");
+		}
+
+		if (charSequenceAction == null)
+		{
+			charSequenceAction = new WriteCharSequenceAction(charset);
+			actions.add(charSequenceAction);
+		}
+		charSequenceAction.appendEncoded(bytes);
+	}
+
 	/**
 	 * Returns the text already written to this response.
 	 * 
@@ -509,7 +624,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 		if (charSequenceAction != null)
 		{
-			return charSequenceAction.builder;
+			return charSequenceAction.getText();
 		}
 		else
 		{
@@ -530,7 +645,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 		if (charSequenceAction != null)
 		{
-			charSequenceAction.builder.setLength(0);
+			charSequenceAction.clear();
 		}
 		write(text);
 	}
@@ -603,6 +718,18 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 	}
 
+	/**
+	 * Releases the buffered text, so its memory can be reused by other responses. This response
+	 * must not be written afterwards.
+	 */
+	public void release()
+	{
+		if (charSequenceAction != null)
+		{
+			charSequenceAction.clear();
+		}
+	}
+
 	@Override
 	public boolean isRedirect()
 	{
@@ -666,7 +793,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		final String toString;
 		if (charSequenceAction != null)
 		{
-			toString = charSequenceAction.builder.toString();
+			toString = charSequenceAction.getText().toString();
 		}
 		else
 		{
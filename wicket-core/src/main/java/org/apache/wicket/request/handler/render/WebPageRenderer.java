@@ -16,6 +16,7 @@
  */
 package org.apache.wicket.request.handler.render;
 
+import java.nio.charset.Charset;
 import java.util.List;
 
 import org.apache.wicket.Application;
@@ -33,6 +34,7 @@ import org.apache.wicket.request.component.IRequestablePage;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.lang.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -113,7 +115,16 @@ public class WebPageRenderer extends PageRenderer
 		final WebResponse originalResponse = (WebResponse)requestCycle.getResponse();
 
 		// buffered web response for page
-		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		Charset charset = null;
+		if (Application.exists())
+		{
+			RequestCycleSettings settings = Application.get().getRequestCycleSettings();
+			if (settings.getEncodeBufferedResponse())
+			{
+				charset = Charset.forName(settings.getResponseRequestEncoding());
+			}
+		}
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse, charset);
 
 		// keep the original base URL
 		Url originalBaseUrl = requestCycle.getUrlRenderer().setBaseUrl(targetUrl);
@@ -196,6 +207,7 @@ public class WebPageRenderer extends PageRenderer
 			if (response != null)
 			{
 				response.writeTo((WebResponse)requestCycle.getResponse());
+				response.release();
 			}
 		}
 		else if (shouldRedirectToTargetUrl(requestCycle, currentUrl, targetUrl))
@@ -252,6 +264,7 @@ public class WebPageRenderer extends PageRenderer
 				// will not work, we need to rerender the page. This can happen
 				// with IRequestHandlers that produce different URLs with
 				// different amount of segments for stateless and stateful pages
+				response.release();
 				response = renderPage(afterRenderUrl, requestCycle);
 			}
 
@@ -259,6 +272,7 @@ public class WebPageRenderer extends PageRenderer
 			{
 				// no need to redirect when both urls are exactly the same
 				response.writeTo((WebResponse)requestCycle.getResponse());
+				response.release();
 			}
 			// if page is still stateless after render
 			else if (isPageStateless() && !enableRedirectForStatelessPage())
@@ -272,6 +286,7 @@ public class WebPageRenderer extends PageRenderer
 				// after the listener is invoked, but on stateless page the user
 				// must ask for redirect explicitly
 				response.writeTo((WebResponse)requestCycle.getResponse());
+				response.release();
 			}
 			else
 			{
@@ -33,8 +33,10 @@ import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.wicket.core.util.resource.locator.IResourceStreamLocator;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
 import org.apache.wicket.response.StringResponse;
 import org.apache.wicket.util.io.IOUtils;
@@ -339,26 +341,27 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 			try
 			{
-				// read resource data to get the content length
-				InputStream inputStream = resourceStream.getInputStream();
+				// get content range information
+				RequestCycle cycle = RequestCycle.get();
+				Long startbyte = cycle.getMetaData(CONTENT_RANGE_STARTBYTE);
+				Long endbyte = cycle.getMetaData(CONTENT_RANGE_ENDBYTE);
 
+				InputStream inputStream = null;
 				byte[] bytes = null;
 				// send Content-Length header
 				if (readBuffered)
 				{
-					bytes = IOUtils.toByteArray(inputStream);
+					// read resource data to get the content length
+					bytes = readBytes(attributes, resourceResponse, resourceStream, lastModified,
+						startbyte == null && endbyte == null);
 					resourceResponse.setContentLength(bytes.length);
 				}
 				else
 				{
+					inputStream = resourceStream.getInputStream();
 					resourceResponse.setContentLength(resourceStream.length().bytes());
 				}
 
-				// get content range information
-				RequestCycle cycle = RequestCycle.get();
-				Long startbyte = cycle.getMetaData(CONTENT_RANGE_STARTBYTE);
-				Long endbyte = cycle.getMetaData(CONTENT_RANGE_ENDBYTE);
-
 				// send response body with resource data
 				PartWriterCallback partWriterCallback = new PartWriterCallback(bytes != null
 					? new ByteArrayInputStream(bytes) : inputStream,
@@ -397,6 +400,63 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 		return resourceResponse;
 	}
 
+	/**
+	 * Reads the processed bytes of the resource, from the
+	 * {@link org.apache.wicket.settings.ResourceSettings#getPackageResourceCache()} if configured.
+	 * 
+	 * @param attributes
+	 *            current request attributes from client
+	 * @param resourceResponse
+	 *            resource response
+	 * @param resourceStream
+	 *            the stream of the resource
+	 * @param lastModified
+	 *            the last modification time of the stream
+	 * @param encode
+	 *            whether a compressed content encoding may be used
+	 * @return the bytes to write
+	 */
+	private byte[] readBytes(Attributes attributes, ResourceResponse resourceResponse,
+		IResourceStream resourceStream, Time lastModified, boolean encode)
+		throws IOException, ResourceStreamNotFoundException
+	{
+		PackageResourceCache cache = Application.get()
+			.getResourceSettings()
+			.getPackageResourceCache();
+		if (cache == null)
+		{
+			return IOUtils.toByteArray(resourceStream.getInputStream());
+		}
+
+		Request request = attributes.getRequest();
+		Object key = new CacheKey(scopeName, absolutePath, getCurrentLocale(), getCurrentStyle(),
+			variation);
+
+		PackageResourceCache.Entry entry = cache.get(key, lastModified);
+		if (entry == null)
+		{
+			entry = cache.put(key, lastModified,
+				IOUtils.toByteArray(resourceStream.getInputStream()));
+		}
+
+		if (entry.isCompressed())
+		{
+			resourceResponse.getHeaders().addHeader("Vary", "Accept-Encoding");
+
+			if (encode && request instanceof WebRequest)
+			{
+				String encoding = entry.getPreferredEncoding(
+					((WebRequest)request).getHeader("Accept-Encoding"));
+				if (encoding != null)
+				{
+					resourceResponse.getHeaders().setHeader("Content-Encoding", encoding);
+					return entry.getBytes(encoding);
+				}
+			}
+		}
+		return entry.getBytes();
+	}
+
 	/**
 	 * Gives a chance to modify the resource going to be written in the response
 	 * 
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * An in-memory cache of the processed bytes of {@link PackageResource}s, so these do not have to be
+ * read from the classpath and processed (e.g. compressed by a
+ * {@link org.apache.wicket.javascript.IJavaScriptCompressor}) again on each request.
+ * <p>
+ * Along with the bytes, variants compressed with {@value #GZIP} and {@value #DEFLATE} are kept,
+ * if these are smaller than the original. Each entry has a version, e.g. the last modification
+ * time of the resource, an entry of another version is reread. The least recently used resources
+ * are evicted when the cached bytes exceed the budget.
+ * </p>
+ *
+ * <pre>
+ * getResourceSettings().setPackageResourceCache(new PackageResourceCache(Bytes.megabytes(10)));
+ * </pre>
+ *
+ * @see org.apache.wicket.settings.ResourceSettings#setPackageResourceCache(PackageResourceCache)
+ */
+public class PackageResourceCache
+{
+	/** The gzip content encoding */
+	public static final String GZIP = "gzip";
+
+	/** The deflate content encoding */
+	public static final String DEFLATE = "deflate";
+
+	private final long budget;
+
+	/** The entries, least recently used first */
+	private final Map<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size;
+
+	/**
+	 * Construct.
+	 *
+	 * @param budget
+	 *            the maximum number of bytes to keep
+	 */
+	public PackageResourceCache(Bytes budget)
+	{
+		this.budget = Args.notNull(budget, "budget").bytes();
+	}
+
+	/**
+	 * Gets a cached resource.
+	 *
+	 * @param key
+	 *            key of the resource
+	 * @param version
+	 *            version of the resource
+	 * @return the cached entry or {@code null} if none is cached in the given version
+	 */
+	public Entry get(Object key, Object version)
+	{
+		Entry entry;
+		synchronized (entries)
+		{
+			entry = entries.get(key);
+		}
+		if (entry == null || Objects.equals(entry.version, version) == false)
+		{
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Caches a resource, compressing its bytes.
+	 *
+	 * @param key
+	 *            key of the resource
+	 * @param version
+	 *            version of the resource, replacing any other version
+	 * @param bytes
+	 *            the bytes of the resource
+	 * @return the entry for the resource, which is not cached if it exceeds the budget
+	 */
+	public Entry put(Object key, Object version, byte[] bytes)
+	{
+		Entry entry = new Entry(version, bytes, compress(bytes, true), compress(bytes, false));
+		if (entry.size > budget)
+		{
+			return entry;
+		}
+
+		synchronized (entries)
+		{
+			Entry previous = entries.put(key, entry);
+			if (previous != null)
+			{
+				size -= previous.size;
+			}
+			size += entry.size;
+
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (size > budget)
+			{
+				Entry eldest = iterator.next();
+				iterator.remove();
+				size -= eldest.size;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * @return the number of cached bytes
+	 */
+	public Bytes getSize()
+	{
+		synchronized (entries)
+		{
+			return Bytes.bytes(size);
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear()
+	{
+		synchronized (entries)
+		{
+			entries.clear();
+			size = 0;
+		}
+	}
+
+	/**
+	 * Compresses the given bytes.
+	 *
+	 * @param bytes
+	 *            bytes to compress
+	 * @param gzip
+	 *            whether to use the gzip format instead of the zlib format
+	 * @return compressed bytes or {@code null} if not smaller than the original
+	 */
+	private static byte[] compress(byte[] bytes, boolean gzip)
+	{
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2);
+		Deflater deflater = gzip ? null : new Deflater(Deflater.BEST_COMPRESSION);
+		try (OutputStream out = gzip ? new GZIPOutputStream(compressed)
+		{
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		} : new DeflaterOutputStream(compressed, deflater))
+		{
+			out.write(bytes);
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException(ex);
+		}
+		finally
+		{
+			if (deflater != null)
+			{
+				deflater.end();
+			}
+		}
+
+		if (compressed.size() >= bytes.length)
+		{
+			return null;
+		}
+		return compressed.toByteArray();
+	}
+
+	/**
+	 * The cached bytes of a resource.
+	 */
+	public static class Entry
+	{
+		private final Object version;
+
+		private final byte[] bytes;
+
+		private final byte[] gzipped;
+
+		private final byte[] deflated;
+
+		private final long size;
+
+		private Entry(Object version, byte[] bytes, byte[] gzipped, byte[] deflated)
+		{
+			this.version = version;
+			this.bytes = bytes;
+			this.gzipped = gzipped;
+			this.deflated = deflated;
+
+			size = bytes.length + (gzipped == null ? 0 : gzipped.length) +
+				(deflated == null ? 0 : deflated.length);
+		}
+
+		/**
+		 * @return the original bytes
+		 */
+		public byte[] getBytes()
+		{
+			return bytes;
+		}
+
+		/**
+		 * Gets the bytes in a content encoding.
+		 *
+		 * @param encoding
+		 *            {@value #GZIP} or {@value #DEFLATE}
+		 * @return the encoded bytes, {@code null} if not available
+		 */
+		public byte[] getBytes(String encoding)
+		{
+			if (GZIP.equals(encoding))
+			{
+				return gzipped;
+			}
+			else if (DEFLATE.equals(encoding))
+			{
+				return deflated;
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the content encoding accepted by a client. {@value #GZIP} is preferred, since
+		 * clients and proxies handle {@value #DEFLATE} inconsistently.
+		 *
+		 * @param acceptEncoding
+		 *            the value of the {@code Accept-Encoding} header, may be {@code null}
+		 * @return {@value #GZIP}, {@value #DEFLATE} or {@code null} for the original bytes
+		 */
+		public String getPreferredEncoding(String acceptEncoding)
+		{
+			if (Strings.isEmpty(acceptEncoding))
+			{
+				return null;
+			}
+
+			if (gzipped != null && isAccepted(acceptEncoding, GZIP))
+			{
+				return GZIP;
+			}
+			if (deflated != null && isAccepted(acceptEncoding, DEFLATE))
+			{
+				return DEFLATE;
+			}
+			return null;
+		}
+
+		private static boolean isAccepted(String acceptEncoding, String encoding)
+		{
+			boolean accepted = false;
+			for (String coding : Strings.split(acceptEncoding, ','))
+			{
+				String[] parameters = Strings.split(coding, ';');
+				String name = parameters[0].trim();
+				if (name.equalsIgnoreCase(encoding))
+				{
+					// an explicit coding overrides the wildcard
+					return isAcceptable(parameters);
+				}
+				else if ("*".equals(name))
+				{
+					accepted = isAcceptable(parameters);
+				}
+			}
+			return accepted;
+		}
+
+		private static boolean isAcceptable(String[] parameters)
+		{
+			for (int i = 1; i < parameters.length; i++)
+			{
+				String parameter = parameters[i].trim();
+				if (parameter.startsWith("q="))
+				{
+					try
+					{
+						return Double.parseDouble(parameter.substring(2)) > 0;
+					}
+					catch (NumberFormatException ex)
+					{
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return whether the bytes are available in any content encoding
+		 */
+		public boolean isCompressed()
+		{
+			return gzipped != null || deflated != null;
+		}
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.request.Response;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A buffer for text which is encoded to bytes as soon as it is appended.
+ * <p>
+ * The bytes are kept in fixed size chunks, so neither a {@link String} of the whole text nor a
+ * contiguous byte array is ever created. The buffered bytes are written chunk by chunk to an
+ * {@link OutputStream}, a {@link WritableByteChannel} or a {@link Response}.
+ * </p>
+ * <p>
+ * Chunks are taken from a pool shared by all buffers, which holds at most
+ * {@value #MAX_POOLED_CHUNKS} chunks. A buffer returns its chunks to the pool on {@link #clear()}
+ * only, buffers which are simply dropped leave their chunks to the garbage collector.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public class EncodedTextBuffer
+{
+	/**
+	 * The size of a chunk
+	 */
+	public static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * The maximum number of chunks kept in the pool
+	 */
+	public static final int MAX_POOLED_CHUNKS = 256;
+
+	private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<>();
+
+	private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+	private final Charset charset;
+
+	private final CharsetEncoder encoder;
+
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+
+	/** the chunk appended to, always the last one */
+	private ByteBuffer current;
+
+	/** a high surrogate at the end of the last appended text, waiting for its low surrogate */
+	private char pendingSurrogate;
+
+	private long length;
+
+	/**
+	 * Construct.
+	 *
+	 * @param charset
+	 *            the charset to encode the text with
+	 */
+	public EncodedTextBuffer(final Charset charset)
+	{
+		this.charset = Args.notNull(charset, "charset");
+
+		encoder = charset.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * @return the charset the text is encoded with
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * Encodes and appends the given text.
+	 *
+	 * @param text
+	 *            the text to append
+	 * @return {@code this} for chaining
+	 */
+	public EncodedTextBuffer append(final CharSequence text)
+	{
+		if (text == null || text.length() == 0)
+		{
+			return this;
+		}
+
+		int start = 0;
+		if (pendingSurrogate != 0)
+		{
+			char[] pair = { pendingSurrogate, text.charAt(0) };
+			pendingSurrogate = 0;
+			encode(CharBuffer.wrap(pair), false);
+			start = 1;
+		}
+
+		CharBuffer in = CharBuffer.wrap(text, start, text.length());
+		encode(in, false);
+		if (in.hasRemaining())
+		{
+			// the encoder waits for the low surrogate of a pair
+			pendingSurrogate = in.get();
+		}
+		return this;
+	}
+
+	/**
+	 * Appends text which is encoded with this buffer's charset already.
+	 *
+	 * @param bytes
+	 *            the encoded text
+	 * @return {@code this} for chaining
+	 */
+	public EncodedTextBuffer append(final byte[] bytes)
+	{
+		complete();
+
+		int position = 0;
+		while (position < bytes.length)
+		{
+			if (current == null || current.hasRemaining() == false)
+			{
+				addChunk();
+			}
+
+			int count = Math.min(current.remaining(), bytes.length - position);
+			current.put(bytes, position, count);
+			position += count;
+		}
+		length += bytes.length;
+		return this;
+	}
+
+	private void encode(final CharBuffer in, final boolean endOfInput)
+	{
+		if (current == null)
+		{
+			addChunk();
+		}
+
+		while (true)
+		{
+			int position = current.position();
+			CoderResult result = encoder.encode(in, current, endOfInput);
+			length += current.position() - position;
+
+			if (result.isUnderflow())
+			{
+				break;
+			}
+
+			// the chunk is full or too small for the next character
+			addChunk();
+		}
+	}
+
+	/**
+	 * Encodes a dangling high surrogate, so all appended text is available as bytes.
+	 */
+	private void complete()
+	{
+		if (pendingSurrogate != 0)
+		{
+			char[] single = { pendingSurrogate };
+			pendingSurrogate = 0;
+			encode(CharBuffer.wrap(single), true);
+		}
+		encoder.reset();
+	}
+
+	private void addChunk()
+	{
+		byte[] chunk = POOL.poll();
+		if (chunk == null)
+		{
+			chunk = new byte[CHUNK_SIZE];
+		}
+		else
+		{
+			POOL_SIZE.decrementAndGet();
+		}
+		current = ByteBuffer.wrap(chunk);
+		chunks.add(current);
+	}
+
+	/**
+	 * @return the number of encoded bytes
+	 */
+	public long length()
+	{
+		complete();
+
+		return length;
+	}
+
+	/**
+	 * Writes the encoded bytes to the given stream.
+	 *
+	 * @param stream
+	 *            the stream to write to
+	 * @throws IOException
+	 */
+	public void writeTo(final OutputStream stream) throws IOException
+	{
+		complete();
+
+		for (ByteBuffer chunk : chunks)
+		{
+			stream.write(chunk.array(), 0, chunk.position());
+		}
+	}
+
+	/**
+	 * Writes the encoded bytes to the given channel.
+	 *
+	 * @param channel
+	 *            the channel to write to
+	 * @throws IOException
+	 */
+	public void writeTo(final WritableByteChannel channel) throws IOException
+	{
+		complete();
+
+		for (ByteBuffer chunk : chunks)
+		{
+			ByteBuffer bytes = (ByteBuffer)chunk.duplicate().flip();
+			while (bytes.hasRemaining())
+			{
+				channel.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Writes the encoded bytes to the given response.
+	 *
+	 * @param response
+	 *            the response to write to
+	 */
+	public void writeTo(final Response response)
+	{
+		complete();
+
+		for (ByteBuffer chunk : chunks)
+		{
+			response.write(chunk.array(), 0, chunk.position());
+		}
+	}
+
+	/**
+	 * Discards the buffered text and returns all chunks to the pool.
+	 */
+	public void clear()
+	{
+		for (ByteBuffer chunk : chunks)
+		{
+			if (POOL_SIZE.incrementAndGet() <= MAX_POOLED_CHUNKS)
+			{
+				POOL.offer(chunk.array());
+			}
+			else
+			{
+				POOL_SIZE.decrementAndGet();
+			}
+		}
+		chunks.clear();
+		current = null;
+		pendingSurrogate = 0;
+		length = 0;
+		encoder.reset();
+	}
+
+	/**
+	 * Decodes the buffered bytes, for callers which need the text itself.
+	 *
+	 * @return the buffered text
+	 */
+	@Override
+	public String toString()
+	{
+		complete();
+
+		byte[] bytes = new byte[(int)length];
+		int position = 0;
+		for (ByteBuffer chunk : chunks)
+		{
+			System.arraycopy(chunk.array(), 0, bytes, position, chunk.position());
+			position += chunk.position();
+		}
+		return new String(bytes, charset);
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.response;
+
+import java.nio.charset.Charset;
+
+/**
+ * A response which encodes the written text with a known charset, and thus accepts text which is
+ * encoded already.
+ * <p>
+ * This allows static markup to be encoded once only instead of on every request.
+ * </p>
+ * 
+ * @see org.apache.wicket.markup.RawMarkup#getBytes(Charset)
+ */
+public interface IEncodingResponse
+{
+	/**
+	 * @return the charset written text is encoded with, or {@code null} if the text is not encoded
+	 */
+	Charset getCharset();
+
+	/**
+	 * Writes text which is encoded with {@link #getCharset()} already.
+	 * 
+	 * @param bytes
+	 *            the encoded text
+	 */
+	void writeEncoded(byte[] bytes);
+}
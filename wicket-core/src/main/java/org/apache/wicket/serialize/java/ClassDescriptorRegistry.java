@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.wicket.AttributeModifier;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Page;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.feedback.FeedbackMessage;
+import org.apache.wicket.feedback.FeedbackMessages;
+import org.apache.wicket.markup.html.GenericWebPage;
+import org.apache.wicket.markup.html.WebComponent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.AbstractChoice;
+import org.apache.wicket.markup.html.form.AbstractTextComponent;
+import org.apache.wicket.markup.html.form.Button;
+import org.apache.wicket.markup.html.form.CheckBox;
+import org.apache.wicket.markup.html.form.DropDownChoice;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponent;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.link.AbstractLink;
+import org.apache.wicket.markup.html.link.BookmarkablePageLink;
+import org.apache.wicket.markup.html.link.ExternalLink;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.list.AbstractItem;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.list.Loop;
+import org.apache.wicket.markup.html.panel.FeedbackPanel;
+import org.apache.wicket.markup.html.panel.GenericPanel;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractPropertyModel;
+import org.apache.wicket.model.ChainingModel;
+import org.apache.wicket.model.CompoundPropertyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.model.ResourceModel;
+import org.apache.wicket.model.StringResourceModel;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * An application wide dictionary of classes, used by {@link CompactJavaSerializer} to reference
+ * classes by a small integer id instead of writing their full class descriptor.
+ * <p>
+ * The id of a class is its position in the registration order, so all nodes of a cluster (and
+ * all restarts of an application) have to register the same classes in the same order. The
+ * classes registered by default come first, applications may only append their own classes, e.g.
+ * in {@link org.apache.wicket.Application#init()}:
+ *
+ * <pre>
+ * CompactJavaSerializer serializer = new CompactJavaSerializer(getApplicationKey());
+ * serializer.getClassDescriptorRegistry().register(HomePage.class, ProductPanel.class);
+ * getFrameworkSettings().setSerializer(serializer);
+ * </pre>
+ *
+ * Classes which are not registered are written by name.
+ */
+public class ClassDescriptorRegistry
+{
+	/**
+	 * The classes registered by default. Never remove or reorder entries, new ones may only be
+	 * appended.
+	 */
+	private static final Class<?>[] DEFAULT_CLASSES = {
+			// java
+			Object[].class, String[].class, byte[].class, int[].class, long[].class,
+			Boolean.class, Byte.class, Character.class, Short.class, Integer.class, Long.class,
+			Float.class, Double.class, Number.class, Enum.class, ArrayList.class,
+			LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class, HashSet.class,
+			LinkedHashSet.class, Locale.class, Date.class,
+			// components
+			Component.class, MarkupContainer.class, WebComponent.class, WebMarkupContainer.class,
+			Page.class, WebPage.class, GenericWebPage.class, Panel.class, GenericPanel.class,
+			Label.class, Form.class, FormComponent.class, AbstractTextComponent.class,
+			TextField.class, AbstractChoice.class, DropDownChoice.class, CheckBox.class,
+			Button.class, AbstractLink.class, Link.class, BookmarkablePageLink.class,
+			ExternalLink.class, AbstractItem.class, ListView.class, ListItem.class, Loop.class,
+			FeedbackPanel.class,
+			// models
+			Model.class, LoadableDetachableModel.class, ChainingModel.class,
+			AbstractPropertyModel.class, PropertyModel.class, CompoundPropertyModel.class,
+			ResourceModel.class, StringResourceModel.class,
+			// others
+			Behavior.class, AttributeModifier.class, FeedbackMessages.class,
+			FeedbackMessage.class, PageParameters.class };
+
+	/** class names by id - 1, copied on registration so that lookups need no locking */
+	private volatile String[] classNames = new String[0];
+
+	/** ids by class name */
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct.
+	 */
+	public ClassDescriptorRegistry()
+	{
+		register(DEFAULT_CLASSES);
+	}
+
+	/**
+	 * Registers classes, appending them to the dictionary. Classes which are already registered
+	 * are ignored.
+	 *
+	 * @param classes
+	 *            the classes to register
+	 * @return {@code this} object for chaining
+	 */
+	public ClassDescriptorRegistry register(Class<?>... classes)
+	{
+		for (Class<?> cl : classes)
+		{
+			register(Args.notNull(cl, "class").getName());
+		}
+		return this;
+	}
+
+	/**
+	 * Registers a class by name, e.g. for classes which are not accessible.
+	 *
+	 * @param className
+	 *            the name of the class, as returned by {@link Class#getName()}
+	 * @return {@code this} object for chaining
+	 */
+	public synchronized ClassDescriptorRegistry register(String className)
+	{
+		Args.notEmpty(className, "className");
+		if (ids.containsKey(className) == false)
+		{
+			String[] names = Arrays.copyOf(classNames, classNames.length + 1);
+			names[names.length - 1] = className;
+			classNames = names;
+			ids.put(className, names.length);
+		}
+		return this;
+	}
+
+	/**
+	 * @param className
+	 *            the name of the class
+	 * @return the id of the class, or {@code 0} if it is not registered
+	 */
+	public int getId(String className)
+	{
+		Integer id = ids.get(className);
+		return id != null ? id : 0;
+	}
+
+	/**
+	 * @param id
+	 *            the id of a class
+	 * @return the name of the class or {@code null} if there is no class with this id
+	 */
+	public String getClassName(int id)
+	{
+		String[] names = classNames;
+		if (id < 1 || id > names.length)
+		{
+			return null;
+		}
+		return names[id - 1];
+	}
+
+	/**
+	 * @return the number of registered classes
+	 */
+	public int size()
+	{
+		return classNames.length;
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A {@link JavaSerializer} that does not write the full class descriptors into the serialized
+ * data. Classes known by the {@link ClassDescriptorRegistry} are referenced by their id, all other
+ * classes by their name only. Together with the serialVersionUID this is enough to find the local
+ * class descriptor when deserializing.
+ * <p>
+ * For typical pages the class descriptors are a large part of the serialized bytes, so this
+ * serializer produces considerably smaller pages. The price is that the data can only be read by
+ * nodes with the same registry and the same versions of the classes, which is the case for
+ * pages stored by the page store or replicated in a cluster of identical nodes.
+ * </p>
+ * <p>
+ * To use this serializer, put the following code in your application's init:
+ *
+ * <pre>
+ * getFrameworkSettings().setSerializer(new CompactJavaSerializer(getApplicationKey()));
+ * </pre>
+ *
+ * @see ClassDescriptorRegistry
+ */
+public class CompactJavaSerializer extends JavaSerializer
+{
+	private final ClassDescriptorRegistry registry;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *      the name of the application
+	 */
+	public CompactJavaSerializer(String applicationKey)
+	{
+		this(applicationKey, new ClassDescriptorRegistry());
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *      the name of the application
+	 * @param registry
+	 *      the dictionary of classes
+	 */
+	public CompactJavaSerializer(String applicationKey, ClassDescriptorRegistry registry)
+	{
+		super(applicationKey);
+		this.registry = Args.notNull(registry, "registry");
+	}
+
+	/**
+	 * @return the dictionary of classes
+	 */
+	public ClassDescriptorRegistry getClassDescriptorRegistry()
+	{
+		return registry;
+	}
+
+	@Override
+	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
+	{
+		return new SerializationCheckerObjectOutputStream(out,
+			new CompactObjectOutputStream(out, registry));
+	}
+
+	@Override
+	protected ObjectInputStream newObjectInputStream(InputStream in) throws IOException
+	{
+		return new CompactObjectInputStream(in, registry);
+	}
+
+	/**
+	 * Writes the class id (or {@code 0} followed by the class name) and the serialVersionUID
+	 * instead of the class descriptor.
+	 */
+	private static class CompactObjectOutputStream extends ObjectOutputStream
+	{
+		private final ClassDescriptorRegistry registry;
+
+		private CompactObjectOutputStream(OutputStream out, ClassDescriptorRegistry registry)
+			throws IOException
+		{
+			super(out);
+			this.registry = registry;
+		}
+
+		@Override
+		protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException
+		{
+			String name = desc.getName();
+			int id = registry.getId(name);
+
+			// variable length, so the ids of the first 127 classes take a single byte
+			int value = id;
+			while ((value & ~0x7F) != 0)
+			{
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+
+			if (id == 0)
+			{
+				writeUTF(name);
+			}
+			writeLong(desc.getSerialVersionUID());
+		}
+	}
+
+	/**
+	 * Reads what {@link CompactObjectOutputStream} wrote and uses the local class descriptor.
+	 */
+	private static class CompactObjectInputStream extends ClassResolverObjectInputStream
+	{
+		private final ClassDescriptorRegistry registry;
+
+		private CompactObjectInputStream(InputStream in, ClassDescriptorRegistry registry)
+			throws IOException
+		{
+			super(in);
+			this.registry = registry;
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException,
+			ClassNotFoundException
+		{
+			int id = 0;
+			int shift = 0;
+			int b;
+			do
+			{
+				b = readUnsignedByte();
+				id |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+
+			String name;
+			if (id == 0)
+			{
+				name = readUTF();
+			}
+			else
+			{
+				name = registry.getClassName(id);
+				if (name == null)
+				{
+					throw new InvalidClassException("Unknown class id " + id +
+						". Is the same ClassDescriptorRegistry used for serialization and deserialization?");
+				}
+			}
+			long serialVersionUID = readLong();
+
+			Class<?> cl = resolveClassByName(name, getClassLoader());
+			ObjectStreamClass desc = ObjectStreamClass.lookupAny(cl);
+			if (desc.getSerialVersionUID() != serialVersionUID)
+			{
+				throw new InvalidClassException(name,
+					"local class incompatible: stream classdesc serialVersionUID = " +
+						serialVersionUID + ", local class serialVersionUID = " +
+						desc.getSerialVersionUID());
+			}
+			return desc;
+		}
+
+		private static ClassLoader getClassLoader()
+		{
+			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+			return classLoader != null ? classLoader : CompactJavaSerializer.class.getClassLoader();
+		}
+	}
+}
@@ -38,12 +38,25 @@ import java.util.zip.InflaterInputStream;
  * getFrameworkSettings().setSerializer(new DeflatedJavaSerializer(getApplicationKey()));
  * </pre>
  * 
+ * When {@link #setMaxRetainedBufferSize(org.apache.wicket.util.lang.Bytes) buffers are reused},
+ * each thread also reuses its {@code Deflater} and {@code Inflater}.
+ * 
  * @author papegaaij
  */
 public class DeflatedJavaSerializer extends JavaSerializer
 {
 	private static final int COMPRESS_BUF_SIZE = 4 * 1024;
 
+	/**
+	 * The deflater of the current thread, reused when {@link #isReusingBuffers()}
+	 */
+	private final ThreadLocal<Deflater> deflaters = new ThreadLocal<>();
+
+	/**
+	 * The inflater of the current thread, reused when {@link #isReusingBuffers()}
+	 */
+	private final ThreadLocal<Inflater> inflaters = new ThreadLocal<>();
+
 	/**
 	 * Construct.
 	 * 
@@ -57,8 +70,23 @@ public class DeflatedJavaSerializer extends JavaSerializer
 	@Override
 	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
 	{
-		return super.newObjectOutputStream(new DeflaterOutputStream(out, createDeflater(),
-			COMPRESS_BUF_SIZE));
+		final Deflater deflater = takeDeflater();
+		return super.newObjectOutputStream(new DeflaterOutputStream(out, deflater,
+			COMPRESS_BUF_SIZE)
+		{
+			@Override
+			public void close() throws IOException
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					releaseDeflater(deflater);
+				}
+			}
+		});
 	}
 
 	/**
@@ -72,10 +100,86 @@ public class DeflatedJavaSerializer extends JavaSerializer
 		return new Deflater(Deflater.BEST_SPEED);
 	}
 
+	/**
+	 * Creates the {@code Inflater}.
+	 * 
+	 * @return the {@code Inflater}
+	 */
+	protected Inflater createInflater()
+	{
+		return new Inflater();
+	}
+
 	@Override
 	protected ObjectInputStream newObjectInputStream(InputStream in) throws IOException
 	{
-		return super.newObjectInputStream(new InflaterInputStream(in, new Inflater(),
-			COMPRESS_BUF_SIZE));
+		final Inflater inflater = takeInflater();
+		return super.newObjectInputStream(new InflaterInputStream(in, inflater, COMPRESS_BUF_SIZE)
+		{
+			@Override
+			public void close() throws IOException
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					releaseInflater(inflater);
+				}
+			}
+		});
+	}
+
+	private Deflater takeDeflater()
+	{
+		Deflater deflater = null;
+		if (isReusingBuffers())
+		{
+			deflater = deflaters.get();
+			// a nested serialization uses its own deflater
+			deflaters.remove();
+		}
+		return deflater != null ? deflater : createDeflater();
+	}
+
+	private void releaseDeflater(Deflater deflater)
+	{
+		if (isReusingBuffers())
+		{
+			deflater.reset();
+			deflaters.set(deflater);
+		}
+		else
+		{
+			// free the native memory right away
+			deflater.end();
+		}
+	}
+
+	private Inflater takeInflater()
+	{
+		Inflater inflater = null;
+		if (isReusingBuffers())
+		{
+			inflater = inflaters.get();
+			// a nested deserialization uses its own inflater
+			inflaters.remove();
+		}
+		return inflater != null ? inflater : createInflater();
+	}
+
+	private void releaseInflater(Inflater inflater)
+	{
+		if (isReusingBuffers())
+		{
+			inflater.reset();
+			inflaters.set(inflater);
+		}
+		else
+		{
+			// free the native memory right away
+			inflater.end();
+		}
 	}
 }
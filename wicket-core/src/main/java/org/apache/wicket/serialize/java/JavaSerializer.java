@@ -39,6 +39,8 @@ import org.apache.wicket.core.util.objects.checker.ObjectSerializationChecker;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.settings.ApplicationSettings;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,11 +54,27 @@ import org.slf4j.LoggerFactory;
 public class JavaSerializer implements ISerializer
 {
 	private static final Logger log = LoggerFactory.getLogger(JavaSerializer.class);
+
+	/**
+	 * The initial size of a reusable serialization buffer
+	 */
+	private static final int BUFFER_SIZE = 4 * 1024;
+
 	/**
 	 * The key of the application which can be used later to find the proper {@link IClassResolver}
 	 */
 	private final String applicationKey;
 
+	/**
+	 * The buffer of the current thread which is reused for the next serialization
+	 */
+	private final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<>();
+
+	/**
+	 * The maximum size of a buffer which is kept for reuse, {@code 0} disables reuse
+	 */
+	private volatile long maxRetainedBufferSize = 0;
+
 	/**
 	 * Construct.
 	 * 
@@ -68,12 +86,68 @@ public class JavaSerializer implements ISerializer
 		this.applicationKey = applicationKey;
 	}
 
+	/**
+	 * Enables the reuse of the serialization buffers. Each thread keeps its buffer for the next
+	 * serialization, unless more than the given size has been written into it.
+	 * 
+	 * @param maxRetainedBufferSize
+	 *      the maximum size of a retained buffer, {@link Bytes#bytes(long) 0 bytes} disables the
+	 *      reuse
+	 * @return {@code this} object for chaining
+	 */
+	public JavaSerializer setMaxRetainedBufferSize(final Bytes maxRetainedBufferSize)
+	{
+		this.maxRetainedBufferSize = Args.notNull(maxRetainedBufferSize, "maxRetainedBufferSize")
+			.bytes();
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if buffers are reused between serializations of the same thread
+	 */
+	protected boolean isReusingBuffers()
+	{
+		return maxRetainedBufferSize > 0;
+	}
+
+	/**
+	 * Takes the buffer of the current thread or creates a new one.
+	 * 
+	 * @return an empty buffer
+	 */
+	private ByteArrayOutputStream takeBuffer()
+	{
+		if (isReusingBuffers() == false)
+		{
+			return new ByteArrayOutputStream();
+		}
+
+		ByteArrayOutputStream out = buffers.get();
+		// a nested serialization uses its own buffer
+		buffers.remove();
+		return out != null ? out : new ByteArrayOutputStream(BUFFER_SIZE);
+	}
+
+	/**
+	 * Keeps the buffer for the next serialization of the current thread, if it is not too large.
+	 * 
+	 * @param out
+	 */
+	private void releaseBuffer(final ByteArrayOutputStream out)
+	{
+		if (isReusingBuffers() && out.size() <= maxRetainedBufferSize)
+		{
+			out.reset();
+			buffers.set(out);
+		}
+	}
+
 	@Override
 	public byte[] serialize(final Object object)
 	{
 		try
 		{
-			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final ByteArrayOutputStream out = takeBuffer();
 			ObjectOutputStream oos = null;
 			try
 			{
@@ -92,7 +166,9 @@ public class JavaSerializer implements ISerializer
 					out.close();
 				}
 			}
-			return out.toByteArray();
+			byte[] data = out.toByteArray();
+			releaseBuffer(out);
+			return data;
 		}
 		catch (Exception e)
 		{
@@ -179,7 +255,7 @@ public class JavaSerializer implements ISerializer
 	/**
 	 * Extend {@link ObjectInputStream} to add framework class resolution logic.
 	 */
-	private static class ClassResolverObjectInputStream extends ObjectInputStream
+	static class ClassResolverObjectInputStream extends ObjectInputStream
 	{
 		public ClassResolverObjectInputStream(InputStream in) throws IOException
 		{
@@ -215,7 +291,7 @@ public class JavaSerializer implements ISerializer
 		 * resolves a class by name, first using the default Class.forName, but looking in the
 		 * Wicket ClassResolvers as well.
 		 */
-		private Class<?> resolveClassByName(String className, ClassLoader latestUserDefined)
+		Class<?> resolveClassByName(String className, ClassLoader latestUserDefined)
 			throws ClassNotFoundException
 		{
 			try
@@ -348,16 +424,22 @@ public class JavaSerializer implements ISerializer
 	 *     This is done so to save some CPU time to make the checks for no reason.
 	 * </p>
 	 */
-	private static class SerializationCheckerObjectOutputStream extends ObjectOutputStream
+	static class SerializationCheckerObjectOutputStream extends ObjectOutputStream
 	{
 		private final OutputStream outputStream;
 
 		private final ObjectOutputStream oos;
 
 		private SerializationCheckerObjectOutputStream(OutputStream outputStream) throws IOException
+		{
+			this(outputStream, new ObjectOutputStream(outputStream));
+		}
+
+		SerializationCheckerObjectOutputStream(OutputStream outputStream, ObjectOutputStream oos)
+			throws IOException
 		{
 			this.outputStream = outputStream;
-			oos = new ObjectOutputStream(outputStream);
+			this.oos = oos;
 		}
 
 		@Override
@@ -19,7 +19,9 @@ package org.apache.wicket.settings;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
+import org.apache.wicket.page.IPageLockMetrics;
 import org.apache.wicket.response.filter.IResponseFilter;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.time.Duration;
@@ -141,6 +143,18 @@ public class RequestCycleSettings
 	/** True if the response should be buffered */
 	private boolean bufferResponse = true;
 
+	/** True if buffered pages should be kept as encoded bytes */
+	private boolean encodeBufferedResponse = false;
+
+	/** True if Ajax responses should be written without buffering them as a whole */
+	private boolean streamAjaxResponse = false;
+
+	/** True if preloadable models should be loaded before the components are prepared for render */
+	private boolean preloadModels = false;
+
+	/** True if components with unchanged markup should be left out of Ajax responses */
+	private boolean skipUnchangedAjaxUpdates = false;
+
 	/**
 	 * Whether Wicket should try to get extensive client info by redirecting to
 	 * {@link org.apache.wicket.markup.html.pages.BrowserInfoPage a page that polls for client
@@ -171,6 +185,18 @@ public class RequestCycleSettings
 	 */
 	private Duration timeout = Duration.ONE_MINUTE;
 
+	/**
+	 * The time a request may expect to wait for the lock of a page, before it gives up without
+	 * waiting. Disabled by default.
+	 */
+	private Duration pageLockWaitBudget;
+
+	/** Receives measurements of waits for and holds of page locks. */
+	private IPageLockMetrics pageLockMetrics;
+
+	/** The executor for regions rendered in parallel, may be null */
+	private Executor parallelRenderExecutor;
+
 	private int exceptionRetryCount = 10;
 
 // ****************************************************************************
@@ -207,6 +233,52 @@ public class RequestCycleSettings
 		return bufferResponse;
 	}
 
+	/**
+	 * Decides whether rendered pages are buffered as bytes in the response encoding.
+	 *
+	 * @return {@code true} if buffered pages are encoded while they are rendered
+	 * @see #setEncodeBufferedResponse(boolean)
+	 */
+	public boolean getEncodeBufferedResponse()
+	{
+		return encodeBufferedResponse;
+	}
+
+	/**
+	 * Decides whether Ajax responses are written to the container's response while they are
+	 * rendered.
+	 *
+	 * @return {@code true} if Ajax responses are streamed
+	 * @see #setStreamAjaxResponse(boolean)
+	 */
+	public boolean getStreamAjaxResponse()
+	{
+		return streamAjaxResponse;
+	}
+
+	/**
+	 * Decides whether preloadable models are loaded before the components are prepared for
+	 * render.
+	 *
+	 * @return {@code true} if models are preloaded
+	 * @see #setPreloadModels(boolean)
+	 */
+	public boolean getPreloadModels()
+	{
+		return preloadModels;
+	}
+
+	/**
+	 * Decides whether components with unchanged markup are left out of Ajax responses.
+	 *
+	 * @return {@code true} if unchanged components are skipped
+	 * @see #setSkipUnchangedAjaxUpdates(boolean)
+	 */
+	public boolean getSkipUnchangedAjaxUpdates()
+	{
+		return skipUnchangedAjaxUpdates;
+	}
+
 	/**
 	 * Gets whether Wicket should try to get extensive client info by redirecting to
 	 * {@link org.apache.wicket.markup.html.pages.BrowserInfoPage a page that polls for client capabilities}. This method is used by the
@@ -281,6 +353,39 @@ public class RequestCycleSettings
 		return timeout;
 	}
 
+	/**
+	 * Gets the time a request may expect to wait for the lock of a page.
+	 *
+	 * @return the budget or {@code null} if requests always wait up to the {@link #getTimeout()
+	 *         timeout}
+	 * @see #setPageLockWaitBudget(Duration)
+	 */
+	public Duration getPageLockWaitBudget()
+	{
+		return pageLockWaitBudget;
+	}
+
+	/**
+	 * Gets the metrics receiving measurements of page locks.
+	 *
+	 * @return the metrics or {@code null}
+	 */
+	public IPageLockMetrics getPageLockMetrics()
+	{
+		return pageLockMetrics;
+	}
+
+	/**
+	 * Gets the executor for regions rendered in parallel.
+	 *
+	 * @return the executor or {@code null}
+	 * @see #setParallelRenderExecutor(Executor)
+	 */
+	public Executor getParallelRenderExecutor()
+	{
+		return parallelRenderExecutor;
+	}
+
 	/**
 	 * Sets a flag whether the application should buffer the response's headers until the end
 	 * of the request processing. The buffering is needed if the application makes use of
@@ -297,6 +402,92 @@ public class RequestCycleSettings
 		return this;
 	}
 
+	/**
+	 * Sets a flag whether pages rendered into a
+	 * {@link org.apache.wicket.protocol.http.BufferedWebResponse} should be encoded to the
+	 * {@link #getResponseRequestEncoding() response encoding} while they are rendered. The encoded
+	 * bytes are kept in pooled chunks and are written to the servlet's output stream as they are,
+	 * which saves copying the markup for large pages and for responses stored for
+	 * {@link RenderStrategy#REDIRECT_TO_BUFFER}.
+	 * <p>
+	 * Note that the page is written as binary data then, so nothing may be written as text to the
+	 * container's response afterwards.
+	 * </p>
+	 *
+	 * @param encodeBufferedResponse
+	 *            {@code true} if buffered pages should be encoded while they are rendered
+	 * @return {@code this} object for chaining
+	 */
+	public RequestCycleSettings setEncodeBufferedResponse(boolean encodeBufferedResponse)
+	{
+		this.encodeBufferedResponse = encodeBufferedResponse;
+		return this;
+	}
+
+	/**
+	 * Sets a flag whether Ajax responses should be written to the container's response while they
+	 * are rendered, instead of buffering the whole response first. Each component is still
+	 * rendered into a buffer, but its section is written as soon as the component is completed.
+	 * Thus large updates start arriving at the client sooner and need less memory.
+	 * <p>
+	 * Note that an exception while rendering a component can no longer replace the parts of the
+	 * response which are already written, and headers or cookies set by later components might
+	 * not make it into the response. Streaming is not possible with
+	 * {@link #addResponseFilter(IResponseFilter) response filters}, because these need the whole
+	 * response.
+	 * </p>
+	 *
+	 * @param streamAjaxResponse
+	 *            {@code true} if Ajax responses should be streamed
+	 * @return {@code this} object for chaining
+	 */
+	public RequestCycleSettings setStreamAjaxResponse(boolean streamAjaxResponse)
+	{
+		this.streamAjaxResponse = streamAjaxResponse;
+		return this;
+	}
+
+	/**
+	 * Sets a flag whether the {@link org.apache.wicket.model.IPreloadableModel preloadable models}
+	 * of the rendered components should be loaded before the components are prepared for render.
+	 * The loads of all models are started together and can run concurrently, or can be batched
+	 * with a {@link org.apache.wicket.model.BulkLoader}, instead of one after another when the
+	 * models are accessed first.
+	 *
+	 * @param preloadModels
+	 *            {@code true} if models should be preloaded
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.model.ModelPreloader
+	 */
+	public RequestCycleSettings setPreloadModels(boolean preloadModels)
+	{
+		this.preloadModels = preloadModels;
+		return this;
+	}
+
+	/**
+	 * Sets a flag whether components added to an Ajax response are left out, if their markup is
+	 * the same as the one written for them last in an Ajax response for the page. This saves
+	 * bandwidth for components which are updated periodically, e.g. by an
+	 * {@link org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior}, but do not change on most
+	 * updates.
+	 * <p>
+	 * The markup is remembered as a hash per markup id with the page, until the page is rendered
+	 * completely again. The scripts contributed by a left out component are not written either,
+	 * since its elements on the client are not replaced. Do not use this if client side scripts
+	 * modify the elements of components and rely on Ajax updates to restore them.
+	 * </p>
+	 *
+	 * @param skipUnchangedAjaxUpdates
+	 *            {@code true} if unchanged components should be skipped
+	 * @return {@code this} object for chaining
+	 */
+	public RequestCycleSettings setSkipUnchangedAjaxUpdates(boolean skipUnchangedAjaxUpdates)
+	{
+		this.skipUnchangedAjaxUpdates = skipUnchangedAjaxUpdates;
+		return this;
+	}
+
 	/**
 	 * Sets whether Wicket should try to get extensive client info by redirecting to
 	 * {@link org.apache.wicket.markup.html.pages.BrowserInfoPage a page that polls for client capabilities}. This method is used by the
@@ -397,6 +588,64 @@ public class RequestCycleSettings
 		return this;
 	}
 
+	/**
+	 * Sets the time a request may expect to wait for the lock of a page. A request which expects
+	 * to wait longer fails immediately with a
+	 * {@link org.apache.wicket.page.CouldNotLockPageException}, instead of tying up its thread
+	 * until the {@link #setTimeout(Duration) timeout}.
+	 * <p>
+	 * The expected wait is estimated from the average time the pages of the session are held
+	 * locked, the time the current holder has held the lock already and the number of requests
+	 * waiting before.
+	 * </p>
+	 *
+	 * @param pageLockWaitBudget
+	 *            the budget or {@code null} to always wait up to the timeout
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.page.PageAccessSynchronizer
+	 */
+	public RequestCycleSettings setPageLockWaitBudget(Duration pageLockWaitBudget)
+	{
+		this.pageLockWaitBudget = pageLockWaitBudget;
+		return this;
+	}
+
+	/**
+	 * Sets the metrics receiving measurements of waits for and holds of page locks.
+	 *
+	 * @param pageLockMetrics
+	 *            the metrics or {@code null}
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.page.PageLockStatistics
+	 */
+	public RequestCycleSettings setPageLockMetrics(IPageLockMetrics pageLockMetrics)
+	{
+		this.pageLockMetrics = pageLockMetrics;
+		return this;
+	}
+
+	/**
+	 * Sets the executor rendering the regions of a page with a
+	 * {@link org.apache.wicket.behavior.ParallelRenderBehavior}. Regions may wait for backend
+	 * calls, so this should be an executor of its own with a bounded number of threads, which the
+	 * application shuts down when it is destroyed. A region that the executor has not started when
+	 * the request reaches it is rendered on the request thread.
+	 *
+	 * <pre>
+	 * ExecutorService executor = Executors.newFixedThreadPool(16);
+	 * getRequestCycleSettings().setParallelRenderExecutor(executor);
+	 * </pre>
+	 *
+	 * @param parallelRenderExecutor
+	 *            the executor or {@code null} to render all regions on the request thread
+	 * @return {@code this} object for chaining
+	 */
+	public RequestCycleSettings setParallelRenderExecutor(Executor parallelRenderExecutor)
+	{
+		this.parallelRenderExecutor = parallelRenderExecutor;
+		return this;
+	}
+
 	/**
 	 * Sets how many attempts Wicket will make to render the exception request handler before
 	 *         giving up.
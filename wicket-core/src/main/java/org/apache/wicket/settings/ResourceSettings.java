@@ -35,6 +35,7 @@ import org.apache.wicket.markup.head.ResourceAggregator.RecordedHeaderItem;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.SecurePackageResourceGuard;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.PackageResourceCache;
 import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.NoOpResourceCachingStrategy;
@@ -173,6 +174,9 @@ public class ResourceSettings implements IPropertiesFactoryContext
 
 	private boolean encodeJSessionId = false;
 
+	/** The cache of package resources, may be null */
+	private PackageResourceCache packageResourceCache;
+
 	/**
 	 * Configures Wicket's default ResourceLoaders.<br>
 	 * For an example in {@code FooApplication} let {@code bar.Foo} extend {@link Component}, this
@@ -767,4 +771,28 @@ public class ResourceSettings implements IPropertiesFactoryContext
 		this.encodeJSessionId = encodeJSessionId;
 		return this;
 	}
+
+	/**
+	 * Gets the cache of processed and compressed package resources.
+	 *
+	 * @return the cache or {@code null} if package resources are not cached
+	 */
+	public PackageResourceCache getPackageResourceCache()
+	{
+		return packageResourceCache;
+	}
+
+	/**
+	 * Sets the cache of processed and compressed package resources. Cached resources are not read
+	 * and processed again, until their last modification time changes.
+	 *
+	 * @param packageResourceCache
+	 *            the cache or {@code null} to not cache package resources
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setPackageResourceCache(PackageResourceCache packageResourceCache)
+	{
+		this.packageResourceCache = packageResourceCache;
+		return this;
+	}
 }
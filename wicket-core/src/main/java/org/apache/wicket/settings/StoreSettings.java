@@ -24,6 +24,7 @@ import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
 
 /**
  * A class for settings related to the the storages where page instances are persisted -
@@ -48,16 +49,38 @@ public class StoreSettings
 
 	private static final Bytes DEFAULT_MAX_SIZE_PER_SESSION = Bytes.megabytes(10);
 
+	private static final Bytes DEFAULT_OFF_HEAP_CACHE_SIZE = Bytes.bytes(0);
+
 	private static final int DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY = 100;
 
+	private static final int DEFAULT_ASYNCHRONOUS_WORKER_COUNT = 1;
+
+	private static final int DEFAULT_DELTA_SNAPSHOT_INTERVAL = 0;
+
+	private static final int DEFAULT_PREFETCH_COUNT = 0;
+
+	private static final Duration DEFAULT_PREFETCH_IDLE_TIME = Duration.ONE_MINUTE;
+
 	private int inmemoryCacheSize = DEFAULT_CACHE_SIZE;
 
 	private Bytes maxSizePerSession = DEFAULT_MAX_SIZE_PER_SESSION;
 
+	private Bytes offHeapCacheSize = DEFAULT_OFF_HEAP_CACHE_SIZE;
+
 	private File fileStoreFolder = null;
 
 	private int asynchronousQueueCapacity = DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY;
 
+	private int asynchronousWorkerCount = DEFAULT_ASYNCHRONOUS_WORKER_COUNT;
+
+	private int deltaSnapshotInterval = DEFAULT_DELTA_SNAPSHOT_INTERVAL;
+
+	private boolean dictionaryCompression = false;
+
+	private int prefetchCount = DEFAULT_PREFETCH_COUNT;
+
+	private Duration prefetchIdleTime = DEFAULT_PREFETCH_IDLE_TIME;
+
 	private boolean isAsynchronous = true;
 
 	/**
@@ -93,6 +116,31 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the maximum number of bytes of serialized pages cached outside of the Java heap
+	 * @see org.apache.wicket.pageStore.OffHeapPageCache
+	 */
+	public Bytes getOffHeapCacheSize()
+	{
+		return offHeapCacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of bytes of serialized pages which are cached outside of the Java heap
+	 * for all sessions. When set, this cache replaces the in-memory cache of live page instances
+	 * and the least recently used pages are evicted once the budget is reached.
+	 *
+	 * @param offHeapCacheSize
+	 *            the maximum size of the cache, {@code 0} to disable it (default)
+	 * @see org.apache.wicket.pageStore.OffHeapPageCache
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setOffHeapCacheSize(final Bytes offHeapCacheSize)
+	{
+		this.offHeapCacheSize = Args.notNull(offHeapCacheSize, "offHeapCacheSize");
+		return this;
+	}
+
 	/**
 	 * @return maximum page size. After this size is exceeded,
 	 * the {@link org.apache.wicket.pageStore.DiskDataStore} will start saving the
@@ -192,6 +240,149 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the number of threads which store the pages asynchronously
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 */
+	public int getAsynchronousWorkerCount()
+	{
+		return asynchronousWorkerCount;
+	}
+
+	/**
+	 * Sets the number of threads which store the pages asynchronously. The pages of a session are
+	 * always stored by the same thread, so more threads help only when there are many active
+	 * sessions. Note that the configured {@link org.apache.wicket.pageStore.IDataStore} has to
+	 * support concurrent writes for more than one thread.
+	 *
+	 * @param workerCount
+	 *            the number of threads
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setAsynchronousWorkerCount(int workerCount)
+	{
+		if (workerCount < 1)
+		{
+			throw new IllegalArgumentException(
+				"The number of asynchronous workers should be at least 1.");
+		}
+		asynchronousWorkerCount = workerCount;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of pages stored as delta against the same snapshot, {@code 0} if
+	 *         pages are stored as a whole
+	 * @see org.apache.wicket.pageStore.DeltaDataStore
+	 */
+	public int getDeltaSnapshotInterval()
+	{
+		return deltaSnapshotInterval;
+	}
+
+	/**
+	 * Sets the maximum number of pages which are stored as binary delta against the same snapshot
+	 * before a new snapshot is taken. Storing deltas saves space and I/O when the versions of a
+	 * page differ only slightly, at the cost of some CPU for computing and applying the deltas.
+	 *
+	 * @param snapshotInterval
+	 *            the number of deltas per snapshot, {@code 0} to store pages as a whole (default)
+	 * @see org.apache.wicket.pageStore.DeltaDataStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setDeltaSnapshotInterval(int snapshotInterval)
+	{
+		if (snapshotInterval < 0)
+		{
+			throw new IllegalArgumentException(
+				"The delta snapshot interval should not be negative.");
+		}
+		deltaSnapshotInterval = snapshotInterval;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if the stored pages are compressed with a trained dictionary
+	 * @see org.apache.wicket.pageStore.CompressingDataStore
+	 */
+	public boolean isDictionaryCompression()
+	{
+		return dictionaryCompression;
+	}
+
+	/**
+	 * Sets whether the pages are compressed with a dictionary trained from the stored pages before
+	 * they are passed to the {@link org.apache.wicket.pageStore.IDataStore}. The dictionaries are
+	 * saved in the {@link #getFileStoreFolder() file store folder}. There is no need to use a
+	 * compressing serializer in addition.
+	 *
+	 * @param dictionaryCompression
+	 *            {@code true} to compress the pages, {@code false} otherwise (default)
+	 * @see org.apache.wicket.pageStore.CompressingDataStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setDictionaryCompression(boolean dictionaryCompression)
+	{
+		this.dictionaryCompression = dictionaryCompression;
+		return this;
+	}
+
+	/**
+	 * @return the number of recently used pages which are loaded in the background when a session
+	 *         gets active again, {@code 0} if prefetching is disabled
+	 * @see org.apache.wicket.pageStore.AbstractCachingPageStore#setPrefetch(int, Duration)
+	 */
+	public int getPrefetchCount()
+	{
+		return prefetchCount;
+	}
+
+	/**
+	 * Sets the number of recently used pages which are loaded into the second level cache in the
+	 * background when a session gets active again after being idle. When enabled, the previously
+	 * used page is loaded as well whenever a new page is stored, so that going back does not wait
+	 * for the {@link org.apache.wicket.pageStore.IDataStore}. Prefetching requires a second level
+	 * cache, see {@link #setInmemoryCacheSize(int)} and {@link #setOffHeapCacheSize(Bytes)}.
+	 *
+	 * @param prefetchCount
+	 *            the number of pages, {@code 0} to disable prefetching (default)
+	 * @see org.apache.wicket.pageStore.AbstractCachingPageStore#setPrefetch(int, Duration)
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setPrefetchCount(int prefetchCount)
+	{
+		if (prefetchCount < 0)
+		{
+			throw new IllegalArgumentException("The prefetch count should not be negative.");
+		}
+		this.prefetchCount = prefetchCount;
+		return this;
+	}
+
+	/**
+	 * @return the time after which a session is considered idle
+	 */
+	public Duration getPrefetchIdleTime()
+	{
+		return prefetchIdleTime;
+	}
+
+	/**
+	 * Sets the time after which a session is considered idle, i.e. its recently used pages are
+	 * prefetched on the next request.
+	 *
+	 * @param prefetchIdleTime
+	 *            the idle time
+	 * @see #setPrefetchCount(int)
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setPrefetchIdleTime(Duration prefetchIdleTime)
+	{
+		this.prefetchIdleTime = Args.notNull(prefetchIdleTime, "prefetchIdleTime");
+		return this;
+	}
+
 	/**
 	 * Sets a flag whether to wrap the configured {@link org.apache.wicket.pageStore.IDataStore} with
 	 * {@link org.apache.wicket.pageStore.AsynchronousDataStore}. By doing this the HTTP worker thread will not wait for the
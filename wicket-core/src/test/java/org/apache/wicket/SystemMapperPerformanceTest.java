@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket;
+
+import org.apache.wicket.core.request.handler.BookmarkablePageRequestHandler;
+import org.apache.wicket.core.request.handler.PageProvider;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.link.BookmarkablePageLink;
+import org.apache.wicket.markup.repeater.RepeatingView;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.util.SlowTests;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Compares rendering a page with many links with and without the mappings remembered by
+ * {@link SystemMapper}.
+ */
+@Category(SlowTests.class)
+public class SystemMapperPerformanceTest extends Assert
+{
+	private static final int MOUNTS = 100;
+
+	private static final int LINKS = 500;
+
+	/**
+	 * Renders the page with both mappers.
+	 */
+	@Test
+	public void performance()
+	{
+		final int warmup = 30;
+		final int performance = 100;
+
+		String searched = run(false, warmup, performance);
+		String remembered = run(true, warmup, performance);
+
+		assertEquals(searched, remembered);
+	}
+
+	private String run(boolean remember, int warmup, int performance)
+	{
+		WicketTester tester = new WicketTester(new LinksApplication(remember));
+		try
+		{
+			for (int i = 0; i < warmup; i++)
+			{
+				tester.startPage(LinksPage.class);
+			}
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < performance; i++)
+			{
+				tester.startPage(LinksPage.class);
+			}
+			long duration = System.currentTimeMillis() - start;
+
+			System.out.println((remember ? "remembered" : "searched") + " mappings: " + duration +
+				"ms for " + performance + " pages with " + LINKS + " links");
+
+			IRequestMapper mapper = tester.getApplication().getRootRequestMapper();
+			IRequestHandler[] handlers = {
+					new BookmarkablePageRequestHandler(new PageProvider(MyPage1.class,
+						new PageParameters().set("id", 1))),
+					new BookmarkablePageRequestHandler(new PageProvider(MyPage4.class)),
+					new ResourceReferenceRequestHandler(new PackageResourceReference(
+						SystemMapperPerformanceTest.class, "r" + (MOUNTS - 1))) };
+			start = System.currentTimeMillis();
+			for (int i = 0; i < performance * LINKS; i++)
+			{
+				mapper.mapHandler(handlers[i % handlers.length]);
+			}
+			duration = System.currentTimeMillis() - start;
+
+			System.out.println((remember ? "remembered" : "searched") + " mappings: " + duration +
+				"ms for " + performance * LINKS + " urls");
+
+			return tester.getLastResponseAsString();
+		}
+		finally
+		{
+			tester.destroy();
+		}
+	}
+
+	private static class LinksApplication extends MockApplication
+	{
+		private final boolean remember;
+
+		private LinksApplication(boolean remember)
+		{
+			this.remember = remember;
+		}
+
+		@Override
+		protected void init()
+		{
+			super.init();
+
+			if (remember == false)
+			{
+				setRootRequestMapper(new SystemMapper(this)
+				{
+					@Override
+					protected Object getMappingKey(IRequestHandler handler)
+					{
+						return null;
+					}
+				});
+			}
+
+			for (int i = 0; i < MOUNTS; i++)
+			{
+				mountResource("resource" + i,
+					new PackageResourceReference(SystemMapperPerformanceTest.class, "r" + i));
+			}
+			mountPage("first/${id}", MyPage1.class);
+			mountPage("second", MyPage2.class);
+			mountPage("third/#{id}", MyPage3.class);
+		}
+	}
+
+	/**
+	 * A page with many links.
+	 */
+	public static class LinksPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 */
+		public LinksPage()
+		{
+			RepeatingView links = new RepeatingView("links");
+			add(links);
+
+			for (int i = 0; i < LINKS; i++)
+			{
+				PageParameters parameters = new PageParameters().set("id", i);
+				switch (i % 4)
+				{
+					case 0 :
+						links.add(new BookmarkablePageLink<>(links.newChildId(), MyPage1.class,
+							parameters));
+						break;
+					case 1 :
+						links.add(new BookmarkablePageLink<>(links.newChildId(), MyPage2.class,
+							parameters));
+						break;
+					case 2 :
+						links.add(new BookmarkablePageLink<>(links.newChildId(), MyPage3.class,
+							parameters));
+						break;
+					default :
+						links.add(new BookmarkablePageLink<>(links.newChildId(), MyPage4.class,
+							parameters));
+				}
+			}
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><body><a wicket:id=\"links\">link</a></body></html>");
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket;
+
+import org.apache.wicket.core.request.handler.BookmarkablePageRequestHandler;
+import org.apache.wicket.core.request.handler.PageProvider;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SystemMapper}
+ */
+public class SystemMapperTest extends WicketTestCase
+{
+	/**
+	 * The mapper of a kind of handlers is remembered until mappers change.
+	 */
+	@Test
+	public void rememberMappings()
+	{
+		tester.getApplication().mountPage("b", MockPageWithLink.class);
+		tester.getApplication().mountPage("a/${id}", MockPageWithLink.class);
+		CountingMapper counting = new CountingMapper();
+		tester.getApplication().getRootRequestMapperAsCompound().add(counting);
+
+		assertEquals("a/1", map(new PageParameters().set("id", 1)));
+		assertEquals(1, counting.count);
+		assertEquals("a/2", map(new PageParameters().set("id", 2)));
+		assertEquals(1, counting.count);
+
+		// different parameters are another kind
+		assertEquals("b", map(new PageParameters()));
+		assertEquals(2, counting.count);
+		assertEquals("a/3", map(new PageParameters().set("id", 3)));
+		assertEquals(2, counting.count);
+
+		tester.getApplication().unmount("b");
+		assertEquals("a/4", map(new PageParameters().set("id", 4)));
+		assertEquals(3, counting.count);
+		assertEquals("wicket/bookmarkable/org.apache.wicket.MockPageWithLink",
+			map(new PageParameters()));
+	}
+
+	private String map(PageParameters parameters)
+	{
+		Url url = tester.getApplication().getRootRequestMapper().mapHandler(
+			new BookmarkablePageRequestHandler(new PageProvider(MockPageWithLink.class, parameters)));
+		return url.toString();
+	}
+
+	private static class CountingMapper implements IRequestMapper
+	{
+		private int count;
+
+		@Override
+		public IRequestHandler mapRequest(Request request)
+		{
+			return null;
+		}
+
+		@Override
+		public int getCompatibilityScore(Request request)
+		{
+			return 0;
+		}
+
+		@Override
+		public Url mapHandler(IRequestHandler requestHandler)
+		{
+			count++;
+			return null;
+		}
+	}
+}
@@ -25,11 +25,13 @@ import java.util.regex.Pattern;
 import org.apache.wicket.Component;
 import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.MockPageWithLinkAndComponent;
+import org.apache.wicket.RuntimeConfigurationType;
 import org.apache.wicket.ajax.markup.html.AjaxLink;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.markup.IMarkupResourceStreamProvider;
 import org.apache.wicket.markup.html.WebComponent;
 import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.mock.MockApplication;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.StringResourceStream;
 import org.apache.wicket.util.tester.DiffUtil;
@@ -206,6 +208,34 @@ public class AjaxRequestHandlerTest extends WicketTestCase
 		}
 	}
 
+	/**
+	 * Components are written to the response while it is rendered.
+	 */
+	@Test
+	public void streamResponse()
+	{
+		tester.destroy();
+		tester = newWicketTester(new MockApplication()
+		{
+			@Override
+			public RuntimeConfigurationType getConfigurationType()
+			{
+				// without response filters
+				return RuntimeConfigurationType.DEPLOYMENT;
+			}
+		});
+		tester.getApplication().getRequestCycleSettings().setStreamAjaxResponse(true);
+
+		tester.startPage(VarargsAddComponentPage.class);
+		tester.clickLink("link");
+
+		String response = tester.getLastResponseAsString();
+		assertTrue(response.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><ajax-response>"));
+		assertTrue(response.endsWith("</ajax-response>"));
+		tester.assertLabel("label0", String.format(VarargsAddComponentPage.INITIAL_CONTENT, 0) +
+			VarargsAddComponentPage.AJAX_APPENDED_SUFFIX);
+	}
+
 	/**
 	 * Testing the default event raised whenever Wicket begins to create an AJAX response
 	 */
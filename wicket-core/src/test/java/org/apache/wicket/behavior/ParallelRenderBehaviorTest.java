@@ -0,0 +1,405 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.behavior;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.PageReference;
+import org.apache.wicket.Session;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.apache.wicket.util.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelRenderBehavior}
+ */
+public class ParallelRenderBehaviorTest extends WicketTestCase
+{
+	/** released whenever a region starts rendering on a worker */
+	private static final Semaphore RENDERING = new Semaphore(0);
+
+	private static ExecutorService pool;
+
+	/**
+	 * Renders on the pool and waits until the worker has started the region, so the request thread
+	 * never renders it itself.
+	 */
+	private static final Executor WORKER = command -> {
+		pool.execute(command);
+		try
+		{
+			assertTrue(RENDERING.tryAcquire(10, TimeUnit.SECONDS));
+		}
+		catch (InterruptedException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	};
+
+	/**
+	 * Creates the pool of workers.
+	 */
+	@Before
+	public void before()
+	{
+		RENDERING.drainPermits();
+		pool = Executors.newFixedThreadPool(2, command -> new Thread(command, "region-worker"));
+	}
+
+	/**
+	 * Shuts down the pool of workers.
+	 */
+	@After
+	public void after()
+	{
+		pool.shutdownNow();
+	}
+
+	/**
+	 * The regions are rendered by the worker and written in document order.
+	 */
+	@Test
+	public void renderOnWorker()
+	{
+		tester.startPage(new RegionsPage(new WorkerRenderBehavior(), new WorkerRenderBehavior()));
+
+		String output = tester.getLastResponseAsString();
+		int first = output.indexOf("id=\"first\"");
+		int between = output.indexOf("between");
+		int second = output.indexOf("id=\"second\"");
+		assertTrue(output, first > 0);
+		assertTrue(output, between > first);
+		assertTrue(output, second > between);
+		assertEquals(output, 2, output.split(">region-worker:true<").length - 1);
+
+		// urls are rendered by the worker
+		tester.clickLink("first:link");
+		assertEquals(1, ((RegionsPage)tester.getLastRenderedPage()).clicks);
+	}
+
+	/**
+	 * Changes of the page by a region are applied on the request thread, which holds the lock of
+	 * the page.
+	 */
+	@Test
+	public void changePage()
+	{
+		tester.getApplication().getRequestCycleSettings().setTimeout(Duration.seconds(2));
+
+		ChangingPage page = new ChangingPage();
+		tester.startPage(page);
+		tester.assertRenderedPage(ChangingPage.class);
+
+		String requestThread = Thread.currentThread().getName();
+		assertTrue(page.changes.toString(), page.changes.contains("reference:region-worker"));
+		assertTrue(page.changes.toString(), page.changes.contains("reference:" + requestThread));
+
+		// the page was touched by the request
+		assertSame(page, tester.getSession().getPageManager().getPage(page.getPageId()));
+	}
+
+	/**
+	 * A region which is not started by its executor is rendered on the request thread.
+	 */
+	@Test
+	public void renderOnRequestThread()
+	{
+		tester.startPage(new RegionsPage(new IdleRenderBehavior(), new WorkerRenderBehavior()));
+
+		String output = tester.getLastResponseAsString();
+		int between = output.indexOf("between");
+		String requestThread = Thread.currentThread().getName();
+		int first = output.indexOf(">" + requestThread + ":true<");
+		assertTrue(output, first > 0 && first < between);
+		assertTrue(output, output.indexOf(">region-worker:true<") > between);
+	}
+
+	/**
+	 * Without an executor regions are rendered on the request thread, with the executor of the
+	 * application by default.
+	 */
+	@Test
+	public void applicationExecutor()
+	{
+		tester.startPage(new RegionsPage(new ParallelRenderBehavior(), new ParallelRenderBehavior()));
+		String requestThread = Thread.currentThread().getName();
+		assertEquals(2,
+			tester.getLastResponseAsString().split(">" + requestThread + ":true<").length - 1);
+
+		tester.getApplication().getRequestCycleSettings().setParallelRenderExecutor(WORKER);
+		tester.startPage(new RegionsPage(new ParallelRenderBehavior(), new ParallelRenderBehavior()));
+		assertEquals(2, tester.getLastResponseAsString().split(">region-worker:true<").length - 1);
+	}
+
+	/**
+	 * A started region which is not written, because the render fails before, is waited for
+	 * before the page is detached.
+	 */
+	@Test
+	public void finishUnwritten()
+	{
+		FailingPage page = new FailingPage();
+		try
+		{
+			tester.startPage(page);
+			fail();
+		}
+		catch (WicketRuntimeException expected)
+		{
+			assertEquals("failed", expected.getCause().getMessage());
+		}
+		assertTrue(page.renderedBeforeDetach);
+	}
+
+	/**
+	 * Renders with {@link ParallelRenderBehaviorTest#WORKER}.
+	 */
+	private static class WorkerRenderBehavior extends ParallelRenderBehavior
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected Executor getExecutor()
+		{
+			return WORKER;
+		}
+	}
+
+	/**
+	 * Never starts the rendering.
+	 */
+	private static class IdleRenderBehavior extends ParallelRenderBehavior
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected Executor getExecutor()
+		{
+			return command -> {
+			};
+		}
+	}
+
+	/**
+	 * A page failing to render before its slow region is written.
+	 */
+	public static class FailingPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicBoolean rendered = new AtomicBoolean();
+
+		private final transient CountDownLatch started = new CountDownLatch(1);
+
+		private boolean renderedBeforeDetach;
+
+		/**
+		 * Construct.
+		 */
+		public FailingPage()
+		{
+			add(new Label("failing", (IModel<String>)() -> {
+				throw new IllegalStateException("failed");
+			}));
+
+			WebMarkupContainer region = new WebMarkupContainer("region");
+			region.add(new ParallelRenderBehavior()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected Executor getExecutor()
+				{
+					// wait for the worker, so the region is joined rather than cancelled
+					return command -> {
+						new Thread(command).start();
+						try
+						{
+							started.await(10, TimeUnit.SECONDS);
+						}
+						catch (InterruptedException e)
+						{
+							throw new IllegalStateException(e);
+						}
+					};
+				}
+			});
+			region.add(new Label("slow", (IModel<String>)() -> {
+				started.countDown();
+				try
+				{
+					Thread.sleep(200);
+				}
+				catch (InterruptedException e)
+				{
+					throw new IllegalStateException(e);
+				}
+				rendered.set(true);
+				return "slow";
+			}));
+			add(region);
+		}
+
+		@Override
+		protected void onDetach()
+		{
+			super.onDetach();
+
+			renderedBeforeDetach = rendered.get();
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><head></head><body>" +
+				"<span wicket:id=\"failing\"></span>" +
+				"<div wicket:id=\"region\"><span wicket:id=\"slow\"></span></div>" +
+				"</body></html>");
+		}
+	}
+
+	/**
+	 * A page whose first region touches the page.
+	 */
+	public static class ChangingPage extends RegionsPage
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> changes = new CopyOnWriteArrayList<>();
+
+		/**
+		 * Construct.
+		 */
+		public ChangingPage()
+		{
+			super(new WorkerRenderBehavior(), new WorkerRenderBehavior());
+
+			((MarkupContainer)get("first")).add(new Label("changing", "changing")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onComponentTag(ComponentTag tag)
+				{
+					super.onComponentTag(tag);
+
+					getPage().getPageReference();
+					getSession().getPageManager().touchPage(getPage());
+				}
+			});
+		}
+
+		@Override
+		public PageReference getPageReference()
+		{
+			changes.add("reference:" + Thread.currentThread().getName());
+			return super.getPageReference();
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><head></head><body>" +
+				"<div id=\"first\" wicket:id=\"first\"><span wicket:id=\"thread\"></span><a wicket:id=\"link\">link</a><span wicket:id=\"changing\"></span></div>" +
+				"<p>between</p>" +
+				"<div id=\"second\" wicket:id=\"second\"><span wicket:id=\"thread\"></span><a wicket:id=\"link\">link</a></div>" +
+				"</body></html>");
+		}
+	}
+
+	/**
+	 * A page with two regions.
+	 */
+	public static class RegionsPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int clicks;
+
+		/**
+		 * Construct.
+		 *
+		 * @param first
+		 *            behavior of the first region
+		 * @param second
+		 *            behavior of the second region
+		 */
+		public RegionsPage(ParallelRenderBehavior first, ParallelRenderBehavior second)
+		{
+			add(region("first").add(first));
+			add(region("second").add(second));
+		}
+
+		private WebMarkupContainer region(String id)
+		{
+			WebMarkupContainer region = new WebMarkupContainer(id);
+			region.add(new Label("thread", (IModel<String>)() -> {
+				String thread = Thread.currentThread().getName();
+				if (thread.equals("region-worker"))
+				{
+					RENDERING.release();
+				}
+				return thread + ":" + (Session.get() != null);
+			}));
+			region.add(new Link<Void>("link")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void onClick()
+				{
+					clicks++;
+				}
+			});
+			return region;
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><head></head><body>" +
+				"<div id=\"first\" wicket:id=\"first\"><span wicket:id=\"thread\"></span><a wicket:id=\"link\">link</a></div>" +
+				"<p>between</p>" +
+				"<div id=\"second\" wicket:id=\"second\"><span wicket:id=\"thread\"></span><a wicket:id=\"link\">link</a></div>" +
+				"</body></html>");
+		}
+	}
+}
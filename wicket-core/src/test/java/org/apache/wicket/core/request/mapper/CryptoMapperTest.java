@@ -18,8 +18,13 @@ package org.apache.wicket.core.request.mapper;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 
+import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
+import javax.crypto.Cipher;
+
 import org.apache.wicket.MockPage;
 import org.apache.wicket.core.request.handler.BookmarkableListenerRequestHandler;
 import org.apache.wicket.core.request.handler.ListenerRequestHandler;
@@ -48,6 +53,7 @@ import org.apache.wicket.settings.SecuritySettings;
 import org.apache.wicket.util.crypt.CachingSunJceCryptFactory;
 import org.apache.wicket.util.crypt.ICrypt;
 import org.apache.wicket.util.crypt.ICryptFactory;
+import org.apache.wicket.util.crypt.TrivialCrypt;
 import org.apache.wicket.util.string.StringValue;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.tester.WicketTester;
@@ -647,6 +653,49 @@ public class CryptoMapperTest extends AbstractMapperTest
 		mapper.mapRequest(getRequest(encryptedUrl));
 	}
 
+	/**
+	 * Decrypted texts are cached per key of the crypt.
+	 */
+	@Test
+	public void decryptionCache()
+	{
+		final AtomicInteger decryptions = new AtomicInteger();
+		final AtomicReference<String> key = new AtomicReference<>("key");
+		CryptoMapper mapper = new CryptoMapper(tester.getApplication().getRootRequestMapper(), () -> {
+			ICrypt crypt = new TrivialCrypt()
+			{
+				@Override
+				protected byte[] crypt(byte[] input, int mode) throws GeneralSecurityException
+				{
+					if (mode == Cipher.DECRYPT_MODE)
+					{
+						decryptions.incrementAndGet();
+					}
+					return super.crypt(input, mode);
+				}
+			};
+			crypt.setKey(key.get());
+			return crypt;
+		});
+
+		Url encryptedUrl = mapper.mapHandler(new RenderPageRequestHandler(new PageProvider(Page2.class)));
+		Request request = getRequest(encryptedUrl);
+
+		assertTrue(mapper.getCompatibilityScore(request) > 0);
+		assertNotNull(mapper.mapRequest(request));
+		assertNotNull(mapper.mapRequest(request));
+		assertEquals(1, decryptions.get());
+
+		key.set("other");
+		mapper.mapRequest(request);
+		assertEquals(2, decryptions.get());
+
+		mapper.setDecryptionCacheSize(0);
+		key.set("key");
+		assertNotNull(mapper.mapRequest(request));
+		assertEquals(3, decryptions.get());
+	}
+
 	private static IRequestHandler unwrapRequestHandlerDelegate(IRequestHandler handler)
 	{
 		while (handler instanceof IRequestHandlerDelegate)
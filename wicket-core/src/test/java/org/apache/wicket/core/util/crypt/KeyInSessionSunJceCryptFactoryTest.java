@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.core.util.crypt;
+
+import org.apache.wicket.Session;
+import org.apache.wicket.util.crypt.ICrypt;
+import org.apache.wicket.util.tester.DummyHomePage;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link KeyInSessionSunJceCryptFactory}
+ */
+public class KeyInSessionSunJceCryptFactoryTest extends WicketTestCase
+{
+	/**
+	 * The crypt is kept per session.
+	 */
+	@Test
+	public void cryptPerSession()
+	{
+		KeyInSessionSunJceCryptFactory factory = new KeyInSessionSunJceCryptFactory();
+
+		ICrypt crypt = factory.newCrypt();
+		assertSame(crypt, factory.newCrypt());
+		String encrypted = crypt.encryptUrlSafe("input");
+
+		Session session = tester.getSession();
+		session.invalidateNow();
+		tester.startPage(DummyHomePage.class);
+		assertNotSame(session, Session.get());
+
+		ICrypt other = factory.newCrypt();
+		assertNotSame(crypt, other);
+		assertNotEquals("input", other.decryptUrlSafe(encrypted));
+	}
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.markup;
 
+import java.nio.charset.StandardCharsets;
+
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.Test;
 
@@ -158,4 +160,47 @@ public class MarkupTest extends WicketTestCase
 		 */
 		assertNull(markup.find("c5"));
 	}
+
+	/**
+	 * Raw markup is encoded once per charset.
+	 */
+	@Test
+	public void encodeRawMarkup()
+	{
+		RawMarkup raw = new RawMarkup("<p>\u00e4</p>");
+
+		byte[] utf8 = raw.getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals("<p>\u00e4</p>".getBytes(StandardCharsets.UTF_8), utf8);
+		assertSame(utf8, raw.getBytes(StandardCharsets.UTF_8));
+
+		assertArrayEquals("<p>\u00e4</p>".getBytes(StandardCharsets.ISO_8859_1),
+			raw.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Close tags are found in markup and in fragments, and are remembered.
+	 */
+	@Test
+	public void indexOfCloseTag()
+	{
+		Markup markup = Markup.of(
+			"<div wicket:id=\"a\"><span wicket:id=\"b\"><i wicket:id=\"c\"/></span>text</div><p wicket:id=\"d\"></p>");
+
+		assertEquals(6, markup.indexOfCloseTag(0));
+		assertEquals(4, markup.indexOfCloseTag(1));
+		assertEquals(3, markup.indexOfCloseTag(2));
+		// raw markup
+		assertEquals(-1, markup.indexOfCloseTag(5));
+		assertEquals(8, markup.indexOfCloseTag(7));
+		// remembered
+		assertEquals(6, markup.indexOfCloseTag(0));
+
+		IMarkupFragment fragment = markup.find("a");
+		assertEquals(7, fragment.size());
+		assertEquals(4, ((MarkupFragment)fragment).indexOfCloseTag(1));
+
+		MarkupStream stream = new MarkupStream(fragment);
+		stream.skipComponent();
+		assertFalse(stream.isCurrentIndexInsideTheStream());
+	}
 }
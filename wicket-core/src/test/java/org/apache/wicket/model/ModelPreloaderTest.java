@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ModelPreloader}
+ */
+public class ModelPreloaderTest extends WicketTestCase
+{
+	private static final AtomicInteger LOADS = new AtomicInteger();
+
+	private static final AtomicInteger BULK_LOADS = new AtomicInteger();
+
+	private static final AtomicInteger BULK_KEYS = new AtomicInteger();
+
+	private static final BulkLoader<Integer, String> NUMBERS = new BulkLoader<Integer, String>()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected Map<Integer, String> loadAll(Set<Integer> keys)
+		{
+			BULK_LOADS.incrementAndGet();
+			BULK_KEYS.addAndGet(keys.size());
+
+			Map<Integer, String> numbers = new HashMap<>();
+			for (Integer key : keys)
+			{
+				numbers.put(key, "bulk" + key);
+			}
+			return numbers;
+		}
+	};
+
+	/**
+	 * Resets the counters.
+	 */
+	@Before
+	public void before()
+	{
+		LOADS.set(0);
+		BULK_LOADS.set(0);
+		BULK_KEYS.set(0);
+	}
+
+	/**
+	 * Models of visible components and repeater items are preloaded before render, keys of a bulk
+	 * loader in one batch.
+	 */
+	@Test
+	public void preload()
+	{
+		tester.getApplication().getRequestCycleSettings().setPreloadModels(true);
+
+		tester.startPage(new PreloadPage());
+
+		tester.assertContains(">bulk1<");
+		tester.assertContains(">bulk2<");
+		tester.assertContains(">async<");
+		tester.assertContains(">sync<");
+		tester.assertContains(">bulk3<");
+		tester.assertContains(">bulk4<");
+		assertEquals(1, BULK_LOADS.get());
+		assertEquals(4, BULK_KEYS.get());
+		assertEquals(1, LOADS.get());
+	}
+
+	/**
+	 * Without preloading all models load on their own.
+	 */
+	@Test
+	public void withoutPreload()
+	{
+		tester.startPage(new PreloadPage());
+
+		tester.assertContains(">bulk1<");
+		tester.assertContains(">bulk2<");
+		tester.assertContains("\"async\">sync<");
+		assertEquals(4, BULK_LOADS.get());
+		assertEquals(6, LOADS.get());
+	}
+
+	/**
+	 * A loader may return no objects at all.
+	 */
+	@Test
+	public void noObjects()
+	{
+		BulkLoader<Integer, String> loader = new BulkLoader<Integer, String>()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Map<Integer, String> loadAll(Set<Integer> keys)
+			{
+				return null;
+			}
+		};
+
+		assertNull(loader.load(1).toCompletableFuture().join());
+	}
+
+	/**
+	 * A failed preload leaves the model detached.
+	 */
+	@Test
+	public void failedPreload()
+	{
+		LoadableDetachableModel<String> model = new TestModel(null)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected CompletionStage<String> loadAsync()
+			{
+				CompletableFuture<String> failed = new CompletableFuture<>();
+				failed.completeExceptionally(new IllegalStateException("failed"));
+				return failed;
+			}
+		};
+
+		ModelPreloader.preload(Collections.singletonList(new Label("label", model)));
+
+		assertFalse(model.isAttached());
+		assertEquals("sync", model.getObject());
+	}
+
+	/**
+	 * Models are not initialized for preloading.
+	 */
+	@Test
+	public void inheritedModel()
+	{
+		TestModel model = new TestModel(null);
+		WebMarkupContainer container = new WebMarkupContainer("container",
+			new CompoundPropertyModel<>(model));
+		Label label = new Label("bytes");
+		container.add(label);
+
+		ModelPreloader.preload(Collections.singletonList(container));
+
+		assertNull(label.internalGetModel());
+		assertTrue(model.isAttached());
+	}
+
+	private static class TestModel extends LoadableDetachableModel<String>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Integer key;
+
+		private TestModel(Integer key)
+		{
+			this.key = key;
+		}
+
+		@Override
+		protected String load()
+		{
+			LOADS.incrementAndGet();
+			if (key == null)
+			{
+				return "sync";
+			}
+			return NUMBERS.load(key).toCompletableFuture().join();
+		}
+
+		@Override
+		protected CompletionStage<String> loadAsync()
+		{
+			if (key == null)
+			{
+				return CompletableFuture.supplyAsync(() -> "async");
+			}
+			return NUMBERS.load(key);
+		}
+	}
+
+	/**
+	 * A page with preloadable models.
+	 */
+	public static class PreloadPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 */
+		public PreloadPage()
+		{
+			add(new Label("first", new TestModel(1)));
+			add(new Label("second", new PropertyModel<>(new TestModel(2), "")));
+			add(new Label("async", new TestModel(null)));
+			add(new Label("sync", LoadableDetachableModel.of(() -> {
+				LOADS.incrementAndGet();
+				return "sync";
+			})));
+			add(new ListView<Integer>("items", Arrays.asList(3, 4))
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void populateItem(ListItem<Integer> item)
+				{
+					item.add(new Label("item", new TestModel(item.getModelObject())));
+				}
+			});
+			add(new Label("hidden", new TestModel(5))
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onConfigure()
+				{
+					super.onConfigure();
+
+					setVisible(false);
+				}
+			});
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><body>" +
+				"<span wicket:id=\"first\"></span><span wicket:id=\"second\"></span>" +
+				"<span wicket:id=\"async\"></span><span wicket:id=\"sync\"></span>" +
+				"<span wicket:id=\"items\"><span wicket:id=\"item\"></span></span>" +
+				"<span wicket:id=\"hidden\"></span>" +
+				"</body></html>");
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PageLockStatistics} and the wait budget of {@link PageAccessSynchronizer}
+ */
+public class PageLockStatisticsTest extends Assert
+{
+	private final PageLockStatistics statistics = new PageLockStatistics(Duration.milliseconds(50),
+		2);
+
+	private Duration budget;
+
+	private final PageAccessSynchronizer sync = new PageAccessSynchronizer(Duration.seconds(1))
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Duration getWaitBudget(int pageId)
+		{
+			return budget;
+		}
+
+		@Override
+		protected IPageLockMetrics getMetrics()
+		{
+			return statistics;
+		}
+	};
+
+	/**
+	 * Waits, holds and long holds are counted.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void statistics() throws Exception
+	{
+		sync.lockPage(1);
+		sync.lockPage(1);
+		sync.unlockAllPages();
+
+		assertEquals(1, sum(statistics.getWaits()));
+		assertEquals(1, sum(statistics.getHolds()));
+		assertTrue(statistics.getLongHolds().isEmpty());
+
+		sync.lockPage(1);
+		Thread.sleep(100);
+		sync.unlockAllPages();
+
+		assertEquals(2, sum(statistics.getHolds()));
+		assertEquals(1, statistics.getLongHolds().size());
+		assertEquals(1, statistics.getLongHolds().get(0).getPageId());
+		assertEquals(Thread.currentThread().getName(),
+			statistics.getLongHolds().get(0).getThreadName());
+
+		CountDownLatch release = holdInOtherThread(2);
+		try
+		{
+			sync.lockPage(2);
+			fail();
+		}
+		catch (CouldNotLockPageException expected)
+		{
+		}
+		finally
+		{
+			release.countDown();
+		}
+		assertEquals(1, statistics.getTimeouts());
+		assertEquals(0, statistics.getFastFailures());
+
+		statistics.reset();
+		assertEquals(0, sum(statistics.getWaits()));
+	}
+
+	/**
+	 * The buckets can not be changed by callers.
+	 */
+	@Test
+	public void buckets()
+	{
+		long[] buckets = PageLockStatistics.getBuckets();
+		assertEquals(statistics.getWaits().length, buckets.length + 1);
+
+		buckets[0] = Long.MAX_VALUE;
+		assertEquals(1, PageLockStatistics.getBuckets()[0]);
+	}
+
+	/**
+	 * A thread expecting to wait longer than the budget gives up immediately.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void failFast() throws Exception
+	{
+		budget = Duration.milliseconds(50);
+
+		// learn the hold duration
+		sync.lockPage(1);
+		Thread.sleep(200);
+		sync.unlockAllPages();
+
+		CountDownLatch release = holdInOtherThread(1);
+		Time start = Time.now();
+		try
+		{
+			sync.lockPage(1);
+			fail();
+		}
+		catch (CouldNotLockPageException expected)
+		{
+		}
+		finally
+		{
+			release.countDown();
+		}
+		assertTrue(start.elapsedSince().lessThan(Duration.milliseconds(500)));
+		assertEquals(0, statistics.getTimeouts());
+		assertEquals(1, statistics.getFastFailures());
+	}
+
+	private CountDownLatch holdInOtherThread(final int pageId) throws InterruptedException
+	{
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		new Thread(() -> {
+			sync.lockPage(pageId);
+			locked.countDown();
+			try
+			{
+				release.await();
+			}
+			catch (InterruptedException e)
+			{
+				throw new IllegalStateException(e);
+			}
+			finally
+			{
+				sync.unlockAllPages();
+			}
+		}).start();
+		locked.await();
+		return release;
+	}
+
+	private static long sum(long[] counts)
+	{
+		long sum = 0;
+		for (long count : counts)
+		{
+			sum += count;
+		}
+		return sum;
+	}
+}
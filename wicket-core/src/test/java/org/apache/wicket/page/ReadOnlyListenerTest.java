@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ajax.AjaxEventBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.behavior.AbstractAjaxBehavior;
+import org.apache.wicket.behavior.ParallelRenderBehavior;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Test;
+
+/**
+ * Tests for read-only listeners served by {@link PageAccessSynchronizer}
+ */
+public class ReadOnlyListenerTest extends WicketTestCase
+{
+	/**
+	 * A read-only listener does not wait for the page lock and works on a snapshot of the page.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void readOnlyListener() throws Exception
+	{
+		tester.getApplication().getRequestCycleSettings().setTimeout(Duration.seconds(2));
+
+		final CounterPage page = tester.startPage(CounterPage.class);
+
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread holder = holdLock(page, release);
+
+		tester.executeBehavior(page.readOnly);
+		tester.assertContains(">1<");
+
+		// changes to the snapshot are discarded
+		tester.executeBehavior(page.readOnly);
+		tester.assertContains(">1<");
+		assertEquals(0, page.counter);
+
+		release.countDown();
+		holder.join();
+
+		tester.executeBehavior(page.mutating);
+		tester.assertContains(">1<");
+		assertEquals(1, page.counter);
+
+		// the snapshot is updated by the locked request
+		tester.executeBehavior(page.readOnly);
+		tester.assertContains(">2<");
+		assertEquals(1, page.counter);
+	}
+
+	/**
+	 * A read-only listener rendered in a region rendered in parallel is served from a snapshot too.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void readOnlyListenerInParallelRegion() throws Exception
+	{
+		tester.getApplication().getRequestCycleSettings().setTimeout(Duration.seconds(2));
+
+		// render on a new thread and wait for it
+		tester.getApplication().getRequestCycleSettings().setParallelRenderExecutor(command -> {
+			Thread worker = new Thread(command, "region-worker");
+			worker.start();
+			try
+			{
+				worker.join();
+			}
+			catch (InterruptedException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		});
+
+		final RegionPage page = tester.startPage(RegionPage.class);
+		assertEquals("region-worker", page.renderThread);
+
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread holder = holdLock(page, release);
+
+		tester.executeBehavior(page.readOnly);
+		assertEquals(0, page.counter);
+
+		release.countDown();
+		holder.join();
+	}
+
+	/**
+	 * Read-only listeners use their own channel by default.
+	 */
+	@Test
+	public void readOnlyChannel()
+	{
+		tester.startPage(CounterPage.class);
+
+		String output = tester.getLastResponseAsString();
+		assertTrue(output, output.contains("\"e\":\"scroll\",\"ch\":\"readOnly|s\""));
+		assertFalse(output, output.contains("\"e\":\"click\",\"ch\""));
+	}
+
+	/**
+	 * Locks the page on another thread.
+	 *
+	 * @param page
+	 *            page to lock
+	 * @param release
+	 *            latch to release the lock
+	 * @return the thread holding the lock
+	 * @throws InterruptedException
+	 */
+	private Thread holdLock(final WebPage page, final CountDownLatch release)
+		throws InterruptedException
+	{
+		final IPageManager pageManager = tester.getSession().getPageManager();
+		final CountDownLatch locked = new CountDownLatch(1);
+		Thread holder = new Thread(() -> {
+			pageManager.getPage(page.getPageId());
+			locked.countDown();
+			try
+			{
+				release.await();
+			}
+			catch (InterruptedException e)
+			{
+				throw new IllegalStateException(e);
+			}
+			finally
+			{
+				pageManager.commitRequest();
+			}
+		});
+		holder.start();
+		locked.await();
+		return holder;
+	}
+
+	/**
+	 * A page counting listener invocations.
+	 */
+	public static class CounterPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int counter;
+
+		private final CounterBehavior readOnly;
+
+		private final CounterBehavior mutating;
+
+		/**
+		 * Construct.
+		 */
+		public CounterPage()
+		{
+			Label label = new Label("counter", (IModel<Integer>)() -> counter);
+			label.setOutputMarkupId(true);
+			add(label);
+
+			label.add(readOnly = new CounterBehavior(true));
+			label.add(mutating = new CounterBehavior(false));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><body><span wicket:id=\"counter\"></span></body></html>");
+		}
+
+		private class CounterBehavior extends AjaxEventBehavior
+		{
+			private static final long serialVersionUID = 1L;
+
+			private final boolean readOnly;
+
+			private CounterBehavior(boolean readOnly)
+			{
+				super(readOnly ? "scroll" : "click");
+
+				this.readOnly = readOnly;
+			}
+
+			@Override
+			public boolean isReadOnly()
+			{
+				return readOnly;
+			}
+
+			@Override
+			protected void onEvent(AjaxRequestTarget target)
+			{
+				counter++;
+				target.add(getComponent());
+			}
+		}
+	}
+
+	/**
+	 * A page with a read-only listener, whose url is rendered in a region only.
+	 */
+	public static class RegionPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int counter;
+
+		private String renderThread;
+
+		private final AbstractAjaxBehavior readOnly;
+
+		/**
+		 * Construct.
+		 */
+		public RegionPage()
+		{
+			WebMarkupContainer region = new WebMarkupContainer("region");
+			region.add(new ParallelRenderBehavior());
+			add(region);
+
+			region.add(new Label("listener", (IModel<String>)() -> {
+				renderThread = Thread.currentThread().getName();
+				return "listener";
+			})
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onComponentTag(ComponentTag tag)
+				{
+					super.onComponentTag(tag);
+
+					tag.put("data-url", readOnly.getCallbackUrl());
+				}
+			}.add(readOnly = new AbstractAjaxBehavior()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public boolean isReadOnly()
+				{
+					return true;
+				}
+
+				@Override
+				public void onRequest()
+				{
+					counter++;
+				}
+			}));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><head></head><body>" +
+				"<div wicket:id=\"region\"><span wicket:id=\"listener\"></span></div>" +
+				"</body></html>");
+		}
+	}
+}
@@ -17,9 +17,15 @@
 package org.apache.wicket.page;
 
 import org.apache.wicket.Component;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.MarkupStream;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
+import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.parser.filter.HtmlHeaderSectionHandler;
 import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.model.Model;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.Test;
 
@@ -54,6 +60,37 @@ public class XmlPartialPageUpdateTest extends WicketTestCase
 		assertEquals(expected, response.getTextResponse().toString());
 	}
 	
+	/**
+	 * CData end is encoded even if written in several parts.
+	 */
+	@Test
+	public void encodeSplitCdataEnd()
+	{
+		PageForPartialUpdate page = new PageForPartialUpdate();
+		WebMarkupContainer container = new WebMarkupContainer("container")
+		{
+			@Override
+			public void onComponentTagBody(MarkupStream markupStream, ComponentTag openTag)
+			{
+				getResponse().write("]");
+				getResponse().write("]]");
+				getResponse().write("> ]]");
+				getResponse().write(">");
+				markupStream.skipRawMarkup();
+			}
+		};
+		page.replace(container);
+
+		XmlPartialPageUpdate update = new XmlPartialPageUpdate(page);
+		update.add(container, container.getMarkupId());
+
+		MockWebResponse response = new MockWebResponse();
+		update.writeTo(response, "UTF-8");
+
+		assertTrue(response.getTextResponse().toString().contains(
+			"\">]]]]]><![CDATA[> ]]]]><![CDATA[></span>]]></component>"));
+	}
+
 	/**
 	 * 
 	 * see https://issues.apache.org/jira/browse/WICKET-6162
@@ -98,4 +135,75 @@ public class XmlPartialPageUpdateTest extends WicketTestCase
 		
 		assertFalse("notInPage not written", response.getTextResponse().toString().contains("notInPage"));
 	}
+
+	/**
+	 * A component added twice is written once only.
+	 */
+	@Test
+	public void addedTwice() throws Exception
+	{
+		PageForPartialUpdate page = new PageForPartialUpdate();
+
+		tester.startPage(page);
+
+		XmlPartialPageUpdate update = new XmlPartialPageUpdate(page);
+		update.add(page.container, "first");
+		update.add(page.container, "second");
+
+		MockWebResponse response = new MockWebResponse();
+		update.writeTo(response, "UTF-8");
+
+		String output = response.getTextResponse().toString();
+		assertEquals(output, 1, output.split("<component ").length - 1);
+		assertTrue(output, output.contains("<component id=\"second\""));
+	}
+
+	/**
+	 * Components are skipped while their markup is unchanged.
+	 */
+	@Test
+	public void skipUnchanged() throws Exception
+	{
+		tester.getApplication().getRequestCycleSettings().setSkipUnchangedAjaxUpdates(true);
+
+		PageForPartialUpdate page = new PageForPartialUpdate();
+		Model<String> model = Model.of("one");
+		Label label = new Label("container", model)
+		{
+			@Override
+			public void renderHead(IHeaderResponse response)
+			{
+				response.render(OnDomReadyHeaderItem.forScript("labelUpdated();"));
+			}
+		};
+		label.setOutputMarkupId(true);
+		page.replace(label);
+
+		tester.startPage(page);
+
+		assertTrue(writeUpdate(page, label).contains("one"));
+
+		String output = writeUpdate(page, label);
+		assertFalse(output, output.contains("<component "));
+		assertFalse(output, output.contains("labelUpdated"));
+
+		model.setObject("two");
+		output = writeUpdate(page, label);
+		assertTrue(output, output.contains("two"));
+		assertTrue(output, output.contains("labelUpdated"));
+
+		// a complete render forgets the written markup
+		tester.startPage(page);
+		assertTrue(writeUpdate(page, label).contains("two"));
+	}
+
+	private String writeUpdate(PageForPartialUpdate page, Component component)
+	{
+		XmlPartialPageUpdate update = new XmlPartialPageUpdate(page);
+		update.add(component, component.getMarkupId());
+
+		MockWebResponse response = new MockWebResponse();
+		update.writeTo(response, "UTF-8");
+		return response.getTextResponse().toString();
+	}
 }
@@ -21,6 +21,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.wicket.pageStore.PageWindowManager;
 import org.apache.wicket.pageStore.PageWindowManager.PageWindow;
 import org.junit.Assert;
@@ -179,6 +180,33 @@ public class PageWindowManagerTest extends Assert
 		assertWindow(window, 8, 50, 10);
 	}
 
+	/**
+	 * The windows survive serialization, e.g. when the index of DiskDataStore is saved.
+	 */
+	@Test
+	public void serialize()
+	{
+		PageWindowManager manager = new PageWindowManager(100);
+		manager.createPageWindow(1, 30);
+		manager.createPageWindow(2, 30);
+		manager.createPageWindow(3, 30);
+		manager.createPageWindow(4, 30);
+		manager.createPageWindow(5, 20);
+		manager.removePage(3);
+
+		manager = WicketObjects.cloneObject(manager);
+
+		assertEquals(120, manager.getTotalSize());
+		assertNull(manager.getPageWindow(1));
+		assertWindow(manager.getPageWindow(2), 2, 30, 30);
+		assertNull(manager.getPageWindow(3));
+		assertWindow(manager.getPageWindow(4), 4, 90, 30);
+		assertWindow(manager.getPageWindow(5), 5, 0, 20);
+		assertEquals(3, manager.getLastPageWindows(10).size());
+
+		// continues after the last added page
+		assertWindow(manager.createPageWindow(6, 10), 6, 20, 10);
+	}
 
 	private void assertWindow(PageWindow window, int pageId, int filePartOffset, int filePartSize)
 	{
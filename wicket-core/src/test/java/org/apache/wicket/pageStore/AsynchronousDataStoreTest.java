@@ -20,8 +20,10 @@ import java.security.SecureRandom;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.wicket.versioning.InMemoryPageStore;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -77,6 +79,57 @@ public class AsynchronousDataStoreTest
 		DATA_STORE.destroy();
 	}
 
+	/**
+	 * Queued entries for the same page are coalesced and entries which do not fit in the queue
+	 * are stored synchronously.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void coalesceAndStoreSynchronously() throws Exception
+	{
+		final CountDownLatch saving = new CountDownLatch(1);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		IDataStore wrapped = new InMemoryPageStore()
+		{
+			@Override
+			public void storeData(String sessionId, int pageId, byte[] pageAsBytes)
+			{
+				if (pageId == 1)
+				{
+					saving.countDown();
+					try
+					{
+						blocked.await();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+				super.storeData(sessionId, pageId, pageAsBytes);
+			}
+		};
+		AsynchronousDataStore dataStore = new AsynchronousDataStore(wrapped, 1, 2);
+
+		// blocks the worker of session s1
+		dataStore.storeData("s1", 1, DATA);
+		Assert.assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+		dataStore.storeData("s1", 2, new byte[] { 1 });
+		dataStore.storeData("s1", 2, new byte[] { 2 });
+		Assert.assertEquals(1, dataStore.getCoalescedCount());
+		Assert.assertEquals(1, dataStore.getQueueDepth());
+		Assert.assertArrayEquals(new byte[] { 2 }, dataStore.getData("s1", 2));
+
+		dataStore.storeData("s1", 3, DATA);
+		Assert.assertEquals(1, dataStore.getSynchronousCount());
+		Assert.assertArrayEquals(DATA, wrapped.getData("s1", 3));
+
+		blocked.countDown();
+		dataStore.destroy();
+	}
+
 	private static abstract class AbstractTask implements Runnable
 	{
 		protected abstract void r();
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.settings.StoreSettings;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.apache.wicket.versioning.InMemoryPageStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompressingDataStore}
+ */
+public class CompressingDataStoreTest extends WicketTestCase
+{
+	private final JavaSerializer serializer = new JavaSerializer("CompressingDataStoreTest");
+
+	private File dictionaryFolder;
+
+	private InMemoryPageStore wrapped;
+
+	/**
+	 * Creates a unique folder for the dictionaries.
+	 */
+	@Before
+	public void before()
+	{
+		dictionaryFolder = new File(new StoreSettings(null).getFileStoreFolder(),
+			"compressingDataStore-" + UUID.randomUUID());
+		wrapped = new InMemoryPageStore();
+	}
+
+	/**
+	 * Removes the dictionaries.
+	 */
+	@After
+	public void after()
+	{
+		Files.removeFolder(dictionaryFolder);
+	}
+
+	private byte[] page(int i)
+	{
+		WebMarkupContainer container = new WebMarkupContainer("container" + i);
+		for (int j = 0; j < 20; j++)
+		{
+			container.add(new Label("label" + j, Model.of("value " + i * j)));
+		}
+		return serializer.serialize(container);
+	}
+
+	/**
+	 * After enough samples a dictionary is trained which compresses better than plain Deflate.
+	 */
+	@Test
+	public void trainDictionary()
+	{
+		CompressingDataStore dataStore = new CompressingDataStore(wrapped, dictionaryFolder,
+			CompressingDataStore.DEFAULT_DICTIONARY_SIZE, 20);
+
+		dataStore.storeData("s1", 0, page(0));
+		int plainSize = wrapped.getData("s1", 0).length;
+		assertTrue(plainSize < page(0).length);
+		assertEquals(1, dataStore.getDictionaryVersion());
+
+		for (int i = 1; i < 16; i++)
+		{
+			dataStore.storeData("s1", i, page(i));
+		}
+		dataStore.awaitTraining();
+		assertEquals(2, dataStore.getDictionaryVersion());
+
+		dataStore.storeData("s1", 100, page(0));
+		assertTrue(wrapped.getData("s1", 100).length < plainSize);
+
+		// pages compressed with any dictionary can be decompressed
+		for (int i = 16; i < 40; i++)
+		{
+			dataStore.storeData("s1", i, page(i));
+		}
+		dataStore.awaitTraining();
+		assertEquals(3, dataStore.getDictionaryVersion());
+		for (int i = 0; i < 40; i++)
+		{
+			assertArrayEquals(page(i), dataStore.getData("s1", i));
+		}
+		assertArrayEquals(page(0), dataStore.getData("s1", 100));
+	}
+
+	/**
+	 * The dictionaries are loaded again after a restart.
+	 */
+	@Test
+	public void loadDictionaries()
+	{
+		CompressingDataStore dataStore = new CompressingDataStore(wrapped, dictionaryFolder);
+		for (int i = 0; i < 16; i++)
+		{
+			dataStore.storeData("s1", i, page(i));
+		}
+		dataStore.awaitTraining();
+		dataStore.storeData("s1", 16, page(16));
+		assertEquals(2, dataStore.getDictionaryVersion());
+
+		dataStore = new CompressingDataStore(wrapped, dictionaryFolder);
+		assertEquals(2, dataStore.getDictionaryVersion());
+		assertArrayEquals(page(16), dataStore.getData("s1", 16));
+
+		// without the dictionary the page cannot be read
+		dataStore = new CompressingDataStore(wrapped, null);
+		assertNull(dataStore.getData("s1", 16));
+		assertArrayEquals(page(0), dataStore.getData("s1", 0));
+	}
+
+	/**
+	 * Pages referring to a missing or different dictionary cannot be read.
+	 */
+	@Test
+	public void wrongDictionary()
+	{
+		CompressingDataStore dataStore = new CompressingDataStore(wrapped, null,
+			CompressingDataStore.DEFAULT_DICTIONARY_SIZE, 20);
+		for (int i = 0; i < 16; i++)
+		{
+			dataStore.storeData("s1", i, page(i));
+		}
+		dataStore.awaitTraining();
+
+		byte[] compressed = dataStore.compress(page(0), 2);
+		assertArrayEquals(page(0), dataStore.decompress(compressed));
+
+		// a dictionary is required, but no version given
+		byte[] mislabeled = compressed.clone();
+		mislabeled[2] = 1;
+		assertNull(dataStore.decompress(mislabeled));
+
+		// another dictionary of the same version, e.g. after a restart
+		CompressingDataStore other = new CompressingDataStore(new InMemoryPageStore(), null,
+			CompressingDataStore.DEFAULT_DICTIONARY_SIZE, 20);
+		for (int i = 100; i < 116; i++)
+		{
+			other.storeData("s1", i, serializer.serialize(new Label("other" + i, "text" + i)));
+		}
+		other.awaitTraining();
+		assertEquals(2, other.getDictionaryVersion());
+		assertNull(other.decompress(compressed));
+	}
+
+	/**
+	 * Only the newest dictionaries and those used by live sessions are kept.
+	 */
+	@Test
+	public void removeDictionaries()
+	{
+		CompressingDataStore dataStore = new CompressingDataStore(wrapped, dictionaryFolder,
+			CompressingDataStore.DEFAULT_DICTIONARY_SIZE, 20, 2);
+		for (int i = 0; i < 16; i++)
+		{
+			dataStore.storeData("s1", i, page(i));
+		}
+		dataStore.awaitTraining();
+		dataStore.storeData("s1", 100, page(0));
+
+		trainInSession(dataStore, "t0");
+		trainInSession(dataStore, "t1");
+		trainInSession(dataStore, "t2");
+		assertEquals(5, dataStore.getDictionaryVersion());
+		assertEquals(new HashSet<>(Arrays.asList(2, 4, 5)), dataStore.getDictionaryVersions());
+		assertEquals(3, dictionaryFolder.list().length);
+		assertArrayEquals(page(0), dataStore.getData("s1", 100));
+
+		dataStore.removeData("s1");
+		trainInSession(dataStore, "t3");
+		assertEquals(new HashSet<>(Arrays.asList(5, 6)), dataStore.getDictionaryVersions());
+		assertEquals(2, dictionaryFolder.list().length);
+
+		// older dictionaries are not loaded after a restart
+		dataStore = new CompressingDataStore(wrapped, dictionaryFolder,
+			CompressingDataStore.DEFAULT_DICTIONARY_SIZE, 20, 1);
+		assertEquals(new HashSet<>(Arrays.asList(6)), dataStore.getDictionaryVersions());
+		assertEquals(1, dictionaryFolder.list().length);
+	}
+
+	private void trainInSession(CompressingDataStore dataStore, String sessionId)
+	{
+		for (int i = 0; i < 20; i++)
+		{
+			dataStore.storeData(sessionId, i, page(i));
+		}
+		dataStore.awaitTraining();
+		dataStore.removeData(sessionId);
+	}
+
+	/**
+	 * Data which cannot be compressed is stored as is.
+	 */
+	@Test
+	public void incompressible()
+	{
+		CompressingDataStore dataStore = new CompressingDataStore(wrapped, null);
+
+		byte[] data = new byte[1000];
+		new Random(1).nextBytes(data);
+		dataStore.storeData("s1", 1, data);
+		dataStore.storeData("s1", 2, new byte[0]);
+
+		assertTrue(wrapped.getData("s1", 1).length < data.length + 10);
+		assertArrayEquals(data, dataStore.getData("s1", 1));
+		assertArrayEquals(new byte[0], dataStore.getData("s1", 2));
+
+		// data not written by the store is returned as is
+		wrapped.storeData("s1", 3, data);
+		assertArrayEquals(data, dataStore.getData("s1", 3));
+	}
+}
@@ -16,7 +16,11 @@
  */
 package org.apache.wicket.pageStore;
 
+import org.apache.wicket.MockPage;
 import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.versioning.InMemoryPageStore;
+import org.junit.Test;
 
 /**
  * Tests for DefaultPageStore
@@ -28,4 +32,68 @@ public class DefaultPageStoreTest extends AbstractPageStoreTest
 	{
 		return new DefaultPageStore(serializer, dataStore, maxEntries);
 	}
+
+	/**
+	 * A page evicted from the cache is loaded in the background on request.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void prefetch() throws Exception
+	{
+		DefaultPageStore store = new DefaultPageStore(serializer, new InMemoryPageStore(), 2);
+		pageStore = store;
+		store.setPrefetch(1, Duration.ONE_HOUR);
+
+		for (int i = 1; i <= 3; i++)
+		{
+			store.storePage(sessionId, new MockPage(i));
+		}
+		store.prefetch(sessionId, 1);
+		awaitPrefetch(store, 1);
+
+		assertEquals(1, store.getPage(sessionId, 1).getPageId());
+		assertEquals(1, store.getHitCount());
+		assertEquals(0, store.getMissCount());
+		assertEquals(1, store.getPrefetchHitCount());
+
+		// page 2 has been evicted
+		assertEquals(2, store.getPage(sessionId, 2).getPageId());
+		assertEquals(1, store.getMissCount());
+	}
+
+	/**
+	 * The recently used pages are loaded in the background when a session gets active again.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void prefetchAfterIdle() throws Exception
+	{
+		DefaultPageStore store = new DefaultPageStore(serializer, new InMemoryPageStore(), 3);
+		pageStore = store;
+		store.setPrefetch(3, Duration.milliseconds(10));
+
+		for (int i = 1; i <= 4; i++)
+		{
+			store.storePage(sessionId, new MockPage(i));
+		}
+		Thread.sleep(50);
+
+		store.getPage(sessionId, 4);
+		awaitPrefetch(store, 1);
+
+		store.getPage(sessionId, 1);
+		assertEquals(1, store.getPrefetchHitCount());
+		assertEquals(0, store.getMissCount());
+	}
+
+	private static void awaitPrefetch(DefaultPageStore store, long count) throws InterruptedException
+	{
+		for (int i = 0; i < 100 && store.getPrefetchedCount() < count; i++)
+		{
+			Thread.sleep(20);
+		}
+		assertEquals(count, store.getPrefetchedCount());
+	}
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.Random;
+
+import org.apache.wicket.versioning.InMemoryPageStore;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DeltaDataStore}
+ */
+public class DeltaDataStoreTest extends Assert
+{
+	private InMemoryPageStore wrapped;
+
+	private DeltaDataStore dataStore;
+
+	/**
+	 * Creates a store taking a snapshot after three deltas.
+	 */
+	@Before
+	public void before()
+	{
+		wrapped = new InMemoryPageStore();
+		dataStore = newDataStore();
+	}
+
+	/**
+	 * @return a store numbering snapshots from zero
+	 */
+	private DeltaDataStore newDataStore()
+	{
+		return new DeltaDataStore(wrapped, 3)
+		{
+			@Override
+			int getFirstSnapshot()
+			{
+				return 0;
+			}
+		};
+	}
+
+	private static byte[] data(int length, long seed)
+	{
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Slightly changed versions are stored as small deltas.
+	 */
+	@Test
+	public void storeDeltas()
+	{
+		byte[] version1 = data(4096, 1);
+		byte[] version2 = version1.clone();
+		version2[100] = 42;
+		// insert a few bytes in the middle
+		byte[] version3 = new byte[version2.length + 3];
+		System.arraycopy(version2, 0, version3, 0, 2000);
+		System.arraycopy(version2, 2000, version3, 2003, version2.length - 2000);
+
+		dataStore.storeData("s1", 1, version1);
+		dataStore.storeData("s1", 2, version2);
+		dataStore.storeData("s1", 3, version3);
+
+		assertArrayEquals(version1, dataStore.getData("s1", 1));
+		assertArrayEquals(version2, dataStore.getData("s1", 2));
+		assertArrayEquals(version3, dataStore.getData("s1", 3));
+
+		assertTrue(wrapped.getData("s1", 2).length < 100);
+		assertTrue(wrapped.getData("s1", 3).length < 100);
+		assertNull(dataStore.getData("s1", 4));
+		assertNull(dataStore.getData("s2", 1));
+	}
+
+	/**
+	 * A new snapshot is taken after the interval and for data that differs too much.
+	 */
+	@Test
+	public void takeSnapshots()
+	{
+		byte[] data = data(2048, 1);
+		for (int i = 0; i < 5; i++)
+		{
+			data[i] = (byte)i;
+			dataStore.storeData("s1", i, data.clone());
+		}
+		// the first snapshot and the second one after three deltas
+		assertNotNull(wrapped.getData("s1", -1));
+		assertNotNull(wrapped.getData("s1", -2));
+
+		byte[] other = data(2048, 2);
+		dataStore.storeData("s1", 5, other);
+		assertNotNull(wrapped.getData("s1", -3));
+		assertArrayEquals(other, dataStore.getData("s1", 5));
+
+		data[4] = 4;
+		assertArrayEquals(data, dataStore.getData("s1", 4));
+	}
+
+	/**
+	 * Snapshots are removed with the last page referring to them.
+	 */
+	@Test
+	public void removeSnapshots()
+	{
+		byte[] data = data(2048, 1);
+		dataStore.storeData("s1", 1, data);
+		dataStore.storeData("s1", 2, data(2048, 2));
+		assertNotNull(wrapped.getData("s1", -1));
+
+		dataStore.removeData("s1", 1);
+		assertNull(wrapped.getData("s1", -1));
+		assertNull(dataStore.getData("s1", 1));
+
+		// overwriting keeps the current snapshot
+		dataStore.storeData("s1", 2, data(2048, 2));
+		assertNotNull(wrapped.getData("s1", -2));
+
+		dataStore.removeData("s1");
+		assertNull(dataStore.getData("s1", 2));
+		assertNull(wrapped.getData("s1", -2));
+	}
+
+	/**
+	 * A delta is not applied to another snapshot stored under the same id, e.g. after a restart.
+	 */
+	@Test
+	public void restart()
+	{
+		byte[] data = data(2048, 1);
+		dataStore.storeData("s1", 1, data);
+		byte[] version2 = data.clone();
+		version2[0] = 42;
+		dataStore.storeData("s1", 2, version2);
+
+		dataStore = newDataStore();
+		byte[] other = data(2048, 2);
+		dataStore.storeData("s1", 3, other);
+		assertNotNull(wrapped.getData("s1", 2));
+
+		assertNull(dataStore.getData("s1", 1));
+		assertNull(dataStore.getData("s1", 2));
+		assertArrayEquals(other, dataStore.getData("s1", 3));
+	}
+
+	/**
+	 * The least recently stored pages are removed beyond the maximum.
+	 */
+	@Test
+	public void maxPages()
+	{
+		byte[] data = data(256, 1);
+		for (int i = 0; i < DeltaDataStore.MAX_TRACKED_PAGES + 10; i++)
+		{
+			data[0] = (byte)i;
+			dataStore.storeData("s1", i, data.clone());
+		}
+
+		assertEquals(DeltaDataStore.MAX_TRACKED_PAGES, dataStore.getPageCount("s1"));
+		assertNull(wrapped.getData("s1", 9));
+		// the snapshot of the removed pages
+		assertNull(wrapped.getData("s1", -1));
+		assertNotNull(dataStore.getData("s1", 10));
+	}
+
+	/**
+	 * Data which was not stored as delta is returned as is.
+	 */
+	@Test
+	public void plainData()
+	{
+		byte[] data = data(100, 1);
+		data[0] = 0;
+		wrapped.storeData("s1", 1, data);
+
+		assertArrayEquals(data, dataStore.getData("s1", 1));
+	}
+}
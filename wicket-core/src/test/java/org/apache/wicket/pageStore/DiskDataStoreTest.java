@@ -17,6 +17,8 @@
 package org.apache.wicket.pageStore;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -407,4 +409,54 @@ public class DiskDataStoreTest extends Assert
 		assertFalse(sessionFolder.getParentFile().getParentFile().exists());
 
 	}
+
+	/**
+	 * Pages stored in a batch can be read one by one, also when the file wraps around.
+	 */
+	@Test
+	public void storeBatch()
+	{
+		StoreSettings storeSettings = new StoreSettings(null);
+		java.io.File fileStoreFolder = storeSettings.getFileStoreFolder();
+		DiskDataStore store = new DiskDataStore("storeBatch", fileStoreFolder, Bytes.bytes(1000));
+		String sessionId = "storeBatch-" + UUID.randomUUID();
+		try
+		{
+			Map<Integer, byte[]> batch = new LinkedHashMap<>();
+			for (int i = 0; i < 3; i++)
+			{
+				batch.put(i, data(200, i));
+			}
+			store.storeData(sessionId, batch);
+			for (int i = 0; i < 3; i++)
+			{
+				assertArrayEquals(data(200, i), store.getData(sessionId, i));
+			}
+
+			// the file is full, the oldest pages are overwritten
+			batch.clear();
+			for (int i = 3; i < 7; i++)
+			{
+				batch.put(i, data(200, i));
+			}
+			store.storeData(sessionId, batch);
+			assertNull(store.getData(sessionId, 0));
+			for (int i = 3; i < 7; i++)
+			{
+				assertArrayEquals(data(200, i), store.getData(sessionId, i));
+			}
+		}
+		finally
+		{
+			store.removeData(sessionId);
+			store.destroy();
+		}
+	}
+
+	private static byte[] data(int length, int value)
+	{
+		byte[] data = new byte[length];
+		Arrays.fill(data, (byte)value);
+		return data;
+	}
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import org.apache.wicket.MockPage;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OffHeapPageCache}
+ */
+public class OffHeapPageCacheTest extends WicketTestCase
+{
+	private OffHeapPageCache newCache(int maxSize)
+	{
+		return new OffHeapPageCache(new JavaSerializer("OffHeapPageCacheTest"),
+			Bytes.bytes(maxSize), Bytes.bytes(100), Bytes.bytes(300));
+	}
+
+	private static byte[] data(int length, int value)
+	{
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+		{
+			data[i] = (byte)(value + i);
+		}
+		return data;
+	}
+
+	/**
+	 * Pages are serialized into the cache and deserialized from it.
+	 */
+	@Test
+	public void storeAndGetPage()
+	{
+		OffHeapPageCache cache = new OffHeapPageCache(new JavaSerializer("OffHeapPageCacheTest"),
+			Bytes.kilobytes(100));
+
+		MockPage page = new MockPage(3);
+		cache.storePage("s1", 3, page);
+
+		IManageablePage cached = cache.getPage("s1", 3);
+		assertNotSame(page, cached);
+		assertEquals(3, cached.getPageId());
+		assertNull(cache.getPage("s1", 4));
+		assertNull(cache.getPage("s2", 3));
+	}
+
+	/**
+	 * Data spanning several blocks and slabs is returned as is.
+	 */
+	@Test
+	public void storeData()
+	{
+		OffHeapPageCache cache = newCache(1000);
+
+		cache.storeData("s1", 1, data(250, 1));
+		cache.storeData("s1", 2, data(0, 2));
+		cache.storeData("s2", 1, data(420, 3));
+
+		assertArrayEquals(data(250, 1), cache.getData("s1", 1));
+		assertArrayEquals(data(0, 2), cache.getData("s1", 2));
+		assertArrayEquals(data(420, 3), cache.getData("s2", 1));
+		assertEquals(3, cache.getPageCount());
+		assertEquals(800, cache.getUsedBytes());
+
+		cache.storeData("s1", 1, data(50, 4));
+		assertArrayEquals(data(50, 4), cache.getData("s1", 1));
+		assertEquals(600, cache.getUsedBytes());
+	}
+
+	/**
+	 * The least recently used pages of all sessions are evicted when the budget is exhausted.
+	 */
+	@Test
+	public void evictLeastRecentlyUsed()
+	{
+		OffHeapPageCache cache = newCache(1000);
+
+		cache.storeData("s1", 1, data(300, 1));
+		cache.storeData("s2", 1, data(300, 2));
+		cache.storeData("s3", 1, data(300, 3));
+		// touch the oldest page
+		assertNotNull(cache.getData("s1", 1));
+
+		cache.storeData("s3", 2, data(200, 4));
+		assertNull(cache.getData("s2", 1));
+		assertNotNull(cache.getData("s1", 1));
+		assertNotNull(cache.getData("s3", 1));
+		assertArrayEquals(data(200, 4), cache.getData("s3", 2));
+
+		// too large for the cache
+		cache.storeData("s4", 1, data(1001, 5));
+		assertNull(cache.getData("s4", 1));
+		assertEquals(3, cache.getPageCount());
+	}
+
+	/**
+	 * Removing pages and sessions frees their blocks.
+	 */
+	@Test
+	public void remove()
+	{
+		OffHeapPageCache cache = newCache(1000);
+
+		cache.storeData("s1", 1, data(300, 1));
+		cache.storeData("s1", 2, data(300, 2));
+		cache.storeData("s2", 1, data(300, 3));
+
+		cache.removePage("s1", 1);
+		assertNull(cache.getData("s1", 1));
+		assertEquals(600, cache.getUsedBytes());
+
+		cache.removePages("s1");
+		assertNull(cache.getData("s1", 2));
+		assertEquals(1, cache.getPageCount());
+		assertEquals(300, cache.getUsedBytes());
+
+		cache.destroy();
+		assertNull(cache.getData("s2", 1));
+		assertEquals(0, cache.getUsedBytes());
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import org.apache.wicket.settings.StoreSettings;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SegmentDataStore}
+ */
+public class SegmentDataStoreTest extends Assert
+{
+	private File fileStoreFolder;
+
+	private String applicationName;
+
+	private SegmentDataStore dataStore;
+
+	/**
+	 * Creates a store with small segments in a unique folder.
+	 */
+	@Before
+	public void before()
+	{
+		fileStoreFolder = new StoreSettings(null).getFileStoreFolder();
+		applicationName = "segmentDataStore-" + UUID.randomUUID();
+		dataStore = newDataStore();
+	}
+
+	/**
+	 * Removes the store folder.
+	 */
+	@After
+	public void after()
+	{
+		dataStore.destroy();
+		Files.removeFolder(new File(fileStoreFolder, applicationName + "-segmentstore"));
+	}
+
+	private SegmentDataStore newDataStore()
+	{
+		return new SegmentDataStore(applicationName, fileStoreFolder, Bytes.kilobytes(10),
+			Bytes.kilobytes(4), 0.5d);
+	}
+
+	private static byte[] data(int length, int value)
+	{
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+		{
+			data[i] = (byte)(value + i);
+		}
+		return data;
+	}
+
+	/**
+	 * Stored data is returned as is, also as a view on the mapped segment.
+	 */
+	@Test
+	public void storeAndGet()
+	{
+		dataStore.storeData("s1", 1, data(100, 1));
+		dataStore.storeData("s2", 1, data(200, 2));
+
+		assertArrayEquals(data(100, 1), dataStore.getData("s1", 1));
+		assertArrayEquals(data(200, 2), dataStore.getData("s2", 1));
+		assertNull(dataStore.getData("s1", 2));
+		assertNull(dataStore.getData("s3", 1));
+
+		ByteBuffer buffer = dataStore.getDataBuffer("s2", 1);
+		assertTrue(buffer.isReadOnly());
+		assertEquals(200, buffer.remaining());
+
+		// both sessions share the same segment
+		assertEquals(1, dataStore.getSegmentCount());
+	}
+
+	/**
+	 * Overwriting and removing pages.
+	 */
+	@Test
+	public void overwriteAndRemove()
+	{
+		dataStore.storeData("s1", 1, data(100, 1));
+		dataStore.storeData("s1", 1, data(50, 3));
+		assertArrayEquals(data(50, 3), dataStore.getData("s1", 1));
+
+		dataStore.storeData("s1", 2, data(100, 4));
+		dataStore.removeData("s1", 1);
+		assertNull(dataStore.getData("s1", 1));
+		assertArrayEquals(data(100, 4), dataStore.getData("s1", 2));
+
+		dataStore.removeData("s1");
+		assertNull(dataStore.getData("s1", 2));
+	}
+
+	/**
+	 * The oldest pages are evicted when a session exceeds its maximum size.
+	 */
+	@Test
+	public void maxSizePerSession()
+	{
+		for (int i = 0; i < 6; i++)
+		{
+			dataStore.storeData("s1", i, data(2048, i));
+		}
+
+		assertNull(dataStore.getData("s1", 0));
+		for (int i = 1; i < 6; i++)
+		{
+			assertArrayEquals(data(2048, i), dataStore.getData("s1", i));
+		}
+	}
+
+	/**
+	 * Sealed segments with little live data are compacted and their files removed.
+	 */
+	@Test
+	public void compact()
+	{
+		for (int i = 0; i < 8; i++)
+		{
+			dataStore.storeData("s1", i, data(1024, i));
+		}
+		int segmentCount = dataStore.getSegmentCount();
+		assertTrue(segmentCount > 1);
+
+		for (int i = 0; i < 7; i++)
+		{
+			dataStore.removeData("s1", i);
+		}
+		dataStore.compact();
+
+		assertTrue(dataStore.getSegmentCount() < segmentCount);
+		assertArrayEquals(data(1024, 7), dataStore.getData("s1", 7));
+
+		dataStore.storeData("s2", 1, data(1024, 9));
+		dataStore.removeData("s1");
+		dataStore.compact();
+		assertArrayEquals(data(1024, 9), dataStore.getData("s2", 1));
+	}
+
+	/**
+	 * Pages survive a restart of the application.
+	 */
+	@Test
+	public void loadIndex()
+	{
+		dataStore.storeData("s1", 1, data(1000, 1));
+		dataStore.storeData("s1", 2, data(3000, 2));
+		dataStore.storeData("s2", 1, data(3000, 3));
+		dataStore.destroy();
+
+		dataStore = newDataStore();
+		assertArrayEquals(data(1000, 1), dataStore.getData("s1", 1));
+		assertArrayEquals(data(3000, 2), dataStore.getData("s1", 2));
+		assertArrayEquals(data(3000, 3), dataStore.getData("s2", 1));
+
+		// old segments are sealed, new data goes into a new segment
+		dataStore.storeData("s2", 2, data(10, 4));
+		assertArrayEquals(data(10, 4), dataStore.getData("s2", 2));
+	}
+}
@@ -18,6 +18,9 @@ package org.apache.wicket.pageStore.memory;
 
 import static org.junit.Assert.assertArrayEquals;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.After;
 import org.junit.Before;
@@ -66,6 +69,21 @@ public class HttpSessionDataStoreTest extends WicketTestCase
 		assertArrayEquals(PAGE1, store.getData(sessionId, pageId));
 	}
 
+	/**
+	 * storeData() with several pages
+	 */
+	@Test
+	public void storePages()
+	{
+		Map<Integer, byte[]> batch = new LinkedHashMap<>();
+		batch.put(pageId, PAGE1);
+		batch.put(pageId + 1, PAGE2);
+		store.storeData(sessionId, batch);
+
+		assertArrayEquals(PAGE1, store.getData(sessionId, pageId));
+		assertArrayEquals(PAGE2, store.getData(sessionId, pageId + 1));
+	}
+
 	/**
 	 * removePage1()
 	 */
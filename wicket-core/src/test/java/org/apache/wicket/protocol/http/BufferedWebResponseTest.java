@@ -16,10 +16,12 @@
  */
 package org.apache.wicket.protocol.http;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 import org.apache.wicket.mock.MockWebResponse;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.tester.DummyHomePage;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.Test;
 
@@ -73,4 +75,42 @@ public class BufferedWebResponseTest extends WicketTestCase
 		assertEquals(1, actionsSequence.indexOf(TestAction.DISABLE_CACHING));
 		assertEquals(2, actionsSequence.indexOf(TestAction.WRITE_RESPONSE));
 	}
+
+	/**
+	 * Text is written as encoded bytes if a charset is given.
+	 */
+	@Test
+	public void writeEncodedText()
+	{
+		MockWebResponse originalResponse = new MockWebResponse();
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse,
+			StandardCharsets.UTF_8);
+		response.write("<p>");
+		response.writeEncoded("\u00e4".getBytes(StandardCharsets.UTF_8));
+		response.write("</p>");
+		assertEquals("<p>\u00e4</p>", response.getText().toString());
+
+		response.writeTo(originalResponse);
+		assertArrayEquals("<p>\u00e4</p>".getBytes(StandardCharsets.UTF_8),
+			originalResponse.getBinaryResponse());
+		assertNull(originalResponse.getTextResponse());
+
+		response.setText("<p/>");
+		assertEquals("<p/>", response.toString());
+		response.release();
+	}
+
+	/**
+	 * Pages are buffered as encoded bytes if configured.
+	 */
+	@Test
+	public void renderEncodedPage()
+	{
+		tester.getApplication().getRequestCycleSettings().setEncodeBufferedResponse(true);
+
+		tester.startPage(DummyHomePage.class);
+		tester.assertRenderedPage(DummyHomePage.class);
+		assertNotNull(tester.getLastResponse().getBinaryContent());
+		tester.assertContains("link to test page");
+	}
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.wicket.markup.html.PackageResourceTest;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.request.resource.PackageResourceCache.Entry;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PackageResourceCache}
+ */
+public class PackageResourceCacheTest extends WicketTestCase
+{
+	private final AtomicInteger compressions = new AtomicInteger();
+
+	private String compressed = "compressed";
+
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				getResourceSettings().setJavaScriptCompressor(original -> {
+					compressions.incrementAndGet();
+					return compressed;
+				});
+				getResourceSettings().setPackageResourceCache(
+					new PackageResourceCache(Bytes.kilobytes(10)));
+			}
+		};
+	}
+
+	/**
+	 * Processed resources are cached.
+	 */
+	@Test
+	public void cached()
+	{
+		JavaScriptPackageResource resource = new JavaScriptPackageResource(
+			PackageResourceTest.class, "packaged1.txt", null, null, null);
+
+		tester.startResource(resource);
+		assertEquals("compressed", tester.getLastResponseAsString());
+		tester.startResource(resource);
+		assertEquals("compressed", tester.getLastResponseAsString());
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+
+		assertEquals(1, compressions.get());
+	}
+
+	/**
+	 * Cached resources are served in an accepted content encoding.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void encoded() throws IOException
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+		{
+			text.append("function f").append(i).append("() {}\n");
+		}
+		compressed = text.toString();
+
+		JavaScriptPackageResource resource = new JavaScriptPackageResource(
+			PackageResourceTest.class, "packaged1.txt", null, null, null);
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip, deflate");
+		tester.startResource(resource);
+
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+		byte[] bytes = tester.getLastResponse().getBinaryContent();
+		assertTrue(bytes.length < compressed.length());
+		assertEquals(compressed, new String(
+			IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes))), "UTF-8"));
+
+		tester.getRequest().setHeader("Accept-Encoding", "deflate");
+		tester.startResource(resource);
+
+		assertEquals("deflate", tester.getLastResponse().getHeader("Content-Encoding"));
+		bytes = tester.getLastResponse().getBinaryContent();
+		assertEquals(compressed, new String(
+			IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(bytes))), "UTF-8"));
+
+		tester.getRequest().setHeader("Accept-Encoding", "identity");
+		tester.startResource(resource);
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals(compressed, tester.getLastResponseAsString());
+
+		assertEquals(1, compressions.get());
+	}
+
+	/**
+	 * The least recently used entries are evicted when exceeding the budget.
+	 */
+	@Test
+	public void budget()
+	{
+		PackageResourceCache cache = new PackageResourceCache(Bytes.bytes(100));
+
+		// random bytes are not compressed
+		Random random = new Random(0);
+		cache.put("a", 1, randomBytes(random, 40));
+		cache.put("b", 1, randomBytes(random, 40));
+		assertNotNull(cache.get("a", 1));
+
+		cache.put("c", 1, randomBytes(random, 40));
+		assertNotNull(cache.get("a", 1));
+		assertNull(cache.get("b", 1));
+		assertNotNull(cache.get("c", 1));
+		assertEquals(80, cache.getSize().bytes());
+
+		// compressed variants count too
+		cache.put("d", 1, new byte[90]);
+		assertNull(cache.get("d", 1));
+		assertEquals(80, cache.getSize().bytes());
+
+		// other versions are not served
+		assertNull(cache.get("a", 2));
+		cache.put("a", 2, randomBytes(random, 10));
+		assertNull(cache.get("a", 1));
+		assertNotNull(cache.get("a", 2));
+		assertEquals(50, cache.getSize().bytes());
+
+		cache.clear();
+		assertEquals(0, cache.getSize().bytes());
+	}
+
+	private static byte[] randomBytes(Random random, int length)
+	{
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+	/**
+	 * The encoding is negotiated by {@code Accept-Encoding}.
+	 */
+	@Test
+	public void preferredEncoding()
+	{
+		Entry entry = new PackageResourceCache(Bytes.kilobytes(1)).put("key", 1, new byte[100]);
+
+		assertNull(entry.getPreferredEncoding(null));
+		assertNull(entry.getPreferredEncoding("identity"));
+		assertNull(entry.getPreferredEncoding("gzip;q=0, deflate;q=0"));
+		assertNull(entry.getPreferredEncoding("*, gzip;q=0, deflate;q=0.0"));
+		assertEquals("gzip", entry.getPreferredEncoding("GZIP"));
+		assertEquals("deflate", entry.getPreferredEncoding("deflate"));
+		assertEquals("gzip", entry.getPreferredEncoding("*;q=0.5, deflate;q=0"));
+		// gzip is preferred although zlib has less overhead
+		assertEquals("gzip", entry.getPreferredEncoding("deflate, gzip"));
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EncodedTextBuffer}
+ */
+public class EncodedTextBufferTest extends Assert
+{
+	private static String text(int length)
+	{
+		StringBuilder text = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+		{
+			// mix one, two and three byte characters
+			text.append("aä€".charAt(i % 3));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Text spanning several chunks is encoded once and written as is.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void writeChunks() throws IOException
+	{
+		String text = text(EncodedTextBuffer.CHUNK_SIZE);
+		byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+
+		EncodedTextBuffer buffer = new EncodedTextBuffer(StandardCharsets.UTF_8);
+		buffer.append(text.substring(0, 100)).append(text.substring(100));
+		assertEquals(expected.length, buffer.length());
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		buffer.writeTo(stream);
+		assertArrayEquals(expected, stream.toByteArray());
+
+		stream.reset();
+		buffer.writeTo(Channels.newChannel(stream));
+		assertArrayEquals(expected, stream.toByteArray());
+
+		ByteArrayResponse response = new ByteArrayResponse();
+		buffer.writeTo(response);
+		assertArrayEquals(expected, response.getBytes());
+
+		assertEquals(text, buffer.toString());
+	}
+
+	/**
+	 * Text which is encoded already is appended as is.
+	 */
+	@Test
+	public void appendBytes()
+	{
+		String text = text(EncodedTextBuffer.CHUNK_SIZE);
+
+		EncodedTextBuffer buffer = new EncodedTextBuffer(StandardCharsets.UTF_8);
+		buffer.append("x\ud83d");
+		buffer.append(text.getBytes(StandardCharsets.UTF_8));
+		buffer.append("y");
+
+		assertEquals("x?" + text + "y", buffer.toString());
+	}
+
+	/**
+	 * Surrogate pairs may be split over two appends.
+	 */
+	@Test
+	public void splitSurrogatePair()
+	{
+		String text = "x😀y";
+
+		EncodedTextBuffer buffer = new EncodedTextBuffer(StandardCharsets.UTF_8);
+		buffer.append(text.substring(0, 2));
+		buffer.append(text.substring(2));
+		assertEquals(text, buffer.toString());
+
+		// a dangling high surrogate is replaced
+		buffer.clear();
+		buffer.append("x\ud83d");
+		assertEquals("x?", buffer.toString());
+	}
+
+	/**
+	 * Cleared buffers can be reused.
+	 */
+	@Test
+	public void clear()
+	{
+		EncodedTextBuffer buffer = new EncodedTextBuffer(StandardCharsets.ISO_8859_1);
+		buffer.append(text(20000));
+		buffer.clear();
+		assertEquals(0, buffer.length());
+		assertEquals("", buffer.toString());
+
+		buffer.append("ä€");
+		assertEquals(2, buffer.length());
+		assertEquals("ä?", buffer.toString());
+	}
+}
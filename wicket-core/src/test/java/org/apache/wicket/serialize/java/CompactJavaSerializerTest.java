@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompactJavaSerializer}
+ */
+public class CompactJavaSerializerTest extends WicketTestCase
+{
+	/**
+	 * A component tree is serialized smaller than with {@link JavaSerializer} and can be
+	 * deserialized again.
+	 */
+	@Test
+	public void roundTrip()
+	{
+		WebMarkupContainer container = new WebMarkupContainer("container");
+		for (int i = 0; i < 10; i++)
+		{
+			container.add(new Label("label" + i, Model.of("value" + i)));
+		}
+		container.add(new CustomLabel("custom"));
+
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+		byte[] compact = serializer.serialize(container);
+		byte[] java = new JavaSerializer("CompactJavaSerializerTest").serialize(container);
+		assertTrue(compact.length < java.length);
+
+		WebMarkupContainer copy = (WebMarkupContainer)serializer.deserialize(compact);
+		assertEquals(11, copy.size());
+		assertEquals("value3", copy.get("label3").getDefaultModelObject());
+		assertEquals(42, ((CustomLabel)copy.get("custom")).values.get(0).intValue());
+
+		// registering the custom class makes it even smaller
+		serializer.getClassDescriptorRegistry().register(CustomLabel.class);
+		byte[] registered = serializer.serialize(container);
+		assertTrue(registered.length < compact.length);
+		copy = (WebMarkupContainer)serializer.deserialize(registered);
+		assertEquals(42, ((CustomLabel)copy.get("custom")).values.get(0).intValue());
+	}
+
+	/**
+	 * The ids are stable for the same registration order.
+	 */
+	@Test
+	public void stableIds()
+	{
+		ClassDescriptorRegistry registry1 = new ClassDescriptorRegistry().register(CustomLabel.class);
+		ClassDescriptorRegistry registry2 = new ClassDescriptorRegistry().register(CustomLabel.class);
+
+		int id = registry1.getId(CustomLabel.class.getName());
+		assertEquals(registry1.size(), id);
+		assertEquals(id, registry2.getId(CustomLabel.class.getName()));
+		assertEquals(CustomLabel.class.getName(), registry2.getClassName(id));
+
+		// registering again does not change the id
+		registry1.register(CustomLabel.class);
+		assertEquals(id, registry1.getId(CustomLabel.class.getName()));
+		assertNull(registry1.getClassName(id + 1));
+	}
+
+	/**
+	 * Data written with an unknown class id cannot be read.
+	 */
+	@Test(expected = RuntimeException.class)
+	public void unknownClassId()
+	{
+		ClassDescriptorRegistry registry = new ClassDescriptorRegistry().register(CustomLabel.class);
+		byte[] data = new CompactJavaSerializer("CompactJavaSerializerTest", registry)
+			.serialize(new CustomLabel("custom"));
+
+		new CompactJavaSerializer("CompactJavaSerializerTest").deserialize(data);
+	}
+
+	private static class CustomLabel extends Label
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<Integer> values = new ArrayList<>();
+
+		private CustomLabel(String id)
+		{
+			super(id);
+			values.add(42);
+		}
+	}
+}
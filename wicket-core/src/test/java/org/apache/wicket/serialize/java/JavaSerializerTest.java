@@ -35,6 +35,7 @@ import org.apache.wicket.markup.html.WebComponent;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.LoadableDetachableModel;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.Test;
 
@@ -199,4 +200,30 @@ public class JavaSerializerTest extends WicketTestCase
 			throw new IllegalStateException("Cannot serialize me twice!");
 		}
 	}
+
+	/**
+	 * Reused buffers, deflaters and inflaters produce the same results as new ones.
+	 */
+	@Test
+	public void reuseBuffers()
+	{
+		JavaSerializer serializer = new DeflatedJavaSerializer("JavaSerializerTest-reuse")
+			.setMaxRetainedBufferSize(Bytes.kilobytes(1));
+
+		StringBuilder large = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+		{
+			large.append(i);
+		}
+
+		for (int i = 0; i < 3; i++)
+		{
+			byte[] small = serializer.serialize("small" + i);
+			assertEquals("small" + i, serializer.deserialize(small));
+
+			// exceeds the retained size
+			byte[] bytes = serializer.serialize(large.toString());
+			assertEquals(large.toString(), serializer.deserialize(bytes));
+		}
+	}
 }
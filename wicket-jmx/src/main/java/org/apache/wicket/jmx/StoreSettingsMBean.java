@@ -37,6 +37,11 @@ public interface StoreSettingsMBean
 	 */
 	long getMaxSizePerSession();
 
+	/**
+	 * @return the maximum number of bytes of serialized pages cached outside of the Java heap
+	 */
+	long getOffHeapCacheSize();
+
 	/**
 	 * @return the location of the folder where {@link DiskDataStore} will store the files with page
 	 *         instances per session
@@ -48,6 +53,28 @@ public interface StoreSettingsMBean
 	 */
 	int getAsynchronousQueueCapacity();
 
+	/**
+	 * @return the number of threads which store the pages asynchronously
+	 */
+	int getAsynchronousWorkerCount();
+
+	/**
+	 * @return the maximum number of pages stored as delta against the same snapshot, {@code 0} if
+	 *         pages are stored as a whole
+	 */
+	int getDeltaSnapshotInterval();
+
+	/**
+	 * @return {@code true} if the stored pages are compressed with a trained dictionary
+	 */
+	boolean isDictionaryCompression();
+
+	/**
+	 * @return the number of recently used pages which are loaded in the background when a session
+	 *         gets active again
+	 */
+	int getPrefetchCount();
+
 	/**
 	 * @return {@code true} when the HTTP worker thread doesn't wait for the storing of the page's
 	 *         bytes in {@link IDataStore}
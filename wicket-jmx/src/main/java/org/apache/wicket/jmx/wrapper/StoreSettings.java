@@ -48,6 +48,12 @@ public class StoreSettings implements StoreSettingsMBean
 		return application.getStoreSettings().getMaxSizePerSession().bytes();
 	}
 
+	@Override
+	public long getOffHeapCacheSize()
+	{
+		return application.getStoreSettings().getOffHeapCacheSize().bytes();
+	}
+
 	@Override
 	public String getFileStoreFolder()
 	{
@@ -60,6 +66,30 @@ public class StoreSettings implements StoreSettingsMBean
 		return application.getStoreSettings().getAsynchronousQueueCapacity();
 	}
 
+	@Override
+	public int getAsynchronousWorkerCount()
+	{
+		return application.getStoreSettings().getAsynchronousWorkerCount();
+	}
+
+	@Override
+	public int getDeltaSnapshotInterval()
+	{
+		return application.getStoreSettings().getDeltaSnapshotInterval();
+	}
+
+	@Override
+	public boolean isDictionaryCompression()
+	{
+		return application.getStoreSettings().isDictionaryCompression();
+	}
+
+	@Override
+	public int getPrefetchCount()
+	{
+		return application.getStoreSettings().getPrefetchCount();
+	}
+
 	@Override
 	public boolean isAsynchronous()
 	{
@@ -75,9 +75,23 @@ public class Url implements Serializable
 
 	private static final String DEFAULT_CHARSET_NAME = "UTF-8";
 
-	private final List<String> segments;
+	/**
+	 * segments, {@code null} until decoded from {@link #encodedPath}; volatile since a request's
+	 * url may be read by several threads
+	 */
+	private volatile List<String> segments;
+
+	/**
+	 * query parameters, {@code null} until decoded from {@link #encodedQuery}; volatile since a
+	 * request's url may be read by several threads
+	 */
+	private volatile List<QueryParameter> parameters;
+
+	/** path of a parsed url, decoded into {@link #segments} on first access */
+	private String encodedPath;
 
-	private final List<QueryParameter> parameters;
+	/** query string of a parsed url, decoded into {@link #parameters} on first access */
+	private String encodedQuery;
 
 	private String charsetName;
 	private transient Charset _charset;
@@ -131,6 +145,20 @@ public class Url implements Serializable
 	}
 
 
+	/**
+	 * Construct a parsed url, the path and query string are decoded on first access.
+	 * 
+	 * @param charset
+	 * @param encodedPath
+	 * @param encodedQuery
+	 */
+	private Url(final Charset charset, final String encodedPath, final String encodedQuery)
+	{
+		this.encodedPath = encodedPath;
+		this.encodedQuery = encodedQuery;
+		setCharset(charset);
+	}
+
 	/**
 	 * copy constructor
 	 * 
@@ -144,8 +172,10 @@ public class Url implements Serializable
 		protocol = url.protocol;
 		host = url.host;
 		port = url.port;
-		segments = new ArrayList<>(url.segments);
-		parameters = new ArrayList<>(url.parameters);
+		segments = url.segments != null ? new ArrayList<>(url.segments) : null;
+		parameters = url.parameters != null ? new ArrayList<>(url.parameters) : null;
+		encodedPath = url.encodedPath;
+		encodedQuery = url.encodedQuery;
 		charsetName = url.charsetName;
 		_charset = url._charset;
 	}
@@ -229,7 +259,7 @@ public class Url implements Serializable
 	{
 		Args.notNull(_url, "_url");
 
-		final Url result = new Url(charset);
+		final Url result = new Url(charset, "", "");
 
 		// the url object resolved the charset, use that
 		charset = result.getCharset();
@@ -327,47 +357,62 @@ public class Url implements Serializable
 			relativeUrl = absoluteUrl;
 		}
 
-		if (relativeUrl.length() > 0)
-		{
-			boolean removeLast = false;
-			if (relativeUrl.endsWith("/"))
-			{
-				// we need to append something and remove it after splitting
-				// because otherwise the
-				// trailing slashes will be lost
-				relativeUrl += "/x";
-				removeLast = true;
-			}
-
-			String segmentArray[] = Strings.split(relativeUrl, '/');
+		result.encodedPath = relativeUrl;
+		result.encodedQuery = queryString;
 
-			if (removeLast)
-			{
-				segmentArray[segmentArray.length - 1] = null;
-			}
+		return result;
+	}
 
-			for (String s : segmentArray)
+	/**
+	 * Decodes the segments of a path.
+	 * 
+	 * @param path
+	 * @param charset
+	 * @return segments
+	 */
+	private static List<String> decodeSegments(final String path, final Charset charset)
+	{
+		List<String> segments = new ArrayList<>();
+		if (path.length() > 0)
+		{
+			int start = 0;
+			int end;
+			while ((end = path.indexOf('/', start)) != -1)
 			{
-				if (s != null)
-				{
-					result.segments.add(decodeSegment(s, charset));
-				}
+				segments.add(decodeSegment(path.substring(start, end), charset));
+				start = end + 1;
 			}
+			segments.add(decodeSegment(path.substring(start), charset));
 		}
+		return segments;
+	}
 
-		if (queryString.length() > 0)
+	/**
+	 * Decodes the parameters of a query string.
+	 * 
+	 * @param query
+	 * @param charset
+	 * @return query parameters
+	 */
+	private static List<QueryParameter> decodeQueryParameters(final String query,
+		final Charset charset)
+	{
+		List<QueryParameter> parameters = new ArrayList<>();
+		int start = 0;
+		while (start < query.length())
 		{
-			String queryArray[] = Strings.split(queryString, '&');
-			for (String s : queryArray)
+			int end = query.indexOf('&', start);
+			if (end == -1)
 			{
-				if (Strings.isEmpty(s) == false)
-				{
-					result.parameters.add(parseQueryParameter(s, charset));
-				}
+				end = query.length();
+			}
+			if (end > start)
+			{
+				parameters.add(parseQueryParameter(query.substring(start, end), charset));
 			}
+			start = end + 1;
 		}
-
-		return result;
+		return parameters;
 	}
 
 	/**
@@ -459,7 +504,14 @@ public class Url implements Serializable
 	 */
 	public List<String> getSegments()
 	{
-		return segments;
+		// the encoded path is kept, so concurrent readers at worst decode twice
+		List<String> result = segments;
+		if (result == null)
+		{
+			result = decodeSegments(encodedPath, getCharset());
+			segments = result;
+		}
+		return result;
 	}
 
 	/**
@@ -469,7 +521,14 @@ public class Url implements Serializable
 	 */
 	public List<QueryParameter> getQueryParameters()
 	{
-		return parameters;
+		// the encoded query is kept, so concurrent readers at worst decode twice
+		List<QueryParameter> result = parameters;
+		if (result == null)
+		{
+			result = decodeQueryParameters(encodedQuery, getCharset());
+			parameters = result;
+		}
+		return result;
 	}
 
 	/**
@@ -548,6 +607,7 @@ public class Url implements Serializable
 	 */
 	public void removeLeadingSegments(final int count)
 	{
+		List<String> segments = getSegments();
 		Args.withinRange(0, segments.size(), count, "count");
 		for (int i = 0; i < count; i++)
 		{
@@ -563,7 +623,7 @@ public class Url implements Serializable
 	public void prependLeadingSegments(final List<String> newSegments)
 	{
 		Args.notNull(newSegments, "segments");
-		segments.addAll(0, newSegments);
+		getSegments().addAll(0, newSegments);
 	}
 
 	/**
@@ -603,7 +663,7 @@ public class Url implements Serializable
 	 */
 	public QueryParameter getQueryParameter(final String name)
 	{
-		for (QueryParameter parameter : parameters)
+		for (QueryParameter parameter : getQueryParameters())
 		{
 			if (Objects.equal(name, parameter.getName()))
 			{
@@ -665,17 +725,6 @@ public class Url implements Serializable
 		return Objects.hashCode(getSegments(), getQueryParameters(), getFragment());
 	}
 
-	/**
-	 * 
-	 * @param string
-	 * @param charset
-	 * @return encoded segment
-	 */
-	private static String encodeSegment(final String string, final Charset charset)
-	{
-		return UrlEncoder.PATH_INSTANCE.encode(string, charset);
-	}
-
 	/**
 	 * 
 	 * @param string
@@ -687,17 +736,6 @@ public class Url implements Serializable
 		return UrlDecoder.PATH_INSTANCE.decode(string, charset);
 	}
 
-	/**
-	 * 
-	 * @param string
-	 * @param charset
-	 * @return encoded parameter
-	 */
-	private static String encodeParameter(final String string, final Charset charset)
-	{
-		return UrlEncoder.QUERY_INSTANCE.encode(string, charset);
-	}
-
 	/**
 	 * 
 	 * @param string
@@ -731,7 +769,24 @@ public class Url implements Serializable
 	public String toString(StringMode mode, Charset charset)
 	{
 		StringBuilder result = new StringBuilder();
-		final String path = getPath(charset);
+		render(result, mode, charset);
+		return result.toString();
+	}
+
+	/**
+	 * Renders this url into a builder, encoding segments and parameters directly into it.
+	 * 
+	 * @param target
+	 *            builder to append to
+	 * @param mode
+	 *            {@link StringMode} that determines how to render the url
+	 * @param charset
+	 *            charset
+	 */
+	public void render(final StringBuilder target, final StringMode mode, final Charset charset)
+	{
+		Args.notNull(target, "target");
+		Args.notNull(charset, "charset");
 
 		if (StringMode.FULL == mode)
 		{
@@ -743,49 +798,50 @@ public class Url implements Serializable
 
 			if (Strings.isEmpty(protocol) == false)
 			{
-				result.append(protocol);
-				result.append("://");
+				target.append(protocol);
+				target.append("://");
 			}
 			else if (Strings.isEmpty(protocol) && Strings.isEmpty(host) == false)
 			{
-				result.append("//");
+				target.append("//");
 			}
-			result.append(host);
+			target.append(host);
 
 			if (port != null && port.equals(getDefaultPortForProtocol(protocol)) == false)
 			{
-				result.append(':');
-				result.append(port);
+				target.append(':');
+				target.append(port);
 			}
 
-			if (segments.contains(".."))
+			if (getSegments().contains(".."))
 			{
 				throw new IllegalStateException("Cannot render this url in " +
 					StringMode.FULL.name() + " mode because it has a `..` segment: " + toString());
 			}
 
-			if (!path.startsWith("/"))
+			int pathAt = target.length();
+			renderPath(target, charset);
+			if (target.length() == pathAt || target.charAt(pathAt) != '/')
 			{
-				result.append('/');
+				target.insert(pathAt, '/');
 			}
-
+		}
+		else
+		{
+			renderPath(target, charset);
 		}
 
-		result.append(path);
-
-		final String queryString = getQueryString(charset);
-		if (queryString != null)
+		if (getQueryParameters().isEmpty() == false)
 		{
-			result.append('?').append(queryString);
+			target.append('?');
+			renderQueryString(target, charset);
 		}
 
 		String _fragment = getFragment();
 		if (Strings.isEmpty(_fragment) == false)
 		{
-			result.append('#').append(_fragment);
+			target.append('#').append(_fragment);
 		}
-
-		return result.toString();
 	}
 
 	/**
@@ -817,6 +873,7 @@ public class Url implements Serializable
 	 */
 	private boolean isLastSegmentReal()
 	{
+		List<String> segments = getSegments();
 		if (segments.isEmpty())
 		{
 			return false;
@@ -845,7 +902,7 @@ public class Url implements Serializable
 	 */
 	private boolean isLastSegmentEmpty()
 	{
-		return isLastSegmentEmpty(segments);
+		return isLastSegmentEmpty(getSegments());
 	}
 
 	/**
@@ -886,9 +943,9 @@ public class Url implements Serializable
 			{
 				continue;
 			}
-			else if ("..".equals(s) && !this.segments.isEmpty())
+			else if ("..".equals(s) && !getSegments().isEmpty())
 			{
-				this.segments.remove(this.segments.size() - 1);
+				getSegments().remove(getSegments().size() - 1);
 			}
 			else
 			{
@@ -896,17 +953,17 @@ public class Url implements Serializable
 				{
 					if (isLastSegmentReal() || isLastSegmentEmpty())
 					{
-						this.segments.remove(this.segments.size() - 1);
+						getSegments().remove(getSegments().size() - 1);
 					}
 					checkedLastSegment = true;
 				}
-				this.segments.add(s);
+				getSegments().add(s);
 			}
 		}
 
-		if ((this.segments.size() == 1) && (this.segments.get(0).length() == 0))
+		if ((getSegments().size() == 1) && (getSegments().get(0).length() == 0))
 		{
-			this.segments.clear();
+			getSegments().clear();
 		}
 	}
 
@@ -1005,13 +1062,24 @@ public class Url implements Serializable
 		public String toString(final Charset charset)
 		{
 			StringBuilder result = new StringBuilder();
-			result.append(encodeParameter(getName(), charset));
+			render(result, charset);
+			return result.toString();
+		}
+
+		/**
+		 * Renders the encoded parameter into a builder.
+		 * 
+		 * @param target
+		 * @param charset
+		 */
+		private void render(final StringBuilder target, final Charset charset)
+		{
+			UrlEncoder.QUERY_INSTANCE.encode(getName(), charset, target);
 			if (!Strings.isEmpty(getValue()))
 			{
-				result.append('=');
-				result.append(encodeParameter(getValue(), charset));
+				target.append('=');
+				UrlEncoder.QUERY_INSTANCE.encode(getValue(), charset, target);
 			}
-			return result.toString();
 		}
 	}
 
@@ -1088,8 +1156,8 @@ public class Url implements Serializable
 		getSegments().addAll(relative.getSegments());
 
 		// replace query params with the ones from relative
-		parameters.clear();
-		parameters.addAll(relative.getQueryParameters());
+		getQueryParameters().clear();
+		getQueryParameters().addAll(relative.getQueryParameters());
 	}
 
 	/**
@@ -1187,18 +1255,29 @@ public class Url implements Serializable
 		Args.notNull(charset, "charset");
 
 		StringBuilder path = new StringBuilder();
+		renderPath(path, charset);
+		return path.toString();
+	}
+
+	/**
+	 * Renders the encoded path into a builder.
+	 * 
+	 * @param target
+	 * @param charset
+	 */
+	private void renderPath(final StringBuilder target, final Charset charset)
+	{
 		boolean slash = false;
 
 		for (String segment : getSegments())
 		{
 			if (slash)
 			{
-				path.append('/');
+				target.append('/');
 			}
-			path.append(encodeSegment(segment, charset));
+			UrlEncoder.PATH_INSTANCE.encode(segment, charset, target);
 			slash = true;
 		}
-		return path.toString();
 	}
 
 	/**
@@ -1225,23 +1304,35 @@ public class Url implements Serializable
 		Args.notNull(charset, "charset");
 
 		String queryString = null;
-		List<QueryParameter> queryParameters = getQueryParameters();
 
-		if (queryParameters.size() != 0)
+		if (getQueryParameters().size() != 0)
 		{
 			StringBuilder query = new StringBuilder();
+			renderQueryString(query, charset);
+			queryString = query.toString();
+		}
+		return queryString;
+	}
 
-			for (QueryParameter parameter : queryParameters)
+	/**
+	 * Renders the encoded query string without "?" into a builder.
+	 * 
+	 * @param target
+	 * @param charset
+	 */
+	void renderQueryString(final StringBuilder target, final Charset charset)
+	{
+		boolean ampersand = false;
+
+		for (QueryParameter parameter : getQueryParameters())
+		{
+			if (ampersand)
 			{
-				if (query.length() != 0)
-				{
-					query.append('&');
-				}
-				query.append(parameter.toString(charset));
+				target.append('&');
 			}
-			queryString = query.toString();
+			parameter.render(target, charset);
+			ampersand = true;
 		}
-		return queryString;
 	}
 
 	/**
@@ -1294,7 +1385,9 @@ public class Url implements Serializable
 	public Url canonical()
 	{
 		Url url = new Url(this);
-		url.segments.clear();
+		List<String> segments = getSegments();
+		url.segments = new ArrayList<>();
+		url.encodedPath = null;
 
 		for (int i = 0; i < segments.size(); i++)
 		{
@@ -16,11 +16,12 @@
  */
 package org.apache.wicket.request;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.wicket.util.encoding.UrlEncoder;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.PrependingStringBuffer;
 import org.apache.wicket.util.string.Strings;
@@ -51,6 +52,9 @@ public class UrlRenderer
 	private final Request request;
 	private Url baseUrl;
 
+	/** segments of the context and filter path, parsed on first use */
+	private List<String> commonPrefix;
+
 	/**
 	 * Construct.
 	 * 
@@ -230,127 +234,191 @@ public class UrlRenderer
 	 * @return Url rendered as string
 	 */
 	public String renderRelativeUrl(final Url url)
+	{
+		StringBuilder target = new StringBuilder();
+		renderRelativeUrl(url, target);
+		return target.toString();
+	}
+
+	/**
+	 * Renders the Url relative to currently set Base Url into a builder.
+	 * 
+	 * @param url
+	 * @param target
+	 *            builder to append to
+	 * @see #renderRelativeUrl(Url)
+	 */
+	public void renderRelativeUrl(final Url url, final StringBuilder target)
 	{
 		Args.notNull(url, "url");
+		Args.notNull(target, "target");
 
 		if (url instanceof IUrlRenderer)
 		{
 			IUrlRenderer renderer = (IUrlRenderer)url;
-			return renderer.renderRelativeUrl(url, getBaseUrl());
+			target.append(renderer.renderRelativeUrl(url, getBaseUrl()));
+			return;
 		}
 
-		List<String> baseUrlSegments =  new ArrayList<>(getBaseUrl().getSegments());
-		List<String> urlSegments = new ArrayList<>(url.getSegments());
+		List<String> baseUrlSegments = getBaseUrl().getSegments();
+		List<String> urlSegments = url.getSegments();
 
+		// skip any possible filter/context segments
+		int baseUrlStart = 0;
 		if (!getBaseUrl().isContextRelative())
 		{
-			// so we remove any possible filter/context segments
-			removeCommonPrefixes(request, baseUrlSegments);
+			baseUrlStart = getCommonPrefixLength(baseUrlSegments);
 		}
-		removeCommonPrefixes(request, urlSegments);
+		int urlStart = getCommonPrefixLength(urlSegments);
 
-		List<String> newSegments = new ArrayList<>();
+		int baseUrlSize = baseUrlSegments.size() - baseUrlStart;
 
 		int common = 0;
-
-		String last = null;
-
-		for (String s : baseUrlSegments)
+		while (common < baseUrlSize && urlStart + common < urlSegments.size() &&
+			baseUrlSegments.get(baseUrlStart + common).equals(urlSegments.get(urlStart + common)))
 		{
-			if (!urlSegments.isEmpty() && s.equals(urlSegments.get(0)))
-			{
-				++common;
-				last = urlSegments.remove(0);
-			}
-			else
-			{
-				break;
-			}
+			++common;
 		}
 
 		// we want the new URL to have at least one segment (other than possible ../)
-		if ((last != null) && (urlSegments.isEmpty() || (baseUrlSegments.size() == common)))
+		if ((common > 0) &&
+			(urlStart + common == urlSegments.size() || (baseUrlSize == common)))
 		{
 			--common;
-			urlSegments.add(0, last);
 		}
 
-		int baseUrlSize = baseUrlSegments.size();
-		if (common + 1 == baseUrlSize && urlSegments.isEmpty())
+		int start = target.length();
+		boolean slash = false;
+		if (common + 1 == baseUrlSize && urlStart + common == urlSegments.size())
 		{
-			newSegments.add(".");
+			target.append('.');
+			slash = true;
 		}
 		else
 		{
 			for (int i = common + 1; i < baseUrlSize; ++i)
 			{
-				newSegments.add("..");
+				if (slash)
+				{
+					target.append('/');
+				}
+				target.append("..");
+				slash = true;
+			}
+		}
+		for (int i = urlStart + common; i < urlSegments.size(); i++)
+		{
+			if (slash)
+			{
+				target.append('/');
 			}
+			UrlEncoder.PATH_INSTANCE.encode(urlSegments.get(i), StandardCharsets.UTF_8, target);
+			slash = true;
+		}
+
+		if (url.getQueryParameters().isEmpty() == false)
+		{
+			target.append('?');
+			url.renderQueryString(target, StandardCharsets.UTF_8);
 		}
-		newSegments.addAll(urlSegments);
 
-		Url relativeUrl = new Url(newSegments, url.getQueryParameters());
-		relativeUrl.setFragment(url.getFragment());
-		String renderedUrl = relativeUrl.toString();
+		String fragment = url.getFragment();
+		if (Strings.isEmpty(fragment) == false)
+		{
+			target.append('#').append(fragment);
+		}
 
 		// sanitize start
-		if (renderedUrl.startsWith("...") || (!renderedUrl.startsWith("..") && !renderedUrl.equals(".")))
+		boolean dot = target.length() - start == 1 && target.charAt(start) == '.';
+		if (startsWith(target, start, "...") || (!startsWith(target, start, "..") && !dot))
 		{
 			// WICKET-4260
-			renderedUrl = "./" + renderedUrl;
+			target.insert(start, "./");
 		}
 
 		// add trailing slash if the url has no query string and ends with ..
-		if (renderedUrl.indexOf('?') == -1 && (renderedUrl.endsWith("..") && renderedUrl.endsWith("...") == false))
+		if (target.indexOf("?", start) == -1 && endsWith(target, start, "..") &&
+			endsWith(target, start, "...") == false)
 		{
 			// WICKET-4401
-			renderedUrl = renderedUrl + '/';
+			target.append('/');
 		}
+	}
 
-		return renderedUrl;
+	private static boolean startsWith(StringBuilder target, int start, String prefix)
+	{
+		if (target.length() - start < prefix.length())
+		{
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++)
+		{
+			if (target.charAt(start + i) != prefix.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean endsWith(StringBuilder target, int start, String suffix)
+	{
+		int offset = target.length() - suffix.length();
+		if (offset < start)
+		{
+			return false;
+		}
+		for (int i = 0; i < suffix.length(); i++)
+		{
+			if (target.charAt(offset + i) != suffix.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
-	 * Removes common prefixes like empty first segment, context path and filter path.
+	 * Counts common prefixes like empty first segment, context path and filter path.
 	 * 
-	 * @param request
-	 *            the current web request
 	 * @param segments
-	 *            the segments to clean
+	 *            the segments to check
+	 * @return number of leading segments to skip
 	 */
-	private void removeCommonPrefixes(Request request, List<String> segments)
+	private int getCommonPrefixLength(List<String> segments)
 	{
 		// try to remove context/filter path only if the Url starts with '/',
 		// i.e. has an empty segment in the beginning
 		if (segments.isEmpty() || "".equals(segments.get(0)) == false)
 		{
-			return;
+			return 0;
 		}
 
-		Url commonPrefix = Url.parse(request.getContextPath() + request.getFilterPath());
-		// if both context and filter path are empty, common prefixes are empty too
-		if (commonPrefix.getSegments().isEmpty())
+		if (commonPrefix == null)
 		{
-			// WICKET-4920 and WICKET-4935
-			commonPrefix.getSegments().add("");
+			commonPrefix = Url.parse(request.getContextPath() + request.getFilterPath())
+				.getSegments();
+			// if both context and filter path are empty, common prefixes are empty too
+			if (commonPrefix.isEmpty())
+			{
+				// WICKET-4920 and WICKET-4935
+				commonPrefix.add("");
+			}
 		}
 
-		for (int i = 0; i < commonPrefix.getSegments().size() && i < segments.size(); i++)
+		for (int i = 0; i < commonPrefix.size() && i < segments.size(); i++)
 		{
-			String commonPrefixSegment = Strings.stripJSessionId(commonPrefix.getSegments().get(i));
+			String commonPrefixSegment = Strings.stripJSessionId(commonPrefix.get(i));
 			String segmentToClean = Strings.stripJSessionId(segments.get(i));
 			if (commonPrefixSegment.equals(segmentToClean) == false)
 			{
 				LOG.debug("Segments '{}' do not start with common prefix '{}'", segments,
 					commonPrefix);
-				return;
+				return 0;
 			}
 		}
 
-		for (int i = 0; i < commonPrefix.getSegments().size() && !segments.isEmpty(); i++)
-		{
-			segments.remove(0);
-		}
+		return Math.min(commonPrefix.size(), segments.size());
 	}
 
 	/**
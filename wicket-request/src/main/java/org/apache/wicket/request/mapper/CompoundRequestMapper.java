@@ -20,6 +20,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.wicket.request.IRequestHandler;
@@ -34,6 +36,10 @@ import org.slf4j.LoggerFactory;
  * Thread safe compound {@link IRequestMapper}. The mappers are searched depending on their
  * compatibility score and the orders they were registered. If two or more {@link IRequestMapper}s
  * have the same compatibility score, the last registered mapper has highest priority.
+ * <p>
+ * {@link IPrefixedRequestMapper}s are indexed by their prefix segments, so only the mappers
+ * whose prefix matches the url of a request are asked for their compatibility score.
+ * </p>
  * 
  * @author igor.vaynberg
  * @author Matej Knopp
@@ -95,27 +101,134 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 		}
 	}
 
+	/**
+	 * A registered mapper, the sequence increases with each registration.
+	 */
+	private static class Entry
+	{
+		private final IRequestMapper mapper;
+		private final long sequence;
+		private final String[] prefix;
+
+		private Entry(final IRequestMapper mapper, final long sequence, final String[] prefix)
+		{
+			this.mapper = mapper;
+			this.sequence = sequence;
+			this.prefix = prefix;
+		}
+	}
+
+	/**
+	 * A node of the index, holding the entries whose prefix ends at this node.
+	 */
+	private static class Node
+	{
+		private final ConcurrentMap<String, Node> children = new ConcurrentHashMap<>();
+		private final List<Entry> entries = new CopyOnWriteArrayList<>();
+	}
+
 	private final List<IRequestMapper> mappers = new CopyOnWriteArrayList<>();
 
+	/** the entries of {@link #mappers} in the same order */
+	private final List<Entry> entries = new ArrayList<>();
+
+	private final Node index = new Node();
+
+	private long sequence;
+
 	@Override
 	public CompoundRequestMapper add(final IRequestMapper mapper)
 	{
-		mappers.add(0, mapper);
+		synchronized (entries)
+		{
+			String[] prefix = null;
+			if (mapper instanceof IPrefixedRequestMapper)
+			{
+				prefix = ((IPrefixedRequestMapper)mapper).getPrefixSegments();
+			}
+			if (prefix == null)
+			{
+				prefix = new String[0];
+			}
+
+			Entry entry = new Entry(mapper, sequence++, prefix);
+			Node node = index;
+			for (String segment : prefix)
+			{
+				node = node.children.computeIfAbsent(segment, key -> new Node());
+			}
+			node.entries.add(entry);
+
+			entries.add(0, entry);
+			mappers.add(0, mapper);
+		}
 		return this;
 	}
 
 	@Override
 	public CompoundRequestMapper remove(final IRequestMapper mapper)
 	{
-		mappers.remove(mapper);
+		synchronized (entries)
+		{
+			int i = mappers.indexOf(mapper);
+			if (i != -1)
+			{
+				mappers.remove(i);
+				Entry entry = entries.remove(i);
+
+				Node node = index;
+				for (String segment : entry.prefix)
+				{
+					node = node.children.get(segment);
+				}
+				node.entries.remove(entry);
+			}
+		}
 		return this;
 	}
 
+	/**
+	 * Collects the mappers which might map the url, most recently registered first.
+	 * 
+	 * @param url
+	 * @return the candidate mappers
+	 */
+	private List<IRequestMapper> getCandidates(final Url url)
+	{
+		List<String> segments = url.getSegments();
+		if (segments.isEmpty())
+		{
+			// prefixes do not restrict urls without segments
+			return mappers;
+		}
+
+		List<Entry> candidates = new ArrayList<>(index.entries);
+		Node node = index;
+		for (String segment : segments)
+		{
+			node = node.children.get(segment);
+			if (node == null)
+			{
+				break;
+			}
+			candidates.addAll(node.entries);
+		}
+
+		candidates.sort((e1, e2) -> Long.compare(e2.sequence, e1.sequence));
+
+		List<IRequestMapper> result = new ArrayList<>(candidates.size());
+		for (Entry entry : candidates)
+		{
+			result.add(entry.mapper);
+		}
+		return result;
+	}
+
 	/**
 	 * Searches the registered {@link IRequestMapper}s to find one that can map the {@link Request}.
-	 * Each registered {@link IRequestMapper} is asked to provide its compatibility score. Then the
-	 * mappers are asked to map the request in order depending on the provided compatibility
-	 * score.
+	 * Each registered {@link IRequestMapper}, whose prefix matches the url of the request, is asked
+	 * to provide its compatibility score. Then the mappers are asked to map the request in order
+	 * depending on the provided compatibility score.
 	 * <p>
 	 * The mapper with highest compatibility score which can map the request is returned.
 	 * 
@@ -126,9 +239,10 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	@Override
 	public IRequestHandler mapRequest(final Request request)
 	{
-		List<MapperWithScore> list = new ArrayList<>(mappers.size());
+		List<IRequestMapper> candidates = getCandidates(request.getUrl());
+		List<MapperWithScore> list = new ArrayList<>(candidates.size());
 
-		for (IRequestMapper mapper : this)
+		for (IRequestMapper mapper : candidates)
 		{
 			int score = mapper.getCompatibilityScore(request);
 			list.add(new MapperWithScore(mapper, score));
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.mapper;
+
+import org.apache.wicket.request.IRequestMapper;
+
+/**
+ * An {@link IRequestMapper} which maps only urls starting with fixed segments, e.g. the segments
+ * of a mount path up to its first placeholder. {@link CompoundRequestMapper} uses the prefix to
+ * ask only the mappers which can map a request.
+ * <p>
+ * The prefix is read once when the mapper is added to a {@link CompoundRequestMapper}, so it
+ * must not change afterwards.
+ * </p>
+ */
+public interface IPrefixedRequestMapper extends IRequestMapper
+{
+	/**
+	 * Returns the segments every url with at least one segment has to start with to be mapped by
+	 * this mapper. Urls without any segments are not restricted by the prefix.
+	 * 
+	 * @return the decoded prefix segments, an empty array or {@code null} if urls with any
+	 *         segments might be mapped
+	 */
+	String[] getPrefixSegments();
+}
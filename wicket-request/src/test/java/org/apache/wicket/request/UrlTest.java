@@ -997,4 +997,80 @@ public class UrlTest
 		checkUrl(url, "http", "[::1]", 1234, "", "myapp");
 		
 	}
+
+	/**
+	 * Copies of a parsed url decode on their own, the original stays untouched.
+	 */
+	@Test
+	public void lazyDecoding()
+	{
+		Url url = Url.parse("a%20b/c?x=1%202&y");
+
+		Url copy = new Url(url);
+		copy.getSegments().add("d");
+		copy.getQueryParameters().clear();
+
+		checkSegments(url, "a b", "c");
+		checkQueryParams(url, "x", "1 2", "y", "");
+		assertEquals("a%20b/c/d", copy.toString());
+	}
+
+	/**
+	 * Concurrent readers of a parsed url all see its decoded segments and parameters.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void concurrentDecoding() throws Exception
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			final Url url = Url.parse("a%20b/c?x=1%202&y");
+
+			final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++)
+			{
+				threads[t] = new Thread(() -> {
+					try
+					{
+						assertEquals(Arrays.asList("a b", "c"), url.getSegments());
+						assertEquals("1 2", url.getQueryParameterValue("x").toString());
+					}
+					catch (Throwable ex)
+					{
+						failures.add(ex);
+					}
+				});
+			}
+			for (Thread thread : threads)
+			{
+				thread.start();
+			}
+			for (Thread thread : threads)
+			{
+				thread.join();
+			}
+			assertEquals(Collections.emptyList(), failures);
+		}
+	}
+
+	/**
+	 * Rendering appends to the builder.
+	 */
+	@Test
+	public void render()
+	{
+		Url url = Url.parse("http://host:8080/a b/c?x=1 2#f");
+
+		StringBuilder builder = new StringBuilder("<");
+		url.render(builder, StringMode.FULL, url.getCharset());
+		assertEquals("<http://host:8080/a%20b/c?x=1+2#f", builder.toString());
+		assertEquals(builder.substring(1), url.toString(StringMode.FULL));
+
+		url = Url.parse("http://host");
+		builder.setLength(0);
+		url.render(builder, StringMode.FULL, url.getCharset());
+		assertEquals("http://host/", builder.toString());
+	}
 }
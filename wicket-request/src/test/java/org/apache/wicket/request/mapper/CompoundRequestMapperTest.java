@@ -16,6 +16,16 @@
  */
 package org.apache.wicket.request.mapper;
 
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.wicket.request.IRequestCycle;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
 import org.apache.wicket.request.mapper.CompoundRequestMapper.MapperWithScore;
 import org.junit.Assert;
 import org.junit.Test;
@@ -47,4 +57,154 @@ public class CompoundRequestMapperTest extends Assert
 	{
 		return new MapperWithScore(null, score);
 	}
+
+	/**
+	 * Only mappers with a matching prefix are scored, with the same precedence as without index.
+	 */
+	@Test
+	public void prefixIndex()
+	{
+		List<String> scored = new ArrayList<>();
+
+		CompoundRequestMapper compound = new CompoundRequestMapper();
+		compound.add(new TestMapper("any", null, 1, scored));
+		compound.add(new TestMapper("ab", new String[] { "a", "b" }, 2, scored));
+		TestMapper a = new TestMapper("a", new String[] { "a" }, 2, scored);
+		compound.add(a);
+		compound.add(new TestMapper("c", new String[] { "c" }, 5, scored));
+		compound.add(new TestMapper("root", new String[0], 0, scored));
+
+		assertEquals("a", map(compound, "a/b/x"));
+		assertEquals("[root, a, ab, any]", scored.toString());
+
+		scored.clear();
+		assertEquals("c", map(compound, "c/d"));
+		assertEquals("[root, c, any]", scored.toString());
+
+		scored.clear();
+		assertEquals("any", map(compound, "d"));
+		assertEquals("[root, any]", scored.toString());
+
+		scored.clear();
+		assertEquals("c", map(compound, ""));
+		assertEquals("[root, c, a, ab, any]", scored.toString());
+
+		compound.remove(a);
+		assertEquals("ab", map(compound, "a/b"));
+		compound.add(a);
+		assertEquals("a", map(compound, "a/b"));
+	}
+
+	private String map(IRequestMapper mapper, String url)
+	{
+		TestHandler handler = (TestHandler)mapper.mapRequest(new TestRequest(Url.parse(url)));
+		return handler.name;
+	}
+
+	private static class TestMapper implements IPrefixedRequestMapper
+	{
+		private final String name;
+		private final String[] prefix;
+		private final int score;
+		private final List<String> scored;
+
+		private TestMapper(String name, String[] prefix, int score, List<String> scored)
+		{
+			this.name = name;
+			this.prefix = prefix;
+			this.score = score;
+			this.scored = scored;
+		}
+
+		@Override
+		public String[] getPrefixSegments()
+		{
+			return prefix;
+		}
+
+		@Override
+		public int getCompatibilityScore(Request request)
+		{
+			scored.add(name);
+			return score;
+		}
+
+		@Override
+		public IRequestHandler mapRequest(Request request)
+		{
+			List<String> segments = request.getUrl().getSegments();
+			if (prefix != null && segments.isEmpty() == false)
+			{
+				for (int i = 0; i < prefix.length; i++)
+				{
+					if (i >= segments.size() || prefix[i].equals(segments.get(i)) == false)
+					{
+						return null;
+					}
+				}
+			}
+			return new TestHandler(name);
+		}
+
+		@Override
+		public Url mapHandler(IRequestHandler requestHandler)
+		{
+			return null;
+		}
+	}
+
+	private static class TestHandler implements IRequestHandler
+	{
+		private final String name;
+
+		private TestHandler(String name)
+		{
+			this.name = name;
+		}
+
+		@Override
+		public void respond(IRequestCycle requestCycle)
+		{
+		}
+	}
+
+	private static class TestRequest extends Request
+	{
+		private final Url url;
+
+		private TestRequest(Url url)
+		{
+			this.url = url;
+		}
+
+		@Override
+		public Url getUrl()
+		{
+			return url;
+		}
+
+		@Override
+		public Url getClientUrl()
+		{
+			return url;
+		}
+
+		@Override
+		public Locale getLocale()
+		{
+			return Locale.getDefault();
+		}
+
+		@Override
+		public Charset getCharset()
+		{
+			return Charset.forName("UTF-8");
+		}
+
+		@Override
+		public Object getContainerRequest()
+		{
+			return null;
+		}
+	}
 }
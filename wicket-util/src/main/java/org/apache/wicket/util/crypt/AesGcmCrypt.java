@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.crypt;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts and decrypts with AES in Galois/Counter Mode, which authenticates the encrypted data
+ * too.
+ * <p>
+ * The secret key is derived from {@link #getKey()} with PBKDF2 once per instance, the
+ * {@link Cipher}s are kept per thread. Instances are thread-safe, so these should be shared, e.g.
+ * per session by {@code KeyInSessionSunJceCryptFactory}:
+ * </p>
+ *
+ * <pre>
+ * getSecuritySettings().setCryptFactory(new KeyInSessionSunJceCryptFactory()
+ * {
+ * 	protected ICrypt createCrypt()
+ * 	{
+ * 		return new AesGcmCrypt();
+ * 	}
+ * });
+ * </pre>
+ *
+ * Each encryption uses a random initialization vector, which is prepended to the encrypted data
+ * along with the authentication tag, adding {@value #OVERHEAD} bytes.
+ */
+public class AesGcmCrypt extends AbstractCrypt
+{
+	/** Name of the encryption method */
+	public static final String CRYPT_METHOD = "AES/GCM/NoPadding";
+
+	/** Length of the initialization vector in bytes */
+	private static final int IV_LENGTH = 12;
+
+	/** Length of the authentication tag in bits */
+	private static final int TAG_LENGTH = 128;
+
+	/** Bytes added to the encrypted data */
+	public static final int OVERHEAD = IV_LENGTH + TAG_LENGTH / 8;
+
+	/** Iteration count of the key derivation */
+	private static final int ITERATIONS = 10000;
+
+	/** Length of the derived key in bits */
+	private static final int KEY_LENGTH = 128;
+
+	/** Salt of the key derivation */
+	private static final byte[] SALT = { (byte)0x3e, (byte)0x91, (byte)0x07, (byte)0xd4,
+			(byte)0x5a, (byte)0xc2, (byte)0x68, (byte)0x1f, (byte)0xb3, (byte)0x24, (byte)0x9e,
+			(byte)0x70, (byte)0x05, (byte)0xea, (byte)0x47, (byte)0xc9 };
+
+	private static final ThreadLocal<Cipher> CIPHERS = new ThreadLocal<>();
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/** The key derived from {@link #getKey()}, lazily initialized */
+	private volatile SecretKey secretKey;
+
+	@Override
+	public void setKey(final String key)
+	{
+		super.setKey(key);
+
+		secretKey = null;
+	}
+
+	@Override
+	protected byte[] crypt(final byte[] input, final int mode) throws GeneralSecurityException
+	{
+		Cipher cipher = getCipher();
+
+		if (mode == Cipher.ENCRYPT_MODE)
+		{
+			byte[] iv = new byte[IV_LENGTH];
+			RANDOM.nextBytes(iv);
+			cipher.init(mode, getSecretKey(), new GCMParameterSpec(TAG_LENGTH, iv));
+
+			ByteBuffer output = ByteBuffer.allocate(IV_LENGTH + cipher.getOutputSize(input.length));
+			output.put(iv);
+			cipher.doFinal(ByteBuffer.wrap(input), output);
+			return output.array();
+		}
+		else
+		{
+			if (input.length < OVERHEAD)
+			{
+				throw new GeneralSecurityException("Encrypted data too short");
+			}
+			cipher.init(mode, getSecretKey(), new GCMParameterSpec(TAG_LENGTH, input, 0, IV_LENGTH));
+			return cipher.doFinal(input, IV_LENGTH, input.length - IV_LENGTH);
+		}
+	}
+
+	/**
+	 * @return the cipher of the current thread
+	 * @throws GeneralSecurityException
+	 */
+	private static Cipher getCipher() throws GeneralSecurityException
+	{
+		Cipher cipher = CIPHERS.get();
+		if (cipher == null)
+		{
+			cipher = Cipher.getInstance(CRYPT_METHOD);
+			CIPHERS.set(cipher);
+		}
+		return cipher;
+	}
+
+	/**
+	 * @return the secret key derived from {@link #getKey()}
+	 * @throws GeneralSecurityException
+	 */
+	private SecretKey getSecretKey() throws GeneralSecurityException
+	{
+		SecretKey result = secretKey;
+		if (result == null)
+		{
+			result = deriveKey(getKey());
+			secretKey = result;
+		}
+		return result;
+	}
+
+	private static SecretKey deriveKey(String key) throws GeneralSecurityException
+	{
+		SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+		PBEKeySpec spec = new PBEKeySpec(key.toCharArray(), SALT, ITERATIONS, KEY_LENGTH);
+		try
+		{
+			return new SecretKeySpec(factory.generateSecret(spec).getEncoded(), "AES");
+		}
+		finally
+		{
+			spec.clearPassword();
+		}
+	}
+}
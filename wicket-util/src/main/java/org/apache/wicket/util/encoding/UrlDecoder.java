@@ -85,7 +85,7 @@ public class UrlDecoder
 	 *            string to decode
 	 * @param enc
 	 *            encoding to decode with
-	 * @return decoded string
+	 * @return decoded string, {@code s} itself if nothing has to be decoded
 	 * @see java.net.URLDecoder#decode(String, String)
 	 */
 	public String decode(final String s, final String enc)
@@ -95,16 +95,21 @@ public class UrlDecoder
 			return s;
 		}
 
-		int numChars = s.length();
-		StringBuilder sb = new StringBuilder(numChars > 500 ? numChars / 2 : numChars);
-		int i = 0;
-
 		if (enc.length() == 0)
 		{
 			throw new RuntimeException(new UnsupportedEncodingException(
 				"URLDecoder: empty string enc parameter"));
 		}
 
+		if (needsDecoding(s) == false)
+		{
+			return s;
+		}
+
+		int numChars = s.length();
+		StringBuilder sb = new StringBuilder(numChars > 500 ? numChars / 2 : numChars);
+		int i = 0;
+
 		char c;
 		byte[] bytes = null;
 		while (i < numChars)
@@ -183,4 +188,22 @@ public class UrlDecoder
 		// that way none will come through
 		return sb.toString().replace("\0", "NULL");
 	}
+
+	/**
+	 * @param s
+	 *            string to check
+	 * @return {@code true} if decoding changes the string
+	 */
+	private boolean needsDecoding(final String s)
+	{
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if (c == '%' || c == '\0' || (c == '+' && decodePlus))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
 }
\ No newline at end of file
@@ -228,12 +228,21 @@ public class UrlEncoder
 	 *            string to encode
 	 * @param charset
 	 *            charset to use for encoding
-	 * @return encoded string
+	 * @return encoded string, {@code s} itself if no character has to be encoded
 	 * @see java.net.URLEncoder#encode(String, String)
 	 */
 	public String encode(final String s, final Charset charset)
 	{
-		return encode(s, charset.name());
+		Args.notNull(charset, "charset");
+
+		if (needsEncoding(s) == false)
+		{
+			return s;
+		}
+
+		StringBuilder out = new StringBuilder(s.length() + 16);
+		encode(s, charset, out);
+		return out.toString();
 	}
 
 	/**
@@ -246,13 +255,9 @@ public class UrlEncoder
 	 */
 	public String encode(final String unsafeInput, final String charsetName)
 	{
-		final String s = unsafeInput.replace("\0", "NULL");
-		StringBuilder out = new StringBuilder(s.length());
-		Charset charset;
-		CharArrayWriter charArrayWriter = new CharArrayWriter();
-
 		Args.notNull(charsetName, "charsetName");
 
+		Charset charset;
 		try
 		{
 			charset = Charset.forName(charsetName);
@@ -262,6 +267,43 @@ public class UrlEncoder
 			throw new RuntimeException(new UnsupportedEncodingException(charsetName));
 		}
 
+		return encode(unsafeInput, charset);
+	}
+
+	/**
+	 * @param s
+	 *            string to check
+	 * @return {@code true} if encoding changes the string
+	 */
+	private boolean needsEncoding(final String s)
+	{
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if (c == ' ' || dontNeedEncoding.get(c) == false)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends the encoded string to a builder.
+	 * 
+	 * @param unsafeInput
+	 *            string to encode
+	 * @param charset
+	 *            charset to use for encoding
+	 * @param out
+	 *            builder to append to
+	 */
+	public void encode(final String unsafeInput, final Charset charset, final StringBuilder out)
+	{
+		final String s = unsafeInput.indexOf('\0') == -1 ? unsafeInput : unsafeInput.replace(
+			"\0", "NULL");
+		CharArrayWriter charArrayWriter = null;
+
 		for (int i = 0; i < s.length();)
 		{
 			int c = s.charAt(i);
@@ -280,6 +322,10 @@ public class UrlEncoder
 			else
 			{
 				// convert to external encoding before hex conversion
+				if (charArrayWriter == null)
+				{
+					charArrayWriter = new CharArrayWriter();
+				}
 				do
 				{
 					charArrayWriter.write(c);
@@ -339,7 +385,5 @@ public class UrlEncoder
 				charArrayWriter.reset();
 			}
 		}
-
-		return out.toString();
 	}
 }
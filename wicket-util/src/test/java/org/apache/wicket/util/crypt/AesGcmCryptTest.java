@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.crypt;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AesGcmCrypt}
+ */
+public class AesGcmCryptTest extends Assert
+{
+	/**
+	 * Encrypted text can be decrypted by any instance with the same key.
+	 */
+	@Test
+	public void encryptDecrypt()
+	{
+		AesGcmCrypt crypt = new AesGcmCrypt();
+		crypt.setKey("key");
+
+		String encrypted = crypt.encryptUrlSafe("input");
+		assertNotEquals("input", encrypted);
+		assertNotEquals(encrypted, crypt.encryptUrlSafe("input"));
+
+		AesGcmCrypt other = new AesGcmCrypt();
+		other.setKey("key");
+		assertEquals("input", other.decryptUrlSafe(encrypted));
+
+		other.setKey("other");
+		assertNull(other.decryptUrlSafe(encrypted));
+	}
+
+	/**
+	 * The overhead is fixed.
+	 *
+	 * @throws GeneralSecurityException
+	 */
+	@Test
+	public void overhead() throws GeneralSecurityException
+	{
+		AesGcmCrypt crypt = new AesGcmCrypt();
+
+		assertEquals(AesGcmCrypt.OVERHEAD, crypt.crypt(new byte[0], Cipher.ENCRYPT_MODE).length);
+		assertEquals(AesGcmCrypt.OVERHEAD + 100,
+			crypt.crypt(new byte[100], Cipher.ENCRYPT_MODE).length);
+	}
+
+	/**
+	 * Modified or truncated data is rejected.
+	 *
+	 * @throws GeneralSecurityException
+	 */
+	@Test
+	public void tampered() throws GeneralSecurityException
+	{
+		AesGcmCrypt crypt = new AesGcmCrypt();
+		byte[] encrypted = crypt.crypt("input".getBytes(), Cipher.ENCRYPT_MODE);
+
+		encrypted[encrypted.length - 1] ^= 1;
+		try
+		{
+			crypt.crypt(encrypted, Cipher.DECRYPT_MODE);
+			fail();
+		}
+		catch (GeneralSecurityException expected)
+		{
+		}
+
+		try
+		{
+			crypt.crypt(new byte[AesGcmCrypt.OVERHEAD - 1], Cipher.DECRYPT_MODE);
+			fail();
+		}
+		catch (GeneralSecurityException expected)
+		{
+		}
+	}
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.util.encoding;
 
+import java.nio.charset.StandardCharsets;
+
 import org.apache.wicket.util.crypt.CharEncoding;
 import org.apache.wicket.util.encoding.UrlEncoder;
 import org.junit.Assert;
@@ -98,4 +100,19 @@ public class UrlEncoderTest extends Assert
 		assertEquals("someone%27s%20badNULL%20url",
 			UrlEncoder.PATH_INSTANCE.encode("someone's bad\0 url", CharEncoding.UTF_8));
 	}
+
+	/**
+	 * Strings without characters to encode are returned as they are.
+	 */
+	@Test
+	public void unchanged()
+	{
+		String s = "path;jsessionid=1234567890";
+		assertSame(s, UrlEncoder.PATH_INSTANCE.encode(s, StandardCharsets.UTF_8));
+		assertSame(s, UrlDecoder.PATH_INSTANCE.decode(s, StandardCharsets.UTF_8));
+
+		StringBuilder builder = new StringBuilder("a/");
+		UrlEncoder.QUERY_INSTANCE.encode("b c", StandardCharsets.UTF_8, builder);
+		assertEquals("a/b+c", builder.toString());
+	}
 }